@@ -6,6 +6,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import common.dataStructures.util.SmartIterator;
 import common.dataStructures.util.UnmodifiableEntry;
@@ -279,6 +281,27 @@ public class BiMap<K, V> extends AbstractMap<K, V> implements Cloneable, Map<K,
     return valueSet;
   }
 
+  /**
+   * Calls action on each key and value in this BiMap, without creating an iterator
+   * or entry objects.
+   *
+   * @throws java.util.ConcurrentModificationException - if action modifies this BiMap
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    forwardMap.forEach(action);
+  }
+
+  /**
+   * Calls action on each value and key in this BiMap, without creating an iterator
+   * or entry objects.
+   *
+   * @throws java.util.ConcurrentModificationException - if action modifies this BiMap
+   */
+  public void forEachFlipped(BiConsumer<? super V, ? super K> action) {
+    backMap.forEach(action);
+  }
+
   /**
    * Returns the set of entries &lt;Key, Value&gt; in this BiMap.
    * This is a read-only view of the map. Changes in the returned
@@ -377,6 +400,11 @@ public class BiMap<K, V> extends AbstractMap<K, V> implements Cloneable, Map<K,
       return BiMap.this.remove(o) != null;
     }
 
+    @Override
+    public void forEach(Consumer<? super K> action) {
+      forwardMap.keySet().forEach(action);
+    }
+
     @Override
     public Iterator<K> iterator() {
       return new SmartIterator<K>(new SingleIterator<K, V>(forwardMap, backMap), () -> modCount);
@@ -406,6 +434,11 @@ public class BiMap<K, V> extends AbstractMap<K, V> implements Cloneable, Map<K,
       }
     }
 
+    @Override
+    public void forEach(Consumer<? super V> action) {
+      backMap.keySet().forEach(action);
+    }
+
     @Override
     public Iterator<V> iterator() {
       return new SmartIterator<V>(new SingleIterator<V, K>(backMap, forwardMap), () -> modCount);
@@ -435,6 +468,11 @@ public class BiMap<K, V> extends AbstractMap<K, V> implements Cloneable, Map<K,
       }
     }
 
+    @Override
+    public void forEach(Consumer<? super Entry<K, V>> action) {
+      forwardMap.forEach((k, v) -> action.accept(new UnmodifiableEntry<K, V>(k, v)));
+    }
+
     @Override
     public Iterator<Entry<K, V>> iterator() {
       return new SmartIterator<Entry<K, V>>(new EntryIterator<K, V>(forwardMap, backMap), () -> modCount);
@@ -464,6 +502,11 @@ public class BiMap<K, V> extends AbstractMap<K, V> implements Cloneable, Map<K,
       }
     }
 
+    @Override
+    public void forEach(Consumer<? super Entry<V, K>> action) {
+      backMap.forEach((v, k) -> action.accept(new UnmodifiableEntry<V, K>(v, k)));
+    }
+
     @Override
     public Iterator<Entry<V, K>> iterator() {
       return new SmartIterator<Entry<V, K>>(new EntryIterator<V, K>(backMap, forwardMap), () -> modCount);
@@ -0,0 +1,562 @@
+package common.dataStructures;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread-safe, insertion ordered map. The concurrent counterpart of
+ * {@link common.dataStructures.LinkedHashMap}.
+ * <br><br>
+ * Keys are striped across a fixed number of segments by hash. Each segment has its own
+ * lock, which guards every write to its keys, and its own chain of entries in insertion
+ * order. Entries are stamped with a global insertion sequence number, so iteration merges
+ * the segment chains by sequence number to recover the overall insertion order.
+ * Writers to different segments never contend.
+ * <br><br>
+ * Reads (get, containsKey) never block: entries are looked up in a ConcurrentHashMap,
+ * and values are volatile. Iteration is weakly consistent - it never throws a
+ * ConcurrentModificationException, returns each live entry at most once, reflects every
+ * entry present when it started that isn't removed before being reached, and may or may
+ * not reflect later modifications.
+ * <br><br>
+ * Null keys and values aren't allowed.
+ *
+ * @param <K> - the type of keys
+ * @param <V> - the type of values
+ * @author Mshnik
+ */
+public class ConcurrentLinkedHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+  /**
+   * The number of segments used if not given a concurrency level
+   */
+  public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+  /**
+   * A single entry in the map, linked into the chain of its segment.
+   * next is volatile so iterators can follow the chain without locking;
+   * prev is only used under the segment lock.
+   */
+  private static class Node<K, V> {
+    private final K key;
+    private volatile V val;
+    private final long seq;
+    private volatile Node<K, V> next;
+    private Node<K, V> prev;
+    private volatile boolean removed;
+
+    private Node(K key, V val, long seq) {
+      this.key = key;
+      this.val = val;
+      this.seq = seq;
+    }
+  }
+
+  /**
+   * A segment: a lock and a chain of the nodes of its keys, in insertion order,
+   * starting from a sentinel node
+   */
+  private static class Segment<K, V> extends ReentrantLock {
+    private static final long serialVersionUID = 1L;
+
+    private final Node<K, V> sentinel = new Node<>(null, null, -1);
+    private Node<K, V> tail = sentinel;
+
+    /** Appends node to the chain. Must hold the lock */
+    private void link(Node<K, V> node) {
+      node.prev = tail;
+      tail.next = node;
+      tail = node;
+    }
+
+    /**
+     * Removes node from the chain, leaving its own next intact so iterators positioned
+     * on it can continue. Must hold the lock
+     */
+    private void unlink(Node<K, V> node) {
+      node.removed = true;
+      node.prev.next = node.next;
+      if (node.next != null) node.next.prev = node.prev;
+      if (node == tail) tail = node.prev;
+    }
+  }
+
+  private final ConcurrentHashMap<K, Node<K, V>> map;
+  private final Segment<K, V>[] segments;
+  private final int segmentMask;
+  private final AtomicLong nextSeq;
+
+  private EntrySet entrySet;
+
+  /**
+   * Constructs an empty ConcurrentLinkedHashMap with the default concurrency level
+   */
+  public ConcurrentLinkedHashMap() {
+    this(DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Constructs an empty ConcurrentLinkedHashMap with at least concurrencyLevel segments,
+   * so about that many threads can write at once without contention.
+   *
+   * @throws IllegalArgumentException - if concurrencyLevel &lt; 1
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentLinkedHashMap(int concurrencyLevel) throws IllegalArgumentException {
+    if (concurrencyLevel < 1)
+      throw new IllegalArgumentException("Concurrency level must be positive, got " + concurrencyLevel);
+    int n = 1;
+    while (n < concurrencyLevel && n < (1 << 16)) {
+      n <<= 1;
+    }
+    segments = (Segment<K, V>[]) new Segment<?, ?>[n];
+    for (int i = 0; i < n; i++) {
+      segments[i] = new Segment<>();
+    }
+    segmentMask = n - 1;
+    map = new ConcurrentHashMap<>(DEFAULT_CONCURRENCY_LEVEL, 0.75f, n);
+    nextSeq = new AtomicLong();
+  }
+
+  /**
+   * Constructs a ConcurrentLinkedHashMap containing the mappings of m, in m's iteration order
+   */
+  public ConcurrentLinkedHashMap(Map<? extends K, ? extends V> m) {
+    this();
+    putAll(m);
+  }
+
+  /**
+   * Returns the segment responsible for key
+   */
+  private Segment<K, V> segmentFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[(h * 0x9E3779B1 >>> 16) & segmentMask];
+  }
+
+  private static void checkNotNull(Object key, Object value) throws IllegalArgumentException {
+    if (key == null)
+      throw new IllegalArgumentException("Null keys not allowed");
+    if (value == null)
+      throw new IllegalArgumentException("Null values not allowed");
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  /**
+   * Returns true iff key is in this map. Never blocks.
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    return key != null && map.containsKey(key);
+  }
+
+  /**
+   * Returns the value mapped to key, or null if none. Never blocks.
+   */
+  @Override
+  public V get(Object key) {
+    if (key == null) return null;
+    Node<K, V> node = map.get(key);
+    return node == null ? null : node.val;
+  }
+
+  /**
+   * Maps key to value. A new key is added to the end of the iteration order; an existing
+   * key keeps its position.
+   *
+   * @return the previous value mapped to key, or null if none
+   * @throws IllegalArgumentException - if key or value is null
+   */
+  @Override
+  public V put(K key, V value) throws IllegalArgumentException {
+    return put(key, value, false);
+  }
+
+  /**
+   * Maps key to value iff key isn't already in this map
+   *
+   * @return the value already mapped to key, or null if value was put
+   * @throws IllegalArgumentException - if key or value is null
+   */
+  @Override
+  public V putIfAbsent(K key, V value) throws IllegalArgumentException {
+    return put(key, value, true);
+  }
+
+  private V put(K key, V value, boolean onlyIfAbsent) {
+    checkNotNull(key, value);
+    Segment<K, V> seg = segmentFor(key);
+    seg.lock();
+    try {
+      Node<K, V> node = map.get(key);
+      if (node != null) {
+        V oldVal = node.val;
+        if (!onlyIfAbsent) node.val = value;
+        return oldVal;
+      }
+      node = new Node<>(key, value, nextSeq.getAndIncrement());
+      seg.link(node);
+      map.put(key, node);
+      return null;
+    } finally {
+      seg.unlock();
+    }
+  }
+
+  /**
+   * Removes the mapping for key, if any
+   *
+   * @return the value that was mapped to key, or null if none
+   */
+  @Override
+  public V remove(Object key) {
+    if (key == null) return null;
+    Segment<K, V> seg = segmentFor(key);
+    seg.lock();
+    try {
+      Node<K, V> node = map.remove(key);
+      if (node == null) return null;
+      seg.unlink(node);
+      return node.val;
+    } finally {
+      seg.unlock();
+    }
+  }
+
+  /**
+   * Removes the mapping for key iff it is currently mapped to value
+   *
+   * @return true iff the mapping was removed
+   */
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (key == null || value == null) return false;
+    Segment<K, V> seg = segmentFor(key);
+    seg.lock();
+    try {
+      Node<K, V> node = map.get(key);
+      if (node == null || !Objects.equals(node.val, value)) return false;
+      map.remove(key);
+      seg.unlink(node);
+      return true;
+    } finally {
+      seg.unlock();
+    }
+  }
+
+  /**
+   * Replaces the value of key with newValue iff it is currently mapped to oldValue
+   *
+   * @return true iff the value was replaced
+   * @throws IllegalArgumentException - if any argument is null
+   */
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) throws IllegalArgumentException {
+    checkNotNull(key, oldValue);
+    checkNotNull(key, newValue);
+    Segment<K, V> seg = segmentFor(key);
+    seg.lock();
+    try {
+      Node<K, V> node = map.get(key);
+      if (node == null || !Objects.equals(node.val, oldValue)) return false;
+      node.val = newValue;
+      return true;
+    } finally {
+      seg.unlock();
+    }
+  }
+
+  /**
+   * Replaces the value of key with value iff key is currently in this map
+   *
+   * @return the previous value of key, or null if key wasn't in this map
+   * @throws IllegalArgumentException - if key or value is null
+   */
+  @Override
+  public V replace(K key, V value) throws IllegalArgumentException {
+    checkNotNull(key, value);
+    Segment<K, V> seg = segmentFor(key);
+    seg.lock();
+    try {
+      Node<K, V> node = map.get(key);
+      if (node == null) return null;
+      V oldVal = node.val;
+      node.val = value;
+      return oldVal;
+    } finally {
+      seg.unlock();
+    }
+  }
+
+  /**
+   * If key isn't in this map, maps it to the result of mappingFunction (unless that is null).
+   * The function is called at most once, under the key's segment lock, so it should be short
+   * and must not modify this map.
+   *
+   * @return the value now mapped to key, or null if none
+   * @throws IllegalArgumentException - if key is null
+   */
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) throws IllegalArgumentException {
+    V v = get(key);
+    if (v != null) return v;
+    return update(key, old -> old != null ? old : mappingFunction.apply(key));
+  }
+
+  /**
+   * If key is in this map, sets its value to the result of remappingFunction, or removes it
+   * if that is null. The function is called under the key's segment lock, so it should be
+   * short and must not modify this map.
+   *
+   * @return the value now mapped to key, or null if none
+   * @throws IllegalArgumentException - if key is null
+   */
+  @Override
+  public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+      throws IllegalArgumentException {
+    return update(key, old -> old == null ? null : remappingFunction.apply(key, old));
+  }
+
+  /**
+   * Sets the value of key to the result of remappingFunction on its current value (or null),
+   * or removes it if that is null. A new key is added to the end of the iteration order.
+   * The function is called under the key's segment lock, so it should be short and must not
+   * modify this map.
+   *
+   * @return the value now mapped to key, or null if none
+   * @throws IllegalArgumentException - if key is null
+   */
+  @Override
+  public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+      throws IllegalArgumentException {
+    return update(key, old -> remappingFunction.apply(key, old));
+  }
+
+  /**
+   * Maps key to value if it isn't in this map, and otherwise to the result of
+   * remappingFunction on its current value and value, removing it if that is null.
+   * The function is called under the key's segment lock, so it should be short and must not
+   * modify this map.
+   *
+   * @return the value now mapped to key, or null if none
+   * @throws IllegalArgumentException - if key or value is null
+   */
+  @Override
+  public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+      throws IllegalArgumentException {
+    checkNotNull(key, value);
+    return update(key, old -> old == null ? value : remappingFunction.apply(old, value));
+  }
+
+  /**
+   * Sets the value of key to f applied to its current value (or null if none) under the
+   * key's segment lock, removing key if the result is null. Returns the result.
+   */
+  private V update(K key, Function<? super V, ? extends V> f) throws IllegalArgumentException {
+    if (key == null)
+      throw new IllegalArgumentException("Null keys not allowed");
+    Segment<K, V> seg = segmentFor(key);
+    seg.lock();
+    try {
+      Node<K, V> node = map.get(key);
+      V newVal = f.apply(node == null ? null : node.val);
+      if (newVal == null) {
+        if (node != null) {
+          map.remove(key);
+          seg.unlink(node);
+        }
+      } else if (node != null) {
+        node.val = newVal;
+      } else {
+        node = new Node<>(key, newVal, nextSeq.getAndIncrement());
+        seg.link(node);
+        map.put(key, node);
+      }
+      return newVal;
+    } finally {
+      seg.unlock();
+    }
+  }
+
+  /**
+   * Removes all mappings, one segment at a time. Mappings put concurrently may survive.
+   */
+  @Override
+  public void clear() {
+    for (Segment<K, V> seg : segments) {
+      seg.lock();
+      try {
+        for (Node<K, V> node = seg.sentinel.next; node != null; node = node.next) {
+          map.remove(node.key);
+          node.removed = true;
+        }
+        seg.sentinel.next = null;
+        seg.tail = seg.sentinel;
+      } finally {
+        seg.unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns the oldest entry in this map, or null if it is empty
+   */
+  public Entry<K, V> getFirst() {
+    Iterator<Entry<K, V>> iter = entrySet().iterator();
+    return iter.hasNext() ? iter.next() : null;
+  }
+
+  /**
+   * Returns a weakly consistent view of the entries of this map, in insertion order
+   */
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    if (entrySet == null) entrySet = new EntrySet();
+    return entrySet;
+  }
+
+  private class EntrySet extends AbstractSet<Entry<K, V>> {
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new MergeIterator();
+    }
+
+    @Override
+    public int size() {
+      return ConcurrentLinkedHashMap.this.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Entry<?, ?>)) return false;
+      Entry<?, ?> e = (Entry<?, ?>) o;
+      V v = get(e.getKey());
+      return v != null && v.equals(e.getValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      if (!(o instanceof Entry<?, ?>)) return false;
+      Entry<?, ?> e = (Entry<?, ?>) o;
+      return ConcurrentLinkedHashMap.this.remove(e.getKey(), e.getValue());
+    }
+
+    @Override
+    public void clear() {
+      ConcurrentLinkedHashMap.this.clear();
+    }
+  }
+
+  /**
+   * An entry returned by iteration. Holds the value seen when it was returned;
+   * setValue writes through to the map.
+   */
+  private class WriteThroughEntry extends SimpleEntry<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private WriteThroughEntry(K k, V v) {
+      super(k, v);
+    }
+
+    @Override
+    public V setValue(V value) {
+      checkNotNull(getKey(), value);
+      V v = super.setValue(value);
+      put(getKey(), value);
+      return v;
+    }
+  }
+
+  /**
+   * Iterates over the entries of this map in insertion order by merging the chains of the
+   * segments: each step returns the live node with the smallest sequence number among the
+   * next live nodes of each segment. Segments are few, so a linear scan picks the minimum.
+   */
+  private class MergeIterator implements Iterator<Entry<K, V>> {
+
+    /** The next live node of each segment's chain, or null if that chain is exhausted */
+    private final Node<K, V>[] cursors;
+
+    /** The key of the entry most recently returned, or null if none or it was removed */
+    private K lastKey;
+
+    @SuppressWarnings("unchecked")
+    private MergeIterator() {
+      cursors = (Node<K, V>[]) new Node<?, ?>[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        cursors[i] = nextLive(segments[i].sentinel);
+      }
+    }
+
+    /** Returns the first live node after node in its chain, or null if none */
+    private Node<K, V> nextLive(Node<K, V> node) {
+      Node<K, V> n = node.next;
+      while (n != null && n.removed) {
+        n = n.next;
+      }
+      return n;
+    }
+
+    /** Moves each cursor past nodes removed since it reached them */
+    private void skipRemoved() {
+      for (int i = 0; i < cursors.length; i++) {
+        if (cursors[i] != null && cursors[i].removed) {
+          cursors[i] = nextLive(cursors[i]);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      skipRemoved();
+      for (Node<K, V> n : cursors) {
+        if (n != null) return true;
+      }
+      return false;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      skipRemoved();
+      int min = -1;
+      for (int i = 0; i < cursors.length; i++) {
+        if (cursors[i] != null && (min == -1 || cursors[i].seq < cursors[min].seq)) {
+          min = i;
+        }
+      }
+      if (min == -1) throw new NoSuchElementException();
+      Node<K, V> node = cursors[min];
+      cursors[min] = nextLive(node);
+      lastKey = node.key;
+      return new WriteThroughEntry(node.key, node.val);
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) throw new IllegalStateException();
+      ConcurrentLinkedHashMap.this.remove(lastKey);
+      lastKey = null;
+    }
+  }
+}
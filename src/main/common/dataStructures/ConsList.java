@@ -235,7 +235,8 @@ public class ConsList<E> implements Iterable<E> {
 
   /**
    * Returns a Spliterator over the elements in this ConsList.
-   * The returned Spliterator is sized, immutable, and concurrent
+   * The returned Spliterator is ordered, sized, subsized, and immutable,
+   * and splits into balanced halves. See {@link ConsSpliterator}.
    */
   @Override
   public Spliterator<E> spliterator() {
@@ -361,13 +362,26 @@ public class ConsList<E> implements Iterable<E> {
     }
   }
 
-  /** Helper class for spliterating over ConsList
+  /** Helper class for spliterating over ConsList.
+   * Because every ConsList node caches its own size, the number of elements
+   * remaining in a ConsSpliterator is always known in O(1) without walking the list.
+   * That lets trySplit plan a balanced split up front: it copies the front half
+   * of the remaining elements into an array and hands that off as an array-backed
+   * Spliterator (which splits itself in O(1) thereafter), keeping the back half as
+   * a cons walk. Each split walks only the half it gives away, so splitting all the
+   * way down copies each element at most once.
    *
    * @param <E>
    * @author Mshnik
    */
   static class ConsSpliterator<E> implements Spliterator<E> {
 
+    /** The largest number of elements copied into an array by a single split */
+    static final int MAX_BATCH = 1 << 25;
+
+    /** The smallest number of elements worth splitting off into a batch */
+    static final int MIN_BATCH = 2;
+
     private ConsList<E> next;
     private final ConsList<E> end; //When next==end, this Spliterator is done
 
@@ -387,18 +401,27 @@ public class ConsList<E> implements Iterable<E> {
       }
     }
 
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+      while (!next.isNil() && next != end) {
+        action.accept(next.head);
+        next = next.tail;
+      }
+    }
+
     @Override
     public Spliterator<E> trySplit() {
-      if(estimateSize() <= 1) {
+      long size = estimateSize();
+      if(size < MIN_BATCH) {
         return null;
-      } else {
-        ConsList<E> first = next;
-        long size = estimateSize();
-        for(int i = 0; i < size / 2; i++) {
-          next = next.tail;
-        }
-        return new ConsSpliterator<>(first, next);
       }
+      int batch = (int) Math.min(size / 2, MAX_BATCH);
+      Object[] arr = new Object[batch];
+      for(int i = 0; i < batch; i++) {
+        arr[i] = next.head;
+        next = next.tail;
+      }
+      return Spliterators.spliterator(arr, 0, batch, characteristics());
     }
 
     @Override
@@ -406,9 +429,14 @@ public class ConsList<E> implements Iterable<E> {
       return next.size - (end != null ? end.size : 0);
     }
 
+    @Override
+    public long getExactSizeIfKnown() {
+      return estimateSize();
+    }
+
     @Override
     public int characteristics() {
-      return SIZED | IMMUTABLE | CONCURRENT;
+      return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
     }
   }
 }
@@ -0,0 +1,116 @@
+package common.dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A Count-Min Sketch is a fixed-size, probabilistic frequency counter.
+ * Each element is hashed into one counter in each of several rows, and its frequency
+ * estimate is the minimum of those counters. Collisions can only inflate counters,
+ * so estimates never undercount; with conservative updates (only the smallest counters
+ * for an element are incremented) the overcount is small.
+ * <br><br>
+ * Counters saturate at MAX_COUNT, and once sampleSize increments have been recorded
+ * every counter is halved. This ages out old popularity, so the sketch tracks recent
+ * frequency rather than all-time frequency - as used for cache admission decisions
+ * (see {@link common.dataStructures.LinkedHashMap#withTinyLfuAdmission()}).
+ *
+ * @author Mshnik
+ */
+public class CountMinSketch<T> {
+
+  /** The largest value a counter can reach */
+  public static final int MAX_COUNT = 15;
+
+  /** Odd multipliers used to derive an independent index for each row */
+  private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+
+  private final int[][] counts;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Constructs a CountMinSketch sized for about expectedElements distinct elements.
+   * Counters are halved every 10 * expectedElements increments.
+   *
+   * @throws IllegalArgumentException - if expectedElements &lt; 1
+   */
+  public CountMinSketch(int expectedElements) throws IllegalArgumentException {
+    if (expectedElements < 1)
+      throw new IllegalArgumentException("Must expect at least one element, got " + expectedElements);
+    int width = Integer.highestOneBit(Math.max(16, Math.min(1 << 26, expectedElements) - 1)) << 1;
+    counts = new int[SEEDS.length][width];
+    mask = width - 1;
+    sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * expectedElements);
+    additions = 0;
+  }
+
+  /** Returns the counter index of an element with hash h in the given row */
+  private int indexOf(int h, int row) {
+    int x = h * SEEDS[row];
+    return (x ^ (x >>> 16)) & mask;
+  }
+
+  /** Spreads the bits of a hashCode so that low bits depend on the whole hash */
+  private static int spread(Object o) {
+    int h = o.hashCode() * 0x7FEB352D;
+    return h ^ (h >>> 15);
+  }
+
+  /**
+   * Records one occurrence of t.
+   */
+  public void increment(T t) {
+    int h = spread(t);
+    int min = estimate(h);
+    if (min >= MAX_COUNT) return;
+    for (int row = 0; row < counts.length; row++) {
+      int i = indexOf(h, row);
+      if (counts[row][i] == min) {
+        counts[row][i]++;
+      }
+    }
+    additions++;
+    if (additions >= sampleSize) {
+      halve();
+    }
+  }
+
+  /**
+   * Returns the estimated number of recent occurrences of o. Never less than the true
+   * count since the last halving, and never more than MAX_COUNT.
+   */
+  public int estimate(Object o) {
+    return estimate(spread(o));
+  }
+
+  private int estimate(int h) {
+    int min = Integer.MAX_VALUE;
+    for (int row = 0; row < counts.length; row++) {
+      min = Math.min(min, counts[row][indexOf(h, row)]);
+    }
+    return min;
+  }
+
+  /**
+   * Halves every counter, aging out old occurrences
+   */
+  private void halve() {
+    for (int[] row : counts) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] >>>= 1;
+      }
+    }
+    additions /= 2;
+  }
+
+  /**
+   * Resets every counter to 0
+   */
+  public void clear() {
+    for (int[] row : counts) {
+      Arrays.fill(row, 0);
+    }
+    additions = 0;
+  }
+}
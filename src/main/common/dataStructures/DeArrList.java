@@ -1,6 +1,8 @@
 package common.dataStructures;
 
+import java.lang.reflect.Array;
 import java.util.*;
+import java.util.function.Consumer;
 
 import common.Util;
 import common.dataStructures.util.SmartIterator;
@@ -12,7 +14,7 @@ import common.dataStructures.util.SmartIterator;
  * it does not shift elements when adding to the beginning or the end of the array.
  * This allows it to achieve amortized O(1) append (add to end) and prepend (add to front)
  * behavior. Both operations are amortized O(1), as they do require
- * reArraying the whole DeArrList whenever it would become full. <br>
+ * reArraying the whole DeArrList whenever an element is added to a full array. <br>
  * Any shifting that is done as the result of an insertion (insert in middle)
  * is optimized to be the smaller of the two shifts. This does not change the
  * O(N) time required to add or remove from the middle of the array, but
@@ -31,12 +33,28 @@ import common.dataStructures.util.SmartIterator;
  */
 public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>, RandomAccess {
 
-  //start will never equal end. ReArray whenever this would become the case.
+  //The elements are at array positions wrap(start) .. wrap(start + size - 1), wrapping
+  //around the array (by mask in power of two mode), and end == wrap(start + size).
+  //So start == end both when the list is empty and when the array is completely full -
+  //size tells the two apart. Adding to a full array reArrays it first.
   private int start; //inclusive
   private int end; //exclusive
   private int size; //Number of elements in list
   private Object[] vals;
 
+  /**
+   * True iff vals.length is always a power of two, so indices can be wrapped with a
+   * bitmask instead of a modulo.
+   */
+  private final boolean powerOfTwo;
+
+  /**
+   * True iff the array should be halved whenever it drops below a quarter full.
+   * The array is never shrunk below minCapacity.
+   */
+  private boolean shrinkOnDrain;
+  private int minCapacity;
+
   /**
    * The default size DeArLists are initialized to if not provided a size
    */
@@ -64,16 +82,105 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
    * Returns a new DeArrList with initial size {@code size}
    */
   public DeArrList(int size) {
+    this(size, false);
+  }
+
+  /**
+   * Returns a new DeArrList with initial size {@code size}. If powerOfTwo is true,
+   * the size is rounded up to a power of two, and the underlying array will always
+   * have a power of two length. This lets every access wrap its index with a bitmask
+   * rather than a modulo, at the cost of up to double the memory of an exact size.
+   */
+  public DeArrList(int size, boolean powerOfTwo) {
+    this.powerOfTwo = powerOfTwo;
+    if (powerOfTwo) size = ceilPowerOfTwo(size);
     vals = new Object[size];
     start = size / 4;
     end = size / 4;
+    minCapacity = size;
   }
 
   /**
-   * Returns a new DeArrList with the same elements (in the same order) as this
+   * Returns a new DeArrList with the same elements (in the same order) as this,
+   * and the same array mode and shrink policy.
    */
   public DeArrList<E> clone() {
-    return new DeArrList<E>(this);
+    DeArrList<E> d = new DeArrList<E>(Math.max(minCapacity, size()), powerOfTwo);
+    d.setShrinkOnDrain(shrinkOnDrain, minCapacity);
+    d.addAll(this);
+    return d;
+  }
+
+  /**
+   * Returns the smallest power of two that is at least n, and at least 1
+   */
+  private static int ceilPowerOfTwo(int n) {
+    if (n <= 1) return 1;
+    if (n > (1 << 30)) throw new IllegalArgumentException("Can't allocate array of size " + n);
+    return Integer.highestOneBit(n - 1) << 1;
+  }
+
+  /**
+   * Wraps an index into the underlying array. In power of two mode this is a single mask,
+   * which gives the same result as Util.mod (for negative indices too), without a division.
+   */
+  private int wrap(int index) {
+    if (powerOfTwo) {
+      return index & (vals.length - 1);
+    }
+    return Util.mod(index, vals.length);
+  }
+
+  /**
+   * Returns true iff this DeArrList keeps a power of two length array
+   */
+  public boolean isPowerOfTwo() {
+    return powerOfTwo;
+  }
+
+  /**
+   * Sets whether this DeArrList shrinks its underlying array as elements are removed.
+   * When enabled, the array is halved whenever fewer than a quarter of its slots are used.
+   * Because it then needs to double in size before growing again, alternating adds and
+   * removes around a boundary won't repeatedly reallocate. The array is never shrunk
+   * below minCapacity (rounded up to a power of two in power of two mode).
+   *
+   * @throws IllegalArgumentException - if minCapacity &lt; 1
+   */
+  public void setShrinkOnDrain(boolean shrinkOnDrain, int minCapacity) throws IllegalArgumentException {
+    if (minCapacity < 1)
+      throw new IllegalArgumentException("Min capacity must be positive, got " + minCapacity);
+    this.shrinkOnDrain = shrinkOnDrain;
+    this.minCapacity = powerOfTwo ? ceilPowerOfTwo(minCapacity) : minCapacity;
+  }
+
+  /**
+   * Sets whether this DeArrList shrinks its underlying array as elements are removed,
+   * never shrinking below DEFAULT_SIZE.
+   * See {@link common.dataStructures.DeArrList#setShrinkOnDrain(boolean, int)}
+   */
+  public void setShrinkOnDrain(boolean shrinkOnDrain) {
+    setShrinkOnDrain(shrinkOnDrain, DEFAULT_SIZE);
+  }
+
+  /**
+   * Returns true iff this DeArrList shrinks its underlying array as elements are removed
+   */
+  public boolean isShrinkOnDrain() {
+    return shrinkOnDrain;
+  }
+
+  /**
+   * Shrinks the underlying array to the smallest length that holds the elements of this
+   * DeArrList (the next power of two in power of two mode), releasing the rest of its memory.
+   * The next add will grow the array again.
+   */
+  public void trimToSize() {
+    int newSize = powerOfTwo ? ceilPowerOfTwo(size()) : Math.max(1, size());
+    if (newSize < vals.length) {
+      resize(newSize);
+      modCount++;
+    }
   }
 
   /**
@@ -130,18 +237,18 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
     //Move bridge portion
     int portion2 = Math.min(size - portion1, Math.abs(start - newStart));
     if (portion2 > 0) {
-      System.arraycopy(vals, Util.mod(start + portion1, vals.length), arr,
-          Util.mod(newStart + portion1, arr.length), portion2);
+      System.arraycopy(vals, wrap(start + portion1), arr,
+          wrap(newStart + portion1), portion2);
       //Move final portion
       int portion3 = size - portion1 - portion2;
       if (portion3 > 0) {
-        System.arraycopy(vals, Util.mod(start + portion1 + portion2, vals.length), arr,
-            Util.mod(newStart + portion1 + portion2, arr.length), portion3);
+        System.arraycopy(vals, wrap(start + portion1 + portion2), arr,
+            wrap(newStart + portion1 + portion2), portion3);
       }
     }
 
     start = newStart;
-    end = Util.mod(newStart + size, arr.length);
+    end = wrap(newStart + size);
     vals = arr;
   }
 
@@ -174,32 +281,127 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
   }
 
   /**
-   * Moves vals to a new array of length newSize, starting 1/4 of the way through
+   * Moves vals to a new array of length newSize (rounded up to a power of two in
+   * power of two mode), centered in the new array.
    * This is purely an internal operation and doesn't affect the list this represents
    * from the outside. It is used when the internal array must be increased in size.
    * Does nothing (and returns false) if newSize <= vals.length.
    * @return true if a reArray operation occurred this way, false otherwise.
    */
   private boolean reArray(int newSize) {
+    if (powerOfTwo) newSize = ceilPowerOfTwo(newSize);
     if (newSize <= vals.length) {
       return false;
     }
-    Object[] oArr = new Object[newSize];
-    if (size() == 0) {
-      vals = oArr;
-      return true;
+    resize(newSize);
+    return true;
+  }
+
+  /**
+   * Halves the array if shrinkOnDrain is set and fewer than a quarter of its slots are used.
+   * This is purely an internal operation and doesn't affect the list this represents
+   * from the outside.
+   */
+  private void shrinkIfNecessary() {
+    int newSize = vals.length;
+    //Bulk removals may need more than one halving
+    while (shrinkOnDrain && newSize > minCapacity && size() < newSize / 4) {
+      newSize = Math.max(minCapacity, newSize / 2);
     }
+    if (newSize < vals.length) {
+      resize(newSize);
+    }
+  }
+
+  /**
+   * Grows the array if necessary so that n more elements fit without reArraying.
+   */
+  private void ensureRoomFor(int n) {
+    if (size() + n > vals.length) {
+      reArray(Math.max(vals.length * 2, size() + n));
+    }
+  }
+
+  /**
+   * Copies len elements of this DeArrList, starting at (list) index from, into dest
+   * starting at destPos. Takes at most two arraycopies.
+   */
+  private void copyOut(int from, Object[] dest, int destPos, int len) {
+    int s = wrap(start + from);
+    int first = Math.min(len, vals.length - s);
+    System.arraycopy(vals, s, dest, destPos, first);
+    System.arraycopy(vals, 0, dest, destPos + first, len - first);
+  }
+
+  /**
+   * Copies len elements of src, starting at srcPos, into this DeArrList starting at
+   * (list) index to. Doesn't change size. Takes at most two arraycopies.
+   */
+  private void copyIn(Object[] src, int srcPos, int to, int len) {
+    int d = wrap(start + to);
+    int first = Math.min(len, vals.length - d);
+    System.arraycopy(src, srcPos, vals, d, first);
+    System.arraycopy(src, srcPos + first, vals, 0, len - first);
+  }
 
-    if (start < end) {
-      System.arraycopy(vals, start, oArr, vals.length / 2, end - start);
+  /**
+   * Moves the len slots starting at array position src (unwrapped) to start at dst (unwrapped),
+   * in at most three arraycopies. Handles overlap as long as src and dst are within one
+   * array length of each other.
+   */
+  private void ringMove(int src, int dst, int len) {
+    if (dst < src) {
+      //Moving down - copy from the front so no slot is overwritten before it's read
+      while (len > 0) {
+        int s = wrap(src);
+        int d = wrap(dst);
+        int chunk = Math.min(len, Math.min(vals.length - s, vals.length - d));
+        System.arraycopy(vals, s, vals, d, chunk);
+        src += chunk;
+        dst += chunk;
+        len -= chunk;
+      }
     } else {
-      System.arraycopy(vals, start, oArr, vals.length / 2, vals.length - start);
-      System.arraycopy(vals, 0, oArr, vals.length / 2 + (vals.length - start), end);
+      //Moving up - copy from the back
+      while (len > 0) {
+        int s = wrap(src + len - 1);
+        int d = wrap(dst + len - 1);
+        int chunk = Math.min(len, Math.min(s + 1, d + 1));
+        System.arraycopy(vals, s - chunk + 1, vals, d - chunk + 1, chunk);
+        len -= chunk;
+      }
+    }
+  }
+
+  /**
+   * Nulls out the len slots starting at array position from (unwrapped)
+   */
+  private void clearSlots(int from, int len) {
+    int s = wrap(from);
+    int first = Math.min(len, vals.length - s);
+    Arrays.fill(vals, s, s + first, null);
+    Arrays.fill(vals, 0, len - first, null);
+  }
+
+  /**
+   * Moves vals to a new array of length newSize, which must be at least size().
+   * The elements are centered in the new array. In power of two mode, newSize
+   * must be a power of two.
+   */
+  private void resize(int newSize) {
+    Object[] oArr = new Object[newSize];
+    int newStart = (newSize - size()) / 2;
+    if (size() > 0) {
+      if (start < end) {
+        System.arraycopy(vals, start, oArr, newStart, size());
+      } else {
+        System.arraycopy(vals, start, oArr, newStart, vals.length - start);
+        System.arraycopy(vals, 0, oArr, newStart + (vals.length - start), end);
+      }
     }
-    start = vals.length / 2;
-    end = vals.length * 3 / 2;
     vals = oArr;
-    return true;
+    start = newStart;
+    end = wrap(newStart + size());
   }
 
   /**
@@ -213,29 +415,29 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
       throw new ArrayIndexOutOfBoundsException();
     reArrayIfNecessary();
 
-    int realIndex = Util.mod(start + index, vals.length);
+    int realIndex = wrap(start + index);
 
     //Check for simple append, prepend operations
     if (index == size()) {
-      end = Util.mod((end + 1), vals.length);
-      vals[Util.mod(realIndex, vals.length)] = element;
+      end = wrap(end + 1);
+      vals[wrap(realIndex)] = element;
     } else if (index == 0) {
-      start = Util.mod((start - 1), vals.length);
-      vals[Util.mod(realIndex - 1, vals.length)] = element;
+      start = wrap(start - 1);
+      vals[wrap(realIndex - 1)] = element;
     } else {
       //Shift left if there is no room to shift right (end == vals.length) and
       // (nondisjoint and in first half or disjoint and in second half
       if (end == vals.length || start != 0 &&
           (start < end && index < size() / 2 || start > end && start < realIndex)) {
         System.arraycopy(vals, start, vals, start - 1, index);
-        start = Util.mod((start - 1), vals.length);
-        vals[Util.mod(realIndex - 1, vals.length)] = element;
+        start = wrap(start - 1);
+        vals[wrap(realIndex - 1)] = element;
       }
       //Shift right otherwise
       else {
         System.arraycopy(vals, realIndex, vals, realIndex + 1, (size() - index));
-        end = Util.mod((end + 1), vals.length);
-        vals[Util.mod(realIndex, vals.length)] = element;
+        end = wrap(end + 1);
+        vals[wrap(realIndex)] = element;
       }
     }
     size++;
@@ -318,7 +520,7 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
       throw new ArrayIndexOutOfBoundsException();
 
     @SuppressWarnings("unchecked")
-    E e = (E) vals[Util.mod((index + start), vals.length)];
+    E e = (E) vals[wrap(index + start)];
     return e;
   }
 
@@ -399,7 +601,7 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
       throw new ArrayIndexOutOfBoundsException();
 
     E prev = get(index);
-    vals[Util.mod((index + start), vals.length)] = element;
+    vals[wrap(index + start)] = element;
     return prev;
   }
 
@@ -414,29 +616,30 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
   public E remove(int index) throws ArrayIndexOutOfBoundsException {
     E e = get(index);
     if (index == size() - 1) {
-      vals[Util.mod(end - 1, vals.length)] = null;
-      end = Util.mod((end - 1), vals.length);
+      vals[wrap(end - 1)] = null;
+      end = wrap(end - 1);
     } else if (index == 0) {
       vals[start] = null;
-      start = Util.mod((start + 1), vals.length);
+      start = wrap(start + 1);
     } else {
-      int realIndex = Util.mod(start + index, vals.length);
+      int realIndex = wrap(start + index);
       //Shift right if
       // (nondisjoint and in first half or disjoint and in second half
       if ((start < end && index < size() / 2 || start >= end && start < realIndex)) {
         System.arraycopy(vals, start, vals, start + 1, realIndex - start);
         vals[start] = null;
-        start = Util.mod((start + 1), vals.length);
+        start = wrap(start + 1);
       }
       //Shift left otherwise
       else {
         System.arraycopy(vals, realIndex + 1, vals, realIndex, end - realIndex - 1);
         vals[end - 1] = null;
-        end = Util.mod((end - 1), vals.length);
+        end = wrap(end - 1);
       }
     }
     size--;
     modCount++;
+    shrinkIfNecessary();
     return e;
   }
 
@@ -478,11 +681,179 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
    */
   @Override
   public void clear() {
-    vals = new Object[vals.length];
+    if (shrinkOnDrain && vals.length > minCapacity) {
+      vals = new Object[minCapacity];
+    } else {
+      clearSlots(start, size());
+    }
+    start = vals.length / 4;
+    end = start;
     size = 0;
     modCount++;
   }
 
+  /**
+   * Appends all of the elements of c to the back of this DeArrList, in the order of
+   * iteration over c. Grows the array at most once and copies the elements in with
+   * at most two arraycopies.
+   *
+   * @return true iff this DeArrList changed (c was non-empty)
+   */
+  @Override
+  public boolean addAll(Collection<? extends E> c) {
+    Object[] arr = c.toArray();
+    if (arr.length == 0) return false;
+    ensureRoomFor(arr.length);
+    copyIn(arr, 0, size(), arr.length);
+    size += arr.length;
+    end = wrap(start + size);
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Prepends all of the elements of c to the front of this DeArrList, in the order of
+   * iteration over c - so the first element of c becomes the first element of this.
+   * Grows the array at most once and copies the elements in with at most two arraycopies.
+   *
+   * @return true iff this DeArrList changed (c was non-empty)
+   */
+  public boolean addAllFirst(Collection<? extends E> c) {
+    Object[] arr = c.toArray();
+    if (arr.length == 0) return false;
+    ensureRoomFor(arr.length);
+    start = wrap(start - arr.length);
+    copyIn(arr, 0, 0, arr.length);
+    size += arr.length;
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Inserts all of the elements of c at the given index of this DeArrList, in the order
+   * of iteration over c. Shifts whichever side of index is shorter, once.
+   *
+   * @return true iff this DeArrList changed (c was non-empty)
+   * @throws ArrayIndexOutOfBoundsException if index &lt; 0 or index &gt; size().
+   */
+  @Override
+  public boolean addAll(int index, Collection<? extends E> c) throws ArrayIndexOutOfBoundsException {
+    if (index < 0 || index > size())
+      throw new ArrayIndexOutOfBoundsException();
+    if (index == size()) return addAll(c);
+    if (index == 0) return addAllFirst(c);
+
+    Object[] arr = c.toArray();
+    int n = arr.length;
+    if (n == 0) return false;
+    ensureRoomFor(n);
+    if (index < size() - index) {
+      ringMove(start, start - n, index);
+      start = wrap(start - n);
+    } else {
+      ringMove(start + index, start + index + n, size() - index);
+    }
+    copyIn(arr, 0, index, n);
+    size += n;
+    end = wrap(start + size);
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Removes the elements with indices in [fromIndex, toIndex) from this DeArrList,
+   * shifting whichever of the remaining front or back portion is shorter to close the gap.
+   *
+   * @throws ArrayIndexOutOfBoundsException if fromIndex &lt; 0, toIndex &gt; size(),
+   *                                        or fromIndex &gt; toIndex.
+   */
+  @Override
+  public void removeRange(int fromIndex, int toIndex) throws ArrayIndexOutOfBoundsException {
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex)
+      throw new ArrayIndexOutOfBoundsException();
+    int n = toIndex - fromIndex;
+    if (n == 0) return;
+
+    if (fromIndex < size() - toIndex) {
+      ringMove(start, start + n, fromIndex);
+      clearSlots(start, n);
+      start = wrap(start + n);
+    } else {
+      ringMove(start + toIndex, start + fromIndex, size() - toIndex);
+      clearSlots(start + size() - n, n);
+    }
+    size -= n;
+    end = wrap(start + size);
+    modCount++;
+    shrinkIfNecessary();
+  }
+
+  /**
+   * Removes all elements from this DeArrList and adds them, in order, to c.
+   * See {@link common.dataStructures.DeArrList#drainTo(Collection, int)}
+   *
+   * @return the number of elements moved
+   */
+  public int drainTo(Collection<? super E> c) throws IllegalArgumentException {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes up to max elements from the front of this DeArrList and adds them, in
+   * order, to c. The elements are handed to c in one addAll call, so draining into
+   * another DeArrList is a pair of array copies rather than a loop of adds.
+   *
+   * @return the number of elements moved
+   * @throws IllegalArgumentException - if c is this DeArrList, or max &lt; 0
+   */
+  public int drainTo(Collection<? super E> c, int max) throws IllegalArgumentException {
+    if (c == this)
+      throw new IllegalArgumentException("Can't drain a DeArrList to itself");
+    if (max < 0)
+      throw new IllegalArgumentException("Can't drain a negative number of elements, got " + max);
+    int n = Math.min(max, size());
+    if (n == 0) return 0;
+
+    Object[] arr = new Object[n];
+    copyOut(0, arr, 0, n);
+    @SuppressWarnings("unchecked")
+    List<E> batch = (List<E>) Arrays.asList(arr);
+    c.addAll(batch);
+    removeRange(0, n);
+    return n;
+  }
+
+  /**
+   * Returns an array containing the elements of this DeArrList in order.
+   * Takes at most two arraycopies.
+   */
+  @Override
+  public Object[] toArray() {
+    Object[] arr = new Object[size()];
+    copyOut(0, arr, 0, size());
+    return arr;
+  }
+
+  /**
+   * Returns an array containing the elements of this DeArrList in order, using a if
+   * it is large enough and a new array of the same runtime type otherwise.
+   * Takes at most two arraycopies.
+   *
+   * @throws ArrayStoreException - if an element isn't assignable to the component type of a
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T[] toArray(T[] a) {
+    if (a.length < size()) {
+      a = (T[]) Array.newInstance(a.getClass().getComponentType(), size());
+    }
+    copyOut(0, a, 0, size());
+    if (a.length > size()) {
+      a[size()] = null;
+    }
+    return a;
+  }
+
   /**
    * Removes and returns the element at the front of this DeArrList
    *
@@ -564,6 +935,83 @@ public class DeArrList<E> extends AbstractList<E> implements Cloneable, Deque<E>
     return new SmartIterator<E>(super.iterator(), () -> modCount);
   }
 
+  /**
+   * Returns a Spliterator over the elements of this DeArrList, which splits in O(1)
+   * by halving its index range. Throws a ConcurrentModificationException if this
+   * DeArrList is structurally modified while traversing.
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return new DeArrListSpliterator(0, size(), modCount);
+  }
+
+  /**
+   * A Spliterator over a range of (list) indices of this DeArrList.
+   * Indices are only wrapped into the ring buffer on access, so a range that crosses
+   * the end of the underlying array splits exactly like any other range; bulk
+   * traversal walks the at most two contiguous runs of the array directly.
+   */
+  private class DeArrListSpliterator implements Spliterator<E> {
+    private int index; //inclusive
+    private final int fence; //exclusive
+    private final int expectedModCount;
+
+    private DeArrListSpliterator(int index, int fence, int expectedModCount) {
+      this.index = index;
+      this.fence = fence;
+      this.expectedModCount = expectedModCount;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+      if (index >= fence) return false;
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      @SuppressWarnings("unchecked")
+      E e = (E) vals[wrap(start + index)];
+      index++;
+      action.accept(e);
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachRemaining(Consumer<? super E> action) {
+      if (index >= fence) return;
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      Object[] arr = vals;
+      int s = wrap(start + index);
+      int len = fence - index;
+      int first = Math.min(len, arr.length - s);
+      index = fence;
+      for (int i = s; i < s + first; i++) {
+        action.accept((E) arr[i]);
+      }
+      for (int i = 0; i < len - first; i++) {
+        action.accept((E) arr[i]);
+      }
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) return null;
+      Spliterator<E> prefix = new DeArrListSpliterator(index, mid, expectedModCount);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+  }
+
   @Override
   public Iterator<E> descendingIterator() {
     throw new UnsupportedOperationException("Not Yet Implemented"); //TODO
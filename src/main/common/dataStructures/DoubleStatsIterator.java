@@ -0,0 +1,334 @@
+package common.dataStructures;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A double specialized counterpart of {@link common.dataStructures.StatsIterator}.
+ * Wraps an underlying {@code PrimitiveIterator.OfDouble} and keeps running statistics
+ * (count, sum, mean, variance, min, max) over either every element returned so far,
+ * or over only the most recent {@code windowSize} elements.
+ * <br><br>
+ * No element is ever boxed. A windowed DoubleStatsIterator keeps its window in a primitive
+ * ring buffer, maintains mean and variance with Welford's algorithm (run backwards
+ * when an element leaves the window, and recomputed exactly from the buffer once every
+ * window length removals so rounding error can't build up), and tracks min and max
+ * with monotonic deques, so every statistic is updated in amortized O(1) per element
+ * and read in O(1).
+ * An unbounded DoubleStatsIterator doesn't retain any elements at all.
+ *
+ * @author Mshnik
+ */
+public class DoubleStatsIterator implements PrimitiveIterator.OfDouble {
+
+  /** Window size that designates an unbounded window - all elements are counted */
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  /**
+   * A deque of (sequence number, value) pairs whose values are monotonic from
+   * front to back. The front is always the extreme (min or max) of the window.
+   */
+  private static class MonotonicDeque {
+    private final boolean max; //True if this tracks the max, false for the min
+    private long[] seqs;
+    private double[] vals;
+    private int head;
+    private int count;
+
+    private MonotonicDeque(boolean max, int capacity) {
+      this.max = max;
+      seqs = new long[capacity];
+      vals = new double[capacity];
+    }
+
+    /** Adds x to the back, first dropping every element x dominates */
+    private void push(long seq, double x) {
+      while (count > 0) {
+        int back = index(count - 1);
+        if (max ? vals[back] > x : vals[back] < x) break;
+        count--;
+      }
+      int i = index(count);
+      seqs[i] = seq;
+      vals[i] = x;
+      count++;
+    }
+
+    /** Removes the front if it is the element with the given sequence number */
+    private void expire(long seq) {
+      if (count > 0 && seqs[head] == seq) {
+        if (++head == seqs.length) head = 0;
+        count--;
+      }
+    }
+
+    private double front() {
+      return vals[head];
+    }
+
+    private int index(int offset) {
+      int i = head + offset;
+      return i >= seqs.length ? i - seqs.length : i;
+    }
+
+    /** Moves the contents into arrays of the given capacity, which must be at least count */
+    private void resize(int capacity) {
+      long[] newSeqs = new long[capacity];
+      double[] newVals = new double[capacity];
+      for (int i = 0; i < count; i++) {
+        newSeqs[i] = seqs[index(i)];
+        newVals[i] = vals[index(i)];
+      }
+      seqs = newSeqs;
+      vals = newVals;
+      head = 0;
+    }
+  }
+
+  private final PrimitiveIterator.OfDouble underlyingIterator;
+  private int windowSize;
+
+  /** The elements currently in the window, oldest at head. Null if unbounded */
+  private double[] window;
+  private int head;
+  private long count;
+
+  /** Sequence number that will be given to the next element */
+  private long nextSeq;
+
+  private MonotonicDeque minDeque;
+  private MonotonicDeque maxDeque;
+
+  private double sum;
+  private double mean;
+  private double m2; //Sum of squared differences from the mean
+
+  /** Elements removed from the window since sum, mean and m2 were last recomputed */
+  private int removals;
+
+  /** Running min and max, only used when unbounded */
+  private double runningMin;
+  private double runningMax;
+
+  /** Constructs a DoubleStatsIterator whose statistics cover every element returned */
+  public DoubleStatsIterator(PrimitiveIterator.OfDouble underlyingIterator) {
+    this(underlyingIterator, UNBOUNDED);
+  }
+
+  /**
+   * Constructs a DoubleStatsIterator whose statistics cover the most recent windowSize elements
+   *
+   * @throws IllegalArgumentException - if windowSize &lt;= 0
+   */
+  public DoubleStatsIterator(PrimitiveIterator.OfDouble underlyingIterator, int windowSize)
+      throws IllegalArgumentException {
+    this.underlyingIterator = underlyingIterator;
+    this.windowSize = UNBOUNDED;
+    clearStats();
+    setWindowSize(windowSize);
+  }
+
+  /** Resets all statistics, leaving an empty window */
+  private void clearStats() {
+    count = 0;
+    head = 0;
+    removals = 0;
+    sum = 0;
+    mean = 0;
+    m2 = 0;
+    runningMin = Double.POSITIVE_INFINITY;
+    runningMax = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Sets the number of most recent elements the statistics cover.
+   * Shrinking a bounded window drops its oldest elements. An unbounded
+   * DoubleStatsIterator doesn't retain its elements, so bounding it clears the
+   * statistics and the window starts filling from the next element.
+   *
+   * @throws IllegalArgumentException - if newWindowSize &lt;= 0
+   */
+  public void setWindowSize(int newWindowSize) throws IllegalArgumentException {
+    if (newWindowSize <= 0) {
+      throw new IllegalArgumentException("Can't set window size to " + newWindowSize);
+    }
+    if (newWindowSize == UNBOUNDED) {
+      if (window != null) {
+        //Fold the deque fronts into the running extremes, then stop retaining elements
+        runningMin = count > 0 ? minDeque.front() : Double.POSITIVE_INFINITY;
+        runningMax = count > 0 ? maxDeque.front() : Double.NEGATIVE_INFINITY;
+      }
+      window = null;
+      minDeque = null;
+      maxDeque = null;
+    } else {
+      if (window == null) {
+        clearStats();
+        window = new double[newWindowSize];
+        minDeque = new MonotonicDeque(false, newWindowSize);
+        maxDeque = new MonotonicDeque(true, newWindowSize);
+      } else {
+        while (count > newWindowSize) {
+          removeData();
+        }
+        double[] newWindow = new double[newWindowSize];
+        for (int i = 0; i < count; i++) {
+          newWindow[i] = window[windowIndex(i)];
+        }
+        window = newWindow;
+        head = 0;
+        removals = 0;
+        minDeque.resize(newWindowSize);
+        maxDeque.resize(newWindowSize);
+      }
+    }
+    windowSize = newWindowSize;
+  }
+
+  /** Returns the number of most recent elements the statistics cover */
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  private int windowIndex(int offset) {
+    int i = head + offset;
+    return i >= window.length ? i - window.length : i;
+  }
+
+  private void addData(double x) {
+    if (window != null) {
+      if (count == window.length) {
+        removeData();
+      }
+      window[windowIndex((int) count)] = x;
+      minDeque.push(nextSeq, x);
+      maxDeque.push(nextSeq, x);
+    } else {
+      if (x < runningMin) runningMin = x;
+      if (x > runningMax) runningMax = x;
+    }
+    nextSeq++;
+    count++;
+    sum += x;
+    double d = x - mean;
+    mean += d / count;
+    m2 += d * (x - mean);
+  }
+
+  /** Removes the oldest element from the window. Only called when windowed */
+  private void removeData() {
+    double x = window[head];
+    long seq = nextSeq - count;
+    if (++head == window.length) head = 0;
+    minDeque.expire(seq);
+    maxDeque.expire(seq);
+    count--;
+    sum -= x;
+    if (count == 0) {
+      mean = 0;
+      m2 = 0;
+    } else {
+      double d = x - mean;
+      mean -= d / count;
+      m2 = Math.max(0, m2 - d * (x - mean));
+    }
+    if (++removals >= window.length) {
+      recomputeWindow();
+    }
+  }
+
+  /**
+   * Recomputes sum, mean and m2 exactly from the window. Subtracting departing elements
+   * lets rounding error build up without bound, so removeData calls this once every
+   * window length removals - amortized O(1) per element.
+   */
+  private void recomputeWindow() {
+    removals = 0;
+    double s = 0;
+    for (int i = 0; i < count; i++) {
+      s += window[windowIndex(i)];
+    }
+    sum = s;
+    mean = count == 0 ? 0 : s / count;
+    double sq = 0;
+    for (int i = 0; i < count; i++) {
+      double d = window[windowIndex(i)] - mean;
+      sq += d * d;
+    }
+    m2 = sq;
+  }
+
+  /**
+   * Counts n zeros without iterating over them, merging them into the statistics in O(1).
+   * Only valid when unbounded. Exposed to package for testing purposes.
+   */
+  void addZeros(long n) {
+    if (window != null) throw new IllegalStateException("Can't add zeros to a windowed iterator");
+    if (n <= 0) return;
+    long newCount = count + n;
+    double d = -mean;
+    m2 += d * d * count / newCount * n;
+    mean += d * n / newCount;
+    count = newCount;
+    nextSeq += n;
+    if (0 < runningMin) runningMin = 0;
+    if (0 > runningMax) runningMax = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return underlyingIterator.hasNext();
+  }
+
+  @Override
+  public double nextDouble() {
+    double x = underlyingIterator.nextDouble();
+    addData(x);
+    return x;
+  }
+
+  /** Returns the number of elements the statistics currently cover */
+  public long count() {
+    return count;
+  }
+
+  /** Returns the sum of the elements in the window */
+  public double sum() {
+    return sum;
+  }
+
+  /** Returns the mean of the elements in the window, or NaN if the window is empty */
+  public double mean() {
+    return count == 0 ? Double.NaN : mean;
+  }
+
+  /** Returns the population variance of the elements in the window, or NaN if empty */
+  public double variance() {
+    return count == 0 ? Double.NaN : m2 / count;
+  }
+
+  /** Returns the population standard deviation of the elements in the window, or NaN if empty */
+  public double standardDeviation() {
+    return Math.sqrt(variance());
+  }
+
+  /**
+   * Returns the minimum element in the window
+   *
+   * @throws NoSuchElementException - if the window is empty
+   */
+  public double min() throws NoSuchElementException {
+    if (count == 0) throw new NoSuchElementException("Can't get min of empty window");
+    return window != null ? minDeque.front() : runningMin;
+  }
+
+  /**
+   * Returns the maximum element in the window
+   *
+   * @throws NoSuchElementException - if the window is empty
+   */
+  public double max() throws NoSuchElementException {
+    if (count == 0) throw new NoSuchElementException("Can't get max of empty window");
+    return window != null ? maxDeque.front() : runningMax;
+  }
+}
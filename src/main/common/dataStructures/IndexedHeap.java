@@ -0,0 +1,246 @@
+package common.dataStructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An IndexedHeap is a min priority queue of int indices in [0, capacity), each with a
+ * long priority, that supports decreasing the priority of an index already in the heap.
+ * This makes it the frontier of choice for Dijkstra-like searches over vertex indices.
+ * <br><br>
+ * The heap is d-ary (4-ary by default): each node has arity children, so the tree is
+ * shallower than a binary heap and sift-ups from decreaseKey are cheaper, while the
+ * children compared in a sift-down are adjacent in memory. The position of every index
+ * in the heap is tracked in a flat array, so contains, priorityOf and decreaseKey
+ * are O(1), O(1) and O(log n) without any hashing or boxing.
+ *
+ * @author Mshnik
+ */
+public class IndexedHeap {
+
+  /** The arity used when none is given */
+  public static final int DEFAULT_ARITY = 4;
+
+  private final int arity;
+
+  /** Heap position -> index */
+  private final int[] heap;
+
+  /** Index -> heap position, or -1 if the index isn't in the heap */
+  private final int[] positions;
+
+  /** Index -> priority. Only meaningful for indices in the heap */
+  private final long[] priorities;
+
+  private int size;
+
+  /**
+   * Constructs an empty IndexedHeap for the indices [0, capacity), with the default arity
+   *
+   * @throws IllegalArgumentException - if capacity &lt; 0
+   */
+  public IndexedHeap(int capacity) throws IllegalArgumentException {
+    this(capacity, DEFAULT_ARITY);
+  }
+
+  /**
+   * Constructs an empty IndexedHeap for the indices [0, capacity), in which each node
+   * has arity children
+   *
+   * @throws IllegalArgumentException - if capacity &lt; 0 or arity &lt; 2
+   */
+  public IndexedHeap(int capacity, int arity) throws IllegalArgumentException {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity must be non-negative, got " + capacity);
+    if (arity < 2)
+      throw new IllegalArgumentException("Arity must be at least 2, got " + arity);
+    this.arity = arity;
+    heap = new int[capacity];
+    positions = new int[capacity];
+    priorities = new long[capacity];
+    Arrays.fill(positions, -1);
+    size = 0;
+  }
+
+  /**
+   * Returns the number of indices in this heap
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true iff this heap has no indices in it
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of distinct indices this heap can hold
+   */
+  public int capacity() {
+    return heap.length;
+  }
+
+  /**
+   * Returns true iff index is currently in this heap
+   */
+  public boolean contains(int index) {
+    return positions[index] >= 0;
+  }
+
+  /**
+   * Returns the priority of index
+   *
+   * @throws NotInCollectionException - if index isn't in this heap
+   */
+  public long priorityOf(int index) throws NotInCollectionException {
+    if (positions[index] < 0)
+      throw new NotInCollectionException("Can't get priority of index not in heap", index);
+    return priorities[index];
+  }
+
+  /**
+   * Adds index to this heap with the given priority
+   *
+   * @throws IllegalArgumentException - if index is already in this heap
+   */
+  public void add(int index, long priority) throws IllegalArgumentException {
+    if (positions[index] >= 0)
+      throw new IllegalArgumentException("Index " + index + " is already in the heap");
+    priorities[index] = priority;
+    heap[size] = index;
+    positions[index] = size;
+    size++;
+    siftUp(size - 1);
+  }
+
+  /**
+   * Lowers the priority of index, which is already in this heap, to priority
+   *
+   * @throws NotInCollectionException - if index isn't in this heap
+   * @throws IllegalArgumentException - if priority is greater than the current priority of index
+   */
+  public void decreaseKey(int index, long priority)
+      throws NotInCollectionException, IllegalArgumentException {
+    if (positions[index] < 0)
+      throw new NotInCollectionException("Can't decrease key of index not in heap", index);
+    if (priority > priorities[index])
+      throw new IllegalArgumentException("Can't increase priority of " + index + " from "
+          + priorities[index] + " to " + priority);
+    priorities[index] = priority;
+    siftUp(positions[index]);
+  }
+
+  /**
+   * Adds index with the given priority if it isn't in this heap, or lowers its priority
+   * to priority if that is lower than its current priority.
+   *
+   * @return true iff this heap was changed
+   */
+  public boolean addOrDecrease(int index, long priority) {
+    if (positions[index] < 0) {
+      add(index, priority);
+      return true;
+    }
+    if (priority < priorities[index]) {
+      priorities[index] = priority;
+      siftUp(positions[index]);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the index with the lowest priority, without removing it
+   *
+   * @throws NoSuchElementException - if this heap is empty
+   */
+  public int peek() throws NoSuchElementException {
+    if (size == 0) throw new NoSuchElementException("Can't peek at empty heap");
+    return heap[0];
+  }
+
+  /**
+   * Returns the lowest priority in this heap
+   *
+   * @throws NoSuchElementException - if this heap is empty
+   */
+  public long peekPriority() throws NoSuchElementException {
+    if (size == 0) throw new NoSuchElementException("Can't peek at empty heap");
+    return priorities[heap[0]];
+  }
+
+  /**
+   * Removes and returns the index with the lowest priority. Ties are broken arbitrarily.
+   *
+   * @throws NoSuchElementException - if this heap is empty
+   */
+  public int poll() throws NoSuchElementException {
+    if (size == 0) throw new NoSuchElementException("Can't poll empty heap");
+    int min = heap[0];
+    positions[min] = -1;
+    size--;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      positions[last] = 0;
+      siftDown(0);
+    }
+    return min;
+  }
+
+  /**
+   * Removes every index from this heap. Takes time proportional to size(), not capacity().
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      positions[heap[i]] = -1;
+    }
+    size = 0;
+  }
+
+  /** Moves the index at heap position pos up until its parent has a lower or equal priority */
+  private void siftUp(int pos) {
+    int index = heap[pos];
+    long priority = priorities[index];
+    while (pos > 0) {
+      int parentPos = (pos - 1) / arity;
+      int parent = heap[parentPos];
+      if (priorities[parent] <= priority) break;
+      heap[pos] = parent;
+      positions[parent] = pos;
+      pos = parentPos;
+    }
+    heap[pos] = index;
+    positions[index] = pos;
+  }
+
+  /** Moves the index at heap position pos down until its children have higher or equal priorities */
+  private void siftDown(int pos) {
+    int index = heap[pos];
+    long priority = priorities[index];
+    while (true) {
+      int firstChild = pos * arity + 1;
+      if (firstChild >= size) break;
+      int lastChild = Math.min(firstChild + arity, size);
+      int minPos = firstChild;
+      long minPriority = priorities[heap[firstChild]];
+      for (int c = firstChild + 1; c < lastChild; c++) {
+        long p = priorities[heap[c]];
+        if (p < minPriority) {
+          minPriority = p;
+          minPos = c;
+        }
+      }
+      if (minPriority >= priority) break;
+      int child = heap[minPos];
+      heap[pos] = child;
+      positions[child] = pos;
+      pos = minPos;
+    }
+    heap[pos] = index;
+    positions[index] = pos;
+  }
+}
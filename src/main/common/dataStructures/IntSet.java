@@ -0,0 +1,310 @@
+package common.dataStructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A hash set of ints that stores its elements in a flat primitive array, so no element
+ * is ever boxed.
+ * <br><br>
+ * Uses the same open addressing scheme as {@link common.dataStructures.IntObjectMap}:
+ * linear probing, with 0 marking a free slot (so 0 itself is tracked separately), and
+ * backward-shift deletion so that there are no tombstones.
+ * <br><br>
+ * Iteration order is unspecified. Modifying the set while iterating over it
+ * (except through the iterator) has unspecified results.
+ *
+ * @author Mshnik
+ */
+public class IntSet {
+
+  /**
+   * The maximum fraction of the table that is filled before it is grown
+   */
+  public static final float LOAD_FACTOR = 0.6f;
+
+  private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+  private int[] keys;
+  private int mask;
+  private int maxFill;
+
+  /** The number of elements in the table (not counting 0) */
+  private int tableSize;
+
+  private boolean hasZero;
+
+  /**
+   * Constructs an empty IntSet
+   */
+  public IntSet() {
+    this(DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * Constructs an empty IntSet that can hold expectedSize elements without growing
+   *
+   * @throws IllegalArgumentException - if expectedSize &lt; 0
+   */
+  public IntSet(int expectedSize) throws IllegalArgumentException {
+    if (expectedSize < 0)
+      throw new IllegalArgumentException("Expected size must be non-negative, got " + expectedSize);
+    long needed = Math.max(2, (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1);
+    if (needed > (1 << 30)) throw new IllegalArgumentException("Too many elements: " + expectedSize);
+    allocate(Integer.highestOneBit((int) needed - 1) << 1);
+  }
+
+  /**
+   * Constructs an IntSet containing the given elements
+   */
+  public IntSet(int... elms) {
+    this(elms.length);
+    for (int i : elms) {
+      add(i);
+    }
+  }
+
+  private void allocate(int length) {
+    keys = new int[length];
+    mask = length - 1;
+    maxFill = Math.min(length - 1, (int) (length * LOAD_FACTOR));
+  }
+
+  /**
+   * Returns the slot an element hashes to
+   */
+  private int slot(int key) {
+    int h = key * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Returns the number of elements in this set
+   */
+  public int size() {
+    return tableSize + (hasZero ? 1 : 0);
+  }
+
+  /**
+   * Returns true iff this set has no elements
+   */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Returns true iff i is in this set
+   */
+  public boolean contains(int i) {
+    if (i == 0) return hasZero;
+    int pos = slot(i);
+    int k;
+    while ((k = keys[pos]) != 0) {
+      if (k == i) return true;
+      pos = (pos + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Adds i to this set.
+   *
+   * @return true iff i wasn't already in this set
+   */
+  public boolean add(int i) {
+    if (i == 0) {
+      boolean added = !hasZero;
+      hasZero = true;
+      return added;
+    }
+    int pos = slot(i);
+    int k;
+    while ((k = keys[pos]) != 0) {
+      if (k == i) return false;
+      pos = (pos + 1) & mask;
+    }
+    keys[pos] = i;
+    if (++tableSize > maxFill) rehash(keys.length * 2);
+    return true;
+  }
+
+  /**
+   * Removes i from this set.
+   *
+   * @return true iff i was in this set
+   */
+  public boolean remove(int i) {
+    if (i == 0) {
+      boolean removed = hasZero;
+      hasZero = false;
+      return removed;
+    }
+    int pos = slot(i);
+    int k;
+    while ((k = keys[pos]) != 0) {
+      if (k == i) {
+        shiftKeys(pos, null);
+        tableSize--;
+        return true;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Fills the slot at pos, which is being emptied, by moving back later elements of its
+   * probe run that are allowed to live there, repeating for the slots they leave behind.
+   * If it is non-null, elements that wrap around the end of the table are reported to it.
+   */
+  private void shiftKeys(int pos, ElementIterator it) {
+    while (true) {
+      int last = pos;
+      pos = (pos + 1) & mask;
+      int k;
+      while (true) {
+        if ((k = keys[pos]) == 0) {
+          keys[last] = 0;
+          return;
+        }
+        int s = slot(k);
+        //k can move back to last iff its home slot s isn't cyclically in (last, pos]
+        if (last <= pos ? last >= s || s > pos : last >= s && s > pos) break;
+        pos = (pos + 1) & mask;
+      }
+      if (it != null && pos < last) it.addWrapped(k);
+      keys[last] = k;
+    }
+  }
+
+  /**
+   * Moves every element into a new table of the given (power of two) length
+   */
+  private void rehash(int length) {
+    int[] oldKeys = keys;
+    allocate(length);
+    for (int k : oldKeys) {
+      if (k != 0) {
+        int pos = slot(k);
+        while (keys[pos] != 0) {
+          pos = (pos + 1) & mask;
+        }
+        keys[pos] = k;
+      }
+    }
+  }
+
+  /**
+   * Removes every element from this set, keeping its capacity
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    tableSize = 0;
+    hasZero = false;
+  }
+
+  /**
+   * Calls action on each element of this set
+   */
+  public void forEach(IntConsumer action) {
+    if (hasZero) action.accept(0);
+    for (int k : keys) {
+      if (k != 0) action.accept(k);
+    }
+  }
+
+  /**
+   * Returns the elements of this set, in iteration order
+   */
+  public int[] toArray() {
+    int[] arr = new int[size()];
+    int j = 0;
+    if (hasZero) arr[j++] = 0;
+    for (int k : keys) {
+      if (k != 0) arr[j++] = k;
+    }
+    return arr;
+  }
+
+  /**
+   * Returns an iterator over this set. Its remove() removes the last returned element;
+   * elements moved back by the removal are still returned exactly once.
+   */
+  public PrimitiveIterator.OfInt iterator() {
+    return new ElementIterator();
+  }
+
+  private class ElementIterator implements PrimitiveIterator.OfInt {
+    /** The slot below which the table hasn't been scanned yet */
+    private int pos = keys.length;
+    private int remaining = size();
+    private boolean mustReturnZero = hasZero;
+
+    /** The slot of the last returned element, or -1 if it isn't being read from the table */
+    private int lastPos = -1;
+    private int last;
+    private boolean canRemove;
+
+    /**
+     * Unscanned elements that a remove() moved into the already scanned part of the
+     * table, by wrapping around its end. They are returned after the scan.
+     */
+    private int[] wrapped;
+    private int wrappedCount;
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public int nextInt() {
+      if (remaining == 0) throw new NoSuchElementException();
+      remaining--;
+      canRemove = true;
+      lastPos = -1;
+      if (mustReturnZero) {
+        mustReturnZero = false;
+        return last = 0;
+      }
+      while (pos > 0) {
+        pos--;
+        if (keys[pos] != 0) {
+          lastPos = pos;
+          return last = keys[pos];
+        }
+      }
+      return last = wrapped[--wrappedCount];
+    }
+
+    private void addWrapped(int i) {
+      if (wrapped == null) wrapped = new int[2];
+      else if (wrappedCount == wrapped.length) wrapped = Arrays.copyOf(wrapped, wrappedCount * 2);
+      wrapped[wrappedCount++] = i;
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) throw new IllegalStateException();
+      canRemove = false;
+      if (lastPos >= 0) {
+        shiftKeys(lastPos, this);
+        tableSize--;
+      } else {
+        IntSet.this.remove(last);
+      }
+    }
+  }
+
+  /**
+   * Returns a string representation of this set, as [a, b, ...]
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    forEach(i -> sb.append(sb.length() > 1 ? ", " : "").append(i));
+    return sb.append(']').toString();
+  }
+}
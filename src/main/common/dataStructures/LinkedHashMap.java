@@ -9,9 +9,16 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import common.dataStructures.util.ViewSet;
+import functional.impl.Consumer3;
+import functional.impl.Function1;
+import functional.impl.Supplier;
 
 //TODO - SPEC
 public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Iterable<Entry<K, V>> {
@@ -30,6 +37,39 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
   private static final int DEFAULT_SIZE = 16;
   private static final float DEFAULT_LOAD_FACTOR = 0.75f;
 
+  /**
+   * The reasons an entry can be evicted from a LinkedHashMap in cache mode
+   */
+  public enum EvictionCause {
+    /** The map grew beyond its max size */
+    SIZE,
+    /** The entry outlived its time to live */
+    EXPIRED
+  }
+
+  //Cache mode configuration. See withAccessOrder() and the other with... methods
+  private boolean accessOrder;
+  private int maxSize = Integer.MAX_VALUE;
+  private long defaultTimeToLive; //nanos, 0 for none
+  private Supplier<Long> ticker = System::nanoTime;
+  private Consumer3<K, V, EvictionCause> evictionListener;
+
+  //Deadlines of entries with a time to live, soonest first. Null until one is put
+  private PriorityQueue<Deadline> deadlines;
+
+  //W-TinyLFU state. The window is the entries from head to windowTail, inclusive
+  private CountMinSketch<Object> frequency;
+  private LinkedHashEntry windowTail;
+  private int windowSize;
+  private int maxWindowSize;
+
+  //Cache stats
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long loadCount;
+  private long totalLoadTime;
+
   /**
    * A single entry in the hashmap. Maintains a key and value,
    * along with previous and next elements
@@ -58,6 +98,21 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      */
     private LinkedHashEntry prev;
 
+    /**
+     * True iff this entry has a time to live, after which it expires
+     */
+    private boolean expires;
+
+    /**
+     * The ticker time at which this entry expires, if expires is true
+     */
+    private long expiresAt;
+
+    /**
+     * True iff this entry is in the admission window (W-TinyLFU mode only)
+     */
+    private boolean inWindow;
+
     /**
      * Constructs a new LinkedHashEntry with the given key and value
      * The next and previous fields are left as null.
@@ -132,6 +187,25 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     }
   }
 
+  /**
+   * The time an entry was set to expire at when it was put. Stale once the entry is
+   * removed or put again, as entries aren't taken out of the deadline queue then.
+   */
+  private class Deadline {
+    private final LinkedHashEntry entry;
+    private final long at;
+
+    private Deadline(LinkedHashEntry entry, long at) {
+      this.entry = entry;
+      this.at = at;
+    }
+
+    /** Returns true iff this is still the deadline of a live entry of this map */
+    private boolean isCurrent() {
+      return entry.expires && entry.expiresAt == at && map.get(entry.key) == entry;
+    }
+  }
+
   public LinkedHashMap() {
     this(DEFAULT_SIZE, DEFAULT_LOAD_FACTOR);
   }
@@ -148,9 +222,14 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     return map.size();
   }
 
+  /**
+   * Returns true iff this map has an unexpired entry for key.
+   * Doesn't count as an access of key in cache mode.
+   */
   @Override
   public boolean containsKey(Object key) {
-    return map.containsKey(key);
+    LinkedHashEntry e = map.get(key);
+    return e != null && !isExpired(e);
   }
 
   @Override
@@ -199,10 +278,52 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
   }
 
 
+  /**
+   * Returns the value mapped to key, or null if there is none (or it has expired).
+   * In access order mode, this moves the entry for key to the front of this map.
+   */
   @Override
   public V get(Object key) {
-    if (!map.containsKey(key)) return null;
-    return map.get(key).val;
+    LinkedHashEntry e = access(key);
+    return e == null ? null : e.val;
+  }
+
+  /**
+   * Returns the value mapped to key. If there is none (or it has expired), computes it with
+   * loader and puts it in this map first. Time spent in loader is recorded in the cache stats.
+   */
+  public V getOrLoad(K key, Function1<K, V> loader) {
+    LinkedHashEntry e = access(key);
+    if (e != null) return e.val;
+
+    long start = ticker.apply();
+    V v = loader.apply(key);
+    totalLoadTime += ticker.apply() - start;
+    loadCount++;
+    putEntry(key, v, defaultTimeToLive);
+    return v;
+  }
+
+  /**
+   * Looks up the entry for key as a cache read: records a hit or miss and the access
+   * frequency, evicts the entry if it has expired, and promotes it in access order mode.
+   *
+   * @return the live entry for key, or null if there is none
+   */
+  private LinkedHashEntry access(Object key) {
+    recordFrequency(key);
+    LinkedHashEntry e = map.get(key);
+    if (e != null && isExpired(e)) {
+      evict(e, EvictionCause.EXPIRED);
+      e = null;
+    }
+    if (e == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    if (accessOrder) promote(e);
+    return e;
   }
 
   /**
@@ -287,9 +408,98 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     }
   }
 
+  /**
+   * Maps key to value. New keys are added to the end of this map, or to the front in
+   * access order mode (where updating an existing key also moves it to the front).
+   * Uses the default time to live, if one is set.
+   *
+   * @return the previous value mapped to key, or null if none
+   */
   @Override
   public V put(K key, V value) {
-    return putHelper(key, value, size());
+    recordFrequency(key);
+    return putEntry(key, value, defaultTimeToLive);
+  }
+
+  /**
+   * Maps key to value, as put(key, value), with the given time to live for this entry
+   * instead of the default. A time to live of 0 means the entry never expires.
+   *
+   * @return the previous value mapped to key, or null if none
+   * @throws IllegalArgumentException - if timeToLive &lt; 0
+   */
+  public V put(K key, V value, long timeToLive, TimeUnit unit) throws IllegalArgumentException {
+    if (timeToLive < 0)
+      throw new IllegalArgumentException("Time to live must be non-negative, got " + timeToLive);
+    recordFrequency(key);
+    return putEntry(key, value, unit.toNanos(timeToLive));
+  }
+
+  /**
+   * Records an access of key in the W-TinyLFU frequency sketch, if there is one.
+   * Reads and writes both count, so keys that are written often are valued as such.
+   */
+  private void recordFrequency(Object key) {
+    if (frequency != null && key != null) frequency.increment(key);
+  }
+
+  /**
+   * Puts the given key and value with the given time to live in nanos (0 for none),
+   * then evicts entries if this map is over its max size. Doesn't record an access of key.
+   */
+  private V putEntry(K key, V value, long timeToLive) {
+    LinkedHashEntry e = map.get(key);
+    V oldVal = null;
+    if (e == null) {
+      if (accessOrder) {
+        e = new LinkedHashEntry(key, value);
+        linkNew(e);
+        map.put(key, e);
+        modCount++;
+      } else {
+        putHelper(key, value, size());
+        e = map.get(key);
+      }
+    } else {
+      if (!isExpired(e)) oldVal = e.val;
+      e.val = value;
+      if (accessOrder) promote(e);
+    }
+    e.expires = timeToLive > 0;
+    e.expiresAt = e.expires ? ticker.apply() + timeToLive : 0;
+    if (e.expires) addDeadline(e);
+    evictIfNecessary();
+    return oldVal;
+  }
+
+  /**
+   * Adds e's current expiry time to the deadline queue. Once stale deadlines make up most
+   * of the queue, they are dropped, so the queue stays within a constant factor of size().
+   */
+  private void addDeadline(LinkedHashEntry e) {
+    if (deadlines == null) {
+      deadlines = new PriorityQueue<>((a, b) -> Long.signum(a.at - b.at));
+    }
+    deadlines.add(new Deadline(e, e.expiresAt));
+    if (deadlines.size() > 2 * map.size() + 16) {
+      deadlines.removeIf(d -> !d.isCurrent());
+    }
+  }
+
+  /**
+   * Evicts every entry whose time to live has passed, taking them from the front of the
+   * deadline queue - O(log n) per entry evicted or stale deadline dropped.
+   */
+  private void evictExpired() {
+    if (deadlines == null) return;
+    long now = ticker.apply();
+    Deadline d;
+    while ((d = deadlines.peek()) != null && now - d.at >= 0) {
+      deadlines.poll();
+      if (d.isCurrent()) {
+        evict(d.entry, EvictionCause.EXPIRED);
+      }
+    }
   }
 
   public V putLast(K key, V value) {
@@ -300,10 +510,18 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     return putAt(key, value, 0);
   }
 
+  /**
+   * Puts a new key and value at the given index of this map.
+   * Not supported in W-TinyLFU mode, which manages the order of entries itself.
+   */
   public V putAt(K key, V value, int index) {
+    if (frequency != null)
+      throw new UnsupportedOperationException("Can't put at an index with TinyLFU admission");
     if (containsKey(key))
       throw new RuntimeException("Can't call putAt on an already existing key");
-    return putHelper(key, value, index);
+    V v = putHelper(key, value, index);
+    evictIfNecessary();
+    return v;
   }
 
   @Override
@@ -366,22 +584,7 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     LinkedHashEntry entry = map.get(key);
     if (entry == null) return null;
 
-    LinkedHashEntry e0 = entry.prev;
-    LinkedHashEntry e1 = entry.next;
-
-    if (e0 != null) {
-      e0.next = e1;
-    }
-    if (e1 != null) {
-      e1.prev = e0;
-    }
-    if (entry == head) {
-      head = e1;
-    }
-    if (entry == tail) {
-      tail = e0;
-    }
-
+    unlink(entry);
     map.remove(key);
     modCount++;
 
@@ -420,6 +623,274 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     map.clear();
     head = null;
     tail = null;
+    windowTail = null;
+    windowSize = 0;
+    deadlines = null;
+    modCount++;
+  }
+
+  /**
+   * Removes entry from the chain of entries, leaving its own next and prev intact
+   * so iterators positioned on it can continue.
+   */
+  private void unlink(LinkedHashEntry e) {
+    if (e == windowTail) windowTail = e.prev;
+    if (e.inWindow) {
+      e.inWindow = false;
+      windowSize--;
+    }
+    if (e.prev != null) e.prev.next = e.next;
+    else head = e.next;
+    if (e.next != null) e.next.prev = e.prev;
+    else tail = e.prev;
+  }
+
+  /**
+   * Links e into the chain of entries directly after pred, or at the front if pred is null
+   */
+  private void linkAfter(LinkedHashEntry pred, LinkedHashEntry e) {
+    e.prev = pred;
+    e.next = pred == null ? head : pred.next;
+    if (e.next != null) e.next.prev = e;
+    else tail = e;
+    if (pred != null) pred.next = e;
+    else head = e;
+  }
+
+  /**
+   * Links a new (or newly accessed window) entry at the front of the chain, which in
+   * W-TinyLFU mode is the front of the window.
+   */
+  private void linkNew(LinkedHashEntry e) {
+    linkAfter(null, e);
+    if (frequency != null) {
+      e.inWindow = true;
+      windowSize++;
+      if (windowTail == null) windowTail = e;
+    }
+  }
+
+  /**
+   * Moves e to the front of its segment: the front of the map, or in W-TinyLFU mode the
+   * front of the window or main segment.
+   */
+  private void promote(LinkedHashEntry e) {
+    if (frequency != null && !e.inWindow) {
+      if (e.prev == windowTail) return;
+      unlink(e);
+      linkAfter(windowTail, e);
+    } else {
+      if (e == head) return;
+      unlink(e);
+      linkNew(e);
+    }
+    modCount++;
+  }
+
+  /**
+   * Returns true iff e has a time to live that has passed
+   */
+  private boolean isExpired(LinkedHashEntry e) {
+    return e.expires && ticker.apply() - e.expiresAt >= 0;
+  }
+
+  /**
+   * Removes e from this map as an eviction, recording it and notifying the listener
+   */
+  private void evict(LinkedHashEntry e, EvictionCause cause) {
+    unlink(e);
+    map.remove(e.key);
+    modCount++;
+    evictionCount++;
+    if (evictionListener != null) {
+      evictionListener.apply(e.key, e.val, cause);
+    }
+  }
+
+  /**
+   * Evicts expired entries, so they don't count towards the max size, then evicts entries
+   * until this map is within its max size. In W-TinyLFU mode, entries leaving the window
+   * are admitted to the main segment only if they have been accessed more often than the
+   * main segment's least recently used entry, which is evicted instead.
+   */
+  private void evictIfNecessary() {
+    evictExpired();
+    if (frequency != null) {
+      while (windowSize > maxWindowSize) {
+        LinkedHashEntry candidate = windowTail;
+        windowTail = candidate.prev;
+        candidate.inWindow = false;
+        windowSize--;
+        if (size() > maxSize) {
+          LinkedHashEntry victim = tail;
+          if (victim != candidate && frequency.estimate(candidate.key) <= frequency.estimate(victim.key)) {
+            victim = candidate;
+          }
+          evict(victim, EvictionCause.SIZE);
+        }
+      }
+    }
+    while (size() > maxSize) {
+      evict(tail, EvictionCause.SIZE);
+    }
+  }
+
+  /**
+   * Evicts every expired entry in this map. Expired entries are otherwise only evicted
+   * when they are next read or on the next put, so they count towards size() until then.
+   */
+  public void cleanUp() {
+    evictExpired();
+  }
+
+  /**
+   * Turns on access order: gets and puts move their entry to the front of this map, so
+   * the map is ordered from most to least recently used. The current order is treated
+   * as the recency order.
+   *
+   * @return this
+   */
+  public LinkedHashMap<K, V> withAccessOrder() {
+    accessOrder = true;
+    return this;
+  }
+
+  /**
+   * Bounds this map to maxSize entries, turning on access order. Whenever a put makes this
+   * map too large, the least recently used entries (at the end of this map) are evicted.
+   *
+   * @return this
+   * @throws IllegalArgumentException - if maxSize &lt; 1
+   */
+  public LinkedHashMap<K, V> withMaxSize(int maxSize) throws IllegalArgumentException {
+    if (maxSize < 1)
+      throw new IllegalArgumentException("Max size must be positive, got " + maxSize);
+    this.maxSize = maxSize;
+    accessOrder = true;
+    if (frequency != null) {
+      maxWindowSize = Math.max(1, maxSize / 100);
+    }
+    evictIfNecessary();
+    return this;
+  }
+
+  /**
+   * Sets the time to live of entries put after this call, unless put with their own.
+   * Expired entries are treated as absent and evicted when read, on the next put, or on
+   * cleanUp(). They never cause live entries to be evicted for size.
+   *
+   * @return this
+   * @throws IllegalArgumentException - if timeToLive &lt;= 0
+   */
+  public LinkedHashMap<K, V> withTimeToLive(long timeToLive, TimeUnit unit) throws IllegalArgumentException {
+    if (timeToLive <= 0)
+      throw new IllegalArgumentException("Time to live must be positive, got " + timeToLive);
+    defaultTimeToLive = unit.toNanos(timeToLive);
+    return this;
+  }
+
+  /**
+   * Sets the listener called with the key, value and cause of every evicted entry.
+   * Entries removed by remove() or clear() aren't evictions.
+   *
+   * @return this
+   */
+  public LinkedHashMap<K, V> withEvictionListener(Consumer3<K, V, EvictionCause> listener) {
+    evictionListener = listener;
+    return this;
+  }
+
+  /**
+   * Sets the source of time used for times to live and load times, in nanoseconds.
+   * Defaults to System.nanoTime.
+   *
+   * @return this
+   */
+  public LinkedHashMap<K, V> withTicker(Supplier<Long> ticker) {
+    this.ticker = ticker;
+    return this;
+  }
+
+  /**
+   * Switches eviction from plain LRU to W-TinyLFU. New entries enter a small LRU window
+   * (1% of the max size) at the front of this map. An entry leaving the window only
+   * displaces the least recently used entry of the main segment if a CountMinSketch of
+   * recent reads and writes says it is used more often; otherwise it is evicted itself. This
+   * keeps one-off keys, like a scan, from flushing frequently used entries.
+   * Must be called on an empty map, after withMaxSize.
+   *
+   * @return this
+   * @throws IllegalStateException - if this map has no max size or isn't empty
+   */
+  public LinkedHashMap<K, V> withTinyLfuAdmission() throws IllegalStateException {
+    if (maxSize == Integer.MAX_VALUE)
+      throw new IllegalStateException("TinyLFU admission requires a max size");
+    if (!isEmpty())
+      throw new IllegalStateException("TinyLFU admission must be set on an empty map");
+    frequency = new CountMinSketch<>(maxSize);
+    maxWindowSize = Math.max(1, maxSize / 100);
+    return this;
+  }
+
+  /**
+   * Returns the number of reads (get or getOrLoad) that found a live entry
+   */
+  public long hitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of reads (get or getOrLoad) that found no live entry
+   */
+  public long missCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the fraction of reads that were hits, or NaN if there have been no reads
+   */
+  public double hitRate() {
+    return (double) hitCount / (hitCount + missCount);
+  }
+
+  /**
+   * Returns the number of entries evicted for size or expiry
+   */
+  public long evictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the number of values computed by getOrLoad
+   */
+  public long loadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Returns the total time spent computing values in getOrLoad, in nanoseconds
+   */
+  public long totalLoadTime() {
+    return totalLoadTime;
+  }
+
+  /**
+   * Returns the average time spent computing a value in getOrLoad, in nanoseconds,
+   * or NaN if there have been no loads
+   */
+  public double averageLoadTime() {
+    return (double) totalLoadTime / loadCount;
+  }
+
+  /**
+   * Resets all cache stats to 0
+   */
+  public void resetStats() {
+    hitCount = 0;
+    missCount = 0;
+    evictionCount = 0;
+    loadCount = 0;
+    totalLoadTime = 0;
   }
 
   @Override
@@ -444,6 +915,38 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     return entrySet.iterator();
   }
 
+  /**
+   * Calls action on each key and value in this LinkedHashMap, in iteration order.
+   * Walks the entries directly, so no iterator or entry objects are created.
+   *
+   * @throws ConcurrentModificationException - if action structurally modifies this map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) throws ConcurrentModificationException {
+    int expectedModCount = modCount;
+    for (LinkedHashEntry e = head; e != null; e = e.next) {
+      action.accept(e.key, e.val);
+      if (expectedModCount != modCount)
+        throw new ConcurrentModificationException();
+    }
+  }
+
+  /**
+   * Calls action on each entry in this LinkedHashMap, in iteration order,
+   * without creating an iterator.
+   *
+   * @throws ConcurrentModificationException - if action structurally modifies this map
+   */
+  @Override
+  public void forEach(Consumer<? super Entry<K, V>> action) throws ConcurrentModificationException {
+    int expectedModCount = modCount;
+    for (LinkedHashEntry e = head; e != null; e = e.next) {
+      action.accept(e);
+      if (expectedModCount != modCount)
+        throw new ConcurrentModificationException();
+    }
+  }
+
   /**
    * Returns an array of Entries, in the iteration order of this LinkedHashMap
    */
@@ -522,6 +1025,11 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
       return LinkedHashMap.this.remove(o) != null;
     }
 
+    @Override
+    public void forEach(Consumer<? super K> action) {
+      LinkedHashMap.this.forEach((k, v) -> action.accept(k));
+    }
+
     @Override
     public Iterator<K> iterator() {
       return new HashIterator<K>() {
@@ -544,6 +1052,11 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
           + "- may have multiple mappings");
     }
 
+    @Override
+    public void forEach(Consumer<? super V> action) {
+      LinkedHashMap.this.forEach((k, v) -> action.accept(v));
+    }
+
     @Override
     public Iterator<V> iterator() {
       return new HashIterator<V>() {
@@ -569,6 +1082,11 @@ public class LinkedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
       }
     }
 
+    @Override
+    public void forEach(Consumer<? super Entry<K, V>> action) {
+      LinkedHashMap.this.forEach(action);
+    }
+
     @Override
     public Iterator<Entry<K, V>> iterator() {
       return new HashIterator<Entry<K, V>>() {
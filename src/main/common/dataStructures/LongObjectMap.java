@@ -0,0 +1,369 @@
+package common.dataStructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongFunction;
+
+/**
+ * A hash map from long keys to object values that stores its keys in a flat
+ * primitive array, so no key is ever boxed.
+ * <br><br>
+ * Uses open addressing with linear probing: a key lives in the first free slot at or after
+ * its hash. The key 0 marks a free slot, so a mapping for 0 is stored separately.
+ * Removal uses backward-shift deletion - later keys in the probe run are moved back to
+ * fill the gap - so there are no tombstones and lookups never slow down from churn.
+ * The table doubles whenever it becomes more than LOAD_FACTOR full.
+ * <br><br>
+ * Iteration order is unspecified. Modifying the map while iterating over it
+ * (except through the iterator) has unspecified results.
+ *
+ * @author Mshnik
+ */
+public class LongObjectMap<V> {
+
+  /**
+   * Consumer of a single mapping, for LongObjectMap.forEach
+   */
+  @FunctionalInterface
+  public interface EntryConsumer<V> {
+    void accept(long key, V value);
+  }
+
+  /**
+   * The maximum fraction of the table that is filled before it is grown
+   */
+  public static final float LOAD_FACTOR = 0.6f;
+
+  private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+  private long[] keys;
+  private Object[] vals;
+  private int mask;
+  private int maxFill;
+
+  /** The number of mappings in the table (not counting a mapping for 0) */
+  private int tableSize;
+
+  private boolean hasZeroKey;
+  private V zeroVal;
+
+  /**
+   * Constructs an empty LongObjectMap
+   */
+  public LongObjectMap() {
+    this(DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * Constructs an empty LongObjectMap that can hold expectedSize mappings without growing
+   *
+   * @throws IllegalArgumentException - if expectedSize &lt; 0
+   */
+  public LongObjectMap(int expectedSize) throws IllegalArgumentException {
+    if (expectedSize < 0)
+      throw new IllegalArgumentException("Expected size must be non-negative, got " + expectedSize);
+    allocate(tableSizeFor(expectedSize));
+  }
+
+  /**
+   * Returns the power of two table length that holds n keys within the load factor
+   */
+  private static int tableSizeFor(int n) {
+    long needed = Math.max(2, (long) Math.ceil(n / (double) LOAD_FACTOR) + 1);
+    if (needed > (1 << 30)) throw new IllegalArgumentException("Too many elements: " + n);
+    return Integer.highestOneBit((int) needed - 1) << 1;
+  }
+
+  private void allocate(int length) {
+    keys = new long[length];
+    vals = new Object[length];
+    mask = length - 1;
+    maxFill = Math.min(length - 1, (int) (length * LOAD_FACTOR));
+  }
+
+  /**
+   * Returns the slot a key hashes to
+   */
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    int x = (int) (h ^ (h >>> 32));
+    return (x ^ (x >>> 16)) & mask;
+  }
+
+  /**
+   * Returns the slot holding key (which must not be 0), or -1 if it isn't in the table
+   */
+  private int find(long key) {
+    int pos = slot(key);
+    long k;
+    while ((k = keys[pos]) != 0) {
+      if (k == key) return pos;
+      pos = (pos + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of mappings in this map
+   */
+  public int size() {
+    return tableSize + (hasZeroKey ? 1 : 0);
+  }
+
+  /**
+   * Returns true iff this map has no mappings
+   */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Returns true iff this map has a mapping for key
+   */
+  public boolean containsKey(long key) {
+    return key == 0 ? hasZeroKey : find(key) >= 0;
+  }
+
+  /**
+   * Returns the value mapped to key, or null if there is none
+   */
+  public V get(long key) {
+    return getOrDefault(key, null);
+  }
+
+  /**
+   * Returns the value mapped to key, or defaultValue if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V getOrDefault(long key, V defaultValue) {
+    if (key == 0) return hasZeroKey ? zeroVal : defaultValue;
+    int pos = find(key);
+    return pos < 0 ? defaultValue : (V) vals[pos];
+  }
+
+  /**
+   * Maps key to value
+   *
+   * @return the previous value mapped to key, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (key == 0) {
+      V old = hasZeroKey ? zeroVal : null;
+      hasZeroKey = true;
+      zeroVal = value;
+      return old;
+    }
+    int pos = slot(key);
+    long k;
+    while ((k = keys[pos]) != 0) {
+      if (k == key) {
+        V old = (V) vals[pos];
+        vals[pos] = value;
+        return old;
+      }
+      pos = (pos + 1) & mask;
+    }
+    keys[pos] = key;
+    vals[pos] = value;
+    if (++tableSize > maxFill) rehash(keys.length * 2);
+    return null;
+  }
+
+  /**
+   * Returns the value mapped to key. If there is none, maps key to the result of
+   * calling f on key (unless it is null) and returns that.
+   */
+  public V computeIfAbsent(long key, LongFunction<? extends V> f) {
+    V v = get(key);
+    if (v == null) {
+      v = f.apply(key);
+      if (v != null) put(key, v);
+    }
+    return v;
+  }
+
+  /**
+   * Removes the mapping for key, if any
+   *
+   * @return the value that was mapped to key, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    if (key == 0) {
+      V old = hasZeroKey ? zeroVal : null;
+      hasZeroKey = false;
+      zeroVal = null;
+      return old;
+    }
+    int pos = find(key);
+    if (pos < 0) return null;
+    V old = (V) vals[pos];
+    shiftKeys(pos, null);
+    tableSize--;
+    return old;
+  }
+
+  /**
+   * Fills the slot at pos, which is being emptied, by moving back later keys of its probe
+   * run that are allowed to live there, repeating for the slots they leave behind.
+   * If it is non-null, keys that wrap around the end of the table are reported to it.
+   */
+  private void shiftKeys(int pos, KeyIterator it) {
+    while (true) {
+      int last = pos;
+      pos = (pos + 1) & mask;
+      long k;
+      while (true) {
+        if ((k = keys[pos]) == 0) {
+          keys[last] = 0;
+          vals[last] = null;
+          return;
+        }
+        int s = slot(k);
+        //k can move back to last iff its home slot s isn't cyclically in (last, pos]
+        if (last <= pos ? last >= s || s > pos : last >= s && s > pos) break;
+        pos = (pos + 1) & mask;
+      }
+      if (it != null && pos < last) it.addWrapped(k);
+      keys[last] = k;
+      vals[last] = vals[pos];
+    }
+  }
+
+  /**
+   * Moves every mapping into a new table of the given (power of two) length
+   */
+  private void rehash(int length) {
+    long[] oldKeys = keys;
+    Object[] oldVals = vals;
+    allocate(length);
+    for (int i = 0; i < oldKeys.length; i++) {
+      long k = oldKeys[i];
+      if (k != 0) {
+        int pos = slot(k);
+        while (keys[pos] != 0) {
+          pos = (pos + 1) & mask;
+        }
+        keys[pos] = k;
+        vals[pos] = oldVals[i];
+      }
+    }
+  }
+
+  /**
+   * Removes every mapping from this map, keeping its capacity
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(vals, null);
+    tableSize = 0;
+    hasZeroKey = false;
+    zeroVal = null;
+  }
+
+  /**
+   * Calls action on each mapping in this map
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(EntryConsumer<V> action) {
+    if (hasZeroKey) action.accept(0, zeroVal);
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) action.accept(keys[i], (V) vals[i]);
+    }
+  }
+
+  /**
+   * Returns the keys of this map, in iteration order
+   */
+  public long[] keys() {
+    long[] arr = new long[size()];
+    int j = 0;
+    if (hasZeroKey) arr[j++] = 0;
+    for (long k : keys) {
+      if (k != 0) arr[j++] = k;
+    }
+    return arr;
+  }
+
+  /**
+   * Returns an iterator over the keys of this map. Its remove() removes the last returned
+   * key; keys moved back by the removal are still returned exactly once.
+   */
+  public PrimitiveIterator.OfLong keyIterator() {
+    return new KeyIterator();
+  }
+
+  private class KeyIterator implements PrimitiveIterator.OfLong {
+    /** The slot below which the table hasn't been scanned yet */
+    private int pos = keys.length;
+    private int remaining = size();
+    private boolean mustReturnZero = hasZeroKey;
+
+    /** The slot of the last returned key, or -1 if it isn't being read from the table */
+    private int lastPos = -1;
+    private long lastKey;
+    private boolean canRemove;
+
+    /**
+     * Unscanned keys that a remove() moved into the already scanned part of the table,
+     * by wrapping around its end. They are returned after the scan.
+     */
+    private long[] wrapped;
+    private int wrappedCount;
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public long nextLong() {
+      if (remaining == 0) throw new NoSuchElementException();
+      remaining--;
+      canRemove = true;
+      lastPos = -1;
+      if (mustReturnZero) {
+        mustReturnZero = false;
+        return lastKey = 0;
+      }
+      while (pos > 0) {
+        pos--;
+        if (keys[pos] != 0) {
+          lastPos = pos;
+          return lastKey = keys[pos];
+        }
+      }
+      return lastKey = wrapped[--wrappedCount];
+    }
+
+    private void addWrapped(long key) {
+      if (wrapped == null) wrapped = new long[2];
+      else if (wrappedCount == wrapped.length) wrapped = Arrays.copyOf(wrapped, wrappedCount * 2);
+      wrapped[wrappedCount++] = key;
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) throw new IllegalStateException();
+      canRemove = false;
+      if (lastPos >= 0) {
+        shiftKeys(lastPos, this);
+        tableSize--;
+      } else {
+        LongObjectMap.this.remove(lastKey);
+      }
+    }
+  }
+
+  /**
+   * Returns a string representation of this map, as {key=value, ...}
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    forEach((k, v) -> sb.append(sb.length() > 1 ? ", " : "").append(k).append('=').append(v));
+    return sb.append('}').toString();
+  }
+}
@@ -0,0 +1,272 @@
+package common.dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size sequence of long values supporting range updates and range queries.
+ * Adding a value to every index in a range, reading a single index, and reading the
+ * sum, minimum, or maximum over a range are all O(log n) operations.
+ * <br><br>
+ * Internally the values are grouped into "piles" - the nodes of a segment tree,
+ * each of which covers a contiguous range of indices. Each pile records the sum,
+ * min and max of its range, plus a pending delta that has been added to the whole
+ * range but not yet pushed down to its sub-piles. An update or query touches at most
+ * two partially covered piles per level of the tree, and piles are stored in flat
+ * primitive arrays, so no objects are allocated after construction.
+ * <br><br>
+ * All ranges are given as (inclusive) start and stop indices.
+ * See {@link common.dataStructures.PileMap} for the int valued version.
+ *
+ * @author Mshnik
+ */
+public class LongPileMap {
+
+  /** The number of values in this LongPileMap */
+  private final int size;
+
+  /** Sum of each pile's range. Index 1 is the root pile; pile i has sub-piles 2i and 2i+1 */
+  private final long[] sum;
+
+  /** Minimum value in each pile's range */
+  private final long[] min;
+
+  /** Maximum value in each pile's range */
+  private final long[] max;
+
+  /** Delta added to each pile's whole range that hasn't been pushed to its sub-piles */
+  private final long[] pending;
+
+  /**
+   * Constructs a new LongPileMap of the given size, with every value initially 0
+   *
+   * @throws IllegalArgumentException - if size &lt; 1
+   */
+  public LongPileMap(int size) throws IllegalArgumentException {
+    this(new long[checkSize(size)]);
+  }
+
+  /**
+   * Constructs a new LongPileMap holding a copy of the given values
+   *
+   * @throws IllegalArgumentException - if values is empty
+   */
+  public LongPileMap(long[] values) throws IllegalArgumentException {
+    size = checkSize(values.length);
+    int piles = 4 * size;
+    sum = new long[piles];
+    min = new long[piles];
+    max = new long[piles];
+    pending = new long[piles];
+    build(1, 0, size - 1, values);
+  }
+
+  /** Returns size, or throws an IllegalArgumentException if it isn't a valid size */
+  private static int checkSize(int size) throws IllegalArgumentException {
+    if (size < 1)
+      throw new IllegalArgumentException("Can't create a LongPileMap of size " + size);
+    return size;
+  }
+
+  /** Recursively fills in the piles from the given initial values */
+  private void build(int pile, int lo, int hi, long[] values) {
+    if (lo == hi) {
+      sum[pile] = values[lo];
+      min[pile] = values[lo];
+      max[pile] = values[lo];
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    build(2 * pile, lo, mid, values);
+    build(2 * pile + 1, mid + 1, hi, values);
+    pull(pile);
+  }
+
+  /** Returns the number of values in this LongPileMap */
+  public int size() {
+    return size;
+  }
+
+  /** Throws an ArrayIndexOutOfBoundsException if the range isn't a valid range of indices */
+  private void checkRange(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    if (start < 0 || stop >= size || start > stop)
+      throw new ArrayIndexOutOfBoundsException("Illegal range [" + start + "," + stop + "] for " + this);
+  }
+
+  /** Adds delta to the whole range covered by the given pile, deferring the sub-piles */
+  private void apply(int pile, int lo, int hi, long delta) {
+    sum[pile] += delta * (hi - lo + 1);
+    min[pile] += delta;
+    max[pile] += delta;
+    pending[pile] += delta;
+  }
+
+  /** Pushes the pending delta of the given pile down to its two sub-piles */
+  private void push(int pile, int lo, int mid, int hi) {
+    if (pending[pile] != 0) {
+      apply(2 * pile, lo, mid, pending[pile]);
+      apply(2 * pile + 1, mid + 1, hi, pending[pile]);
+      pending[pile] = 0;
+    }
+  }
+
+  /** Recomputes the given pile's aggregates from its two sub-piles */
+  private void pull(int pile) {
+    sum[pile] = sum[2 * pile] + sum[2 * pile + 1];
+    min[pile] = Math.min(min[2 * pile], min[2 * pile + 1]);
+    max[pile] = Math.max(max[2 * pile], max[2 * pile + 1]);
+  }
+
+  /**
+   * Adds delta to every value in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public void add(int start, int stop, long delta) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    addHelper(1, 0, size - 1, start, stop, delta);
+  }
+
+  /**
+   * Adds delta to the value at index.
+   *
+   * @throws ArrayIndexOutOfBoundsException - if index &lt; 0 or index &gt;= size()
+   */
+  public void add(int index, long delta) throws ArrayIndexOutOfBoundsException {
+    add(index, index, delta);
+  }
+
+  private void addHelper(int pile, int lo, int hi, int start, int stop, long delta) {
+    if (start <= lo && hi <= stop) {
+      apply(pile, lo, hi, delta);
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    if (start <= mid) addHelper(2 * pile, lo, mid, start, stop, delta);
+    if (stop > mid) addHelper(2 * pile + 1, mid + 1, hi, start, stop, delta);
+    pull(pile);
+  }
+
+  /**
+   * Sets the value at index to value.
+   *
+   * @throws ArrayIndexOutOfBoundsException - if index &lt; 0 or index &gt;= size()
+   */
+  public void set(int index, long value) throws ArrayIndexOutOfBoundsException {
+    add(index, value - get(index));
+  }
+
+  /**
+   * Returns the value at index.
+   *
+   * @throws ArrayIndexOutOfBoundsException - if index &lt; 0 or index &gt;= size()
+   */
+  public long get(int index) throws ArrayIndexOutOfBoundsException {
+    checkRange(index, index);
+    //Pending deltas on the path down are summed rather than pushed, so get doesn't write
+    long value = 0;
+    int pile = 1;
+    int lo = 0;
+    int hi = size - 1;
+    while (lo != hi) {
+      value += pending[pile];
+      int mid = (lo + hi) >>> 1;
+      if (index <= mid) {
+        pile = 2 * pile;
+        hi = mid;
+      } else {
+        pile = 2 * pile + 1;
+        lo = mid + 1;
+      }
+    }
+    return value + min[pile];
+  }
+
+  /**
+   * Returns the sum of the values in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public long sum(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    return sumHelper(1, 0, size - 1, start, stop);
+  }
+
+  private long sumHelper(int pile, int lo, int hi, int start, int stop) {
+    if (start <= lo && hi <= stop) return sum[pile];
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    long s = 0;
+    if (start <= mid) s += sumHelper(2 * pile, lo, mid, start, stop);
+    if (stop > mid) s += sumHelper(2 * pile + 1, mid + 1, hi, start, stop);
+    return s;
+  }
+
+  /**
+   * Returns the minimum of the values in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public long min(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    return minHelper(1, 0, size - 1, start, stop);
+  }
+
+  private long minHelper(int pile, int lo, int hi, int start, int stop) {
+    if (start <= lo && hi <= stop) return min[pile];
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    if (stop <= mid) return minHelper(2 * pile, lo, mid, start, stop);
+    if (start > mid) return minHelper(2 * pile + 1, mid + 1, hi, start, stop);
+    return Math.min(minHelper(2 * pile, lo, mid, start, stop), minHelper(2 * pile + 1, mid + 1, hi, start, stop));
+  }
+
+  /**
+   * Returns the maximum of the values in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public long max(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    return maxHelper(1, 0, size - 1, start, stop);
+  }
+
+  private long maxHelper(int pile, int lo, int hi, int start, int stop) {
+    if (start <= lo && hi <= stop) return max[pile];
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    if (stop <= mid) return maxHelper(2 * pile, lo, mid, start, stop);
+    if (start > mid) return maxHelper(2 * pile + 1, mid + 1, hi, start, stop);
+    return Math.max(maxHelper(2 * pile, lo, mid, start, stop), maxHelper(2 * pile + 1, mid + 1, hi, start, stop));
+  }
+
+  /** Returns the sum of all values in this LongPileMap. O(1) */
+  public long total() {
+    return sum[1];
+  }
+
+  /** Returns a new array holding every value in this LongPileMap, in index order. O(n) */
+  public long[] toArray() {
+    long[] arr = new long[size];
+    toArrayHelper(1, 0, size - 1, 0, arr);
+    return arr;
+  }
+
+  private void toArrayHelper(int pile, int lo, int hi, long pendingAbove, long[] arr) {
+    if (lo == hi) {
+      arr[lo] = min[pile] + pendingAbove;
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    toArrayHelper(2 * pile, lo, mid, pendingAbove + pending[pile], arr);
+    toArrayHelper(2 * pile + 1, mid + 1, hi, pendingAbove + pending[pile], arr);
+  }
+
+  /**
+   * Returns a string representation of the values in this LongPileMap
+   */
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+}
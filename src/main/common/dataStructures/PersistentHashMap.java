@@ -0,0 +1,425 @@
+package common.dataStructures;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+import common.dataStructures.util.UnmodifiableEntry;
+
+/**
+ * An immutable map implemented as a Hash Array Mapped Trie (HAMT).
+ * Each level of the trie consumes 5 bits of a key's hash, and each node stores
+ * only the children that are actually present, compacted into an array indexed
+ * by a 32 bit bitmap. Keys whose full hashes collide are stored together in a
+ * collision node at the bottom of the trie.
+ * <br><br>
+ * Like the {@link common.dataStructures.ConsList}, every "modifying" operation
+ * returns a new PersistentHashMap and leaves this one unaltered. The new map shares
+ * everything but the path to the altered key with the old map, so {@code put},
+ * {@code remove} and {@code get} are all O(log32 n), without the O(n) copy a
+ * java.util.HashMap would need to preserve the old version.
+ * <br><br>
+ * Null keys are not permitted. Null values are permitted.
+ *
+ * @param <K> - the key type. Keys must have consistent equals and hashCode implementations
+ * @param <V> - the value type
+ * @author Mshnik
+ */
+public class PersistentHashMap<K, V> implements Iterable<Entry<K, V>> {
+
+  /** Number of bits of the hash consumed by each level of the trie */
+  private static final int BITS = 5;
+
+  /** Mask for the bits of a hash consumed at a single level */
+  private static final int MASK = (1 << BITS) - 1;
+
+  /** Returned by node lookups when the key is absent, as null is a valid value */
+  private static final Object NOT_FOUND = new Object();
+
+  /**
+   * A node in the trie. Every node stores its contents as a flat array of
+   * (key, value) pairs. In a BitmapNode a null key marks that the paired value is
+   * a child Node instead of a mapped value.
+   */
+  private static abstract class Node {
+    protected final Object[] array;
+
+    protected Node(Object[] array) {
+      this.array = array;
+    }
+
+    /** Returns the value mapped to key, or NOT_FOUND */
+    abstract Object find(int shift, int hash, Object key);
+
+    /** Returns a node with key mapped to val. Sets added[0] if the key was new */
+    abstract Node put(int shift, int hash, Object key, Object val, boolean[] added);
+
+    /** Returns a node without key, this if key was absent, or null if the node empties */
+    abstract Node remove(int shift, int hash, Object key);
+  }
+
+  /** A trie node that stores its children compressed by a bitmap of present hash chunks */
+  private static class BitmapNode extends Node {
+    private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private final int bitmap;
+
+    private BitmapNode(int bitmap, Object[] array) {
+      super(array);
+      this.bitmap = bitmap;
+    }
+
+    /** Returns the position among present children of the given bit */
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) return NOT_FOUND;
+      int i = index(bit);
+      Object keyOrNull = array[2 * i];
+      Object valOrNode = array[2 * i + 1];
+      if (keyOrNull == null) return ((Node) valOrNode).find(shift + BITS, hash, key);
+      return key.equals(keyOrNull) ? valOrNode : NOT_FOUND;
+    }
+
+    @Override
+    Node put(int shift, int hash, Object key, Object val, boolean[] added) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      int i = index(bit);
+      if ((bitmap & bit) == 0) {
+        Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, 2 * i);
+        newArray[2 * i] = key;
+        newArray[2 * i + 1] = val;
+        System.arraycopy(array, 2 * i, newArray, 2 * (i + 1), array.length - 2 * i);
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, newArray);
+      }
+
+      Object keyOrNull = array[2 * i];
+      Object valOrNode = array[2 * i + 1];
+      if (keyOrNull == null) {
+        Node n = ((Node) valOrNode).put(shift + BITS, hash, key, val, added);
+        return n == valOrNode ? this : cloneAndSet(2 * i + 1, n);
+      }
+      if (key.equals(keyOrNull)) {
+        return valOrNode == val ? this : cloneAndSet(2 * i + 1, val);
+      }
+      added[0] = true;
+      Object[] newArray = array.clone();
+      newArray[2 * i] = null;
+      newArray[2 * i + 1] = createNode(shift + BITS, keyOrNull, valOrNode, hash, key, val);
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    @Override
+    Node remove(int shift, int hash, Object key) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) return this;
+      int i = index(bit);
+      Object keyOrNull = array[2 * i];
+      Object valOrNode = array[2 * i + 1];
+      if (keyOrNull == null) {
+        Node n = ((Node) valOrNode).remove(shift + BITS, hash, key);
+        if (n == valOrNode) return this;
+        if (n != null) return cloneAndSet(2 * i + 1, n);
+      } else if (!key.equals(keyOrNull)) {
+        return this;
+      }
+      if (bitmap == bit) return null;
+      return new BitmapNode(bitmap ^ bit, removePair(array, i));
+    }
+
+    private BitmapNode cloneAndSet(int i, Object o) {
+      Object[] newArray = array.clone();
+      newArray[i] = o;
+      return new BitmapNode(bitmap, newArray);
+    }
+  }
+
+  /** A node holding multiple keys whose full hashes are all equal */
+  private static class CollisionNode extends Node {
+    private final int hash;
+
+    private CollisionNode(int hash, Object[] array) {
+      super(array);
+      this.hash = hash;
+    }
+
+    /** Returns the array index of key, or -1 if absent */
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) return i;
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      return i == -1 ? NOT_FOUND : array[i + 1];
+    }
+
+    @Override
+    Node put(int shift, int hash, Object key, Object val, boolean[] added) {
+      if (hash == this.hash) {
+        int i = indexOf(key);
+        if (i != -1) {
+          if (array[i + 1] == val) return this;
+          Object[] newArray = array.clone();
+          newArray[i + 1] = val;
+          return new CollisionNode(hash, newArray);
+        }
+        Object[] newArray = Arrays.copyOf(array, array.length + 2);
+        newArray[array.length] = key;
+        newArray[array.length + 1] = val;
+        added[0] = true;
+        return new CollisionNode(hash, newArray);
+      }
+      //Different hash - nest this collision node inside of a bitmap node and retry there
+      return new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[]{null, this})
+          .put(shift, hash, key, val, added);
+    }
+
+    @Override
+    Node remove(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      if (i == -1) return this;
+      if (array.length == 2) return null;
+      return new CollisionNode(this.hash, removePair(array, i / 2));
+    }
+  }
+
+  /** Creates a node holding the two given (distinct) keys */
+  private static Node createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+    int h1 = hash(k1);
+    if (h1 == h2) return new CollisionNode(h1, new Object[]{k1, v1, k2, v2});
+    boolean[] added = new boolean[1];
+    return BitmapNode.EMPTY.put(shift, h1, k1, v1, added).put(shift, h2, k2, v2, added);
+  }
+
+  /** Returns a copy of array without the pairIndex-th (key, value) pair */
+  private static Object[] removePair(Object[] array, int pairIndex) {
+    Object[] newArray = new Object[array.length - 2];
+    System.arraycopy(array, 0, newArray, 0, 2 * pairIndex);
+    System.arraycopy(array, 2 * (pairIndex + 1), newArray, 2 * pairIndex, newArray.length - 2 * pairIndex);
+    return newArray;
+  }
+
+  /** Spreads the higher bits of the key's hash downward, as in java.util.HashMap */
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** The empty map. Shared, as it is immutable */
+  private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(0, null);
+
+  /** The number of mappings in this map */
+  public final int size;
+
+  /** The root of the trie, null iff this map is empty */
+  private final Node root;
+
+  private PersistentHashMap(int size, Node root) {
+    this.size = size;
+    this.root = root;
+  }
+
+  /** Returns the empty PersistentHashMap */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  /** Returns a PersistentHashMap holding the same mappings as m */
+  public static <K, V> PersistentHashMap<K, V> from(Map<? extends K, ? extends V> m) {
+    PersistentHashMap<K, V> p = empty();
+    for (Entry<? extends K, ? extends V> e : m.entrySet()) {
+      p = p.put(e.getKey(), e.getValue());
+    }
+    return p;
+  }
+
+  /** Returns the number of mappings in this map */
+  public int size() {
+    return size;
+  }
+
+  /** Returns true iff this map has no mappings */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns true iff this map contains a mapping for key */
+  public boolean containsKey(Object key) {
+    return key != null && root != null && root.find(0, hash(key), key) != NOT_FOUND;
+  }
+
+  /** Returns the value mapped to key, or null if there is none */
+  public V get(Object key) {
+    return getOrDefault(key, null);
+  }
+
+  /** Returns the value mapped to key, or defaultV if there is none */
+  @SuppressWarnings("unchecked")
+  public V getOrDefault(Object key, V defaultV) {
+    if (key == null || root == null) return defaultV;
+    Object o = root.find(0, hash(key), key);
+    return o == NOT_FOUND ? defaultV : (V) o;
+  }
+
+  /**
+   * Returns a new PersistentHashMap that is this map with key mapped to value.
+   * If key is already mapped to value, returns this.
+   *
+   * @throws IllegalArgumentException - if key is null
+   */
+  public PersistentHashMap<K, V> put(K key, V value) throws IllegalArgumentException {
+    if (key == null)
+      throw new IllegalArgumentException("Null keys not allowed");
+    boolean[] added = new boolean[1];
+    Node newRoot = (root == null ? BitmapNode.EMPTY : root).put(0, hash(key), key, value, added);
+    if (newRoot == root) return this;
+    return new PersistentHashMap<>(added[0] ? size + 1 : size, newRoot);
+  }
+
+  /**
+   * Returns a new PersistentHashMap that is this map without a mapping for key.
+   * If key isn't in this map, returns this.
+   */
+  public PersistentHashMap<K, V> remove(Object key) {
+    if (key == null || root == null) return this;
+    Node newRoot = root.remove(0, hash(key), key);
+    if (newRoot == root) return this;
+    if (newRoot == null) return empty();
+    return new PersistentHashMap<>(size - 1, newRoot);
+  }
+
+  /** Performs action on each key, value pair in this map, without creating entries */
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    if (root != null) forEachHelper(root.array, (BiConsumer<Object, Object>) action);
+  }
+
+  /** Recursive helper for forEach */
+  private static void forEachHelper(Object[] array, BiConsumer<Object, Object> action) {
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i] == null) {
+        forEachHelper(((Node) array[i + 1]).array, action);
+      } else {
+        action.accept(array[i], array[i + 1]);
+      }
+    }
+  }
+
+  /** Returns a new java.util HashMap holding the mappings of this map */
+  public HashMap<K, V> toMap() {
+    HashMap<K, V> m = new HashMap<>();
+    forEach(m::put);
+    return m;
+  }
+
+  /**
+   * Returns an iterator over the entries in this map, in an unspecified order.
+   * As PersistentHashMaps are immutable, the returned iterator does not support removal,
+   * and the returned entries do not support setValue.
+   */
+  @Override
+  public Iterator<Entry<K, V>> iterator() {
+    return new Iterator<Entry<K, V>>() {
+      //The trie is at most 7 bitmap levels plus a collision level deep
+      private final Object[][] arrays = new Object[9][];
+      private final int[] positions = new int[9];
+      private int depth = -1;
+      private Entry<K, V> nextEntry;
+
+      {
+        if (root != null) {
+          depth = 0;
+          arrays[0] = root.array;
+          advance();
+        }
+      }
+
+      @SuppressWarnings("unchecked")
+      private void advance() {
+        nextEntry = null;
+        while (depth >= 0) {
+          Object[] arr = arrays[depth];
+          int pos = positions[depth];
+          if (pos >= arr.length) {
+            depth--;
+            continue;
+          }
+          positions[depth] = pos + 2;
+          if (arr[pos] == null) {
+            depth++;
+            arrays[depth] = ((Node) arr[pos + 1]).array;
+            positions[depth] = 0;
+          } else {
+            nextEntry = new UnmodifiableEntry<>((K) arr[pos], (V) arr[pos + 1]);
+            return;
+          }
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return nextEntry != null;
+      }
+
+      @Override
+      public Entry<K, V> next() {
+        if (nextEntry == null) throw new NoSuchElementException();
+        Entry<K, V> e = nextEntry;
+        advance();
+        return e;
+      }
+    };
+  }
+
+  /**
+   * Two PersistentHashMaps are equal if they contain the same mappings
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) return true;
+    if (!(o instanceof PersistentHashMap<?, ?>)) return false;
+    PersistentHashMap<?, ?> m = (PersistentHashMap<?, ?>) o;
+    if (size != m.size) return false;
+    for (Entry<K, V> e : this) {
+      Object k = e.getKey();
+      if (m.root.find(0, hash(k), k) == NOT_FOUND || !Objects.equals(e.getValue(), m.get(k))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Hashes this map by the sum of its entries' hashes, as in java.util.AbstractMap */
+  @Override
+  public int hashCode() {
+    int h = 0;
+    for (Entry<K, V> e : this) {
+      h += e.getKey().hashCode() ^ Objects.hashCode(e.getValue());
+    }
+    return h;
+  }
+
+  /**
+   * Returns a string representation of this map, as in java.util.AbstractMap.
+   */
+  @Override
+  public String toString() {
+    StringBuilder s = new StringBuilder("{");
+    for (Entry<K, V> e : this) {
+      if (s.length() > 1) s.append(", ");
+      s.append(e.getKey()).append("=").append(e.getValue());
+    }
+    return s.append("}").toString();
+  }
+}
@@ -0,0 +1,416 @@
+package common.dataStructures;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable, indexed collection implemented as a bit-partitioned vector trie.
+ * Elements are stored in the leaves of a 32-way tree, with the rightmost leaf
+ * (the tail) kept outside of the tree so that appends only copy a small array.
+ * <br><br>
+ * Like the {@link common.dataStructures.ConsList}, every "modifying" operation
+ * returns a new PersistentVector and leaves this one unaltered. Unlike the
+ * ConsList, the new vector shares all but one path of the tree with the old one,
+ * so {@code get}, {@code set}, {@code append} and {@code pop} are all
+ * O(log32 n) - effectively constant for any vector that fits in memory.
+ * This makes the PersistentVector useful when an algorithm needs to branch off
+ * many slightly different versions of a large indexed state.
+ *
+ * @param <E> - the type of elements stored within the vector.
+ *            No methods are ever called on elements of type E, so no requirements
+ *            are made of the type.
+ * @author Mshnik
+ */
+public class PersistentVector<E> implements Iterable<E> {
+
+  /** Number of bits of the index consumed by each level of the tree */
+  private static final int BITS = 5;
+
+  /** Number of children (or elements) of each node in the tree */
+  private static final int WIDTH = 1 << BITS;
+
+  /** Mask for the bits of an index consumed at a single level */
+  private static final int MASK = WIDTH - 1;
+
+  /**
+   * A single node in the tree. Internal nodes hold other nodes in their array,
+   * leaf nodes hold elements. Nodes are never mutated after they are shared.
+   */
+  private static class Node {
+    private final Object[] array;
+
+    private Node(Object[] array) {
+      this.array = array;
+    }
+  }
+
+  /** The root used by all vectors whose elements fit entirely within the tail */
+  private static final Node EMPTY_NODE = new Node(new Object[WIDTH]);
+
+  /** The empty vector. Shared, as it is immutable */
+  private static final PersistentVector<?> EMPTY =
+      new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+  /**
+   * The size of this vector. Because PersistentVectors are immutable,
+   * this size value is immutable.
+   */
+  public final int size;
+
+  /** The number of index bits consumed above the leaf level of the tree */
+  private final int shift;
+
+  /** The root of the tree, holding all elements before the tail */
+  private final Node root;
+
+  /** The last (up to 32) elements of this vector */
+  private final Object[] tail;
+
+  private PersistentVector(int size, int shift, Node root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  /** Returns the empty PersistentVector */
+  @SuppressWarnings("unchecked")
+  public static <E> PersistentVector<E> empty() {
+    return (PersistentVector<E>) EMPTY;
+  }
+
+  /** Returns a PersistentVector holding the given elements, in order */
+  @SafeVarargs
+  public static <E> PersistentVector<E> of(E... elms) {
+    PersistentVector<E> v = empty();
+    for (int i = 0; i < elms.length; i++) {
+      v = v.append(elms[i]);
+    }
+    return v;
+  }
+
+  /** Returns a PersistentVector holding the elements of iterable, in iteration order */
+  public static <E> PersistentVector<E> from(Iterable<? extends E> iterable) {
+    PersistentVector<E> v = empty();
+    for (E e : iterable) {
+      v = v.append(e);
+    }
+    return v;
+  }
+
+  /**
+   * Returns the size of this vector. See {@link common.dataStructures.PersistentVector#size}
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true iff the size of this vector is 0.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the index of the first element stored in the tail rather than the tree */
+  private int tailOffset() {
+    return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  /** Returns the leaf array that holds the element at index. Assumes index is in bounds */
+  private Object[] leafFor(int index) {
+    if (index >= tailOffset()) return tail;
+    Node node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Node) node.array[(index >>> level) & MASK];
+    }
+    return node.array;
+  }
+
+  /**
+   * Returns the {@code index}th element in this vector.
+   *
+   * @throws IllegalArgumentException - if index &lt; 0 or index &gt;= size
+   */
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    if (index < 0 || index >= size)
+      throw new IllegalArgumentException("Can't get element at index " + index + " OOB");
+    return (E) leafFor(index)[index & MASK];
+  }
+
+  /** Returns the last element in this vector, or null if it is empty */
+  public E last() {
+    return size == 0 ? null : get(size - 1);
+  }
+
+  /**
+   * Returns a new PersistentVector that is this vector with {@code e} added
+   * to the end.
+   */
+  public PersistentVector<E> append(E e) {
+    //Room in the tail - only the tail is copied
+    if (size - tailOffset() < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = e;
+      return new PersistentVector<>(size + 1, shift, root, newTail);
+    }
+
+    //Tail is full - push it into the tree and start a new tail
+    Node tailNode = new Node(tail);
+    Node newRoot;
+    int newShift = shift;
+    if ((size >>> BITS) > (1 << shift)) {
+      //Root overflow - grow the tree by a level
+      newRoot = new Node(new Object[WIDTH]);
+      newRoot.array[0] = root;
+      newRoot.array[1] = newPath(shift, tailNode);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tailNode);
+    }
+    return new PersistentVector<>(size + 1, newShift, newRoot, new Object[]{e});
+  }
+
+  /** Helper for append - copies the path to the rightmost leaf and inserts tailNode there */
+  private Node pushTail(int level, Node parent, Node tailNode) {
+    int subIndex = ((size - 1) >>> level) & MASK;
+    Node ret = new Node(parent.array.clone());
+    Node toInsert;
+    if (level == BITS) {
+      toInsert = tailNode;
+    } else {
+      Node child = (Node) parent.array[subIndex];
+      toInsert = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+    }
+    ret.array[subIndex] = toInsert;
+    return ret;
+  }
+
+  /** Helper for append - creates a chain of single-child nodes down to node */
+  private static Node newPath(int level, Node node) {
+    if (level == 0) return node;
+    Node ret = new Node(new Object[WIDTH]);
+    ret.array[0] = newPath(level - BITS, node);
+    return ret;
+  }
+
+  /**
+   * Returns a new PersistentVector that is this vector with the element at
+   * {@code index} replaced by {@code e}. If index == size, this is equivalent to append.
+   *
+   * @throws IllegalArgumentException - if index &lt; 0 or index &gt; size
+   */
+  public PersistentVector<E> set(int index, E e) {
+    if (index == size) return append(e);
+    if (index < 0 || index > size)
+      throw new IllegalArgumentException("Can't set element at index " + index + " OOB");
+
+    if (index >= tailOffset()) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = e;
+      return new PersistentVector<>(size, shift, root, newTail);
+    }
+    return new PersistentVector<>(size, shift, doSet(shift, root, index, e), tail);
+  }
+
+  /** Helper for set - copies the path to index, replacing the element at the leaf */
+  private static Node doSet(int level, Node node, int index, Object e) {
+    Node ret = new Node(node.array.clone());
+    if (level == 0) {
+      ret.array[index & MASK] = e;
+    } else {
+      int subIndex = (index >>> level) & MASK;
+      ret.array[subIndex] = doSet(level - BITS, (Node) node.array[subIndex], index, e);
+    }
+    return ret;
+  }
+
+  /**
+   * Returns a new PersistentVector that is this vector with the last element removed.
+   *
+   * @throws IllegalArgumentException - if this vector is empty
+   */
+  public PersistentVector<E> pop() {
+    if (size == 0)
+      throw new IllegalArgumentException("Can't pop from the empty vector");
+    if (size == 1) return empty();
+
+    //More than one element in the tail - only the tail is copied
+    if (size - tailOffset() > 1) {
+      return new PersistentVector<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+    }
+
+    //Tail will become empty - pull the rightmost leaf out of the tree to be the new tail
+    Object[] newTail = leafFor(size - 2);
+    Node newRoot = popTail(shift, root);
+    int newShift = shift;
+    if (newRoot == null) {
+      newRoot = EMPTY_NODE;
+    }
+    if (shift > BITS && newRoot.array[1] == null) {
+      newRoot = (Node) newRoot.array[0];
+      newShift -= BITS;
+    }
+    return new PersistentVector<>(size - 1, newShift, newRoot, newTail);
+  }
+
+  /** Helper for pop - copies the path to the rightmost leaf, removing it. Returns null if node empties */
+  private Node popTail(int level, Node node) {
+    int subIndex = ((size - 2) >>> level) & MASK;
+    if (level > BITS) {
+      Node newChild = popTail(level - BITS, (Node) node.array[subIndex]);
+      if (newChild == null && subIndex == 0) return null;
+      Node ret = new Node(node.array.clone());
+      ret.array[subIndex] = newChild;
+      return ret;
+    } else if (subIndex == 0) {
+      return null;
+    } else {
+      Node ret = new Node(node.array.clone());
+      ret.array[subIndex] = null;
+      return ret;
+    }
+  }
+
+  /**
+   * Returns the first index of {@code o} in this vector, or -1 if it does not occur
+   */
+  public int indexOf(Object o) {
+    int i = 0;
+    for (E e : this) {
+      if (Objects.equals(e, o)) return i;
+      i++;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns true iff this vector contains the Object o.
+   */
+  public boolean contains(Object o) {
+    return indexOf(o) != -1;
+  }
+
+  /**
+   * Converts this vector to an array of Objects, of length size.
+   * Copies whole leaves at a time.
+   */
+  public Object[] toArray() {
+    Object[] arr = new Object[size];
+    for (int i = 0; i < size; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      System.arraycopy(leaf, 0, arr, i, Math.min(WIDTH, size - i));
+    }
+    return arr;
+  }
+
+  /** Returns a new java.util List holding the elements of this vector, in order */
+  @SuppressWarnings("unchecked")
+  public List<E> toList() {
+    return new ArrayList<>((List<E>) Arrays.asList(toArray()));
+  }
+
+  /**
+   * Returns an Iterator over the elements in this vector.
+   * As PersistentVectors are immutable, the returned iterator does not support removal,
+   * and cannot throw a ConcurrentModificationException.
+   * Leaves are looked up once per 32 elements, so a full iteration is O(n).
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private int index = 0;
+      private Object[] leaf = null;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public E next() {
+        if (index >= size) throw new NoSuchElementException();
+        if ((index & MASK) == 0 || leaf == null) {
+          leaf = leafFor(index);
+        }
+        return (E) leaf[index++ & MASK];
+      }
+    };
+  }
+
+  /**
+   * Returns a Spliterator over the elements in this vector.
+   * The returned Spliterator is sized, ordered, and immutable
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return Spliterators.spliterator(toArray(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+  }
+
+  /** Returns a stream over the elements in this vector. */
+  public Stream<E> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /** Performs action on each element of this vector, in order */
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(Consumer<? super E> action) {
+    for (int i = 0; i < size; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      int max = Math.min(WIDTH, size - i);
+      for (int j = 0; j < max; j++) {
+        action.accept((E) leaf[j]);
+      }
+    }
+  }
+
+  /**
+   * Returns true if this equals {@code o}.
+   * Two PersistentVectors are equal if they are the same length and the values
+   * at each index are equal.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) return true;
+    if (!(o instanceof PersistentVector<?>)) return false;
+
+    PersistentVector<?> v = (PersistentVector<?>) o;
+    if (size != v.size) return false;
+    Iterator<?> a = iterator();
+    Iterator<?> b = v.iterator();
+    while (a.hasNext()) {
+      if (!Objects.equals(a.next(), b.next())) return false;
+    }
+    return true;
+  }
+
+  /** Hashes the PersistentVector by the combined hash of its elements.
+   * Hash definition copied from Arrays.hashCode */
+  @Override
+  public int hashCode() {
+    int result = 1;
+    for (E element : this) {
+      result = 31 * result + (element == null ? 0 : element.hashCode());
+    }
+    return result;
+  }
+
+  /**
+   * Returns a string representation of this vector. Surrounded with "("
+   * and with elements seperated by ",".
+   */
+  @Override
+  public String toString() {
+    if (size == 0) return "()";
+    StringBuilder s = new StringBuilder("(");
+    for (E e : this) {
+      s.append(e).append(",");
+    }
+    return s.substring(0, s.length() - 1) + ")";
+  }
+}
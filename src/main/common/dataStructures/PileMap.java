@@ -1,138 +1,274 @@
-//package common.dataStructures;
-//
-//import java.util.ArrayList;
-//import java.util.List;
-//import java.util.Map;
-//import java.util.function.Function;
-//import java.util.stream.Collectors;
-//import java.util.stream.IntStream;
-//
-///**
-// * @author Mshnik
-// */
-//public class PileMap {
-//
-//  private static class PileRange {
-//    private final int startIndex; //Inclusive
-//    private final int stopIndex; //Inclusive
-//    private int value; //Mutable;
-//
-//    private PileRange(int startIndex, int size) {
-//      this.startIndex = startIndex;
-//      this.stopIndex = startIndex + size;
-//      this.value = 0;
-//
-//      assert size > 0;
-//      assert (size & (size - 1)) == 0; // Check size is power of 2
-//    }
-//
-//    public int getStartIndex() {
-//      return startIndex;
-//    }
-//
-//    private void add(int delta) {
-//      this.value += delta;
-//    }
-//
-//    private int getValue() {
-//      return this.value;
-//    }
-//
-//    public String toString() {
-//      return "[" + startIndex + "-" + stopIndex + "]:" + value;
-//    }
-//  }
-//
-//  /** Size of the PileMap. Big-O will be in terms of this value for PileMap. */
-//  private final int originalSize;
-//
-//  /** Result of rounding originalSize up to the nearest power of 2. */
-//  private final int size;
-//
-//  /** Log base 2 of size */
-//  private final int logSize;
-//
-//  /**
-//   * Lists of piles. All piles will have a range of a power of 2.
-//   * A pile with range [x,y] will be at index [x, y/(y-x)].
-//   * Total size = sum of i=0...n-1 of n/2**i = n + n/2 + n/4 .... = 2n.
-//   * Thus total size is bounded by O(n).
-//   *
-//   * We can assume O(1) get access over this nested list. (Backed by ArrayLists).
-//   */
-//  private List<Map<Integer, PileRange>> piles;
-//
-//  public PileMap(int originalSize) {
-//    this.originalSize = originalSize;
-//    logSize = (int)Math.ceil(Math.log(originalSize)/Math.log(2));
-//    // For simplicity, round up to next power of 2. Doesn't change O(n) calculations, and
-//    // removes annoying corner cases. Can remove this later to not use unnecessary space.
-//    size = (int)Math.pow(2, logSize);
-//
-//    //Init piles - total number of ranges = 2n.
-//    piles = IntStream.range(0, logSize)
-//        .map(x -> 1 << x)
-//        .mapToObj(this::createRangesOfSize)
-//        .collect(Collectors.toList());
-//
-//    //Total init time is O(n).
-//  }
-//
-//  private Map<Integer, PileRange> createRangesOfSize(final int rangeSize) {
-//    return IntStream
-//        .range(0, this.size/rangeSize)
-//        .map(x -> x*rangeSize)
-//        .mapToObj(i -> new PileRange(i, rangeSize))
-//        .collect(Collectors.toMap(PileRange::getStartIndex, Function.identity()));
-//  }
-//
-//  /** Returns the value at position index. */
-//  public int get(int index) {
-//    int value = 0;
-//    for(int i = 0; i < logSize; i++) {
-//      value += piles.get(i).get(index / (1 << i)).getValue();
-//    }
-//    return value;
-//  }
-//
-//  /** Adds val to all values in the (inclusive) range startIndex,stopIndex.
-//   *  Assumes startIndex <= stopIndex.
-//   */
-//  public void add(int startIndex, int stopIndex, int val) {
-//    addHelper(startIndex, stopIndex, val, 0, size, logSize-1);
-//  }
-//
-//  private void addHelper(int startIndex, int stopIndex, int val, int rangeStart, int rangeStop, int rangeLevel) {
-//    // Check if we are on exactly the right range. If so, apply the value and terminate.
-//    if (startIndex == rangeStart && stopIndex == rangeStop) {
-//      piles.get(rangeLevel).get(startIndex).value += val;
-//      return;
-//    }
-//    // Calculate range overlap.
-//    int overlapSize;
-//    if (startIndex <= rangeStart && rangeStop <= stopIndex) {
-//      overlapSize = rangeStop - rangeStart;
-//    } else if (rangeStart <= startIndex && stopIndex <= rangeStop) {
-//      overlapSize = stopIndex - startIndex;
-//    } else if (stopIndex <= rangeStart) {
-//      overlapSize = rangeStart - stopIndex;
-//    } else { // Implies rangeStop <= startIndex, or ranges don't overlap.
-//      overlapSize = startIndex - rangeStop;
-//    }
-//    if (overlapSize <= 0) {
-//      //Nothing to do here.
-//      return;
-//    }
-//    int rangeSize = rangeStop - rangeStart;
-//
-//    // Check if the range makes up at least half of the range size, if so apply and invert before continuing.
-//    if (overlapSize >= (rangeStop - rangeStart)/2) {
-//      piles.get(rangeLevel).get(startIndex).value += val;
-//      addHelper(startIndex, rangeStart, -val, rangeStart, rangeLevel+1);
-//    }
-//  }
-//
-//  public static void main(String[] args) {
-//    new PileMap(16);
-//  }
-//}
+package common.dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size sequence of int values supporting range updates and range queries.
+ * Adding a value to every index in a range, reading a single index, and reading the
+ * sum, minimum, or maximum over a range are all O(log n) operations.
+ * <br><br>
+ * Internally the values are grouped into "piles" - the nodes of a segment tree,
+ * each of which covers a contiguous range of indices. Each pile records the sum,
+ * min and max of its range, plus a pending delta that has been added to the whole
+ * range but not yet pushed down to its sub-piles. An update or query touches at most
+ * two partially covered piles per level of the tree, and piles are stored in flat
+ * primitive arrays, so no objects are allocated after construction.
+ * <br><br>
+ * All ranges are given as (inclusive) start and stop indices.
+ * Range sums are returned as longs, as a sum of ints can overflow an int.
+ * See {@link common.dataStructures.LongPileMap} and {@link common.dataStructures.DoublePileMap}
+ * for the long and double valued versions.
+ *
+ * @author Mshnik
+ */
+public class PileMap {
+
+  /** The number of values in this PileMap */
+  private final int size;
+
+  /** Sum of each pile's range. Index 1 is the root pile; pile i has sub-piles 2i and 2i+1 */
+  private final long[] sum;
+
+  /** Minimum value in each pile's range */
+  private final int[] min;
+
+  /** Maximum value in each pile's range */
+  private final int[] max;
+
+  /** Delta added to each pile's whole range that hasn't been pushed to its sub-piles */
+  private final int[] pending;
+
+  /**
+   * Constructs a new PileMap of the given size, with every value initially 0
+   *
+   * @throws IllegalArgumentException - if size &lt; 1
+   */
+  public PileMap(int size) throws IllegalArgumentException {
+    this(new int[checkSize(size)]);
+  }
+
+  /**
+   * Constructs a new PileMap holding a copy of the given values
+   *
+   * @throws IllegalArgumentException - if values is empty
+   */
+  public PileMap(int[] values) throws IllegalArgumentException {
+    size = checkSize(values.length);
+    int piles = 4 * size;
+    sum = new long[piles];
+    min = new int[piles];
+    max = new int[piles];
+    pending = new int[piles];
+    build(1, 0, size - 1, values);
+  }
+
+  /** Returns size, or throws an IllegalArgumentException if it isn't a valid size */
+  private static int checkSize(int size) throws IllegalArgumentException {
+    if (size < 1)
+      throw new IllegalArgumentException("Can't create a PileMap of size " + size);
+    return size;
+  }
+
+  /** Recursively fills in the piles from the given initial values */
+  private void build(int pile, int lo, int hi, int[] values) {
+    if (lo == hi) {
+      sum[pile] = values[lo];
+      min[pile] = values[lo];
+      max[pile] = values[lo];
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    build(2 * pile, lo, mid, values);
+    build(2 * pile + 1, mid + 1, hi, values);
+    pull(pile);
+  }
+
+  /** Returns the number of values in this PileMap */
+  public int size() {
+    return size;
+  }
+
+  /** Throws an ArrayIndexOutOfBoundsException if the range isn't a valid range of indices */
+  private void checkRange(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    if (start < 0 || stop >= size || start > stop)
+      throw new ArrayIndexOutOfBoundsException("Illegal range [" + start + "," + stop + "] for " + this);
+  }
+
+  /** Adds delta to the whole range covered by the given pile, deferring the sub-piles */
+  private void apply(int pile, int lo, int hi, int delta) {
+    sum[pile] += (long) delta * (hi - lo + 1);
+    min[pile] += delta;
+    max[pile] += delta;
+    pending[pile] += delta;
+  }
+
+  /** Pushes the pending delta of the given pile down to its two sub-piles */
+  private void push(int pile, int lo, int mid, int hi) {
+    if (pending[pile] != 0) {
+      apply(2 * pile, lo, mid, pending[pile]);
+      apply(2 * pile + 1, mid + 1, hi, pending[pile]);
+      pending[pile] = 0;
+    }
+  }
+
+  /** Recomputes the given pile's aggregates from its two sub-piles */
+  private void pull(int pile) {
+    sum[pile] = sum[2 * pile] + sum[2 * pile + 1];
+    min[pile] = Math.min(min[2 * pile], min[2 * pile + 1]);
+    max[pile] = Math.max(max[2 * pile], max[2 * pile + 1]);
+  }
+
+  /**
+   * Adds delta to every value in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public void add(int start, int stop, int delta) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    addHelper(1, 0, size - 1, start, stop, delta);
+  }
+
+  /**
+   * Adds delta to the value at index.
+   *
+   * @throws ArrayIndexOutOfBoundsException - if index &lt; 0 or index &gt;= size()
+   */
+  public void add(int index, int delta) throws ArrayIndexOutOfBoundsException {
+    add(index, index, delta);
+  }
+
+  private void addHelper(int pile, int lo, int hi, int start, int stop, int delta) {
+    if (start <= lo && hi <= stop) {
+      apply(pile, lo, hi, delta);
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    if (start <= mid) addHelper(2 * pile, lo, mid, start, stop, delta);
+    if (stop > mid) addHelper(2 * pile + 1, mid + 1, hi, start, stop, delta);
+    pull(pile);
+  }
+
+  /**
+   * Sets the value at index to value.
+   *
+   * @throws ArrayIndexOutOfBoundsException - if index &lt; 0 or index &gt;= size()
+   */
+  public void set(int index, int value) throws ArrayIndexOutOfBoundsException {
+    add(index, value - get(index));
+  }
+
+  /**
+   * Returns the value at index.
+   *
+   * @throws ArrayIndexOutOfBoundsException - if index &lt; 0 or index &gt;= size()
+   */
+  public int get(int index) throws ArrayIndexOutOfBoundsException {
+    checkRange(index, index);
+    //Pending deltas on the path down are summed rather than pushed, so get doesn't write
+    int value = 0;
+    int pile = 1;
+    int lo = 0;
+    int hi = size - 1;
+    while (lo != hi) {
+      value += pending[pile];
+      int mid = (lo + hi) >>> 1;
+      if (index <= mid) {
+        pile = 2 * pile;
+        hi = mid;
+      } else {
+        pile = 2 * pile + 1;
+        lo = mid + 1;
+      }
+    }
+    return value + min[pile];
+  }
+
+  /**
+   * Returns the sum of the values in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public long sum(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    return sumHelper(1, 0, size - 1, start, stop);
+  }
+
+  private long sumHelper(int pile, int lo, int hi, int start, int stop) {
+    if (start <= lo && hi <= stop) return sum[pile];
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    long s = 0;
+    if (start <= mid) s += sumHelper(2 * pile, lo, mid, start, stop);
+    if (stop > mid) s += sumHelper(2 * pile + 1, mid + 1, hi, start, stop);
+    return s;
+  }
+
+  /**
+   * Returns the minimum of the values in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public int min(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    return minHelper(1, 0, size - 1, start, stop);
+  }
+
+  private int minHelper(int pile, int lo, int hi, int start, int stop) {
+    if (start <= lo && hi <= stop) return min[pile];
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    if (stop <= mid) return minHelper(2 * pile, lo, mid, start, stop);
+    if (start > mid) return minHelper(2 * pile + 1, mid + 1, hi, start, stop);
+    return Math.min(minHelper(2 * pile, lo, mid, start, stop), minHelper(2 * pile + 1, mid + 1, hi, start, stop));
+  }
+
+  /**
+   * Returns the maximum of the values in the (inclusive) range [start, stop].
+   *
+   * @throws ArrayIndexOutOfBoundsException - if start &lt; 0, stop &gt;= size(), or start &gt; stop
+   */
+  public int max(int start, int stop) throws ArrayIndexOutOfBoundsException {
+    checkRange(start, stop);
+    return maxHelper(1, 0, size - 1, start, stop);
+  }
+
+  private int maxHelper(int pile, int lo, int hi, int start, int stop) {
+    if (start <= lo && hi <= stop) return max[pile];
+    int mid = (lo + hi) >>> 1;
+    push(pile, lo, mid, hi);
+    if (stop <= mid) return maxHelper(2 * pile, lo, mid, start, stop);
+    if (start > mid) return maxHelper(2 * pile + 1, mid + 1, hi, start, stop);
+    return Math.max(maxHelper(2 * pile, lo, mid, start, stop), maxHelper(2 * pile + 1, mid + 1, hi, start, stop));
+  }
+
+  /** Returns the sum of all values in this PileMap. O(1) */
+  public long total() {
+    return sum[1];
+  }
+
+  /** Returns a new array holding every value in this PileMap, in index order. O(n) */
+  public int[] toArray() {
+    int[] arr = new int[size];
+    toArrayHelper(1, 0, size - 1, 0, arr);
+    return arr;
+  }
+
+  private void toArrayHelper(int pile, int lo, int hi, int pendingAbove, int[] arr) {
+    if (lo == hi) {
+      arr[lo] = min[pile] + pendingAbove;
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    toArrayHelper(2 * pile, lo, mid, pendingAbove + pending[pile], arr);
+    toArrayHelper(2 * pile + 1, mid + 1, hi, pendingAbove + pending[pile], arr);
+  }
+
+  /**
+   * Returns a string representation of the values in this PileMap
+   */
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+}
@@ -0,0 +1,296 @@
+package common.dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable, bounded-memory sketch of a stream of doubles that answers quantile
+ * queries (median, p95, p99, ...) to within a configurable relative error.
+ * <br><br>
+ * Values are counted in logarithmically sized buckets: bucket i holds the values in
+ * (gamma^(i-1), gamma^i], where gamma = (1 + a) / (1 - a) for relative accuracy a.
+ * Reporting the (relative) midpoint of a bucket is then within a factor of a of every
+ * value in it, so any returned quantile q' of a true quantile q satisfies
+ * |q' - q| &lt;= a * |q|. Negative values are counted in a mirrored set of buckets,
+ * and values too close to zero to bucket are counted as zero.
+ * <br><br>
+ * The number of buckets depends only on the range of values seen, never on how many
+ * values are added, and is capped at maxBuckets per sign. If the cap is reached, the
+ * lowest magnitude buckets are collapsed together - sacrificing accuracy only on the
+ * values closest to zero, which matters least for latency style measurements.
+ * <br><br>
+ * Because a value is always counted in the same bucket, removing a previously added
+ * value exactly reverses the add. This lets the sketch be used over a sliding window
+ * (as by {@link common.dataStructures.StatsIterator#withQuantileStat(double...)})
+ * without any drift. Sketches with the same accuracy can be merged by adding
+ * bucket counts.
+ *
+ * @author Mshnik
+ */
+public class QuantileSketch {
+
+  /** The relative accuracy used when none is given */
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+  /** The maximum number of buckets per sign used when none is given */
+  public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+  /** Values with magnitude less than this are counted as zero */
+  private static final double MIN_INDEXABLE_VALUE = Double.MIN_NORMAL * 1e10;
+
+  /**
+   * A growable run of counts for consecutive bucket indices, for one sign of value.
+   * Indices below collapseFloor are counted at collapseFloor.
+   */
+  private static class Store {
+    private final int maxBuckets;
+    private long[] counts = new long[0];
+    private int offset; //bucket index of counts[0]
+    private int collapseFloor = Integer.MIN_VALUE;
+    private long total;
+
+    private Store(int maxBuckets) {
+      this.maxBuckets = maxBuckets;
+    }
+
+    private Store copy() {
+      Store s = new Store(maxBuckets);
+      s.counts = counts.clone();
+      s.offset = offset;
+      s.collapseFloor = collapseFloor;
+      s.total = total;
+      return s;
+    }
+
+    /** Adds n (possibly negative) to the count of the given bucket index */
+    private void add(int index, long n) {
+      index = Math.max(index, collapseFloor);
+      if (counts.length == 0) {
+        counts = new long[Math.min(16, maxBuckets)];
+        offset = index - counts.length / 2;
+      } else if (index < offset || index >= offset + counts.length) {
+        grow(index);
+        index = Math.max(index, collapseFloor);
+      }
+      counts[index - offset] += n;
+      total += n;
+    }
+
+    /** Reallocates counts to cover index, collapsing the lowest buckets if necessary */
+    private void grow(int index) {
+      int lo = Math.min(offset, index);
+      int hi = Math.max(offset + counts.length - 1, index);
+      if ((long) hi - lo + 1 > maxBuckets) {
+        //Collapse everything below newFloor into newFloor
+        int newFloor = hi - maxBuckets + 1;
+        long collapsed = 0;
+        for (int i = 0; i < counts.length && offset + i <= newFloor; i++) {
+          collapsed += counts[i];
+          counts[i] = 0;
+        }
+        collapseFloor = Math.max(collapseFloor, newFloor);
+        lo = collapseFloor;
+        long[] newCounts = new long[hi - lo + 1];
+        for (int i = 0; i < counts.length; i++) {
+          int b = offset + i;
+          if (b > lo && b <= hi) newCounts[b - lo] = counts[i];
+        }
+        newCounts[0] += collapsed;
+        counts = newCounts;
+        offset = lo;
+      } else {
+        //Grow geometrically, within the bucket cap
+        int length = (int) Math.min(maxBuckets, Math.max(hi - lo + 1, 2L * counts.length));
+        int newOffset = index < offset ? hi - length + 1 : lo;
+        long[] newCounts = new long[length];
+        System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+        counts = newCounts;
+        offset = newOffset;
+      }
+    }
+  }
+
+  private final double relativeAccuracy;
+  private final double gamma;
+  private final double logGamma;
+
+  private final Store positive;
+  private final Store negative;
+  private long zeroCount;
+
+  /**
+   * Constructs an empty QuantileSketch with the default relative accuracy and bucket cap
+   */
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY);
+  }
+
+  /**
+   * Constructs an empty QuantileSketch with the given relative accuracy and the default
+   * bucket cap
+   *
+   * @throws IllegalArgumentException - if relativeAccuracy isn't in (0,1)
+   */
+  public QuantileSketch(double relativeAccuracy) throws IllegalArgumentException {
+    this(relativeAccuracy, DEFAULT_MAX_BUCKETS);
+  }
+
+  /**
+   * Constructs an empty QuantileSketch with the given relative accuracy, that will
+   * store at most maxBuckets buckets for each of positive and negative values.
+   *
+   * @throws IllegalArgumentException - if relativeAccuracy isn't in (0,1) or maxBuckets &lt; 1
+   */
+  public QuantileSketch(double relativeAccuracy, int maxBuckets) throws IllegalArgumentException {
+    if (!(relativeAccuracy > 0 && relativeAccuracy < 1))
+      throw new IllegalArgumentException("Relative accuracy must be in (0,1), got " + relativeAccuracy);
+    if (maxBuckets < 1)
+      throw new IllegalArgumentException("Must allow at least one bucket, got " + maxBuckets);
+    this.relativeAccuracy = relativeAccuracy;
+    gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    logGamma = Math.log(gamma);
+    positive = new Store(maxBuckets);
+    negative = new Store(maxBuckets);
+  }
+
+  /** Constructs a QuantileSketch that is an independent copy of s */
+  private QuantileSketch(QuantileSketch s) {
+    relativeAccuracy = s.relativeAccuracy;
+    gamma = s.gamma;
+    logGamma = s.logGamma;
+    positive = s.positive.copy();
+    negative = s.negative.copy();
+    zeroCount = s.zeroCount;
+  }
+
+  /** Returns a copy of this QuantileSketch, independent of this one */
+  public QuantileSketch copy() {
+    return new QuantileSketch(this);
+  }
+
+  /** Returns the relative accuracy of quantiles returned by this sketch */
+  public double getRelativeAccuracy() {
+    return relativeAccuracy;
+  }
+
+  /** Returns the bucket index for a positive value */
+  private int index(double value) {
+    return (int) Math.ceil(Math.log(value) / logGamma);
+  }
+
+  /** Returns the representative value of a bucket index, within relativeAccuracy of all its values */
+  private double value(int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+
+  /** Adds n (possibly negative) copies of value to this sketch */
+  private void add(double value, long n) {
+    if (Double.isNaN(value))
+      throw new IllegalArgumentException("Can't add NaN to a QuantileSketch");
+    if (value >= MIN_INDEXABLE_VALUE) {
+      positive.add(index(value), n);
+    } else if (value <= -MIN_INDEXABLE_VALUE) {
+      negative.add(index(-value), n);
+    } else {
+      zeroCount += n;
+    }
+  }
+
+  /**
+   * Adds value to this sketch.
+   *
+   * @throws IllegalArgumentException - if value is NaN
+   */
+  public void add(double value) throws IllegalArgumentException {
+    add(value, 1);
+  }
+
+  /**
+   * Removes a value that was previously added to this sketch. Removing a value that
+   * was never added leaves the sketch in an unspecified state.
+   *
+   * @throws IllegalArgumentException - if value is NaN
+   */
+  public void remove(double value) throws IllegalArgumentException {
+    add(value, -1);
+  }
+
+  /**
+   * Adds all of the values counted in other to this sketch.
+   *
+   * @throws IllegalArgumentException - if other has a different relative accuracy
+   */
+  public void merge(QuantileSketch other) throws IllegalArgumentException {
+    if (other.gamma != gamma)
+      throw new IllegalArgumentException("Can't merge sketches of different accuracy");
+    for (int i = 0; i < other.positive.counts.length; i++) {
+      if (other.positive.counts[i] != 0) positive.add(other.positive.offset + i, other.positive.counts[i]);
+    }
+    for (int i = 0; i < other.negative.counts.length; i++) {
+      if (other.negative.counts[i] != 0) negative.add(other.negative.offset + i, other.negative.counts[i]);
+    }
+    zeroCount += other.zeroCount;
+  }
+
+  /** Returns the number of values counted by this sketch */
+  public long count() {
+    return positive.total + negative.total + zeroCount;
+  }
+
+  /** Returns true iff this sketch counts no values */
+  public boolean isEmpty() {
+    return count() == 0;
+  }
+
+  /**
+   * Returns an estimate of the q quantile of the values in this sketch, within
+   * the relative accuracy of the true quantile. For example q = 0.5 is the median
+   * and q = 0.99 is p99. Returns NaN if this sketch is empty.
+   *
+   * @throws IllegalArgumentException - if q isn't in [0,1]
+   */
+  public double quantile(double q) throws IllegalArgumentException {
+    if (!(q >= 0 && q <= 1))
+      throw new IllegalArgumentException("Quantile must be in [0,1], got " + q);
+    long count = count();
+    if (count == 0) return Double.NaN;
+
+    long rank = (long) (q * (count - 1));
+    //Negative values, most negative (highest index) first
+    long seen = 0;
+    for (int i = negative.counts.length - 1; i >= 0; i--) {
+      seen += negative.counts[i];
+      if (seen > rank) return -value(negative.offset + i);
+    }
+    seen += zeroCount;
+    if (seen > rank) return 0;
+    for (int i = 0; i < positive.counts.length; i++) {
+      seen += positive.counts[i];
+      if (seen > rank) return value(positive.offset + i);
+    }
+    //Unreachable while counts are consistent - return the largest bucket
+    return value(positive.offset + positive.counts.length - 1);
+  }
+
+  /**
+   * Returns estimates of each of the given quantiles, in the same order.
+   * See {@link common.dataStructures.QuantileSketch#quantile(double)}
+   *
+   * @throws IllegalArgumentException - if any q isn't in [0,1]
+   */
+  public double[] quantiles(double... qs) throws IllegalArgumentException {
+    double[] result = new double[qs.length];
+    for (int i = 0; i < qs.length; i++) {
+      result[i] = quantile(qs[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a string representation of this sketch - its count and quartiles
+   */
+  @Override
+  public String toString() {
+    return "QuantileSketch(n=" + count() + ", quartiles="
+        + (isEmpty() ? "[]" : Arrays.toString(quantiles(0, 0.25, 0.5, 0.75, 1))) + ")";
+  }
+}
@@ -91,4 +91,63 @@ public class StatsIterator<T extends Number> implements Iterator<T> {
   public StatsIterator<T> withAverageStat() {
     return withStat(AVERAGE_KEY, 0.0, (sum) -> sum/data.size(), (d, sum) -> sum + d.doubleValue(), (d, sum) -> sum - d.doubleValue());
   }
+
+  public static final String QUANTILE_KEY = "QUANTILE";
+
+  /** The quantiles reported by getQuantiles(), set by withQuantileStat */
+  private double[] quantiles;
+
+  /** The live sketch behind the quantile stat, read directly by getQuantiles() */
+  private QuantileSketch quantileSketch;
+
+  /**
+   * Adds a quantile stat with the default relative accuracy.
+   * See {@link common.dataStructures.StatsIterator#withQuantileStat(double[], double)}
+   */
+  public StatsIterator<T> withQuantileStat(double... qs) throws IllegalArgumentException {
+    return withQuantileStat(qs, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+  }
+
+  /**
+   * Adds a quantile stat, backed by a QuantileSketch of the given relative accuracy.
+   * getStat(QUANTILE_KEY) returns a copy of the sketch of the current window, which can be
+   * queried for any quantile or merged with the sketches of other iterators.
+   * getQuantiles() returns the estimates for the quantiles qs, in order.
+   * Memory use depends only on the range of values seen, and values leaving the window
+   * are removed from the sketch exactly.
+   *
+   * @throws IllegalArgumentException - if any q isn't in [0,1], or relativeAccuracy isn't in (0,1)
+   */
+  public StatsIterator<T> withQuantileStat(double[] qs, double relativeAccuracy) throws IllegalArgumentException {
+    for (double q : qs) {
+      if (!(q >= 0 && q <= 1)) {
+        throw new IllegalArgumentException("Quantile must be in [0,1], got " + q);
+      }
+    }
+    quantiles = qs.clone();
+    quantileSketch = new QuantileSketch(relativeAccuracy);
+    return withStat(QUANTILE_KEY, quantileSketch, QuantileSketch::copy,
+        (d, sketch) -> {
+          sketch.add(d.doubleValue());
+          return sketch;
+        },
+        (d, sketch) -> {
+          sketch.remove(d.doubleValue());
+          return sketch;
+        });
+  }
+
+  /**
+   * Returns the current estimates of the quantiles passed to withQuantileStat, in order.
+   * Each is NaN if no data is in the window. Reads the sketch in place rather than copying
+   * it, so this takes time proportional to the number of buckets and allocates only the result.
+   *
+   * @throws RuntimeException - if withQuantileStat hasn't been called
+   */
+  public double[] getQuantiles() {
+    if (quantileSketch == null) {
+      throw new RuntimeException("StatsIterator " + this + " doesn't contain stat for key " + QUANTILE_KEY);
+    }
+    return quantileSketch.quantiles(quantiles);
+  }
 }
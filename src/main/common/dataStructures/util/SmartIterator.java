@@ -2,8 +2,7 @@ package common.dataStructures.util;
 
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-
-import functional.impl.Supplier;
+import java.util.function.IntSupplier;
 
 //TODO - SPEC
 public class SmartIterator<T> implements Iterator<T> {
@@ -11,22 +10,22 @@ public class SmartIterator<T> implements Iterator<T> {
   private Iterator<T> wrappedIter;
   private int nextCount;
   private int expectedModCount;
-  private Supplier<Integer> modCountSupplier;
+  private IntSupplier modCountSupplier;
 
-  public SmartIterator(Iterable<T> iterable, Supplier<Integer> getExpectedModCount) {
+  public SmartIterator(Iterable<T> iterable, IntSupplier getExpectedModCount) {
     this(iterable.iterator(), getExpectedModCount);
   }
 
-  public SmartIterator(Iterator<T> iter, Supplier<Integer> getExpectedModCount) {
+  public SmartIterator(Iterator<T> iter, IntSupplier getExpectedModCount) {
     wrappedIter = iter;
     modCountSupplier = getExpectedModCount;
-    expectedModCount = getExpectedModCount.apply();
+    expectedModCount = getExpectedModCount.getAsInt();
     nextCount = 0;
   }
 
   @Override
   public boolean hasNext() throws ConcurrentModificationException {
-    if (expectedModCount != modCountSupplier.apply()) {
+    if (expectedModCount != modCountSupplier.getAsInt()) {
       throw new ConcurrentModificationException();
     }
     return wrappedIter.hasNext();
@@ -40,7 +39,7 @@ public class SmartIterator<T> implements Iterator<T> {
   @Override
   public void remove() {
     wrappedIter.remove();
-    expectedModCount = modCountSupplier.apply();
+    expectedModCount = modCountSupplier.getAsInt();
   }
 
   public int getNextCount() {
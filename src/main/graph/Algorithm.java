@@ -1,22 +1,23 @@
 package graph;
 
 import common.Copyable;
-import common.IDObject;
-import common.dataStructures.DeArrList;
-import common.types.Tuple;
+import common.dataStructures.IndexedHeap;
+import common.dataStructures.IntSet;
 import functional.impl.Function2;
 import graph.matching.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import common.Util;
 import common.types.Tuple2;
-import common.dataStructures.ConsList;
 import common.dataStructures.NotInCollectionException;
-import common.dataStructures.UnionFind;
 
 /**
  * Holder class for various algorithms for graphs and matching
@@ -28,35 +29,6 @@ public class Algorithm {
    */
   private Algorithm() {}
 
-  //TODO - SPEC
-  private static class FlowEdge extends IDObject implements Flowable, Weighted {
-
-    private int capacity;
-    private int weight;
-
-    private FlowEdge() {}
-
-    public FlowEdge setCapacity(int c) {
-      this.capacity = c;
-      return this;
-    }
-
-    public FlowEdge setWeight(int w) {
-      this.weight = w;
-      return this;
-    }
-
-    @Override
-    public int getCapacity() {
-      return capacity;
-    }
-
-    @Override
-    public int getWeight() {
-      return weight;
-    }
-  }
-
   /**
    * Returns the sum of the weights for the given path in the given graph.
    *
@@ -91,7 +63,13 @@ public class Algorithm {
    *
    * If g is not connected, the fullest tree will be constructed, though it will not be spanning
    *
+   * If g is directed, the tree is a minimum arborescence: every vertex but the root has exactly
+   * one edge of the tree into it, and is reached from the root along tree edges. If no vertex
+   * reaches every other, the fullest tree is a forest of arborescences with as few roots as
+   * possible, and of minimal weight among those.
+   *
    * Ties between equivalently weighted edges in g are broken arbitrarily.
+   * See {@link #minimumSpanningTree(GraphSnapshot)}.
    *
    * @param g - the graph to find a spanning tree on
    * @param <V> - the vertex type in the graph
@@ -99,32 +77,463 @@ public class Algorithm {
    * @return - a spanning tree, in the form of a set of edges
    */
   public static <V, E extends Weighted> Set<E> minimumSpanningTree(Graph<V, E> g) {
-    if (g.isDirected()) {
-      throw new UnsupportedOperationException("Spanning tree on directed graphs not yet supported");
-    } else {
+    GraphSnapshot<V, E> s = g.snapshot();
+    return edgesOf(s, minimumSpanningTree(s));
+  }
+
+  /**
+   * Returns the ids of the edges of a minimum spanning tree (or the fullest forest, if g is not
+   * connected) of the given graph snapshot. For undirected snapshots this is computed by
+   * Kruskal's algorithm: the edges are sorted as primitive (weight, id) pairs - in parallel,
+   * for many edges - and each is added unless an array based union find already connects its
+   * endpoints. For directed snapshots this is the minimum arborescence with the fewest roots,
+   * as described in {@link #minimumSpanningTree(Graph)}, computed by
+   * {@link #minimumArborescence(GraphSnapshot, int)} from a virtual root joined to every vertex
+   * by an edge heavier than any tree.
+   */
+  public static <V, E extends Weighted> int[] minimumSpanningTree(GraphSnapshot<V, E> g) {
+    if (g.isDirected()) return minimumBranching(g);
+
+    int n = g.vertexCount();
+    int m = g.edgeCount();
+    long[] keys = new long[m];
+    int count = 0;
+    for (int e = 0; e < m; e++) {
+      if (g.edgeSource(e) != g.edgeSink(e)) keys[count++] = edgeKey(g, e);
+    }
+    keys = Arrays.copyOf(keys, count);
+    Arrays.parallelSort(keys);
+
+    int[] parent = new int[n];
+    int[] size = new int[n];
+    for (int v = 0; v < n; v++) {
+      parent[v] = v;
+      size[v] = 1;
+    }
+    int[] tree = new int[Math.max(0, n - 1)];
+    int treeSize = 0;
+    for (int i = 0; i < keys.length && treeSize < n - 1; i++) {
+      int e = (int) keys[i];
+      int a = find(parent, g.edgeSource(e));
+      int b = find(parent, g.edgeSink(e));
+      if (a == b) continue;
+      if (size[a] < size[b]) {
+        int t = a;
+        a = b;
+        b = t;
+      }
+      parent[b] = a;
+      size[a] += size[b];
+      tree[treeSize++] = e;
+    }
+    return Arrays.copyOf(tree, treeSize);
+  }
 
-      //Use Kruskal's algorithm for undirected graphs.
+  /**
+   * Returns the ids of the edges of a minimum spanning tree (or the fullest forest) of the given
+   * undirected graph snapshot, computed by Boruvka's algorithm on the common ForkJoinPool.
+   * See {@link #minimumSpanningTreeBoruvka(GraphSnapshot, ForkJoinPool)}.
+   *
+   * @throws IllegalArgumentException - if g is directed
+   */
+  public static <V, E extends Weighted> int[] minimumSpanningTreeBoruvka(GraphSnapshot<V, E> g)
+      throws IllegalArgumentException {
+    return minimumSpanningTreeBoruvka(g, ForkJoinPool.commonPool());
+  }
 
-      //Get edges, sort by  min to max weight
-      List<E> edges = new DeArrList<>(g.edgeSet());
-      Collections.sort(edges, (a,b) -> a.getWeight() - b.getWeight());
+  /**
+   * Returns the ids of the edges of a minimum spanning tree (or the fullest forest) of the given
+   * undirected graph snapshot, computed by Boruvka's algorithm with each phase run in parallel
+   * on pool.
+   * <br><br>
+   * Each phase, every edge still between two components offers itself to both in parallel, and
+   * each component keeps the lightest with compare-and-set (ties broken by edge id, so
+   * there is a single lightest). Each component then hooks onto the component across its
+   * lightest edge - two components that chose the same edge become one with the smaller as
+   * root - and pointer jumping relabels every vertex with its new component. Every phase at
+   * least halves the number of components that have edges out, so there are O(log V) phases.
+   *
+   * @throws IllegalArgumentException - if g is directed
+   */
+  public static <V, E extends Weighted> int[] minimumSpanningTreeBoruvka(GraphSnapshot<V, E> g, ForkJoinPool pool)
+      throws IllegalArgumentException {
+    if (g.isDirected())
+      throw new IllegalArgumentException("Can't run Boruvka's algorithm on directed graph " + g);
+    return pool.submit(() -> boruvka(g)).join();
+  }
 
-      UnionFind<V> verticesConnected = new UnionFind<>();
-      verticesConnected.addAll(g.vertexSet());
+  /** Runs Boruvka's algorithm on g. Must be called from within the ForkJoinPool to use */
+  private static int[] boruvka(GraphSnapshot<?, ?> g) {
+    int n = g.vertexCount();
+    int m = g.edgeCount();
+    int[] component = IntStream.range(0, n).toArray();
+    int[] next = new int[n];
+    AtomicLongArray lightest = new AtomicLongArray(n);
+    boolean[] chosen = new boolean[m];
+    int[] live = IntStream.range(0, m).filter(e -> g.edgeSource(e) != g.edgeSink(e)).toArray();
+    while (live.length > 0) {
+      final int[] edges = live;
+      IntStream.range(0, n).parallel().forEach(c -> lightest.set(c, Long.MAX_VALUE));
+      IntStream.of(edges).parallel().forEach(e -> {
+        long key = edgeKey(g, e);
+        lowerTo(lightest, component[g.edgeSource(e)], key);
+        lowerTo(lightest, component[g.edgeSink(e)], key);
+      });
+
+      IntStream.range(0, n).parallel().forEach(c -> {
+        next[c] = c;
+        if (component[c] != c || lightest.get(c) == Long.MAX_VALUE) return;
+        int e = (int) lightest.get(c);
+        chosen[e] = true;
+        int a = component[g.edgeSource(e)];
+        next[c] = a == c ? component[g.edgeSink(e)] : a;
+      });
+      //The only cycles are pairs that chose the same edge. Only the smaller of a pair writes
+      IntStream.range(0, n).parallel().forEach(c -> {
+        int d = next[c];
+        if (c < d && next[d] == c) next[c] = c;
+      });
+      //Racing jumps only ever read a vertex's parent or one of its ancestors, so this converges
+      while (IntStream.range(0, n).parallel().filter(c -> {
+        int p = next[c];
+        int grandparent = next[p];
+        if (p == grandparent) return false;
+        next[c] = grandparent;
+        return true;
+      }).count() > 0) ;
+      IntStream.range(0, n).parallel().forEach(v -> component[v] = next[component[v]]);
+
+      live = IntStream.of(edges).parallel()
+          .filter(e -> component[g.edgeSource(e)] != component[g.edgeSink(e)]).toArray();
+    }
+    return IntStream.range(0, m).filter(e -> chosen[e]).toArray();
+  }
 
-      HashSet<E> set = new HashSet<>();
+  /** Lowers the value at index i of a to key, if key is lower */
+  private static void lowerTo(AtomicLongArray a, int i, long key) {
+    long old = a.get(i);
+    while (key < old) {
+      if (a.compareAndSet(i, old, key)) return;
+      old = a.get(i);
+    }
+  }
 
-      while (! verticesConnected.isEntirelyConnected() && edges.size() > 0){
-        E next = edges.remove(0);
-        Tuple2<V, V> vertices = g.verticesOf(next);
-        if (! verticesConnected.isUnion(vertices._1, vertices._2)) {
-          set.add(next);
-          verticesConnected.union(vertices._1, vertices._2);
+  /**
+   * Returns the ids of the edges of a minimum spanning tree (or the fullest forest) of the given
+   * undirected graph snapshot, computed by Prim's algorithm: each tree grows from its first
+   * vertex by the lightest edge out of it, found with a binary {@link IndexedHeap} over
+   * vertices keyed by their lightest edge to the tree. O(E log V), with the edges of each
+   * vertex scanned in place, which suits dense graphs.
+   *
+   * @throws IllegalArgumentException - if g is directed
+   */
+  public static <V, E extends Weighted> int[] minimumSpanningTreePrim(GraphSnapshot<V, E> g)
+      throws IllegalArgumentException {
+    if (g.isDirected())
+      throw new IllegalArgumentException("Can't run Prim's algorithm on directed graph " + g);
+    int n = g.vertexCount();
+    IndexedHeap frontier = new IndexedHeap(n, 2);
+    boolean[] inTree = new boolean[n];
+    int[] lightestEdge = new int[n];
+    int[] tree = new int[Math.max(0, n - 1)];
+    int treeSize = 0;
+    for (int root = 0; root < n; root++) {
+      if (inTree[root]) continue;
+      lightestEdge[root] = -1;
+      frontier.add(root, Long.MIN_VALUE);
+      while (!frontier.isEmpty()) {
+        int v = frontier.poll();
+        inTree[v] = true;
+        if (lightestEdge[v] >= 0) tree[treeSize++] = lightestEdge[v];
+        for (int slot = g.outOffsets[v]; slot < g.outOffsets[v + 1]; slot++) {
+          int w = g.outTargets[slot];
+          if (inTree[w]) continue;
+          if (frontier.addOrDecrease(w, g.outWeights[slot])) lightestEdge[w] = g.outEdges[slot];
         }
       }
+    }
+    return Arrays.copyOf(tree, treeSize);
+  }
 
-      return set;
+  /**
+   * Returns the edges of a minimum arborescence of the given directed graph rooted at root:
+   * the lightest set of edges that has exactly one edge into every vertex but root, and
+   * reaches every vertex from root. Returns null if some vertex can't be reached from root.
+   * See {@link #minimumArborescence(GraphSnapshot, int)}.
+   *
+   * @throws IllegalArgumentException - if g is undirected
+   * @throws NotInCollectionException - if root isn't in g
+   */
+  public static <V, E extends Weighted> Set<E> minimumArborescence(Graph<V, E> g, V root)
+      throws IllegalArgumentException, NotInCollectionException {
+    GraphSnapshot<V, E> s = g.snapshot();
+    int r = s.indexOf(root);
+    if (r < 0) throw new NotInCollectionException("Can't find arborescence", root);
+    int[] tree = minimumArborescence(s, r);
+    return tree == null ? null : edgesOf(s, tree);
+  }
+
+  /**
+   * Returns the ids of the edges of a minimum arborescence of the given directed graph snapshot
+   * rooted at the vertex with index root, or null if some vertex can't be reached from root.
+   * <br><br>
+   * Computed by Chu-Liu/Edmonds in O(E log V), in the form given by Tarjan: the edges into each
+   * vertex are kept in a mergeable heap. Walking back from each vertex along the lightest edge
+   * into it either reaches the part already connected to root, or closes a cycle. A cycle is
+   * contracted into one vertex by a union find, merging its heaps after lowering the weight of
+   * each edge into a cycle vertex by the weight of the cycle edge into that vertex - the cost of
+   * breaking the cycle there instead. Once every vertex is connected, contractions are undone
+   * in reverse, keeping every cycle edge but the one into the vertex the cycle was entered at.
+   *
+   * @throws IllegalArgumentException - if g is undirected, or root isn't a vertex index of g
+   */
+  public static <V, E extends Weighted> int[] minimumArborescence(GraphSnapshot<V, E> g, int root)
+      throws IllegalArgumentException {
+    if (!g.isDirected())
+      throw new IllegalArgumentException("Can't find arborescence of undirected graph " + g);
+    if (root < 0 || root >= g.vertexCount())
+      throw new IllegalArgumentException("No vertex with index " + root + " in " + g);
+    int m = g.edgeCount();
+    int[] sources = new int[m];
+    int[] sinks = new int[m];
+    long[] weights = new long[m];
+    for (int e = 0; e < m; e++) {
+      sources[e] = g.edgeSource(e);
+      sinks[e] = g.edgeSink(e);
+      weights[e] = g.weights[e];
     }
+    int[] inEdge = new Arborescence(g.vertexCount(), sources, sinks, weights).run(root);
+    if (inEdge == null) return null;
+    return IntStream.of(inEdge).filter(e -> e >= 0).toArray();
+  }
+
+  /**
+   * Returns the ids of the edges of a minimum branching of directed g with as few roots as
+   * possible, as a minimum arborescence of g plus a virtual root with an edge to every vertex
+   * heavier than the difference between any two sets of edges of g.
+   */
+  private static int[] minimumBranching(GraphSnapshot<?, ?> g) {
+    int n = g.vertexCount();
+    int m = g.edgeCount();
+    int[] sources = new int[m + n];
+    int[] sinks = new int[m + n];
+    long[] weights = new long[m + n];
+    long heavy = 1;
+    for (int e = 0; e < m; e++) {
+      sources[e] = g.edgeSource(e);
+      sinks[e] = g.edgeSink(e);
+      weights[e] = g.weights[e];
+      heavy += 2L * Math.abs(weights[e]);
+    }
+    for (int v = 0; v < n; v++) {
+      sources[m + v] = n;
+      sinks[m + v] = v;
+      weights[m + v] = heavy;
+    }
+    int[] inEdge = new Arborescence(n + 1, sources, sinks, weights).run(n);
+    return IntStream.of(inEdge).filter(e -> e >= 0 && e < m).toArray();
+  }
+
+  /**
+   * The state of one run of Chu-Liu/Edmonds, as described in
+   * {@link #minimumArborescence(GraphSnapshot, int)}. The edges into each vertex are a leftist
+   * heap, linked by edge index, with a lazily applied weight adjustment per subtree. The union
+   * find of contracted vertices is by size without path compression, so it can be rolled back.
+   */
+  private static class Arborescence {
+    private final int n;
+    private final int[] sources;
+    private final int[] sinks;
+
+    //Heap node per edge
+    private final long[] keys;
+    private final long[] lazy;
+    private final int[] left;
+    private final int[] right;
+    private final int[] rank;
+
+    //Rollback union find over vertices
+    private final int[] parent;
+    private final int[] size;
+    private final int[] joined; //The roots linked under another, in order
+    private int joinedCount;
+
+    private Arborescence(int n, int[] sources, int[] sinks, long[] weights) {
+      this.n = n;
+      this.sources = sources;
+      this.sinks = sinks;
+      int m = sources.length;
+      keys = weights.clone();
+      lazy = new long[m];
+      left = new int[m];
+      right = new int[m];
+      rank = new int[m];
+      Arrays.fill(left, -1);
+      Arrays.fill(right, -1);
+      parent = IntStream.range(0, n).toArray();
+      size = new int[n];
+      Arrays.fill(size, 1);
+      joined = new int[n];
+    }
+
+    /** Returns the edge into each vertex in the arborescence rooted at root (-1 for root) */
+    private int[] run(int root) {
+      int[] heap = new int[n];
+      Arrays.fill(heap, -1);
+      for (int e = 0; e < sources.length; e++) {
+        if (sources[e] != sinks[e]) heap[sinks[e]] = merge(heap[sinks[e]], e);
+      }
+      int[] seen = new int[n];
+      Arrays.fill(seen, -1);
+      seen[root] = root;
+      int[] pathEdges = new int[n];
+      int[] path = new int[n];
+      int[] inEdge = new int[n];
+      Arrays.fill(inEdge, -1);
+      //Each contraction, newest first: the vertex it made, the union find time before it, its edges
+      ArrayDeque<int[]> cycles = new ArrayDeque<>();
+
+      for (int start = 0; start < n; start++) {
+        int u = start;
+        int length = 0;
+        while (seen[u] < 0) {
+          if (heap[u] < 0) return null;
+          int e = heap[u];
+          push(e);
+          lazy[e] -= keys[e];
+          heap[u] = pop(e);
+          pathEdges[length] = e;
+          path[length++] = u;
+          seen[u] = start;
+          u = find(sources[e]);
+          if (seen[u] == start) {
+            int cycle = -1;
+            int end = length;
+            int time = joinedCount;
+            int w;
+            do {
+              w = path[--length];
+              cycle = merge(cycle, heap[w]);
+            } while (join(u, w));
+            u = find(u);
+            heap[u] = cycle;
+            seen[u] = -1;
+            int[] record = new int[end - length + 2];
+            record[0] = u;
+            record[1] = time;
+            System.arraycopy(pathEdges, length, record, 2, end - length);
+            cycles.push(record);
+          }
+        }
+        for (int i = 0; i < length; i++) {
+          inEdge[find(sinks[pathEdges[i]])] = pathEdges[i];
+        }
+      }
+
+      for (int[] record : cycles) {
+        int enteredBy = inEdge[record[0]];
+        rollback(record[1]);
+        for (int i = 2; i < record.length; i++) {
+          inEdge[find(sinks[record[i]])] = record[i];
+        }
+        inEdge[find(sinks[enteredBy])] = enteredBy;
+      }
+      return inEdge;
+    }
+
+    private void push(int a) {
+      if (lazy[a] == 0) return;
+      keys[a] += lazy[a];
+      if (left[a] >= 0) lazy[left[a]] += lazy[a];
+      if (right[a] >= 0) lazy[right[a]] += lazy[a];
+      lazy[a] = 0;
+    }
+
+    /** Merges the heaps rooted at a and b (-1 for empty), returning the new root */
+    private int merge(int a, int b) {
+      if (a < 0) return b;
+      if (b < 0) return a;
+      push(a);
+      push(b);
+      if (keys[b] < keys[a]) {
+        int t = a;
+        a = b;
+        b = t;
+      }
+      right[a] = merge(right[a], b);
+      if (rankOf(left[a]) < rankOf(right[a])) {
+        int t = left[a];
+        left[a] = right[a];
+        right[a] = t;
+      }
+      rank[a] = rankOf(right[a]) + 1;
+      return a;
+    }
+
+    private int rankOf(int a) {
+      return a < 0 ? 0 : rank[a];
+    }
+
+    /** Removes the root a (already pushed) from its heap, returning the new root */
+    private int pop(int a) {
+      push(a);
+      return merge(left[a], right[a]);
+    }
+
+    private int find(int v) {
+      while (parent[v] != v) {
+        v = parent[v];
+      }
+      return v;
+    }
+
+    /** Joins the sets of a and b, returning false if they were already the same set */
+    private boolean join(int a, int b) {
+      a = find(a);
+      b = find(b);
+      if (a == b) return false;
+      if (size[a] < size[b]) {
+        int t = a;
+        a = b;
+        b = t;
+      }
+      parent[b] = a;
+      size[a] += size[b];
+      joined[joinedCount++] = b;
+      return true;
+    }
+
+    /** Undoes joins until only the first time of them are left */
+    private void rollback(int time) {
+      while (joinedCount > time) {
+        int b = joined[--joinedCount];
+        size[parent[b]] -= size[b];
+        parent[b] = b;
+      }
+    }
+  }
+
+  /** Returns the edge with the given weight and id as a long that sorts by weight, then id */
+  private static long edgeKey(GraphSnapshot<?, ?> g, int e) {
+    return ((long) g.weights[e] << 32) | e;
+  }
+
+  /** Returns the root of v in the union find parent, halving the path to it */
+  private static int find(int[] parent, int v) {
+    while (parent[v] != v) {
+      parent[v] = parent[parent[v]];
+      v = parent[v];
+    }
+    return v;
+  }
+
+  /** Returns the edges of g with the given ids */
+  private static <V, E> Set<E> edgesOf(GraphSnapshot<V, E> g, int[] ids) {
+    HashSet<E> set = new HashSet<>(ids.length * 2);
+    for (int id : ids) {
+      set.add(g.edge(id));
+    }
+    return set;
   }
 
   /**
@@ -133,552 +542,1089 @@ public class Algorithm {
    * @param start - a vertex in g, the start of the path
    * @param goal  - a vertex in g, the end of the path
    * @return - the path as a list, where return[0] is start and return[last] is goal.
-   *              returns null if start or goal isn't in g, or there is no such path.
+   *              returns null if there is no such path.
    * @throws NotInCollectionException if start or goal aren't contained in the graph
-   * @throws  RuntimeException if any edges have negative weights.
+   * @throws  RuntimeException if any edges have non-positive weights.
    */
   public static <V, E extends Weighted> List<V> shortestPath(Graph<V, E> g, V start, V goal)
       throws NotInCollectionException, RuntimeException {
-    return shortestPath(g, start, goal, (a,b) -> 0);
+    return shortestPath(g, start, goal, null);
   }
 
   /**
-   * Attempts to find the shortest path in g from start to goal
+   * Attempts to find the shortest path in g from start to goal.
+   * Takes a snapshot of g for the search, so every call costs O(V+E) however few vertices
+   * the search reaches - to search the same graph repeatedly, take a snapshot once and use
+   * {@link #shortestPath(GraphSnapshot, Object, Object, Function2)}.
    *
    * @param start - a vertex in g, the start of the path
    * @param goal  - a vertex in g, the end of the path
    * @param heuristic - a guess of the shortest path length from the first arg to the second.
-   *                      for simple shortest path, ie Dijkstra, just pass in (v1,v2) -> 0, (thus essentially unused)
+   *                      for simple shortest path, ie Dijkstra, pass in null or (v1,v2) -> 0.
    *                      Can't ever return a value more than the true shortest path length, or results may be incorrect.
    *                      (Path returned may not be shortest path).
    * @return - the path as a list, where return[0] is start and return[last] is goal.
+   *              returns null if there is no such path.
    * @throws NotInCollectionException if start or goal aren't contained in the graph
-   * @throws  RuntimeException if any edges have negative weights, or the heuristic returned a distance shorter than the
-   *            true path length for any path.
+   * @throws  RuntimeException if any edges have non-positive weights.
    */
   public static <V, E extends Weighted> List<V> shortestPath(Graph<V, E> g, V start, V goal, Function2<V, V, Integer> heuristic)
       throws NotInCollectionException, RuntimeException {
     if (!g.containsVertex(start) || !g.containsVertex(goal))
       throw new NotInCollectionException("Can't tun dijkstra's algorithm", start, goal);
-    for (E e : g.edgeSet()) {
-      if (e.getWeight() <= 0)
-        throw new RuntimeException("Can't run dijkstra's algorithm on graph with non-positive weights");
-    }
-
-    final HashMap<V, Integer> distance = new HashMap<>();
-    Comparator<V> distanceComparator = (o1, o2) ->
-        (distance.get(o1) + heuristic.apply(start, o1)) - (distance.get(o2) + heuristic.apply(start, o2));
+    return shortestPath(g.snapshot(), start, goal, heuristic);
+  }
 
-    final HashMap<V, V> previous = new HashMap<>();
+  /**
+   * Attempts to find the shortest path in snapshot g from start to goal.
+   * See {@link #shortestPath(GraphSnapshot, Object, Object, Function2)}.
+   */
+  public static <V, E extends Weighted> List<V> shortestPath(GraphSnapshot<V, E> g, V start, V goal)
+      throws NotInCollectionException, RuntimeException {
+    return shortestPath(g, start, goal, null);
+  }
 
-    //Initalize step
-    for (V v : g.vertexSet()) {
-      distance.put(v, Integer.MAX_VALUE);
-      previous.put(v, null);
+  /**
+   * Attempts to find the shortest path in snapshot g from start to goal, using A* search
+   * with the given heuristic (or Dijkstra's algorithm if it is null).
+   * The frontier is an indexed d-ary heap over vertex indices with primitive distances,
+   * so each step costs O(log V), and the heuristic is called at most once per vertex.
+   * The search state is kept with the snapshot and reused by later searches without
+   * being cleared, so a search only costs time for the vertices it reaches.
+   *
+   * @param start - a vertex in g, the start of the path
+   * @param goal  - a vertex in g, the end of the path
+   * @param heuristic - a guess of the shortest path length from the first arg to the second,
+   *                  or null for none. Can't ever return a value more than the true shortest
+   *                  path length, or the path returned may not be a shortest path.
+   * @return - the path as a list, where return[0] is start and return[last] is goal.
+   *              returns null if there is no such path.
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> List<V> shortestPath(GraphSnapshot<V, E> g, V start, V goal,
+                                                             Function2<V, V, Integer> heuristic)
+      throws NotInCollectionException, RuntimeException {
+    int s = g.indexOf(start);
+    int t = g.indexOf(goal);
+    if (s < 0 || t < 0)
+      throw new NotInCollectionException("Can't tun dijkstra's algorithm", start, goal);
+    checkPositiveWeights(g);
+
+    SearchWorkspace workspace = g.takeWorkspace();
+    try {
+      SearchWorkspace.Search search = workspace.search(0);
+      IntToLongFunction h = heuristic == null ? null
+          : cachedHeuristic(search, v -> heuristic.apply(g.vertex(v), goal));
+      dijkstra(g, s, new int[]{t}, h, search);
+
+      if (search.dist(t) == ShortestPathTree.UNREACHABLE) return null;
+      LinkedList<V> path = new LinkedList<>();
+      for (int v = t; v >= 0; v = search.parent(v)) {
+        path.push(g.vertex(v));
+      }
+      return path;
+    } finally {
+      g.returnWorkspace(workspace);
     }
+  }
 
-    distance.put(start, 0);
-    HashSet<V> frontier = new HashSet<>();
-
-    frontier.add(start);
-
-    //Iteration
-    do {
-      //Find next node (closest) and remove from frontier
-      V next = Collections.min(frontier, distanceComparator);
-      frontier.remove(next);
+  /**
+   * Returns the tree of shortest paths in g from start to every other vertex.
+   * Takes a snapshot of g for the search.
+   *
+   * @throws NotInCollectionException if start isn't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> ShortestPathTree<V, E> shortestPathTree(Graph<V, E> g, V start)
+      throws NotInCollectionException, RuntimeException {
+    if (!g.containsVertex(start))
+      throw new NotInCollectionException("Can't tun dijkstra's algorithm", start);
+    return shortestPathTree(g.snapshot(), start);
+  }
 
-      if(distance.get(next) < heuristic.apply(start, next)) {
-        throw new RuntimeException("Heuristic returned bad value for " + next + " - true path length was "
-            + distance.get(next) + " but got " + heuristic.apply(start, next));
+  /**
+   * Returns the tree of shortest paths in snapshot g from start to every other vertex,
+   * computed by a single run of Dijkstra's algorithm.
+   *
+   * @throws NotInCollectionException if start isn't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> ShortestPathTree<V, E> shortestPathTree(GraphSnapshot<V, E> g, V start)
+      throws NotInCollectionException, RuntimeException {
+    int s = g.indexOf(start);
+    if (s < 0)
+      throw new NotInCollectionException("Can't tun dijkstra's algorithm", start);
+    checkPositiveWeights(g);
+
+    SearchWorkspace workspace = g.takeWorkspace();
+    try {
+      SearchWorkspace.Search search = workspace.search(0);
+      dijkstra(g, s, null, null, search);
+      int n = g.vertexCount();
+      long[] dist = new long[n];
+      int[] parents = new int[n];
+      int[] parentEdges = new int[n];
+      for (int v = 0; v < n; v++) {
+        dist[v] = search.dist(v);
+        parents[v] = search.parent(v);
+        parentEdges[v] = search.parentEdge(v);
       }
+      return new ShortestPathTree<>(g, s, dist, parents, parentEdges);
+    } finally {
+      g.returnWorkspace(workspace);
+    }
+  }
 
-      //Found the goal - break out of loop
-      if (next.equals(goal))
-        break;
-
-      //Look at each edge leaving next
-      for (E e : g.edgeSetOfSource(next)) {
-        V neighbor = g.getOther(e, next);
-        //Relax edge - check if shortest path to neighbor is beaten by next -> neighbor.
-        if (distance.get(neighbor) > distance.get(next) + e.getWeight()) {
-          distance.put(neighbor, distance.get(next) + e.getWeight());
-          previous.put(neighbor, next);
-          if (!frontier.contains(neighbor))
-            frontier.add(neighbor);
+  /**
+   * Returns the length of the shortest path from each of sources to each of targets in
+   * snapshot g: return[i][j] is the distance from sources.get(i) to targets.get(j), or -1
+   * if there is no such path. Runs one Dijkstra search per source, each stopping as soon
+   * as every target has been reached. The searches reuse the snapshot's search state, so
+   * each only costs time for the vertices it reaches.
+   *
+   * @throws NotInCollectionException if any source or target isn't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> long[][] shortestPathDistances(GraphSnapshot<V, E> g, List<V> sources,
+                                                                       List<V> targets)
+      throws NotInCollectionException, RuntimeException {
+    checkPositiveWeights(g);
+    int[] targetIndices = new int[targets.size()];
+    for (int j = 0; j < targetIndices.length; j++) {
+      targetIndices[j] = g.indexOf(targets.get(j));
+      if (targetIndices[j] < 0)
+        throw new NotInCollectionException("Can't tun dijkstra's algorithm", targets.get(j));
+    }
+    int[] distinctTargets = Arrays.stream(targetIndices).sorted().distinct().toArray();
+
+    long[][] distances = new long[sources.size()][targetIndices.length];
+    SearchWorkspace workspace = g.takeWorkspace();
+    try {
+      for (int i = 0; i < distances.length; i++) {
+        int s = g.indexOf(sources.get(i));
+        if (s < 0)
+          throw new NotInCollectionException("Can't tun dijkstra's algorithm", sources.get(i));
+        SearchWorkspace.Search search = workspace.search(0);
+        dijkstra(g, s, distinctTargets, null, search);
+        for (int j = 0; j < targetIndices.length; j++) {
+          long d = search.dist(targetIndices[j]);
+          distances[i][j] = d == ShortestPathTree.UNREACHABLE ? -1 : d;
         }
       }
-
-    } while (!frontier.isEmpty());
-
-    //If the frontier is empty and goal distance is infinite, then the goal was never found.
-    if (frontier.isEmpty() && distance.get(goal).equals(Integer.MAX_VALUE)) {
-      return null;
+    } finally {
+      g.returnWorkspace(workspace);
     }
+    return distances;
+  }
 
-    //Assemble path
-    LinkedList<V> path = new LinkedList<>();
-    V v = goal;
-    do {
-      path.push(v);
-      v = previous.get(v);
-    } while (v != null);
+  /**
+   * Attempts to find the shortest path in g from start to goal, searching forward from
+   * start and backward from goal at the same time.
+   * See {@link #bidirectionalShortestPath(GraphSnapshot, Object, Object, Function2)}.
+   *
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> List<V> bidirectionalShortestPath(Graph<V, E> g, V start, V goal)
+      throws NotInCollectionException, RuntimeException {
+    return bidirectionalShortestPath(g, start, goal, null);
+  }
 
-    return path;
+  /**
+   * Attempts to find the shortest path in g from start to goal, searching forward from
+   * start and backward from goal at the same time.
+   * Takes a snapshot of g for the search, so every call costs O(V+E) however few vertices
+   * the search reaches - to search the same graph repeatedly, take a snapshot once and use
+   * {@link #bidirectionalShortestPath(GraphSnapshot, Object, Object, Function2)}.
+   *
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> List<V> bidirectionalShortestPath(Graph<V, E> g, V start, V goal,
+                                                                          Function2<V, V, Integer> heuristic)
+      throws NotInCollectionException, RuntimeException {
+    if (!g.containsVertex(start) || !g.containsVertex(goal))
+      throw new NotInCollectionException("Can't tun dijkstra's algorithm", start, goal);
+    return bidirectionalShortestPath(g.snapshot(), start, goal, heuristic);
   }
 
   /**
-   * Returns an arbitrary cycle in the graph. If none are present,
-   * returns null. This method is well slower than the isDAG method,
-   * so if cycle detection (instead of identity) is desired and the graph
-   * is directed, use that method.
+   * Attempts to find the shortest path in snapshot g from start to goal, searching forward
+   * from start and backward from goal at the same time.
+   * See {@link #bidirectionalShortestPath(GraphSnapshot, Object, Object, Function2)}.
+   *
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
    */
-  public static <V, E> List<E> getCycle(Graph<V, E> g) {
-    //If no edges, return null.
-    if (g.edgeSize() == 0) return null;
+  public static <V, E extends Weighted> List<V> bidirectionalShortestPath(GraphSnapshot<V, E> g, V start, V goal)
+      throws NotInCollectionException, RuntimeException {
+    return bidirectionalShortestPath(g, start, goal, null);
+  }
+
+  /**
+   * Attempts to find the shortest path in snapshot g from start to goal, with one search
+   * forward from start along out arcs and one backward from goal along in arcs. The search
+   * with the smaller frontier is always advanced, and the two stop once no path through
+   * their frontiers could beat the best meeting found so far. On graphs where the
+   * frontier grows with the search radius (such as road networks) this settles far fewer
+   * vertices than a single search.
+   * <br><br>
+   * If heuristic is non-null, each search is an A* search: the forward search is guided by
+   * heuristic(v, goal) and the backward one by heuristic(start, v), and each stops as soon
+   * as its own smallest key reaches the best path length found.
+   * <br><br>
+   * As in {@link #shortestPath(GraphSnapshot, Object, Object, Function2)}, the search state
+   * is kept with the snapshot and reused, so a search only costs time for the vertices it
+   * reaches.
+   *
+   * @param start - a vertex in g, the start of the path
+   * @param goal  - a vertex in g, the end of the path
+   * @param heuristic - a guess of the shortest path length from the first arg to the second,
+   *                  or null for none. Can't ever return a value more than the true shortest
+   *                  path length, or the path returned may not be a shortest path.
+   * @return - the path as a list, where return[0] is start and return[last] is goal.
+   *              returns null if there is no such path.
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> List<V> bidirectionalShortestPath(GraphSnapshot<V, E> g, V start, V goal,
+                                                                          Function2<V, V, Integer> heuristic)
+      throws NotInCollectionException, RuntimeException {
+    int s = g.indexOf(start);
+    int t = g.indexOf(goal);
+    if (s < 0 || t < 0)
+      throw new NotInCollectionException("Can't tun dijkstra's algorithm", start, goal);
+    checkPositiveWeights(g);
+
+    SearchWorkspace workspace = g.takeWorkspace();
+    try {
+      //Index 0 is the forward search, index 1 the backward search
+      SearchWorkspace.Search[] search = {workspace.search(0), workspace.search(1)};
+      IntToLongFunction[] h = new IntToLongFunction[2];
+      if (heuristic != null) {
+        h[0] = cachedHeuristic(search[0], v -> heuristic.apply(g.vertex(v), goal));
+        h[1] = cachedHeuristic(search[1], v -> heuristic.apply(start, g.vertex(v)));
+      }
+      int[][] offsets = {g.outOffsets, g.inOffsets};
+      int[][] heads = {g.outTargets, g.inSources};
+      int[][] edgeIds = {g.outEdges, g.inEdges};
+      int[][] weights = {g.outWeights, g.inWeights};
+      search[0].reach(s, 0, -1, -1);
+      search[1].reach(t, 0, -1, -1);
+      search[0].frontier.add(s, h[0] == null ? 0 : h[0].applyAsLong(s));
+      search[1].frontier.add(t, h[1] == null ? 0 : h[1].applyAsLong(t));
+
+      long best = s == t ? 0 : ShortestPathTree.UNREACHABLE;
+      int meet = s == t ? s : -1;
+      while (!search[0].frontier.isEmpty() && !search[1].frontier.isEmpty()) {
+        long top0 = search[0].frontier.peekPriority();
+        long top1 = search[1].frontier.peekPriority();
+        if (heuristic == null ? top0 + top1 >= best : top0 >= best || top1 >= best) break;
+
+        int dir = search[0].frontier.size() <= search[1].frontier.size() ? 0 : 1;
+        SearchWorkspace.Search here = search[dir];
+        SearchWorkspace.Search there = search[1 - dir];
+        int v = here.frontier.poll();
+        long dv = here.dist(v);
+        for (int slot = offsets[dir][v]; slot < offsets[dir][v + 1]; slot++) {
+          int w = heads[dir][slot];
+          long d = dv + weights[dir][slot];
+          if (d < here.dist(w)) {
+            here.reach(w, d, v, edgeIds[dir][slot]);
+            here.frontier.addOrDecrease(w, h[dir] == null ? d : d + h[dir].applyAsLong(w));
+          }
+          long dw = there.dist(w);
+          if (dw != ShortestPathTree.UNREACHABLE && here.dist(w) + dw < best) {
+            best = here.dist(w) + dw;
+            meet = w;
+          }
+        }
+      }
 
-    //Check for self loops
-    for (E e : g.edgeSet()) {
-      if (g.isSelfEdge(e)) {
-        List<E> lst = new ArrayList<>();
-        lst.add(e);
-        return lst;
+      if (meet < 0) return null;
+      LinkedList<V> path = new LinkedList<>();
+      for (int v = meet; v >= 0; v = search[0].parent(v)) {
+        path.push(g.vertex(v));
+      }
+      for (int v = search[1].parent(meet); v >= 0; v = search[1].parent(v)) {
+        path.add(g.vertex(v));
       }
+      return path;
+    } finally {
+      g.returnWorkspace(workspace);
     }
+  }
 
-    //No self loops at this point
-    if (g.isDirected()) {  //Use DFS method to detect and find
-
-      HashSet<V> visited = new HashSet<>();
-      HashMap<V, E> prev = new HashMap<>();
+  /**
+   * Returns the tree of shortest paths in snapshot g from start to every other vertex,
+   * computed by parallel delta-stepping on the common ForkJoinPool, with bucket width
+   * equal to the average edge weight.
+   * See {@link #shortestPathTreeParallel(GraphSnapshot, Object, int, ForkJoinPool)}.
+   *
+   * @throws NotInCollectionException if start isn't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> ShortestPathTree<V, E> shortestPathTreeParallel(GraphSnapshot<V, E> g, V start)
+      throws NotInCollectionException, RuntimeException {
+    long total = 0;
+    for (int w : g.weights) {
+      total += w;
+    }
+    int delta = (int) Math.max(1, Math.min(Integer.MAX_VALUE, total / Math.max(1, g.edgeCount())));
+    return shortestPathTreeParallel(g, start, delta, ForkJoinPool.commonPool());
+  }
 
-      ArrayList<V> toTry = new ArrayList<>(g.vertexSet());
-      while (!toTry.isEmpty()) {
-        LinkedList<V> queue = new LinkedList<>();
-        queue.add(Util.randomElement(toTry));
+  /**
+   * Returns the tree of shortest paths in snapshot g from start to every other vertex,
+   * computed by delta-stepping with the arc relaxations of each step run in parallel
+   * on pool.
+   * <br><br>
+   * Vertices are kept in buckets of width delta by tentative distance. The lowest
+   * non-empty bucket is emptied by relaxing its vertices' light arcs (weight &lt;= delta)
+   * in parallel, repeating for vertices that fall back into it, and then relaxing their
+   * heavy arcs once. Distances are lowered with compare-and-set, so any number of threads
+   * can relax arcs into the same vertex. Small deltas approach Dijkstra's algorithm
+   * (little wasted work, little parallelism); large deltas approach Bellman-Ford.
+   *
+   * @throws NotInCollectionException if start isn't contained in the graph
+   * @throws IllegalArgumentException if delta &lt; 1
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public static <V, E extends Weighted> ShortestPathTree<V, E> shortestPathTreeParallel(GraphSnapshot<V, E> g, V start,
+                                                                                       int delta, ForkJoinPool pool)
+      throws NotInCollectionException, IllegalArgumentException, RuntimeException {
+    int s = g.indexOf(start);
+    if (s < 0)
+      throw new NotInCollectionException("Can't run delta stepping", start);
+    if (delta < 1)
+      throw new IllegalArgumentException("Delta must be positive, got " + delta);
+    checkPositiveWeights(g);
+    return pool.submit(() -> new DeltaStepping<>(g, s, delta).run()).join();
+  }
 
-        while (!queue.isEmpty()) {
-          V current = queue.poll();
-          //Base case - we've already been here. Assemble and return
-          if (visited.contains(current)) {
-            LinkedList<E> cycle = new LinkedList<>();
+  /**
+   * An instance runs one parallel delta-stepping search. See
+   * {@link #shortestPathTreeParallel(GraphSnapshot, Object, int, ForkJoinPool)}.
+   * Its run method must be called from within the ForkJoinPool to use.
+   */
+  private static class DeltaStepping<V, E> {
+    private final GraphSnapshot<V, E> g;
+    private final int start;
+    private final int delta;
+    private final AtomicLongArray dist;
+
+    /** The round each vertex was last reported as improved in, so it's reported once a round */
+    private final AtomicIntegerArray reported;
+    private int round;
+
+    //Vertices whose distance improved since they were last relaxed, not yet in a bucket being emptied
+    private int[] pending;
+    private int pendingSize;
+    private final boolean[] isPending;
+
+    private DeltaStepping(GraphSnapshot<V, E> g, int start, int delta) {
+      this.g = g;
+      this.start = start;
+      this.delta = delta;
+      int n = g.vertexCount();
+      dist = new AtomicLongArray(n);
+      for (int v = 0; v < n; v++) {
+        dist.set(v, ShortestPathTree.UNREACHABLE);
+      }
+      reported = new AtomicIntegerArray(n);
+      round = 0;
+      pending = new int[16];
+      isPending = new boolean[n];
+    }
 
-            //Start one earlier to prevent off by one edge err
-            current = g.getOther(prev.get(current), current);
+    private void addPending(int v) {
+      if (isPending[v]) return;
+      isPending[v] = true;
+      if (pendingSize == pending.length) pending = Arrays.copyOf(pending, pendingSize * 2);
+      pending[pendingSize++] = v;
+    }
 
-            E edge = prev.get(current);
-            V next = g.sourceOf(edge);
-            while (!cycle.contains(edge)) {
-              cycle.push(edge);
-              edge = prev.get(next);
-              next = g.sourceOf(edge);
+    private ShortestPathTree<V, E> run() {
+      dist.set(start, 0);
+      addPending(start);
+      IntSet settled = new IntSet();
+      while (true) {
+        //Drop stale entries and find the lowest non-empty bucket
+        long bucket = Long.MAX_VALUE;
+        int kept = 0;
+        for (int i = 0; i < pendingSize; i++) {
+          int v = pending[i];
+          if (isPending[v]) {
+            pending[kept++] = v;
+            bucket = Math.min(bucket, dist.get(v) / delta);
+          }
+        }
+        pendingSize = kept;
+        if (bucket == Long.MAX_VALUE) break;
+
+        //Take the vertices in that bucket out of pending
+        int[] frontier = new int[pendingSize];
+        int frontierSize = 0;
+        kept = 0;
+        for (int i = 0; i < pendingSize; i++) {
+          int v = pending[i];
+          if (dist.get(v) / delta == bucket) {
+            isPending[v] = false;
+            frontier[frontierSize++] = v;
+          } else {
+            pending[kept++] = v;
+          }
+        }
+        pendingSize = kept;
+
+        //Relax light arcs until the bucket stays empty, then heavy arcs of everything settled in it
+        settled.clear();
+        while (frontierSize > 0) {
+          int[] current = Arrays.copyOf(frontier, frontierSize);
+          for (int v : current) {
+            settled.add(v);
+          }
+          int[] improved = relax(current, true);
+          frontierSize = 0;
+          for (int w : improved) {
+            if (dist.get(w) / delta == bucket) {
+              isPending[w] = false;
+              if (frontierSize == frontier.length) frontier = Arrays.copyOf(frontier, frontierSize * 2);
+              frontier[frontierSize++] = w;
+            } else {
+              addPending(w);
             }
-            return cycle;
           }
+        }
+        for (int w : relax(settled.toArray(), false)) {
+          addPending(w);
+        }
+      }
+      return buildTree();
+    }
 
-          visited.add(current);
-
-          for (E travel : g.edgeSetOfSource(current)) {
-            V next = g.sinkOf(travel);
-            queue.add(next);
-            prev.put(next, travel);
+    /**
+     * Relaxes the light (or heavy) out arcs of every vertex in vertices in parallel,
+     * returning each vertex whose distance was lowered exactly once.
+     */
+    private int[] relax(int[] vertices, boolean light) {
+      int stamp = ++round;
+      int[] offsets = g.outOffsets;
+      int[] heads = g.outTargets;
+      int[] weights = g.outWeights;
+      return IntStream.of(vertices).parallel().flatMap(v -> {
+        long dv = dist.get(v);
+        IntStream.Builder improved = null;
+        for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+          int weight = weights[slot];
+          if ((weight <= delta) != light) continue;
+          int w = heads[slot];
+          long d = dv + weight;
+          long old = dist.get(w);
+          while (d < old) {
+            if (dist.compareAndSet(w, old, d)) {
+              if (reported.getAndSet(w, stamp) != stamp) {
+                if (improved == null) improved = IntStream.builder();
+                improved.add(w);
+              }
+              break;
+            }
+            old = dist.get(w);
           }
         }
+        return improved == null ? IntStream.empty() : improved.build();
+      }).toArray();
+    }
 
-        //This DFS didn't work. Remove all the things we looked at.
-        toTry.removeAll(visited);
-        visited.clear();
-        prev.clear();
-      }
+    /** Builds the shortest path tree, picking for each vertex an in arc that is tight */
+    private ShortestPathTree<V, E> buildTree() {
+      int n = g.vertexCount();
+      long[] d = new long[n];
+      int[] parents = new int[n];
+      int[] parentEdges = new int[n];
+      IntStream.range(0, n).parallel().forEach(w -> {
+        d[w] = dist.get(w);
+        parents[w] = -1;
+        parentEdges[w] = -1;
+        if (w == start || d[w] == ShortestPathTree.UNREACHABLE) return;
+        for (int slot = g.inOffsets[w]; slot < g.inOffsets[w + 1]; slot++) {
+          int u = g.inSources[slot];
+          long du = dist.get(u);
+          if (du != ShortestPathTree.UNREACHABLE && du + g.inWeights[slot] == d[w]) {
+            parents[w] = u;
+            parentEdges[w] = g.inEdges[slot];
+            return;
+          }
+        }
+      });
+      return new ShortestPathTree<>(g, start, d, parents, parentEdges);
+    }
+  }
 
-      //No cycle found
-      return null;
-    } else {            //Use Union-Find to detect, helper to find
-      UnionFind<V> uf = new UnionFind<>(g.vertexSet());
+  /** Throws a RuntimeException if g has any non-positive edge weights */
+  private static void checkPositiveWeights(GraphSnapshot<?, ?> g) throws RuntimeException {
+    if (g.minWeight <= 0)
+      throw new RuntimeException("Can't run dijkstra's algorithm on graph with non-positive weights");
+  }
 
-      for (E e : g.edgeSet()) {
-        V v1 = g.sourceOf(e);
-        V v2 = g.sinkOf(e);
+  /**
+   * Returns heuristic as a function of vertex index, cached in search so that heuristic
+   * is called at most once per vertex per search. Negative guesses are treated as 0.
+   */
+  private static IntToLongFunction cachedHeuristic(SearchWorkspace.Search search, IntToLongFunction heuristic) {
+    return v -> {
+      long h = search.estimate(v);
+      if (h < 0) {
+        h = Math.max(0, heuristic.applyAsLong(v));
+        search.setEstimate(v, h);
+      }
+      return h;
+    };
+  }
 
-        //Base case - v1 and v2 are already connected
-        if (uf.find(v1).equals(uf.find(v2))) {
-          return getCycleHelper(g, v1, v1, new ConsList<>());
+  /**
+   * Runs Dijkstra's algorithm on g from start - or A* if heuristic (a lower bound on the
+   * distance from each vertex index to the goal) is non-null - recording the distance and
+   * parent of every vertex it reaches in search, which must have just been reset.
+   * If targets (sorted, distinct vertex indices) is non-null, stops as soon as all of them
+   * have been settled.
+   */
+  private static <V, E> void dijkstra(GraphSnapshot<V, E> g, int start, int[] targets,
+                                      IntToLongFunction heuristic, SearchWorkspace.Search search) {
+    IndexedHeap frontier = search.frontier;
+    int targetCount = targets == null ? 0 : targets.length;
+
+    int[] offsets = g.outOffsets;
+    int[] heads = g.outTargets;
+    int[] weights = g.outWeights;
+    int[] edgeIds = g.outEdges;
+
+    search.reach(start, 0, -1, -1);
+    frontier.add(start, heuristic == null ? 0 : heuristic.applyAsLong(start));
+    while (!frontier.isEmpty()) {
+      int v = frontier.poll();
+      search.close(v);
+      if (targets != null && Arrays.binarySearch(targets, v) >= 0 && --targetCount == 0) break;
+
+      long dv = search.dist(v);
+      for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+        int w = heads[slot];
+        long d = dv + weights[slot];
+        if (d < search.dist(w)) {
+          search.reach(w, d, v, edgeIds[slot]);
+          //Only possible with an inconsistent heuristic - reopen w so the path stays correct
+          if (search.isClosed(w)) {
+            search.reopen(w);
+            if (targets != null && Arrays.binarySearch(targets, w) >= 0) targetCount++;
+          }
+          frontier.addOrDecrease(w, heuristic == null ? d : d + heuristic.applyAsLong(w));
         }
-
-        uf.union(v1, v2);
       }
-
-      //No cycle found
-      return null;
     }
   }
 
   /**
-   * Returns a cycle by iteratively DFS-ing, at the given start node.
-   * This method only works once start is guaranteed to be in at least one cycle,
-   * and there are no self-edges.
+   * Returns an arbitrary cycle in the graph, as its edges in order. If none are present,
+   * returns null. A self edge is a cycle by itself, and in an undirected graph so are two
+   * edges between the same pair of vertices.
+   * See {@link #findCycle(GraphSnapshot)}.
    */
-  private static <V, E> List<E> getCycleHelper(Graph<V, E> g, V start, V current, ConsList<E> path) {
-    //Base case - cycle found. Reverse path and return
-    if (start == current && path.size() != 0) {
-      List<E> lst = new ArrayList<>();
-      for (E e : path.reverse()) lst.add(e);
-      return lst;
+  public static <V, E> List<E> getCycle(Graph<V, E> g) {
+    GraphSnapshot<V, E> s = g.snapshot();
+    int[] cycle = findCycle(s);
+    if (cycle == null) return null;
+    List<E> lst = new ArrayList<>(cycle.length);
+    for (int id : cycle) {
+      lst.add(s.edge(id));
     }
+    return lst;
+  }
 
-    //Non-base case. Try each out edge in current.
-    for (E e : g.edgeSetOfSource(current)) {
-      //If it's not in the path already, try going that way
-      if (!path.contains(e)) {
-        List<E> cycle = getCycleHelper(g, start, g.getOther(e, current), path.cons(e));
-        if (cycle != null) return cycle;
+  /**
+   * Returns the ids of the edges of an arbitrary cycle in the given graph snapshot, in order
+   * along the cycle, or null if it has none. Found by an iterative depth first search in
+   * O(V+E) time - in a directed snapshot a cycle is closed by an arc back to a vertex still
+   * on the search path, and in an undirected one by any arc to a visited vertex other than
+   * the edge just travelled.
+   */
+  public static <V, E> int[] findCycle(GraphSnapshot<V, E> g) {
+    int n = g.vertexCount();
+    boolean directed = g.isDirected();
+    //0 for unvisited, 1 while on the search path, 2 once finished
+    byte[] state = new byte[n];
+    int[] parentEdge = new int[n]; //The edge the search path entered each vertex by
+    int[] path = new int[n];
+    int[] cursor = new int[n];
+
+    for (int root = 0; root < n; root++) {
+      if (state[root] != 0) continue;
+      int depth = 0;
+      path[depth++] = root;
+      state[root] = 1;
+      parentEdge[root] = -1;
+      cursor[root] = g.outOffsets[root];
+      while (depth > 0) {
+        int v = path[depth - 1];
+        if (cursor[v] == g.outOffsets[v + 1]) {
+          state[v] = 2;
+          depth--;
+          continue;
+        }
+        int slot = cursor[v]++;
+        int w = g.outTargets[slot];
+        int e = g.outEdges[slot];
+        if (state[w] == 0) {
+          state[w] = 1;
+          parentEdge[w] = e;
+          cursor[w] = g.outOffsets[w];
+          path[depth++] = w;
+        } else if (e != parentEdge[v] && (state[w] == 1 || !directed)) {
+          //In an undirected search every visited vertex w is an ancestor of v still on the
+          //path, as the search would otherwise have gone from w to v first
+          int length = 1;
+          for (int u = v; u != w; u = otherEnd(g, parentEdge[u], u)) {
+            length++;
+          }
+          int[] cycle = new int[length];
+          cycle[length - 1] = e;
+          int i = length - 2;
+          for (int u = v; u != w; u = otherEnd(g, parentEdge[u], u)) {
+            cycle[i--] = parentEdge[u];
+          }
+          return cycle;
+        }
       }
     }
-    //No cycle found. This case ends
     return null;
   }
 
+  /** Returns the endpoint of the edge with the given id that isn't v, or v for a self edge */
+  private static int otherEnd(GraphSnapshot<?, ?> g, int id, int v) {
+    return g.edgeSource(id) == v ? g.edgeSink(id) : g.edgeSource(id);
+  }
+
   /**
-   * Returns true if the given graph is a DAG, using a topological sort
+   * Returns true if the given graph is a DAG - it is directed and has no cycles.
+   * See {@link #topologicalSort(GraphSnapshot)}.
    */
   public static <V, E> boolean isDAG(Graph<V, E> g) {
-    if (!g.isDirected()) return false;
-
-    final Graph<V, E> g2 = g.clone(); //create modifiable copy
-
-    Comparator<V> minDegreeComparator = (o1, o2) -> g2.inDegreeOf(o1) - g2.inDegreeOf(o2);
-
-    ArrayList<V> arrLst = new ArrayList<>();
-    arrLst.addAll(g2.vertexSet());
-
-    while (g2.vertexSize() > 0) {
-      V minV = Collections.min(arrLst, minDegreeComparator);
+    return g.isDirected() && isDAG(g.snapshot());
+  }
 
-      //If minimum inDegree has in degree > 0, there is a cycle.
-      if (g2.inDegreeOf(minV) > 0) return false;
+  /**
+   * Returns true if the given graph snapshot is a DAG - it is directed and has no cycles.
+   * See {@link #topologicalSort(GraphSnapshot)}.
+   */
+  public static <V, E> boolean isDAG(GraphSnapshot<V, E> g) {
+    return g.isDirected() && topologicalSort(g) != null;
+  }
 
-      //minimum inDegree is 0 - remove from arrayList and from actual graph
-      arrLst.remove(minV);
-      g2.removeVertex(minV);
+  /**
+   * Returns the vertices of the given directed graph in an order such that every edge goes
+   * from an earlier vertex to a later one, or null if there is no such order because the
+   * graph has a cycle. See {@link #topologicalSort(GraphSnapshot)}.
+   *
+   * @throws IllegalArgumentException - if g is undirected
+   */
+  public static <V, E> List<V> topologicalSort(Graph<V, E> g) throws IllegalArgumentException {
+    GraphSnapshot<V, E> s = g.snapshot();
+    int[] order = topologicalSort(s);
+    if (order == null) return null;
+    List<V> lst = new ArrayList<>(order.length);
+    for (int v : order) {
+      lst.add(s.vertex(v));
     }
-    return true;
+    return lst;
   }
 
   /**
-   * Returns true if the given graph is Bipartite
+   * Returns the indices of the vertices of the given directed graph snapshot in an order
+   * such that every edge goes from an earlier vertex to a later one, or null if there is no
+   * such order because the snapshot has a cycle. Computed by Kahn's algorithm in O(V+E):
+   * vertices are output once all of the edges into them have been.
+   *
+   * @throws IllegalArgumentException - if g is undirected
    */
-  public static <V, E> boolean isBipartite(Graph<V, E> g) {
-    HashSet<V> sideA = new HashSet<>();
-    HashSet<V> sideB = new HashSet<>();
-
-    HashSet<V> allVertices = new HashSet<>(g.vertexSet());
-
-    LinkedList<V> queue = new LinkedList<>();
-
-    while (!allVertices.isEmpty()) {
-
-      queue.clear();
-      sideA.clear();
-      sideB.clear();
-      queue.add(Util.randomElement(allVertices));
-      sideA.add(queue.getFirst());
-
-      while (!queue.isEmpty()) {
-        V v = queue.poll();
-        allVertices.remove(v);
-
-        HashSet<V> side;
-        HashSet<V> otherSide;
-        if (sideA.contains(v)) {
-          side = sideA;
-          otherSide = sideB;
-        } else {
-          side = sideB;
-          otherSide = sideA;
-        }
-
-        for (V neighbor : g.neighborsOf(v)) {
-          if (side.contains(neighbor)) {
-            return false;
-          }
-          if (!otherSide.contains(neighbor)) {
-            queue.addFirst(neighbor);
-            otherSide.add(neighbor);
-          }
-        }
+  public static <V, E> int[] topologicalSort(GraphSnapshot<V, E> g) throws IllegalArgumentException {
+    if (!g.isDirected()) throw new IllegalArgumentException("Can't topologically sort undirected graph " + g);
+    int n = g.vertexCount();
+    int[] remaining = new int[n]; //In edges of each vertex not yet output
+    int[] order = new int[n]; //Doubles as the queue of vertices ready to output
+    int tail = 0;
+    for (int v = 0; v < n; v++) {
+      remaining[v] = g.inOffsets[v + 1] - g.inOffsets[v];
+      if (remaining[v] == 0) order[tail++] = v;
+    }
+    for (int head = 0; head < tail; head++) {
+      int v = order[head];
+      for (int slot = g.outOffsets[v]; slot < g.outOffsets[v + 1]; slot++) {
+        int w = g.outTargets[slot];
+        if (--remaining[w] == 0) order[tail++] = w;
       }
     }
-    return true;
+    return tail == n ? order : null;
   }
 
   /**
-   * An instance represents a flow on a graph with edge type E
-   * The first value is the total flow, the second is a map of each
-   * edge in the graph to the amount of flow on that edge
-   *
-   * @author Mshnik
+   * Returns the strongly connected components of the given graph - the maximal sets of
+   * vertices that can all reach each other - in topological order: no edge goes from a
+   * later component to an earlier one. In an undirected graph these are the connected
+   * components. See {@link #stronglyConnectedComponents(GraphSnapshot)}.
    */
-  public static class Flow<E> extends Tuple2<Integer, HashMap<E, Integer>> {
-    public Flow(Integer first, HashMap<E, Integer> second) {
-      super(first, second);
+  public static <V, E> List<Set<V>> stronglyConnectedComponents(Graph<V, E> g) {
+    GraphSnapshot<V, E> s = g.snapshot();
+    int[] component = stronglyConnectedComponents(s);
+    int count = 0;
+    for (int c : component) {
+      count = Math.max(count, c + 1);
+    }
+    List<Set<V>> components = new ArrayList<>(count);
+    for (int c = 0; c < count; c++) {
+      components.add(new HashSet<>());
     }
+    for (int v = 0; v < component.length; v++) {
+      components.get(component[v]).add(s.vertex(v));
+    }
+    return components;
   }
 
   /**
-   * An instance is created to perform a maxflow calculation.
-   * This simplifies passing around the various hashMaps used in the calculation
+   * Returns the strongly connected component of each vertex of the given graph snapshot,
+   * indexed by vertex index. Components are numbered from 0 in topological order: every edge
+   * goes to a vertex in the same component or a higher numbered one. Computed by Tarjan's
+   * algorithm with an explicit stack in O(V+E), so deep graphs can't overflow the call stack.
    */
-  private static class MaxFlow<V, E extends Flowable> {
-    protected final Set<V> vertices;
-    protected final V source;
-    protected final V sink;
-    protected final Graph<V, E> g;
-
-    private HashMap<V, Integer> label;
-    private HashMap<E, Integer> flow;
-    private HashMap<V, Integer> excess;
-    protected Flow<E> flowObj;
-
-    public MaxFlow(Graph<V, E> g, V source, V sink) {
-      this.g = g;
-      this.source = source;
-      this.sink = sink;
-      this.vertices = g.vertexSet();
-
-      label = null;
-      flow = null;
-      excess = null;
-      flowObj = null;
-    }
-
-    /** Main helper that calculates flowObj. Called in construction */
-    protected Flow<E> computeMaxFlow() {
-
-      label = new HashMap<>();
-      excess = new HashMap<>();
-      flow = new HashMap<>();
-
-      for (V v : vertices) {
-        label.put(v, 0);
-        excess.put(v, 0);
-        for (V v2 : g.vertexSet()) {
-          E e = g.getConnection(v, v2);
-          if (e != null) {
-            flow.put(e, 0);
+  public static <V, E> int[] stronglyConnectedComponents(GraphSnapshot<V, E> g) {
+    int n = g.vertexCount();
+    int[] index = new int[n]; //Order each vertex was reached in, from 1. 0 for unreached
+    int[] low = new int[n]; //Smallest index reachable through the vertex's subtree
+    int[] component = new int[n];
+    Arrays.fill(component, -1);
+    int[] path = new int[n];
+    int[] cursor = new int[n];
+    int[] stack = new int[n]; //Reached vertices not yet assigned a component
+    int stackSize = 0;
+    int reached = 0;
+    int found = 0;
+
+    for (int root = 0; root < n; root++) {
+      if (index[root] != 0) continue;
+      int depth = 0;
+      path[depth++] = root;
+      index[root] = low[root] = ++reached;
+      stack[stackSize++] = root;
+      cursor[root] = g.outOffsets[root];
+      while (depth > 0) {
+        int v = path[depth - 1];
+        if (cursor[v] < g.outOffsets[v + 1]) {
+          int w = g.outTargets[cursor[v]++];
+          if (index[w] == 0) {
+            index[w] = low[w] = ++reached;
+            stack[stackSize++] = w;
+            cursor[w] = g.outOffsets[w];
+            path[depth++] = w;
+          } else if (component[w] == -1) {
+            low[v] = Math.min(low[v], index[w]);
           }
+          continue;
         }
-      }
-
-      //Label for start node is number of nodes
-      label.put(source, g.vertexSize());
-
-      //Assemble preflows for edges leaving source
-      for (E e : g.edgeSetOfSource(source)) {
-        if (!g.isSelfEdge(e)) {
-          V edgeEnd = g.getOther(e, source);
-          excess.put(source, excess.get(source) - e.getCapacity());
-          excess.put(edgeEnd, excess.get(edgeEnd) + e.getCapacity());
-          flow.put(e, e.getCapacity());
+        //Done with v. If nothing in its subtree reaches above it, it roots a component
+        depth--;
+        if (low[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            component[w] = found;
+          } while (w != v);
+          found++;
         }
-      }
-
-      //Main loop. Continue while a non-source or sink node has excess flow
-      while(continueLoop()) {
-        for(V v : vertices) {
-          for (E e : g.edgeSetOf(v)) {
-            if(! g.isSelfEdge(e))
-              push(v, e, g.sourceOf(e) == v);
-          }
-          if (excess.get(v) > 0) {
-            relabel(v);
-          }
+        if (depth > 0) {
+          int parent = path[depth - 1];
+          low[parent] = Math.min(low[parent], low[v]);
         }
       }
-
-      flowObj = new Flow<>(excess.get(sink), flow);
-      return flowObj;
     }
 
-    /** Helper method for the maxFlow calculation */
-    private boolean continueLoop() {
-      for(V v : vertices) {
-        if(v.equals(source) || v.equals(sink)) continue;
-        if(excess.get(v) > 0) {
-          return true;
-        }
-      }
-      return false;
+    //Tarjan finds components in reverse topological order
+    for (int v = 0; v < n; v++) {
+      component[v] = found - 1 - component[v];
     }
+    return component;
+  }
 
-    /**
-     * Helper method for the maxFlow calculation.
-     */
-    private boolean push(V u, E e, boolean forward) {
-      V v = g.getOther(e, u);
-      if (excess.get(u) <= 0 || label.get(u) != label.get(v) + 1)
-        return false;
-      int maxPush = forward ? (e.getCapacity() - flow.get(e)) : flow.get(e);
-      int delta = Math.min(excess.get(u), maxPush);
-      flow.put(e, flow.get(e) + (forward ? delta : -delta));
-      excess.put(u, excess.get(u) - delta);
-      excess.put(v, excess.get(v) + delta);
-      return delta != 0;
-    }
+  /**
+   * Returns true if the given graph is Bipartite - if its vertices can be split into two
+   * sides such that every edge (ignoring direction) goes between the sides.
+   */
+  public static <V, E> boolean isBipartite(Graph<V, E> g) {
+    return isBipartite(g.snapshot());
+  }
 
-    /**
-     * Helper method for the maxFlow calculation.
-     */
-    private boolean relabel(V u) {
-      if (excess.get(u) <= 0 || u == source || u == sink)
-        return false;
-      int minVal = Integer.MAX_VALUE;
-      for (V v : vertices) {
-        E e = g.getConnection(u, v);
-        if (e != null && flow.get(e) < e.getCapacity()) {
-          if (label.get(u) <= label.get(v)) {
-            minVal = Math.min(minVal, label.get(v));
+  /**
+   * Returns true if the given graph snapshot is Bipartite - if its vertices can be split
+   * into two sides such that every edge (ignoring direction) goes between the sides.
+   */
+  public static <V, E> boolean isBipartite(GraphSnapshot<V, E> g) {
+    int n = g.vertexCount();
+    byte[] side = new byte[n]; //0 for unvisited, otherwise 1 or 2
+    int[] queue = new int[n];
+
+    for (int root = 0; root < n; root++) {
+      if (side[root] != 0) continue;
+      side[root] = 1;
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = root;
+      while (head < tail) {
+        int v = queue[head++];
+        byte other = (byte) (3 - side[v]);
+        for (int slot = g.outOffsets[v]; slot < g.outOffsets[v + 1]; slot++) {
+          int w = g.outTargets[slot];
+          if (side[w] == side[v]) return false;
+          if (side[w] == 0) {
+            side[w] = other;
+            queue[tail++] = w;
           }
         }
-
-        E e2 = g.getConnection(v, u);
-        if (e2 != null && flow.get(e2) == e2.getCapacity()) {
-          if (label.get(u) <= label.get(v)) {
-            minVal = Math.min(minVal, label.get(v));
+        if (g.isDirected()) {
+          for (int slot = g.inOffsets[v]; slot < g.inOffsets[v + 1]; slot++) {
+            int w = g.inSources[slot];
+            if (side[w] == side[v]) return false;
+            if (side[w] == 0) {
+              side[w] = other;
+              queue[tail++] = w;
+            }
           }
         }
       }
-      if (minVal == Integer.MAX_VALUE) return false;
-      int oldVal = label.get(u);
-      label.put(u, minVal + 1);
-      return oldVal != minVal + 1;
     }
+    return true;
+  }
 
-    protected boolean edgeHasFlow(E e) {
-      return flowObj._2.get(e) > 0;
+  /**
+   * Returns the number of edges on the shortest path (following edge directions)
+   * from the vertex with index source to each vertex in g, indexed by vertex index.
+   * Unreachable vertices have distance -1.
+   */
+  public static <V, E> int[] breadthFirstDistances(GraphSnapshot<V, E> g, int source) {
+    int n = g.vertexCount();
+    int[] dist = new int[n];
+    Arrays.fill(dist, -1);
+    int[] queue = new int[n];
+    int head = 0;
+    int tail = 0;
+    dist[source] = 0;
+    queue[tail++] = source;
+    while (head < tail) {
+      int v = queue[head++];
+      for (int slot = g.outOffsets[v]; slot < g.outOffsets[v + 1]; slot++) {
+        int w = g.outTargets[slot];
+        if (dist[w] == -1) {
+          dist[w] = dist[v] + 1;
+          queue[tail++] = w;
+        }
+      }
     }
+    return dist;
+  }
 
-    protected boolean edgeHasUnusedCapacity(E e) {
-      return flowObj._2.get(e) < e.getCapacity();
-    }
+  /**
+   * Returns the number of edges on the shortest path (following edge directions)
+   * from the vertex with index source to each vertex in g, indexed by vertex index, computed
+   * by a parallel breadth first search on the common ForkJoinPool. Unreachable vertices have
+   * distance -1. See {@link #breadthFirstDistancesParallel(GraphSnapshot, int, ForkJoinPool)}.
+   *
+   * @throws IllegalArgumentException if source isn't a vertex index of g
+   */
+  public static <V, E> int[] breadthFirstDistancesParallel(GraphSnapshot<V, E> g, int source)
+      throws IllegalArgumentException {
+    return breadthFirstDistancesParallel(g, source, ForkJoinPool.commonPool());
   }
 
-  private static class MinCostMaxFlow<V, E extends Flowable & Weighted> extends MaxFlow<V,E> {
+  /**
+   * Returns the number of edges on the shortest path (following edge directions)
+   * from the vertex with index source to each vertex in g, indexed by vertex index.
+   * Unreachable vertices have distance -1.
+   * <br><br>
+   * Computed by a direction-optimizing breadth first search, each level in parallel on pool.
+   * While the frontier is small, its out arcs are scanned top-down, claiming unvisited
+   * vertices with compare-and-set. Once the frontier's arcs outnumber a fraction of the arcs
+   * into unvisited vertices, the search switches to bottom-up: each unvisited vertex scans
+   * its in arcs until it finds one from the frontier, which is far less work on the few
+   * large middle levels of low-diameter graphs. It switches back once the frontier shrinks.
+   *
+   * @throws IllegalArgumentException if source isn't a vertex index of g
+   */
+  public static <V, E> int[] breadthFirstDistancesParallel(GraphSnapshot<V, E> g, int source, ForkJoinPool pool)
+      throws IllegalArgumentException {
+    if (source < 0 || source >= g.vertexCount())
+      throw new IllegalArgumentException("No vertex with index " + source + " in " + g);
+    return pool.submit(() -> new ParallelBreadthFirstSearch<>(g).run(source)).join();
+  }
 
-    public MinCostMaxFlow(Graph<V, E> g, V source, V sink) {
-      super(g, source, sink);
-    }
+  /**
+   * An instance runs one parallel direction-optimizing breadth first search. See
+   * {@link #breadthFirstDistancesParallel(GraphSnapshot, int, ForkJoinPool)}.
+   * Its run method must be called from within the ForkJoinPool to use.
+   */
+  private static class ParallelBreadthFirstSearch<V, E> {
+    /** Switch to bottom-up once the frontier's out arcs exceed 1/ALPHA of the unvisited in arcs */
+    private static final int ALPHA = 14;
+    /** Switch back to top-down once the frontier has fewer than 1/BETA of the vertices */
+    private static final int BETA = 24;
 
-    /** Helper to compute the mincost max flow */
-    protected Flow<E> computeMinCostMaxFlow() {
-      computeMaxFlow();
+    private final GraphSnapshot<V, E> g;
+    private final AtomicIntegerArray dist;
 
-      List<Tuple2<E, Boolean>> cycle = getNegativeCycle(g, source);
-      while(cycle != null) {
-        int maxFlowAmongEdges = cycle.stream().mapToInt((t) -> t._2 ? flowObj._2.get(t._1) : t._1.getCapacity() - flowObj._2.get(t._1)).max().getAsInt();
-        if (maxFlowAmongEdges <= 0) throw new RuntimeException("Cycle has max flow 0, infinite looping would result");
-        for(Tuple2<E, Boolean> t : cycle) {
-          int flow = flowObj._2.get(t._1);
-          if (t._2) {
-            flowObj._2.put(t._1, flow - maxFlowAmongEdges);
-          } else {
-            flowObj._2.put(t._1, flow + maxFlowAmongEdges);
-          }
-        }
-        cycle = getNegativeCycle(g, source);
+    private ParallelBreadthFirstSearch(GraphSnapshot<V, E> g) {
+      this.g = g;
+      int n = g.vertexCount();
+      dist = new AtomicIntegerArray(n);
+      for (int v = 0; v < n; v++) {
+        dist.set(v, -1);
       }
-      return flowObj;
     }
 
-    /**
-     * Returns a cycle in the graph with summed negative weight and non-zero flow.
-     * If none are present, returns null. Implemented using the Bellman Ford Algorithm.
-     * Returned list is of tuples[E,Bool]. The bool is true iff forward edge (false for residual)
-     */
-    private List<Tuple2<E, Boolean>> getNegativeCycle(Graph<V,E> g, V start) {
-      Map<V, Integer> dist = new HashMap<>();
-      for(V v : g.vertexSet()) {
-        dist.put(v, Integer.MAX_VALUE/2); //Div 2 so there's no overflow when adding, but still effectively inf
-      }
-      dist.put(start, 0);
-
-      Set<E> edges = g.edgeSet();
-      for(int i = 0; i < g.vertexSize(); i++) {
-        for(E e : edges) {
-          V v1 = g.sourceOf(e);
-          V v2 = g.sinkOf(e);
-          int w = e.getWeight();
-          //forward edge
-          if (dist.get(v1) + w < dist.get(v2) && edgeHasFlow(e)) {
-            dist.put(v2,dist.get(v1) + w);
-          }
-          //backward edge
-          if (dist.get(v2) + w < dist.get(v1) && edgeHasUnusedCapacity(e)) {
-            dist.put(v1,dist.get(v2) + w);
-          }
+    private int[] run(int source) {
+      int n = g.vertexCount();
+      dist.set(source, 0);
+      int[] frontier = {source};
+      long unvisitedArcs = g.inOffsets[n] - inDegree(source);
+      boolean bottomUp = false;
+      for (int level = 0; frontier.length > 0; level++) {
+        long frontierArcs = 0;
+        for (int v : frontier) {
+          frontierArcs += g.outOffsets[v + 1] - g.outOffsets[v];
         }
-      }
+        if (!bottomUp && frontierArcs > unvisitedArcs / ALPHA) bottomUp = true;
+        else if (bottomUp && frontier.length < n / BETA) bottomUp = false;
 
-      for(E e : edges) {
-        V v1 = g.sourceOf(e);
-        V v2 = g.sinkOf(e);
-        int w = e.getWeight();
-        //Forward edge
-        if (dist.get(v1) + w < dist.get(v2) && edgeHasFlow(e) || dist.get(v2) + w < dist.get(v1) && edgeHasUnusedCapacity(e)) {
-          List<Tuple2<E,Boolean>> lst = getNegativeCycleHelper(g, v1, v1, new ConsList<>(), new ConsList<>(), 0);
-          if (lst != null) return lst;
-          else {
-            lst = getNegativeCycleHelper(g, v2, v2, new ConsList<>(), new ConsList<>(), 0);
-            if (lst != null) return lst;
-          }
+        frontier = bottomUp ? bottomUpStep(level) : topDownStep(frontier, level);
+        for (int v : frontier) {
+          unvisitedArcs -= inDegree(v);
         }
       }
+      int[] d = new int[n];
+      IntStream.range(0, n).parallel().forEach(v -> d[v] = dist.get(v));
+      return d;
+    }
 
-      //No negative cycle found
-      return null;
+    private int inDegree(int v) {
+      return g.inOffsets[v + 1] - g.inOffsets[v];
+    }
+
+    /** Claims the unvisited targets of the frontier's out arcs, returning them */
+    private int[] topDownStep(int[] frontier, int level) {
+      int[] offsets = g.outOffsets;
+      int[] heads = g.outTargets;
+      return IntStream.of(frontier).parallel().flatMap(v -> {
+        IntStream.Builder claimed = null;
+        for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+          int w = heads[slot];
+          if (dist.get(w) == -1 && dist.compareAndSet(w, -1, level + 1)) {
+            if (claimed == null) claimed = IntStream.builder();
+            claimed.add(w);
+          }
+        }
+        return claimed == null ? IntStream.empty() : claimed.build();
+      }).toArray();
     }
 
     /**
-     * Returns a negative weight cycle by iteratively DFS-ing, at the given start node.
-     * This method only works once start is guaranteed to be in at least one cycle,
-     * and there are no self-edges.
+     * Finds each unvisited vertex with an in arc from the frontier - the vertices at level -
+     * returning them. Each vertex is only written by the thread that checks it
      */
-    private List<Tuple2<E,Boolean>> getNegativeCycleHelper(Graph<V, E> g, V start, V current, ConsList<E> path, ConsList<Boolean> reversed, int sumWeight) {
-      //Base case - cycle found. Reverse path and return
-      if (start == current && path.size() != 0) {
-        path = path.reverse();
-        reversed = reversed.reverse();
-        if (sumWeight < 0) {
-          return Tuple.zip(path.stream(), reversed.stream()).collect(Collectors.toList());
-        } else {
-          return null; //Cycle found doesn't have negative weight
+    private int[] bottomUpStep(int level) {
+      int[] offsets = g.inOffsets;
+      int[] tails = g.inSources;
+      return IntStream.range(0, g.vertexCount()).parallel().filter(w -> {
+        if (dist.get(w) != -1) return false;
+        for (int slot = offsets[w]; slot < offsets[w + 1]; slot++) {
+          if (dist.get(tails[slot]) == level) {
+            dist.set(w, level + 1);
+            return true;
+          }
         }
-      }
+        return false;
+      }).toArray();
+    }
+  }
 
-      //Non-base case. Try each out edge in current.
-      for (E e : g.edgeSetOfSource(current)) {
-        //If it's not in the path already and has non-zero flow, try going that way
-        if (!path.contains(e) && edgeHasFlow(e)) {
-          List<Tuple2<E, Boolean>> cycle = getNegativeCycleHelper(g, start, g.getOther(e, current), path.cons(e), reversed.cons(true), sumWeight - e.getWeight());
-          if (cycle != null) return cycle;
-        }
-      }
-      //Non-base case. Try each in edge to current (As residual edges).
-      for (E e : g.edgeSetOfSink(current)) {
-        //If it's not in the path already and has non-full flow, try going that way
-        if (!path.contains(e) && edgeHasUnusedCapacity(e)) {
-          List<Tuple2<E, Boolean>> cycle = getNegativeCycleHelper(g, start, g.getOther(e, current), path.cons(e), reversed.cons(false), sumWeight + e.getWeight());
-          if (cycle != null) return cycle;
+  /**
+   * Returns the connected component of each vertex of g, ignoring edge directions, as the
+   * smallest vertex index in that component, indexed by vertex index. Computed in parallel
+   * on the common ForkJoinPool.
+   * See {@link #connectedComponents(GraphSnapshot, ForkJoinPool)}.
+   */
+  public static <V, E> int[] connectedComponents(GraphSnapshot<V, E> g) {
+    return connectedComponents(g, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the connected component of each vertex of g, ignoring edge directions, as the
+   * smallest vertex index in that component, indexed by vertex index.
+   * <br><br>
+   * Computed by a concurrent union find over an array of parent indices: every edge is
+   * processed in parallel on pool, linking the root of its larger endpoint's tree under the
+   * root of its smaller one with compare-and-set, retrying if another thread moved either
+   * root first. Roots are only ever linked under smaller indices, so the root of each
+   * component ends up being its smallest vertex. Finds halve the path they walk.
+   */
+  public static <V, E> int[] connectedComponents(GraphSnapshot<V, E> g, ForkJoinPool pool) {
+    int n = g.vertexCount();
+    AtomicIntegerArray parent = new AtomicIntegerArray(n);
+    int[] label = new int[n];
+    pool.submit(() -> {
+      IntStream.range(0, n).parallel().forEach(v -> parent.set(v, v));
+      IntStream.range(0, g.edgeCount()).parallel().forEach(e -> {
+        int a = findRoot(parent, g.edgeSource(e));
+        int b = findRoot(parent, g.edgeSink(e));
+        while (a != b) {
+          if (a < b) {
+            int t = a;
+            a = b;
+            b = t;
+          }
+          if (parent.compareAndSet(a, a, b)) return;
+          a = findRoot(parent, a);
+          b = findRoot(parent, b);
         }
-      }
-      //No cycle found. This case ends
-      return null;
+      });
+      IntStream.range(0, n).parallel().forEach(v -> label[v] = findRoot(parent, v));
+    }).join();
+    return label;
+  }
+
+  /** Returns the root of v in the concurrent union find parent, halving the path to it */
+  private static int findRoot(AtomicIntegerArray parent, int v) {
+    while (true) {
+      int p = parent.get(v);
+      if (p == v) return v;
+      int grandparent = parent.get(p);
+      if (grandparent == p) return p;
+      parent.compareAndSet(v, p, grandparent);
+      v = grandparent;
     }
+  }
 
+  /**
+   * An instance represents a flow on a graph with edge type E
+   * The first value is the total flow, the second is a map of each
+   * edge in the graph to the amount of flow on that edge
+   *
+   * @author Mshnik
+   */
+  public static class Flow<E> extends Tuple2<Integer, HashMap<E, Integer>> {
+    public Flow(Integer first, HashMap<E, Integer> second) {
+      super(first, second);
+    }
   }
 
   /**
    * Returns the maximum flow possible on graph g.
-   * Uses the preflow push algorithm to compute the max flow.
+   * Uses highest-label push-relabel on a snapshot of g to compute the max flow.
+   * See {@link FlowNetwork#maxFlow(int, int)}.
    * Only valid on directed graphs
    *
    * @param g      - the graph to find the flow on
@@ -686,133 +1632,269 @@ public class Algorithm {
    * @param sink   - the vertex to treat as the sink of all flow
    * @return - a flow object, containing the value of the max flow and the placement of all flow
    * @throws IllegalArgumentException if source or sink is null, or if they are the same node, or if undirected
+   * @throws NotInCollectionException if source or sink aren't contained in the graph
    */
   public static <V, E extends Flowable> Flow<E> maxFlow(Graph<V, E> g, V source, V sink)
+      throws IllegalArgumentException, NotInCollectionException {
+    checkFlowArgs(g.isDirected(), source, sink);
+    return maxFlow(g.snapshot(), source, sink);
+  }
+
+  /**
+   * Returns the maximum flow possible on snapshot g, computed by highest-label push-relabel.
+   * See {@link #maxFlow(Graph, Object, Object)}.
+   */
+  public static <V, E extends Flowable> Flow<E> maxFlow(GraphSnapshot<V, E> g, V source, V sink)
+      throws IllegalArgumentException, NotInCollectionException {
+    FlowNetwork network = flowNetwork(g, source, sink);
+    long value = network.maxFlow(g.indexOf(source), g.indexOf(sink));
+    return flowOf(g, network, value);
+  }
+
+  /**
+   * Returns the maximum flow possible on graph g, computed by Dinic's algorithm on a
+   * snapshot of g. See {@link FlowNetwork#maxFlowDinic(int, int)}.
+   * Only valid on directed graphs
+   *
+   * @throws IllegalArgumentException if source or sink is null, or if they are the same node, or if undirected
+   * @throws NotInCollectionException if source or sink aren't contained in the graph
+   */
+  public static <V, E extends Flowable> Flow<E> maxFlowDinic(Graph<V, E> g, V source, V sink)
+      throws IllegalArgumentException, NotInCollectionException {
+    checkFlowArgs(g.isDirected(), source, sink);
+    return maxFlowDinic(g.snapshot(), source, sink);
+  }
+
+  /**
+   * Returns the maximum flow possible on snapshot g, computed by Dinic's algorithm.
+   * See {@link #maxFlowDinic(Graph, Object, Object)}.
+   */
+  public static <V, E extends Flowable> Flow<E> maxFlowDinic(GraphSnapshot<V, E> g, V source, V sink)
+      throws IllegalArgumentException, NotInCollectionException {
+    FlowNetwork network = flowNetwork(g, source, sink);
+    long value = network.maxFlowDinic(g.indexOf(source), g.indexOf(sink));
+    return flowOf(g, network, value);
+  }
+
+  /** Throws an IllegalArgumentException if a flow can't be computed with the given arguments */
+  private static void checkFlowArgs(boolean directed, Object source, Object sink)
       throws IllegalArgumentException {
     if (source == null || sink == null || source.equals(sink))
       throw new IllegalArgumentException("Source and Sink must be non-null and distinct");
-    if (!g.isDirected()) {
+    if (!directed) {
       throw new IllegalArgumentException("Can only compute maxflow on directed graphs");
     }
+  }
 
-    return new MaxFlow<>(g, source, sink).computeMaxFlow();
+  /** Checks the arguments of a flow calculation on g, and returns the flow network of g */
+  private static <V> FlowNetwork flowNetwork(GraphSnapshot<V, ?> g, V source, V sink)
+      throws IllegalArgumentException, NotInCollectionException {
+    checkFlowArgs(g.isDirected(), source, sink);
+    if (g.indexOf(source) < 0 || g.indexOf(sink) < 0)
+      throw new NotInCollectionException("Can't compute maxflow", source, sink);
+    return new FlowNetwork(g);
+  }
+
+  /** Returns the Flow object of the flow currently on network, which is of snapshot g */
+  private static <V, E> Flow<E> flowOf(GraphSnapshot<V, E> g, FlowNetwork network, long value) {
+    HashMap<E, Integer> flows = new HashMap<>(g.edgeCount() * 2);
+    for (int e = 0; e < g.edgeCount(); e++) {
+      flows.put(g.edge(e), network.flow(e));
+    }
+    return new Flow<>((int) value, flows);
   }
 
   /**
    * Returns the min cost max flow maximum flow possible on graph g.
-   * Uses the preflow push algorithm to compute the max flow.
-   * Uses Bellman ford cycle elimination for min-cost
+   * Uses successive shortest paths with Johnson potentials on a snapshot of g, so the
+   * edge weights are the costs. See {@link FlowNetwork#minCostMaxFlow(int, int)}.
    * Only valid on directed graphs.
    *
    * @param g      - the graph to find the flow on
    * @param source - the vertex to treat as the source of all flow
    * @param sink   - the vertex to treat as the sink of all flow
    * @return - a flow object, containing the value of the max flow and the placement of all flow
-   * @throws IllegalArgumentException if source or sink is null, or if they are the same node, or if undirected
+   * @throws IllegalArgumentException if source or sink is null, or if they are the same node, or if undirected,
+   *                                  or if there is a cycle with negative total weight reachable from source
+   * @throws NotInCollectionException if source or sink aren't contained in the graph
    */
   public static <V, E extends Flowable & Weighted> Flow<E> minCostMaxFlow(Graph<V, E> g, V source, V sink)
-      throws IllegalArgumentException {
-    if (source == null || sink == null || source.equals(sink))
-      throw new IllegalArgumentException("Source and Sink must be non-null and distinct");
-    if (!g.isDirected()) {
-      throw new IllegalArgumentException("Can only compute maxflow on directed graphs");
-    }
+      throws IllegalArgumentException, NotInCollectionException {
+    checkFlowArgs(g.isDirected(), source, sink);
+    return minCostMaxFlow(g.snapshot(), source, sink);
+  }
 
-    return new MinCostMaxFlow<>(g, source, sink).computeMinCostMaxFlow();
+  /**
+   * Returns the min cost max flow on snapshot g.
+   * See {@link #minCostMaxFlow(Graph, Object, Object)}.
+   */
+  public static <V, E extends Flowable & Weighted> Flow<E> minCostMaxFlow(GraphSnapshot<V, E> g, V source, V sink)
+      throws IllegalArgumentException, NotInCollectionException {
+    FlowNetwork network = flowNetwork(g, source, sink);
+    long value = network.minCostMaxFlow(g.indexOf(source), g.indexOf(sink));
+    return flowOf(g, network, value);
   }
 
-  //TODO - SPEC
+  /**
+   * Returns a maximum cardinality matching of agents to the items they find acceptable,
+   * computed by Hopcroft-Karp. See {@link BipartiteGraph#maxMatching()}.
+   */
   public static <A extends Agent<I>, I> Matching<A,I> maxMatching(Collection<A> agents, Collection<I> items) {
-    Map<I, Integer> itemsAndCounts = items.stream().collect(Collectors.toMap((i) -> i, (a) -> 1));
-    Matching<A,Copyable<I>> m = maxMatchingHelper(agents, itemsAndCounts, (a,i) -> 0);
-    Matching<A,I> m2 = new Matching<>();
-    m2.addAllA(agents);
-    m2.addAllB(items);
-    for(A a : m.getMatchedA()) {
-      m2.match(a, m.getMatchedB(a).get());
-    }
-    return m2;
+    List<A> agentList = new ArrayList<>(new LinkedHashSet<>(agents));
+    List<I> itemList = new ArrayList<>(new LinkedHashSet<>(items));
+    int[] match = bipartiteGraph(agentList, itemList, null, null).maxMatching();
+    return matchingOf(agentList, itemList, match);
   }
 
+  /**
+   * Returns a maximum cardinality matching of agents to copies of the items they find
+   * acceptable, where there are itemsAndCounts.get(i) copies of item i. Computed by
+   * Hopcroft-Karp, treating each item as a single vertex with its count as capacity.
+   * See {@link BipartiteGraph#maxMatching()}.
+   */
   public static <A extends Agent<I>, I> Matching<A, Copyable<I>> maxMatching(Collection<A> agents, Map<I,Integer> itemsAndCounts) {
-    return maxMatchingHelper(agents, itemsAndCounts, (a,i) -> 0);
+    List<A> agentList = new ArrayList<>(new LinkedHashSet<>(agents));
+    List<I> itemList = new ArrayList<>(itemsAndCounts.keySet());
+    int[] counts = itemList.stream().mapToInt(itemsAndCounts::get).toArray();
+    int[] match = bipartiteGraph(agentList, itemList, counts, null).maxMatching();
+    return copiedMatchingOf(agentList, itemList, counts, match);
   }
 
-  //TODO - SPEC
+  /**
+   * Returns a maximum cardinality matching of agents to the items they find acceptable,
+   * which has the greatest total value among all maximum cardinality matchings.
+   * Computed by the Hungarian algorithm. See {@link BipartiteGraph#maxValueMaxMatching()}.
+   *
+   * @param valueFunction - the value of matching an agent to an item. If null, each
+   *                      agent's preference for the item is used.
+   */
   public static <A extends RankedAgent<I>, I> Matching<A, I> maxValueMaxMatching(Collection<A> agents, Collection<I> items, BiFunction<? super A, ? super I, Integer> valueFunction) {
-    Matching<A, Copyable<I>> m;
-    Map<I, Integer> itemsAndCounts = items.stream().collect(Collectors.toMap((i) -> i, (a) -> 1));
-    if (valueFunction == null ){
-      m = maxMatchingHelper(agents, itemsAndCounts, RankedAgent::getPreference);
-    } else {
-      m = maxMatchingHelper(agents, itemsAndCounts, valueFunction);
-    }
-    Matching<A,I> m2 = new Matching<>();
-    m2.addAllA(agents);
-    m2.addAllB(items);
-    for(A a : m.getMatchedA()) {
-      m2.match(a, m.getMatchedB(a).get());
-    }
-    return m2;
+    List<A> agentList = new ArrayList<>(new LinkedHashSet<>(agents));
+    List<I> itemList = new ArrayList<>(new LinkedHashSet<>(items));
+    if (valueFunction == null) valueFunction = RankedAgent::getPreference;
+    int[] match = bipartiteGraph(agentList, itemList, null, valueFunction).maxValueMaxMatching();
+    return matchingOf(agentList, itemList, match);
   }
 
-  //TODO - SPEC
+  /**
+   * Returns a maximum cardinality matching of agents to copies of the items they find
+   * acceptable, which has the greatest total value among all maximum cardinality matchings,
+   * where there are itemsAndCounts.get(i) copies of item i. Computed by the Hungarian
+   * algorithm, treating each item as a single vertex with its count as capacity.
+   * See {@link BipartiteGraph#maxValueMaxMatching()}.
+   *
+   * @param valueFunction - the value of matching an agent to an item. If null, each
+   *                      agent's preference for the item is used.
+   */
   public static <A extends RankedAgent<I>, I> Matching<A, Copyable<I>> maxValueMaxMatching(Collection<A> agents, Map<I,Integer> itemsAndCounts, BiFunction<? super A, ? super I, Integer> valueFunction) {
-    if (valueFunction == null ){
-      return maxMatchingHelper(agents, itemsAndCounts, RankedAgent::getPreference);
-    } else {
-      return maxMatchingHelper(agents, itemsAndCounts, valueFunction);
-    }
+    List<A> agentList = new ArrayList<>(new LinkedHashSet<>(agents));
+    List<I> itemList = new ArrayList<>(itemsAndCounts.keySet());
+    int[] counts = itemList.stream().mapToInt(itemsAndCounts::get).toArray();
+    if (valueFunction == null) valueFunction = RankedAgent::getPreference;
+    int[] match = bipartiteGraph(agentList, itemList, counts, valueFunction).maxValueMaxMatching();
+    return copiedMatchingOf(agentList, itemList, counts, match);
   }
 
-  //TODO - SPEC
-  private static <A extends Agent<I>, I> Matching<A,Copyable<I>> maxMatchingHelper(Collection<A> agents, Map<I, Integer> itemsAndCounts, BiFunction<? super A, ? super I, Integer> valueFunction) {
-    Graph<Object, FlowEdge> g = new Graph<>();
-    agents = new HashSet<>(agents);
-
-    HashSet<Copyable<I>> items = new HashSet<>();
-    for(Map.Entry<I,Integer> e : itemsAndCounts.entrySet()) {
-      for(int i = 0; i < e.getValue(); i++) {
-        items.add(Copyable.of(e.getKey()));
-      }
-    }
-
-    Object source = "SUPERSOURCE";
-    Object sink = "SUPERSINK";
+  /**
+   * Returns the same matching problem's solution as
+   * {@link #maxValueMaxMatching(Collection, Collection, BiFunction)}, computed by a parallel
+   * auction on the common ForkJoinPool.
+   * See {@link #maxValueMaxMatchingAuction(Collection, Collection, BiFunction, ForkJoinPool)}.
+   */
+  public static <A extends RankedAgent<I>, I> Matching<A, I> maxValueMaxMatchingAuction(Collection<A> agents, Collection<I> items, BiFunction<? super A, ? super I, Integer> valueFunction)
+      throws ArithmeticException {
+    return maxValueMaxMatchingAuction(agents, items, valueFunction, ForkJoinPool.commonPool());
+  }
 
-    g.addVertex(source);
-    g.addVertex(sink);
+  /**
+   * Returns a maximum cardinality matching of agents to the items they find acceptable,
+   * which has the greatest total value among all maximum cardinality matchings.
+   * Computed by Bertsekas' auction algorithm, with the bids of each round made in parallel on
+   * pool. Better suited than the Hungarian algorithm to large problems on many cores.
+   * See {@link BipartiteGraph#maxValueMaxMatchingAuction(ForkJoinPool)}.
+   *
+   * @param valueFunction - the value of matching an agent to an item. If null, each
+   *                      agent's preference for the item is used.
+   * @throws ArithmeticException - if the values are too spread out to be scaled for the auction
+   */
+  public static <A extends RankedAgent<I>, I> Matching<A, I> maxValueMaxMatchingAuction(Collection<A> agents, Collection<I> items, BiFunction<? super A, ? super I, Integer> valueFunction,
+                                                                                        ForkJoinPool pool) throws ArithmeticException {
+    List<A> agentList = new ArrayList<>(new LinkedHashSet<>(agents));
+    List<I> itemList = new ArrayList<>(new LinkedHashSet<>(items));
+    if (valueFunction == null) valueFunction = RankedAgent::getPreference;
+    int[] match = bipartiteGraph(agentList, itemList, null, valueFunction).maxValueMaxMatchingAuction(pool);
+    return matchingOf(agentList, itemList, match);
+  }
 
-    for(Copyable<I> i : items) {
-      g.addVertex(i);
-      g.addEdge(i, sink, new FlowEdge().setCapacity(1));
+  /**
+   * Returns the BipartiteGraph of agents and items, with an edge for each item an agent
+   * finds acceptable. Agents with few acceptable items only look those up, rather than
+   * checking every item.
+   *
+   * @param counts        - the capacity of each item, or null for 1 each
+   * @param valueFunction - the value of each edge, or null for 0
+   */
+  private static <A extends Agent<I>, I> BipartiteGraph bipartiteGraph(List<A> agents, List<I> items, int[] counts,
+                                                                      BiFunction<? super A, ? super I, Integer> valueFunction) {
+    BipartiteGraph g = new BipartiteGraph(agents.size(), items.size());
+    HashMap<I, Integer> index = new HashMap<>(items.size() * 2);
+    for (int r = 0; r < items.size(); r++) {
+      index.put(items.get(r), r);
+      if (counts != null) g.setCapacity(r, Math.max(0, counts[r]));
     }
-    for(A a : agents) {
-      g.addVertex(a);
-      g.addEdge(source, a, new FlowEdge().setCapacity(1));
-      for (Copyable<I> i : items) {
-        if (a.isAcceptable(i.get())) {
-          g.addEdge(a, i, new FlowEdge().setCapacity(1).setWeight(-valueFunction.apply(a, i.get())));
+    for (int u = 0; u < agents.size(); u++) {
+      A a = agents.get(u);
+      Set<I> acceptable = a.getAcceptableItems();
+      if (acceptable.size() < items.size()) {
+        for (I i : acceptable) {
+          Integer r = index.get(i);
+          if (r != null && a.isAcceptable(i))
+            g.addEdge(u, r, valueFunction == null ? 0 : valueFunction.apply(a, i));
+        }
+      } else {
+        for (int r = 0; r < items.size(); r++) {
+          I i = items.get(r);
+          if (a.isAcceptable(i))
+            g.addEdge(u, r, valueFunction == null ? 0 : valueFunction.apply(a, i));
         }
       }
     }
+    return g;
+  }
 
-    Flow<FlowEdge> flow = minCostMaxFlow(g, source, sink);
-    Matching<A, Copyable<I>> m = new Matching<>();
+  /** Returns the Matching of agents to items given by match, indexed as in bipartiteGraph(..) */
+  private static <A, I> Matching<A, I> matchingOf(List<A> agents, List<I> items, int[] match) {
+    Matching<A, I> m = new Matching<>();
     m.addAllA(agents);
     m.addAllB(items);
+    for (int u = 0; u < match.length; u++) {
+      if (match[u] >= 0) m.match(agents.get(u), items.get(match[u]));
+    }
+    return m;
+  }
 
-    for(A a : agents) {
-      for(Copyable<I> i : items) {
-        if (a.isAcceptable(i.get())) {
-          FlowEdge e = g.getConnection(a, i);
-          if (flow._2.get(e) > 0) {
-            m.match(a, i);
-          }
-        }
+  /**
+   * Returns the Matching of agents to copies of items given by match, indexed as in
+   * bipartiteGraph(..), with counts[r] copies of item r
+   */
+  private static <A, I> Matching<A, Copyable<I>> copiedMatchingOf(List<A> agents, List<I> items, int[] counts,
+                                                                 int[] match) {
+    Matching<A, Copyable<I>> m = new Matching<>();
+    m.addAllA(agents);
+    List<List<Copyable<I>>> copies = new ArrayList<>(items.size());
+    for (int r = 0; r < items.size(); r++) {
+      List<Copyable<I>> lst = new ArrayList<>();
+      for (int c = 0; c < counts[r]; c++) {
+        lst.add(Copyable.of(items.get(r)));
       }
+      m.addAllB(lst);
+      copies.add(lst);
+    }
+    int[] used = new int[items.size()];
+    for (int u = 0; u < match.length; u++) {
+      int r = match[u];
+      if (r >= 0) m.match(agents.get(u), copies.get(r).get(used[r]++));
     }
-
     return m;
   }
 
@@ -1,30 +1,29 @@
 package graph;
 
+import common.dataStructures.IntObjectMap;
 import common.dataStructures.NotInCollectionException;
 
-import java.util.HashMap;
-
 /**
  * @author Mshnik
  */
 public class CapLimitedVertexGraph extends Graph<SimpleVertex, SimpleEdge> {
 
 
-  private HashMap<Integer, CapacityLimitedVertex> idToVertex;
-  private HashMap<Integer, SimpleEdge> idToEdge;
+  private IntObjectMap<CapacityLimitedVertex> idToVertex;
+  private IntObjectMap<SimpleEdge> idToEdge;
 
   /** Constructs a new (empty) directed SimpleGraph */
   public CapLimitedVertexGraph(){
     super();
-    idToVertex = new HashMap<>();
-    idToEdge = new HashMap<>();
+    idToVertex = new IntObjectMap<>();
+    idToEdge = new IntObjectMap<>();
   }
 
   /** Constructs a new (empty) SimpleGraph with the given directed-ness */
   public CapLimitedVertexGraph(boolean directed){
     super(directed);
-    idToVertex = new HashMap<>();
-    idToEdge = new HashMap<>();
+    idToVertex = new IntObjectMap<>();
+    idToEdge = new IntObjectMap<>();
   }
 
   /** Constructs a new SimpleGraph that is a copy of the given graph
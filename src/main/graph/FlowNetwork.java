@@ -0,0 +1,657 @@
+package graph;
+
+import java.util.Arrays;
+
+import common.dataStructures.IndexedHeap;
+
+/**
+ * A flow network over dense int vertex ids in [0, vertexCount()), with max flow engines
+ * that keep all of their state in primitive arrays.
+ * <br><br>
+ * Edges are added with {@link #addEdge(int, int, int)} and get ids in [0, edgeCount()) in
+ * the order they are added. Edge e is stored as a pair of residual arcs - 2e in the
+ * direction of the edge, and 2e+1 against it - so the arc paired with a is a ^ 1, and the
+ * flow on e is the residual capacity of arc 2e+1. The arcs at each vertex are kept in
+ * compressed sparse row form, built the first time a flow is computed after edges change.
+ * <br><br>
+ * Each edge also has an int cost per unit of flow (0 unless given), used only by the
+ * min cost engine. Three engines are offered, each of which starts from the zero flow:
+ * <ul>
+ * <li>{@link #maxFlow(int, int)} - highest-label push-relabel with the gap heuristic
+ * and periodic global relabeling. O(V^2 sqrt(E)), and usually much faster in practice.</li>
+ * <li>{@link #maxFlowDinic(int, int)} - Dinic's blocking flow algorithm. O(V^2 E), and
+ * O(E sqrt(V)) on unit capacity networks such as bipartite matchings.</li>
+ * <li>{@link #minCostMaxFlow(int, int)} - successive shortest paths with Johnson
+ * potentials, finding the cheapest of the maximum flows. O(F E log V) for max flow F.</li>
+ * </ul>
+ *
+ * @author Mshnik
+ */
+public class FlowNetwork {
+
+  private static final int DEFAULT_EDGE_CAPACITY = 16;
+
+  private final int n;
+
+  //By edge id
+  private int[] from;
+  private int[] to;
+  private int[] capacities;
+  private int[] costs;
+  private int m;
+
+  //Residual network. Null until built, and reset to null when an edge is added
+  private int[] arcOffsets; //Arcs at v are in arcs[arcOffsets[v] .. arcOffsets[v+1]-1]
+  private int[] arcs;
+  private int[] heads; //By arc
+  private int[] residuals; //By arc
+
+  /**
+   * Constructs a FlowNetwork with the given number of vertices and no edges
+   *
+   * @throws IllegalArgumentException - if vertexCount &lt; 0
+   */
+  public FlowNetwork(int vertexCount) throws IllegalArgumentException {
+    if (vertexCount < 0)
+      throw new IllegalArgumentException("Vertex count must be non-negative, got " + vertexCount);
+    n = vertexCount;
+    from = new int[DEFAULT_EDGE_CAPACITY];
+    to = new int[DEFAULT_EDGE_CAPACITY];
+    capacities = new int[DEFAULT_EDGE_CAPACITY];
+    costs = new int[DEFAULT_EDGE_CAPACITY];
+    m = 0;
+  }
+
+  /**
+   * Constructs a FlowNetwork of a directed, flowable GraphSnapshot. Vertices and edges
+   * keep their indices and ids from the snapshot. If every edge is Weighted, edge weights
+   * are used as costs.
+   *
+   * @throws IllegalArgumentException - if g is undirected, or not every edge is Flowable
+   */
+  public FlowNetwork(GraphSnapshot<?, ?> g) throws IllegalArgumentException {
+    this(g.vertexCount());
+    if (!g.isDirected())
+      throw new IllegalArgumentException("Can only build a flow network of a directed graph");
+    if (!g.isFlowable())
+      throw new IllegalArgumentException("Can only build a flow network of a flowable graph");
+    int edges = g.edgeCount();
+    from = new int[edges];
+    to = new int[edges];
+    capacities = new int[edges];
+    costs = new int[edges];
+    for (int e = 0; e < edges; e++) {
+      addEdge(g.edgeSource(e), g.edgeSink(e), g.capacities[e], g.weights == null ? 0 : g.weights[e]);
+    }
+  }
+
+  /**
+   * Returns the number of vertices in this network
+   */
+  public int vertexCount() {
+    return n;
+  }
+
+  /**
+   * Returns the number of edges in this network
+   */
+  public int edgeCount() {
+    return m;
+  }
+
+  /**
+   * Adds an edge from source to sink with the given capacity and a cost of 0, and returns
+   * its id. Self edges are allowed, but never carry flow.
+   *
+   * @throws IllegalArgumentException - if either vertex is out of range, or capacity &lt; 0
+   */
+  public int addEdge(int source, int sink, int capacity) throws IllegalArgumentException {
+    return addEdge(source, sink, capacity, 0);
+  }
+
+  /**
+   * Adds an edge from source to sink with the given capacity and cost per unit of flow,
+   * and returns its id. Self edges are allowed, but never carry flow.
+   *
+   * @throws IllegalArgumentException - if either vertex is out of range, or capacity &lt; 0
+   */
+  public int addEdge(int source, int sink, int capacity, int cost) throws IllegalArgumentException {
+    if (source < 0 || source >= n || sink < 0 || sink >= n)
+      throw new IllegalArgumentException("Can't add edge " + source + "->" + sink
+          + " to network with " + n + " vertices");
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity must be non-negative, got " + capacity);
+    if (m == from.length) {
+      int length = Math.max(DEFAULT_EDGE_CAPACITY, m * 2);
+      from = Arrays.copyOf(from, length);
+      to = Arrays.copyOf(to, length);
+      capacities = Arrays.copyOf(capacities, length);
+      costs = Arrays.copyOf(costs, length);
+    }
+    from[m] = source;
+    to[m] = sink;
+    capacities[m] = capacity;
+    costs[m] = cost;
+    arcOffsets = null;
+    return m++;
+  }
+
+  /**
+   * Returns the source of the given edge
+   */
+  public int source(int edge) {
+    return from[edge];
+  }
+
+  /**
+   * Returns the sink of the given edge
+   */
+  public int sink(int edge) {
+    return to[edge];
+  }
+
+  /**
+   * Returns the capacity of the given edge
+   */
+  public int capacity(int edge) {
+    return capacities[edge];
+  }
+
+  /**
+   * Returns the cost per unit of flow of the given edge
+   */
+  public int cost(int edge) {
+    return costs[edge];
+  }
+
+  /**
+   * Returns the flow on the given edge from the last flow computed, or 0 if none has been
+   * since it was added
+   */
+  public int flow(int edge) {
+    return residuals == null || 2 * edge + 1 >= residuals.length ? 0 : residuals[2 * edge + 1];
+  }
+
+  /**
+   * Returns a fresh array of the flow on every edge from the last flow computed
+   */
+  public int[] flows() {
+    int[] f = new int[m];
+    for (int e = 0; e < m; e++) {
+      f[e] = flow(e);
+    }
+    return f;
+  }
+
+  /**
+   * Returns the total cost of the last flow computed - the sum over edges of flow times cost
+   */
+  public long flowCost() {
+    long total = 0;
+    for (int e = 0; e < m; e++) {
+      total += (long) flow(e) * costs[e];
+    }
+    return total;
+  }
+
+  /** Builds the residual network if needed, then resets it to the zero flow */
+  private void prepare(int s, int t) throws IllegalArgumentException {
+    if (s < 0 || s >= n || t < 0 || t >= n || s == t)
+      throw new IllegalArgumentException("Source and sink must be distinct vertices of the network, got "
+          + s + " and " + t);
+    if (arcOffsets == null) {
+      arcOffsets = new int[n + 1];
+      for (int e = 0; e < m; e++) {
+        if (from[e] != to[e]) {
+          arcOffsets[from[e] + 1]++;
+          arcOffsets[to[e] + 1]++;
+        }
+      }
+      for (int v = 0; v < n; v++) {
+        arcOffsets[v + 1] += arcOffsets[v];
+      }
+      arcs = new int[arcOffsets[n]];
+      heads = new int[2 * m];
+      residuals = new int[2 * m];
+      int[] next = Arrays.copyOf(arcOffsets, n);
+      for (int e = 0; e < m; e++) {
+        heads[2 * e] = to[e];
+        heads[2 * e + 1] = from[e];
+        if (from[e] != to[e]) {
+          arcs[next[from[e]]++] = 2 * e;
+          arcs[next[to[e]]++] = 2 * e + 1;
+        }
+      }
+    }
+    for (int e = 0; e < m; e++) {
+      residuals[2 * e] = capacities[e];
+      residuals[2 * e + 1] = 0;
+    }
+  }
+
+  /**
+   * Computes a maximum flow from s to t with highest-label push-relabel, and returns its
+   * value. The flow on each edge is then available from {@link #flow(int)}.
+   * <br><br>
+   * The first phase finds a maximum preflow, always discharging an active vertex with the
+   * highest label. Whenever no vertex is left with some label, every vertex above it is
+   * lifted out of reach of t at once (the gap heuristic), and every O(V + E) work the labels
+   * are reset to exact distances to t by a backwards breadth first search. The second phase
+   * returns the excess that couldn't reach t to s, the same way, to make the preflow a flow.
+   *
+   * @throws IllegalArgumentException - if s or t are out of range, or equal
+   */
+  public long maxFlow(int s, int t) throws IllegalArgumentException {
+    prepare(s, t);
+    return new PushRelabel(s, t).run();
+  }
+
+  /**
+   * Computes a maximum flow from s to t with Dinic's algorithm, and returns its value.
+   * The flow on each edge is then available from {@link #flow(int)}.
+   * <br><br>
+   * Each phase labels vertices by their breadth first distance from s in the residual
+   * network, then saturates a blocking flow of shortest augmenting paths, found by an
+   * iterative depth first search that never retries an arc or vertex that is dead.
+   *
+   * @throws IllegalArgumentException - if s or t are out of range, or equal
+   */
+  public long maxFlowDinic(int s, int t) throws IllegalArgumentException {
+    prepare(s, t);
+    int[] level = new int[n];
+    int[] queue = new int[n];
+    int[] current = new int[n];
+    int[] path = new int[n]; //Arcs of the current path, from s
+    long total = 0;
+
+    while (true) {
+      //Level the residual network from s
+      Arrays.fill(level, -1);
+      level[s] = 0;
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = s;
+      while (head < tail && level[t] < 0) {
+        int v = queue[head++];
+        for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+          int a = arcs[i];
+          int w = heads[a];
+          if (residuals[a] > 0 && level[w] < 0) {
+            level[w] = level[v] + 1;
+            queue[tail++] = w;
+          }
+        }
+      }
+      if (level[t] < 0) return total;
+
+      //Saturate a blocking flow of level-increasing paths
+      System.arraycopy(arcOffsets, 0, current, 0, n);
+      int depth = 0;
+      int v = s;
+      while (true) {
+        if (v == t) {
+          int delta = Integer.MAX_VALUE;
+          for (int i = 0; i < depth; i++) {
+            delta = Math.min(delta, residuals[path[i]]);
+          }
+          int retreat = -1;
+          for (int i = 0; i < depth; i++) {
+            int a = path[i];
+            residuals[a] -= delta;
+            residuals[a ^ 1] += delta;
+            if (retreat < 0 && residuals[a] == 0) retreat = i;
+          }
+          total += delta;
+          depth = retreat;
+          v = heads[path[depth] ^ 1];
+          continue;
+        }
+        int i = current[v];
+        int end = arcOffsets[v + 1];
+        for (; i < end; i++) {
+          int a = arcs[i];
+          if (residuals[a] > 0 && level[heads[a]] == level[v] + 1) break;
+        }
+        current[v] = i;
+        if (i < end) {
+          int a = arcs[i];
+          path[depth++] = a;
+          v = heads[a];
+        } else {
+          level[v] = -1; //Dead end, for the rest of the phase
+          if (depth == 0) break;
+          v = heads[path[--depth] ^ 1];
+          current[v]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes a maximum flow from s to t of minimum total cost, and returns its value.
+   * The flow on each edge is then available from {@link #flow(int)}, and its cost from
+   * {@link #flowCost()}. Costs may be negative, as long as no cycle of edges with positive
+   * capacity reachable from s has negative total cost.
+   * <br><br>
+   * Uses successive shortest paths: flow is only ever sent along a cheapest path in the
+   * residual network, so the flow has minimum cost for its value at every step. Each vertex
+   * keeps a potential - initially its distance from s by Bellman-Ford, skipped if there are
+   * no negative costs - under which every residual arc has non-negative reduced cost, so
+   * each cheapest path is found by Dijkstra's algorithm on an indexed heap, stopping as soon
+   * as t is settled.
+   *
+   * @throws IllegalArgumentException - if s or t are out of range or equal, or there is a
+   *                                  negative cost cycle reachable from s
+   */
+  public long minCostMaxFlow(int s, int t) throws IllegalArgumentException {
+    prepare(s, t);
+    long[] potential = initialPotentials(s);
+    long[] dist = new long[n];
+    int[] parentArc = new int[n];
+    boolean[] settled = new boolean[n];
+    IndexedHeap heap = new IndexedHeap(n);
+    long total = 0;
+
+    while (true) {
+      Arrays.fill(dist, Long.MAX_VALUE);
+      Arrays.fill(settled, false);
+      heap.clear();
+      dist[s] = 0;
+      parentArc[s] = -1;
+      heap.add(s, 0);
+      while (!heap.isEmpty()) {
+        int v = heap.poll();
+        settled[v] = true;
+        if (v == t) break;
+        for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+          int a = arcs[i];
+          int w = heads[a];
+          if (residuals[a] > 0 && !settled[w]) {
+            long d = dist[v] + arcCost(a) + potential[v] - potential[w];
+            if (d < dist[w]) {
+              dist[w] = d;
+              parentArc[w] = a;
+              heap.addOrDecrease(w, d);
+            }
+          }
+        }
+      }
+      if (!settled[t]) return total;
+
+      //Keep every reduced cost non-negative: vertices not settled are at least dist[t] away
+      long dt = dist[t];
+      for (int v = 0; v < n; v++) {
+        potential[v] += Math.min(dist[v], dt);
+      }
+
+      int delta = Integer.MAX_VALUE;
+      for (int v = t; v != s; v = heads[parentArc[v] ^ 1]) {
+        delta = Math.min(delta, residuals[parentArc[v]]);
+      }
+      for (int v = t; v != s; v = heads[parentArc[v] ^ 1]) {
+        residuals[parentArc[v]] -= delta;
+        residuals[parentArc[v] ^ 1] += delta;
+      }
+      total += delta;
+    }
+  }
+
+  /** Returns the cost of residual arc a - the negation of its edge's cost for a reverse arc */
+  private int arcCost(int a) {
+    return (a & 1) == 0 ? costs[a >> 1] : -costs[a >> 1];
+  }
+
+  /**
+   * Returns the distance of every vertex from s in the residual network of the zero flow,
+   * or 0 for vertices s can't reach. Uses a queue based Bellman-Ford, if any edge with
+   * positive capacity has a negative cost.
+   *
+   * @throws IllegalArgumentException - if there is a negative cost cycle reachable from s
+   */
+  private long[] initialPotentials(int s) throws IllegalArgumentException {
+    long[] potential = new long[n];
+    boolean negative = false;
+    for (int e = 0; e < m && !negative; e++) {
+      negative = costs[e] < 0 && capacities[e] > 0 && from[e] != to[e];
+    }
+    if (!negative) return potential;
+
+    Arrays.fill(potential, Long.MAX_VALUE);
+    int[] pathLength = new int[n]; //Arcs on the path to each vertex found so far
+    boolean[] queued = new boolean[n];
+    int[] queue = new int[n]; //Circular - each vertex is in it at most once
+    int head = 0;
+    int size = 1;
+    potential[s] = 0;
+    queue[0] = s;
+    queued[s] = true;
+    while (size > 0) {
+      int v = queue[head];
+      head = (head + 1) % n;
+      size--;
+      queued[v] = false;
+      for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+        int a = arcs[i];
+        int w = heads[a];
+        if (residuals[a] > 0 && potential[v] + arcCost(a) < potential[w]) {
+          potential[w] = potential[v] + arcCost(a);
+          pathLength[w] = pathLength[v] + 1;
+          if (pathLength[w] >= n)
+            throw new IllegalArgumentException("Network has a negative cost cycle reachable from " + s);
+          if (!queued[w]) {
+            queue[(head + size) % n] = w;
+            size++;
+            queued[w] = true;
+          }
+        }
+      }
+    }
+    for (int v = 0; v < n; v++) {
+      if (potential[v] == Long.MAX_VALUE) potential[v] = 0;
+    }
+    return potential;
+  }
+
+  /**
+   * The state of one run of highest-label push-relabel. Phases are run towards a target,
+   * with an origin whose label is fixed at n: first from s to t, then from t back to s.
+   */
+  private class PushRelabel {
+    private final int s;
+    private final int t;
+
+    private final long[] excess = new long[n];
+    private final int[] label = new int[n];
+    private final int[] current = new int[n];
+
+    //Active vertices (excess > 0, label < n) by label, as singly linked stacks
+    private final int[] activeHead = new int[n];
+    private final int[] activeNext = new int[n];
+    private int maxActive;
+
+    //Every vertex with label < n, by label, as doubly linked lists - for the gap heuristic
+    private final int[] bucketHead = new int[n];
+    private final int[] bucketNext = new int[n];
+    private final int[] bucketPrev = new int[n];
+    private int maxLabel;
+
+    private final int[] queue = new int[n];
+
+    private int target;
+    private int origin;
+
+    /** Work (arc scans) since the last global relabel */
+    private long work;
+    private final long relabelThreshold;
+
+    private PushRelabel(int s, int t) {
+      this.s = s;
+      this.t = t;
+      relabelThreshold = 6L * n + arcs.length;
+    }
+
+    private long run() {
+      //Saturate the arcs leaving s
+      for (int i = arcOffsets[s]; i < arcOffsets[s + 1]; i++) {
+        int a = arcs[i];
+        int delta = residuals[a];
+        if (delta > 0) {
+          residuals[a] = 0;
+          residuals[a ^ 1] += delta;
+          excess[s] -= delta;
+          excess[heads[a]] += delta;
+        }
+      }
+      phase(t, s);
+      //Every vertex still holding excess can reach s, and nothing it pushes can reach t
+      phase(s, t);
+      return excess[t];
+    }
+
+    /** Pushes excess towards target until no vertex other than origin and target has any */
+    private void phase(int target, int origin) {
+      this.target = target;
+      this.origin = origin;
+      globalRelabel();
+      while (maxActive >= 0) {
+        int v = activeHead[maxActive];
+        if (v < 0) {
+          maxActive--;
+          continue;
+        }
+        activeHead[maxActive] = activeNext[v];
+        if (label[v] != maxActive) continue; //Lifted by a gap since it was activated
+        discharge(v);
+        if (work > relabelThreshold) globalRelabel();
+      }
+    }
+
+    /**
+     * Sets every label to the exact residual distance to target, or n if target can't be
+     * reached, and rebuilds the buckets
+     */
+    private void globalRelabel() {
+      work = 0;
+      Arrays.fill(label, n);
+      Arrays.fill(activeHead, -1);
+      Arrays.fill(bucketHead, -1);
+      maxActive = -1;
+      maxLabel = 0;
+      int head = 0;
+      int tail = 0;
+      label[target] = 0;
+      queue[tail++] = target;
+      while (head < tail) {
+        int v = queue[head++];
+        for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+          int a = arcs[i];
+          int w = heads[a];
+          if (label[w] == n && w != origin && residuals[a ^ 1] > 0) {
+            label[w] = label[v] + 1;
+            queue[tail++] = w;
+          }
+        }
+      }
+      for (int i = 0; i < tail; i++) {
+        int v = queue[i];
+        current[v] = arcOffsets[v];
+      }
+      for (int i = tail - 1; i >= 0; i--) {
+        int v = queue[i];
+        addToBucket(v);
+        if (excess[v] > 0 && v != target) activate(v);
+      }
+    }
+
+    private void activate(int v) {
+      int l = label[v];
+      activeNext[v] = activeHead[l];
+      activeHead[l] = v;
+      if (l > maxActive) maxActive = l;
+    }
+
+    private void addToBucket(int v) {
+      int l = label[v];
+      int next = bucketHead[l];
+      bucketNext[v] = next;
+      bucketPrev[v] = -1;
+      if (next >= 0) bucketPrev[next] = v;
+      bucketHead[l] = v;
+      if (l > maxLabel) maxLabel = l;
+    }
+
+    private void removeFromBucket(int v) {
+      int next = bucketNext[v];
+      int prev = bucketPrev[v];
+      if (prev >= 0) bucketNext[prev] = next;
+      else bucketHead[label[v]] = next;
+      if (next >= 0) bucketPrev[next] = prev;
+    }
+
+    /** Pushes all of the excess of v along admissible arcs, relabeling v as needed */
+    private void discharge(int v) {
+      while (true) {
+        int end = arcOffsets[v + 1];
+        int i = current[v];
+        int l = label[v] - 1;
+        for (; i < end; i++) {
+          int a = arcs[i];
+          int w = heads[a];
+          int r = residuals[a];
+          if (r > 0 && label[w] == l) {
+            int delta = (int) Math.min(excess[v], r);
+            residuals[a] = r - delta;
+            residuals[a ^ 1] += delta;
+            if (excess[w] == 0 && w != target && w != origin) activate(w);
+            excess[w] += delta;
+            excess[v] -= delta;
+            if (excess[v] == 0) {
+              current[v] = i;
+              work += i - arcOffsets[v];
+              return;
+            }
+          }
+        }
+        work += end - arcOffsets[v];
+        if (!relabel(v)) return;
+      }
+    }
+
+    /**
+     * Lifts v to one more than its lowest residual neighbor. If v was the last vertex with
+     * its label, lifts v and every vertex above it to n instead.
+     *
+     * @return true iff v is still below n, so can keep discharging
+     */
+    private boolean relabel(int v) {
+      int old = label[v];
+      removeFromBucket(v);
+      if (bucketHead[old] < 0) {
+        //Gap - nothing above old can reach target any more
+        for (int l = old + 1; l <= maxLabel; l++) {
+          for (int u = bucketHead[l]; u >= 0; u = bucketNext[u]) {
+            label[u] = n;
+          }
+          bucketHead[l] = -1;
+        }
+        label[v] = n;
+        maxLabel = old - 1;
+        return false;
+      }
+      int min = n;
+      int minSlot = arcOffsets[v];
+      for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+        int a = arcs[i];
+        if (residuals[a] > 0 && label[heads[a]] < min) {
+          min = label[heads[a]];
+          minSlot = i;
+        }
+      }
+      label[v] = Math.min(min + 1, n);
+      if (label[v] == n) return false;
+      current[v] = minSlot;
+      addToBucket(v);
+      return true;
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package graph;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import common.dataStructures.LongObjectMap;
 import common.dataStructures.NotInCollectionException;
 import common.types.Tuple;
 import common.types.Tuple2;
@@ -28,6 +30,7 @@ public class Graph<V, E> implements Cloneable {
     protected HashMap<E, Edge> outEdges;
     protected HashMap<E, Edge> inEdges;
     public final V v;
+    private int id; //Key of this vertex in the connection index. Assigned by addVertex
 
     protected Vertex(V v) {
       this.v = v;
@@ -235,6 +238,37 @@ public class Graph<V, E> implements Cloneable {
       return graph.isConnected(source, sink);
     }
 
+    /**
+     * Not Supported by UnmodifiableGraph.
+     *
+     * @throws UnsupportedOperationException Always
+     */
+    @Override
+    public void setConnectionIndex(boolean on) {
+      throw new UnsupportedOperationException("Can't Modify UnmodifiableGraph");
+    }
+
+    @Override
+    public boolean hasConnectionIndex() {
+      return graph.hasConnectionIndex();
+    }
+
+    /** Adds listener to the underlying graph, as this view changes exactly when it does */
+    @Override
+    public void addListener(GraphListener<? super V, ? super E> listener) {
+      graph.addListener(listener);
+    }
+
+    @Override
+    public boolean removeListener(GraphListener<? super V, ? super E> listener) {
+      return graph.removeListener(listener);
+    }
+
+    @Override
+    public void edgeChanged(E e) {
+      graph.edgeChanged(e);
+    }
+
     @Override
     public V getOther(E e, V oneEnd) {
       return graph.getOther(e, oneEnd);
@@ -305,6 +339,16 @@ public class Graph<V, E> implements Cloneable {
       return graph.neighborsOf(v);
     }
 
+    @Override
+    public void forEachOutEdge(V source, Consumer<? super E> action) {
+      graph.forEachOutEdge(source, action);
+    }
+
+    @Override
+    public void forEachNeighbor(V v, Consumer<? super V> action) {
+      graph.forEachNeighbor(v, action);
+    }
+
   }
 
   private boolean directed;
@@ -312,6 +356,13 @@ public class Graph<V, E> implements Cloneable {
   protected HashMap<E, Edge> edges;
   protected UnmodifiableGraph unmodifiableGraph;
 
+  /** Map of (source id, sink id) to the edge between them, or null if connections aren't indexed */
+  private LongObjectMap<E> connections;
+  private int nextVertexId;
+
+  /** Listeners to changes to this graph, or null if none have been added */
+  private ArrayList<GraphListener<? super V, ? super E>> listeners;
+
   /**
    * Constructs a new graph from the given adjacency list
    * Uses the edgeCreator to create new edges for each connection
@@ -403,12 +454,18 @@ public class Graph<V, E> implements Cloneable {
    */
   public Graph(Graph<? extends V, ? extends E> g) {
     this(g.directed);
+    if (g.hasConnectionIndex())
+      setConnectionIndex(true);
     for (V v : g.vertexSet()) {
       addVertex(v);
     }
-    for (E e : g.edgeSet()) {
-      Graph<? extends V, ? extends E>.Edge edge = g.edges.get(e);
-      addEdge(edge.getSource().v, edge.getSink().v, e);
+    copyEdges(g);
+  }
+
+  /** Adds each edge of g to this. Goes through g's public methods, so g may be any subclass */
+  private <V2 extends V, E2 extends E> void copyEdges(Graph<V2, E2> g) {
+    for (E2 e : g.edgeSet()) {
+      addEdge(g.sourceOf(e), g.sinkOf(e), e);
     }
   }
 
@@ -437,6 +494,15 @@ public class Graph<V, E> implements Cloneable {
     return unmodifiableGraph;
   }
 
+  /**
+   * Returns an immutable compressed sparse row snapshot of the current state of this
+   * graph, for fast repeated traversal. Later changes to this graph are not reflected
+   * in the snapshot.
+   */
+  public GraphSnapshot<V, E> snapshot() {
+    return new GraphSnapshot<>(this);
+  }
+
   /**
    * Two graphs are equivalent if they store the same vertices and edges,
    * and are the same directionality (both directed, or both undirected)
@@ -455,10 +521,11 @@ public class Graph<V, E> implements Cloneable {
   }
 
   /**
-   * Hashes a Graph based on its vertices, edges, and directed-ness
+   * Hashes a Graph based on its vertices, edges, and directed-ness.
+   * Consistent with equals, so equal graphs of different classes hash the same.
    */
   public int hashCode() {
-    return Objects.hash(directed, vertices, edges);
+    return Objects.hash(isDirected(), vertexSet(), edgeSet());
   }
 
   /**
@@ -541,7 +608,11 @@ public class Graph<V, E> implements Cloneable {
     if (vertices.containsKey(v))
       return false;
 
-    vertices.put(v, new Vertex(v));
+    Vertex vertex = new Vertex(v);
+    vertex.id = nextVertexId++;
+    vertices.put(v, vertex);
+    if (hasListeners())
+      fire(l -> l.vertexAdded(v));
     return true;
   }
 
@@ -570,6 +641,10 @@ public class Graph<V, E> implements Cloneable {
     edges.put(e, edge);
     sourceV.outEdges.put(e, edge);
     sinkV.inEdges.put(e, edge);
+    if (connections != null)
+      connections.put(connectionKey(sourceV, sinkV), e);
+    if (hasListeners())
+      fire(l -> l.edgeAdded(source, sink, e));
     return true;
   }
 
@@ -582,14 +657,16 @@ public class Graph<V, E> implements Cloneable {
       return false;
 
     Vertex vertex = vertices.get(v);
-    //Remove all connections to/from v
-    for (E e : vertex.inEdges.keySet())
+    //Remove all connections to/from v. removeEdge alters the maps, so iterate over copies
+    for (E e : new ArrayList<>(vertex.inEdges.keySet()))
       removeEdge(e);
-    for (E e : vertex.outEdges.keySet())
+    for (E e : new ArrayList<>(vertex.outEdges.keySet()))
       removeEdge(e);
 
     //Actually remove the vertex
     vertices.remove(v);
+    if (hasListeners())
+      fire(l -> l.vertexRemoved(v));
     return true;
   }
 
@@ -608,6 +685,10 @@ public class Graph<V, E> implements Cloneable {
     source.outEdges.remove(e);
     sink.inEdges.remove(e);
     edges.remove(e);
+    if (connections != null)
+      connections.remove(connectionKey(source, sink));
+    if (hasListeners())
+      fire(l -> l.edgeRemoved(source.v, sink.v, e));
     return true;
   }
 
@@ -617,6 +698,10 @@ public class Graph<V, E> implements Cloneable {
   public void clear() {
     vertices.clear();
     edges.clear();
+    if (connections != null)
+      connections.clear();
+    if (hasListeners())
+      fire(GraphListener::graphCleared);
   }
 
   /**
@@ -632,6 +717,12 @@ public class Graph<V, E> implements Cloneable {
 
     Vertex sourceV = vertices.get(source);
     Vertex sinkV = vertices.get(sink);
+    if (connections != null) {
+      E e = connections.get(connectionKey(sourceV, sinkV));
+      if (e == null && !directed)
+        e = connections.get(connectionKey(sinkV, sourceV));
+      return e;
+    }
     for (E e : sourceV.outEdges.keySet()) {
       if (sinkV.inEdges.containsKey(e)) {
         return e;
@@ -658,6 +749,90 @@ public class Graph<V, E> implements Cloneable {
     return getConnection(source, sink) != null;
   }
 
+  /**
+   * Turns the connection index on or off. While on, this graph keeps a map from each
+   * (source, sink) pair to the edge between them, updated on every addEdge and removeEdge,
+   * so getConnection and isConnected (and so addEdge) take one hash probe instead of a scan
+   * of the source's edges. This costs an extra map entry per edge, so it's worth it for
+   * lookup heavy work on vertices of high degree.
+   * <br><br>
+   * Turning it on builds the index from the current edges in O(edgeSize()).
+   * It is off for new graphs, and copies of a graph have it on iff the original does.
+   */
+  public void setConnectionIndex(boolean on) {
+    if (!on) {
+      connections = null;
+    } else if (connections == null) {
+      connections = new LongObjectMap<>(edges.size());
+      for (Edge edge : edges.values()) {
+        connections.put(connectionKey(edge.getSource(), edge.getSink()), edge._2);
+      }
+    }
+  }
+
+  /**
+   * Returns true iff the connection index is on. See {@link #setConnectionIndex(boolean)}.
+   */
+  public boolean hasConnectionIndex() {
+    return connections != null;
+  }
+
+  /**
+   * Adds a listener to this graph, which will be told of each change to it from now on.
+   * Copies of this graph don't have its listeners.
+   * See {@link GraphListener} for when each of its methods is called.
+   */
+  public void addListener(GraphListener<? super V, ? super E> listener) {
+    if (listeners == null)
+      listeners = new ArrayList<>();
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes the given listener from this graph.
+   * Returns true if it was removed this way, false if it wasn't listening to this graph.
+   */
+  public boolean removeListener(GraphListener<? super V, ? super E> listener) {
+    if (listeners == null || !listeners.remove(listener))
+      return false;
+    if (listeners.isEmpty())
+      listeners = null;
+    return true;
+  }
+
+  /**
+   * Tells the listeners of this graph that e has changed in place, for example that its
+   * weight has changed. The graph itself can't see such changes, so this should be called
+   * after each one that listeners may care about.
+   *
+   * @throws NotInCollectionException if e isn't an edge in this graph
+   */
+  public void edgeChanged(E e) throws NotInCollectionException {
+    V source = sourceOf(e);
+    V sink = sinkOf(e);
+    if (hasListeners())
+      fire(l -> l.edgeChanged(source, sink, e));
+  }
+
+  /** Returns true iff this graph has any listeners. Check before building an event to fire */
+  protected boolean hasListeners() {
+    return listeners != null;
+  }
+
+  /** Calls event on each listener of this graph, in the order they were added */
+  protected void fire(Consumer<GraphListener<? super V, ? super E>> event) {
+    if (listeners == null) return;
+    //Copy, so listeners can remove themselves while being told of an event
+    for (GraphListener<? super V, ? super E> listener : new ArrayList<>(listeners)) {
+      event.accept(listener);
+    }
+  }
+
+  /** Returns the key of the connection from source to sink in connections */
+  private static long connectionKey(Graph<?, ?>.Vertex source, Graph<?, ?>.Vertex sink) {
+    return ((long) source.id << 32) | (sink.id & 0xFFFFFFFFL);
+  }
+
   /**
    * Returns the vertex at the other end of the given edge.
    * Returns null if oneEnd is neither end of e.
@@ -869,6 +1044,45 @@ public class Graph<V, E> implements Cloneable {
     return neighbors;
   }
 
+  /**
+   * Calls action on each edge with source as its source - or, if this graph is undirected,
+   * on each edge with source as an endpoint. The same edges as edgeSetOfSource(source), but
+   * without copying them into a new set.
+   *
+   * @throws NotInCollectionException if source is not in this graph
+   */
+  public void forEachOutEdge(V source, Consumer<? super E> action) throws NotInCollectionException {
+    if (!vertices.containsKey(source))
+      throw new NotInCollectionException("Can't iterate over out edges", source);
+    Vertex vertex = vertices.get(source);
+    vertex.outEdges.keySet().forEach(action);
+    if (!directed) {
+      for (Edge e : vertex.inEdges.values()) {
+        if (e.getSource() != vertex) action.accept(e._2);
+      }
+    }
+  }
+
+  /**
+   * Calls action on each neighbor of v, as defined in {@link #neighborsOf(Object)}, once
+   * for each edge to it, without copying them into a new set.
+   *
+   * @throws NotInCollectionException if v is not in this graph
+   */
+  public void forEachNeighbor(V v, Consumer<? super V> action) throws NotInCollectionException {
+    if (!vertices.containsKey(v))
+      throw new NotInCollectionException("Can't iterate over neighbors", v);
+    Vertex vertex = vertices.get(v);
+    for (Edge e : vertex.outEdges.values()) {
+      action.accept(e.getSink().v);
+    }
+    if (!directed) {
+      for (Edge e : vertex.inEdges.values()) {
+        if (e.getSource() != vertex) action.accept(e.getSource().v);
+      }
+    }
+  }
+
   /**
    * Returns all vertices that are shared neighbors of v1 and v2.
    */
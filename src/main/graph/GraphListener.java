@@ -0,0 +1,39 @@
+package graph;
+
+/**
+ * A listener for changes to a {@link Graph}. See {@link Graph#addListener(GraphListener)}.
+ * <br><br>
+ * Each method is called synchronously, after the change has been made, so the graph
+ * already reflects it - a removed edge is no longer in the graph, so its endpoints are
+ * passed along with it. Removing a vertex first removes each of its edges, calling
+ * edgeRemoved for each, and then calls vertexRemoved. Listeners are called in the order
+ * they were added. All methods do nothing by default.
+ *
+ * @param <V> Generic type representing vertices
+ * @param <E> Generic type representing edges
+ * @author Mshnik
+ */
+public interface GraphListener<V, E> {
+
+  /** Called after v is added to the graph */
+  default void vertexAdded(V v) {}
+
+  /** Called after v, which no longer has any edges, is removed from the graph */
+  default void vertexRemoved(V v) {}
+
+  /** Called after e is added to the graph, from source to sink */
+  default void edgeAdded(V source, V sink, E e) {}
+
+  /** Called after e, which went from source to sink, is removed from the graph */
+  default void edgeRemoved(V source, V sink, E e) {}
+
+  /**
+   * Called when e, which goes from source to sink, has changed in place - for example its
+   * weight. The graph can't see such changes, so this is only called through
+   * {@link Graph#edgeChanged(Object)}.
+   */
+  default void edgeChanged(V source, V sink, E e) {}
+
+  /** Called after the graph is cleared. No other methods are called for the removed elements */
+  default void graphCleared() {}
+}
@@ -0,0 +1,389 @@
+package graph;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable snapshot of a Graph in compressed sparse row (CSR) form.
+ * <br><br>
+ * Each vertex is given a dense index in [0, vertexCount()), and each edge an id in
+ * [0, edgeCount()). The arcs leaving vertex v are stored contiguously in flat int arrays,
+ * at slots outStart(v) (inclusive) to outEnd(v) (exclusive): target(slot) is the vertex at
+ * the other end of the arc, outEdge(slot) is the id of its edge and outWeight(slot) its weight.
+ * The arcs entering each vertex are stored the same way, so searches can run backwards too.
+ * In an undirected snapshot every edge is an arc in both directions (a self edge only once),
+ * and the in arcs of a vertex are its out arcs.
+ * <br><br>
+ * If every edge is Weighted, weights are copied into primitive arrays - likewise for
+ * Flowable and capacities - so traversals never touch the edge objects or hash anything.
+ * This takes a small fraction of the memory of the Graph it was taken from, and changes to
+ * that Graph are not reflected in the snapshot. See {@link graph.Graph#snapshot()}.
+ *
+ * @param <V> - the vertex type
+ * @param <E> - the edge type
+ * @author Mshnik
+ */
+public class GraphSnapshot<V, E> {
+
+  private final boolean directed;
+
+  private final Object[] vertices; //index -> V
+  private final HashMap<V, Integer> indices; //V -> index
+  private final Object[] edges; //edge id -> E
+  private final int[] edgeSources;
+  private final int[] edgeSinks;
+
+  //Out arcs of v are at slots outOffsets[v] .. outOffsets[v+1]-1
+  final int[] outOffsets;
+  final int[] outTargets;
+  final int[] outEdges;
+  final int[] outWeights; //null if not weighted
+
+  //In arcs of v are at slots inOffsets[v] .. inOffsets[v+1]-1. Same arrays as out if undirected
+  final int[] inOffsets;
+  final int[] inSources;
+  final int[] inEdges;
+  final int[] inWeights; //null if not weighted
+
+  //By edge id. Null if any edge isn't Weighted / Flowable
+  final int[] weights;
+  final int[] capacities;
+
+  /** The smallest edge weight, or Integer.MAX_VALUE if there are no edges or weights */
+  final int minWeight;
+
+  /** A workspace left by the last search to finish, for the next one to reuse. May be null */
+  private final AtomicReference<SearchWorkspace> spareWorkspace = new AtomicReference<>();
+
+  /**
+   * Constructs a snapshot of the current state of g
+   */
+  public GraphSnapshot(Graph<V, E> g) {
+    directed = g.isDirected();
+
+    Set<V> vertexSet = g.vertexSet();
+    int n = vertexSet.size();
+    vertices = new Object[n];
+    indices = new HashMap<>(n * 2);
+    int i = 0;
+    for (V v : vertexSet) {
+      vertices[i] = v;
+      indices.put(v, i);
+      i++;
+    }
+
+    Set<E> edgeSet = g.edgeSet();
+    int m = edgeSet.size();
+    edges = new Object[m];
+    edgeSources = new int[m];
+    edgeSinks = new int[m];
+    boolean weighted = true;
+    boolean flowable = true;
+    int id = 0;
+    for (E e : edgeSet) {
+      edges[id] = e;
+      edgeSources[id] = indices.get(g.sourceOf(e));
+      edgeSinks[id] = indices.get(g.sinkOf(e));
+      weighted &= e instanceof Weighted;
+      flowable &= e instanceof Flowable;
+      id++;
+    }
+    int min = Integer.MAX_VALUE;
+    if (weighted) {
+      weights = new int[m];
+      for (id = 0; id < m; id++) {
+        weights[id] = ((Weighted) edges[id]).getWeight();
+        min = Math.min(min, weights[id]);
+      }
+    } else {
+      weights = null;
+    }
+    minWeight = min;
+    if (flowable) {
+      capacities = new int[m];
+      for (id = 0; id < m; id++) {
+        capacities[id] = ((Flowable) edges[id]).getCapacity();
+      }
+    } else {
+      capacities = null;
+    }
+
+    if (directed) {
+      outOffsets = new int[n + 1];
+      outTargets = new int[m];
+      outEdges = new int[m];
+      fill(outOffsets, outTargets, outEdges, edgeSources, edgeSinks, false);
+      inOffsets = new int[n + 1];
+      inSources = new int[m];
+      inEdges = new int[m];
+      fill(inOffsets, inSources, inEdges, edgeSinks, edgeSources, false);
+      outWeights = slotWeights(outEdges);
+      inWeights = slotWeights(inEdges);
+    } else {
+      int arcs = 2 * m;
+      for (id = 0; id < m; id++) {
+        if (edgeSources[id] == edgeSinks[id]) arcs--;
+      }
+      outOffsets = new int[n + 1];
+      outTargets = new int[arcs];
+      outEdges = new int[arcs];
+      fill(outOffsets, outTargets, outEdges, edgeSources, edgeSinks, true);
+      inOffsets = outOffsets;
+      inSources = outTargets;
+      inEdges = outEdges;
+      outWeights = slotWeights(outEdges);
+      inWeights = outWeights;
+    }
+  }
+
+  /**
+   * Counting sorts the edges by from into offsets/others/ids. If both, also adds each
+   * non-self edge as an arc from its to end.
+   */
+  private void fill(int[] offsets, int[] others, int[] ids, int[] from, int[] to, boolean both) {
+    for (int id = 0; id < from.length; id++) {
+      offsets[from[id] + 1]++;
+      if (both && from[id] != to[id]) offsets[to[id] + 1]++;
+    }
+    for (int v = 0; v < offsets.length - 1; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+    int[] next = new int[offsets.length - 1];
+    System.arraycopy(offsets, 0, next, 0, next.length);
+    for (int id = 0; id < from.length; id++) {
+      int slot = next[from[id]]++;
+      others[slot] = to[id];
+      ids[slot] = id;
+      if (both && from[id] != to[id]) {
+        slot = next[to[id]]++;
+        others[slot] = from[id];
+        ids[slot] = id;
+      }
+    }
+  }
+
+  /** Returns the weight of the edge at each slot, or null if this isn't weighted */
+  private int[] slotWeights(int[] slotEdges) {
+    if (weights == null) return null;
+    int[] w = new int[slotEdges.length];
+    for (int slot = 0; slot < w.length; slot++) {
+      w[slot] = weights[slotEdges[slot]];
+    }
+    return w;
+  }
+
+  /**
+   * Returns true iff the graph this is a snapshot of is directed
+   */
+  public boolean isDirected() {
+    return directed;
+  }
+
+  /**
+   * Returns the number of vertices in this snapshot
+   */
+  public int vertexCount() {
+    return vertices.length;
+  }
+
+  /**
+   * Returns the number of edges in this snapshot
+   */
+  public int edgeCount() {
+    return edges.length;
+  }
+
+  /**
+   * Returns the vertex with the given index
+   */
+  @SuppressWarnings("unchecked")
+  public V vertex(int index) {
+    return (V) vertices[index];
+  }
+
+  /**
+   * Returns the index of v, or -1 if v isn't in this snapshot
+   */
+  public int indexOf(V v) {
+    Integer i = indices.get(v);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * Returns the edge with the given id
+   */
+  @SuppressWarnings("unchecked")
+  public E edge(int id) {
+    return (E) edges[id];
+  }
+
+  /**
+   * Returns the index of the source of the edge with the given id
+   */
+  public int edgeSource(int id) {
+    return edgeSources[id];
+  }
+
+  /**
+   * Returns the index of the sink of the edge with the given id
+   */
+  public int edgeSink(int id) {
+    return edgeSinks[id];
+  }
+
+  /**
+   * Returns true iff every edge is Weighted, so weights are available
+   */
+  public boolean isWeighted() {
+    return weights != null;
+  }
+
+  /**
+   * Returns true iff every edge is Flowable, so capacities are available
+   */
+  public boolean isFlowable() {
+    return capacities != null;
+  }
+
+  /**
+   * Returns the weight of the edge with the given id
+   *
+   * @throws UnsupportedOperationException - if this snapshot isn't weighted
+   */
+  public int weight(int id) throws UnsupportedOperationException {
+    if (weights == null) throw new UnsupportedOperationException("Not every edge is Weighted");
+    return weights[id];
+  }
+
+  /**
+   * Returns the capacity of the edge with the given id
+   *
+   * @throws UnsupportedOperationException - if this snapshot isn't flowable
+   */
+  public int capacity(int id) throws UnsupportedOperationException {
+    if (capacities == null) throw new UnsupportedOperationException("Not every edge is Flowable");
+    return capacities[id];
+  }
+
+  /**
+   * Returns the first slot of the arcs leaving vertex v
+   */
+  public int outStart(int v) {
+    return outOffsets[v];
+  }
+
+  /**
+   * Returns one past the last slot of the arcs leaving vertex v
+   */
+  public int outEnd(int v) {
+    return outOffsets[v + 1];
+  }
+
+  /**
+   * Returns the number of arcs leaving vertex v
+   */
+  public int outDegree(int v) {
+    return outOffsets[v + 1] - outOffsets[v];
+  }
+
+  /**
+   * Returns the vertex the out arc at slot points to
+   */
+  public int target(int slot) {
+    return outTargets[slot];
+  }
+
+  /**
+   * Returns the id of the edge of the out arc at slot
+   */
+  public int outEdge(int slot) {
+    return outEdges[slot];
+  }
+
+  /**
+   * Returns the weight of the out arc at slot
+   *
+   * @throws UnsupportedOperationException - if this snapshot isn't weighted
+   */
+  public int outWeight(int slot) throws UnsupportedOperationException {
+    if (outWeights == null) throw new UnsupportedOperationException("Not every edge is Weighted");
+    return outWeights[slot];
+  }
+
+  /**
+   * Returns the first slot of the arcs entering vertex v
+   */
+  public int inStart(int v) {
+    return inOffsets[v];
+  }
+
+  /**
+   * Returns one past the last slot of the arcs entering vertex v
+   */
+  public int inEnd(int v) {
+    return inOffsets[v + 1];
+  }
+
+  /**
+   * Returns the number of arcs entering vertex v
+   */
+  public int inDegree(int v) {
+    return inOffsets[v + 1] - inOffsets[v];
+  }
+
+  /**
+   * Returns the vertex the in arc at slot comes from
+   */
+  public int source(int slot) {
+    return inSources[slot];
+  }
+
+  /**
+   * Returns the id of the edge of the in arc at slot
+   */
+  public int inEdge(int slot) {
+    return inEdges[slot];
+  }
+
+  /**
+   * Returns the weight of the in arc at slot
+   *
+   * @throws UnsupportedOperationException - if this snapshot isn't weighted
+   */
+  public int inWeight(int slot) throws UnsupportedOperationException {
+    if (inWeights == null) throw new UnsupportedOperationException("Not every edge is Weighted");
+    return inWeights[slot];
+  }
+
+  /**
+   * Calls action on the index of the target of each arc leaving v
+   */
+  public void forEachNeighbor(int v, IntConsumer action) {
+    for (int slot = outOffsets[v]; slot < outOffsets[v + 1]; slot++) {
+      action.accept(outTargets[slot]);
+    }
+  }
+
+  /**
+   * Returns a search workspace for this snapshot, reusing the one the last search returned
+   * if there is one. Concurrent searches each get their own. Give it back with
+   * {@link #returnWorkspace(SearchWorkspace)} when done.
+   */
+  SearchWorkspace takeWorkspace() {
+    SearchWorkspace w = spareWorkspace.getAndSet(null);
+    return w != null ? w : new SearchWorkspace(vertices.length);
+  }
+
+  /** Makes w, which must have come from takeWorkspace(), available to the next search */
+  void returnWorkspace(SearchWorkspace w) {
+    spareWorkspace.set(w);
+  }
+
+  @Override
+  public String toString() {
+    return "GraphSnapshot(" + vertices.length + " vertices, " + edges.length + " edges"
+        + (directed ? ", directed)" : ", undirected)");
+  }
+}
@@ -0,0 +1,740 @@
+package graph;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import common.dataStructures.LongObjectMap;
+import common.dataStructures.NotInCollectionException;
+import common.types.Tuple;
+import common.types.Tuple2;
+
+/**
+ * A Graph that stores its structure in flat int arrays instead of per-vertex HashMaps.
+ * <br><br>
+ * Every vertex and edge is given a dense int id: vertex ids are always [0, vertexSize()), and
+ * edge ids [0, edgeSize()). The only hashing is the two maps from V and E to their ids, which
+ * the Graph API goes through; the int based methods (vertexId, outEdge, forEachNeighbor(int,
+ * IntConsumer), ...) use ids directly and never allocate. Each vertex's out and in edges are
+ * growable int arrays of edge ids, allocated on its first edge, so a vertex with no edges
+ * costs only its map entry and a few array slots. Each edge stores its position in both of
+ * those arrays, so removing it is O(1).
+ * <br><br>
+ * Removing a vertex or edge gives its id to the last vertex or edge, keeping ids dense, so ids
+ * are only stable between removals. vertexSet and edgeSet iterate in id order, so the
+ * index of each vertex and edge in a {@link #snapshot()} equals its id here.
+ * <br><br>
+ * All of the public methods of Graph behave the same, except that the protected
+ * getVertex and getEdge build a new Vertex or Edge on every call.
+ *
+ * @param <V> Generic type representing vertices
+ * @param <E> Generic type representing edges
+ * @author Mshnik
+ */
+public class IndexedGraph<V, E> extends Graph<V, E> {
+
+  private static final int[] NO_EDGES = new int[0];
+
+  //By vertex id
+  private final HashMap<V, Integer> vertexIds;
+  private Object[] vertexValues;
+  private int[][] outEdges;
+  private int[] outSizes;
+  private int[][] inEdges;
+  private int[] inSizes;
+  private int vertexCount;
+
+  //By edge id
+  private final HashMap<E, Integer> edgeIds;
+  private Object[] edgeValues;
+  private int[] sources;
+  private int[] sinks;
+  private int[] outPositions; //Index of the edge in outEdges[source]
+  private int[] inPositions; //Index of the edge in inEdges[sink]
+  private int edgeCount;
+
+  //Map of (source id, sink id) to edge id, or null if connections aren't indexed
+  private LongObjectMap<Integer> connections;
+
+  /**
+   * Constructs a new graph that contains no vertices or edges
+   *
+   * @param directed - true if this is a graph of directed edges, false otherwise
+   */
+  public IndexedGraph(boolean directed) {
+    super(directed);
+    //Like UnmodifiableGraph, never use the maps of Graph
+    this.vertices = null;
+    this.edges = null;
+    vertexIds = new HashMap<>();
+    edgeIds = new HashMap<>();
+    clearArrays();
+  }
+
+  /**
+   * Constructs a new graph that contains no vertices or edges
+   * and is directed - Calls {@code IndexedGraph(true)}
+   */
+  public IndexedGraph() {
+    this(true);
+  }
+
+  /**
+   * Constructs a new graph that is a (shallow) copy of the given graph, as in
+   * {@link Graph#Graph(Graph)}. Vertices and edges are given ids in the order of g's
+   * vertexSet and edgeSet, so copying an IndexedGraph keeps all ids.
+   */
+  public IndexedGraph(Graph<? extends V, ? extends E> g) {
+    this(g.isDirected());
+    if (g.hasConnectionIndex())
+      setConnectionIndex(true);
+    copy(g);
+  }
+
+  private <V2 extends V, E2 extends E> void copy(Graph<V2, E2> g) {
+    for (V2 v : g.vertexSet()) {
+      addVertex(v);
+    }
+    for (E2 e : g.edgeSet()) {
+      addEdge(g.sourceOf(e), g.sinkOf(e), e);
+    }
+  }
+
+  private void clearArrays() {
+    vertexValues = new Object[8];
+    outEdges = new int[8][];
+    outSizes = new int[8];
+    inEdges = new int[8][];
+    inSizes = new int[8];
+    vertexCount = 0;
+    edgeValues = new Object[8];
+    sources = new int[8];
+    sinks = new int[8];
+    outPositions = new int[8];
+    inPositions = new int[8];
+    edgeCount = 0;
+  }
+
+  @Override
+  public IndexedGraph<V, E> clone() {
+    return new IndexedGraph<>(this);
+  }
+
+  //region Ids
+
+  /** Returns the id of vertex v, or -1 if v isn't in this graph */
+  public int vertexId(V v) {
+    Integer id = vertexIds.get(v);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Returns the vertex with the given id
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id
+   */
+  @SuppressWarnings("unchecked")
+  public V vertex(int id) throws IllegalArgumentException {
+    checkVertex(id);
+    return (V) vertexValues[id];
+  }
+
+  /** Returns the id of edge e, or -1 if e isn't in this graph */
+  public int edgeId(E e) {
+    Integer id = edgeIds.get(e);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Returns the edge with the given id
+   *
+   * @throws IllegalArgumentException - if there is no edge with that id
+   */
+  @SuppressWarnings("unchecked")
+  public E edge(int id) throws IllegalArgumentException {
+    checkEdge(id);
+    return (E) edgeValues[id];
+  }
+
+  /**
+   * Returns the id of the source of the edge with the given id
+   *
+   * @throws IllegalArgumentException - if there is no edge with that id
+   */
+  public int sourceId(int edge) throws IllegalArgumentException {
+    checkEdge(edge);
+    return sources[edge];
+  }
+
+  /**
+   * Returns the id of the sink of the edge with the given id
+   *
+   * @throws IllegalArgumentException - if there is no edge with that id
+   */
+  public int sinkId(int edge) throws IllegalArgumentException {
+    checkEdge(edge);
+    return sinks[edge];
+  }
+
+  /**
+   * Returns the number of edges with the vertex with the given id as their source
+   * (regardless of whether this graph is directed)
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id
+   */
+  public int outDegree(int vertex) throws IllegalArgumentException {
+    checkVertex(vertex);
+    return outSizes[vertex];
+  }
+
+  /**
+   * Returns the id of the i-th edge with the vertex with the given id as its source, for i
+   * in [0, outDegree(vertex)). Together with outDegree, iterates over out edges without a
+   * callback. The order changes as edges are removed.
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id or i is out of range
+   */
+  public int outEdge(int vertex, int i) throws IllegalArgumentException {
+    checkVertex(vertex);
+    if (i < 0 || i >= outSizes[vertex])
+      throw new IllegalArgumentException("Vertex " + vertex + " has no out edge " + i);
+    return outEdges[vertex][i];
+  }
+
+  /**
+   * Returns the number of edges with the vertex with the given id as their sink
+   * (regardless of whether this graph is directed)
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id
+   */
+  public int inDegree(int vertex) throws IllegalArgumentException {
+    checkVertex(vertex);
+    return inSizes[vertex];
+  }
+
+  /**
+   * Returns the id of the i-th edge with the vertex with the given id as its sink, for i
+   * in [0, inDegree(vertex)). The order changes as edges are removed.
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id or i is out of range
+   */
+  public int inEdge(int vertex, int i) throws IllegalArgumentException {
+    checkVertex(vertex);
+    if (i < 0 || i >= inSizes[vertex])
+      throw new IllegalArgumentException("Vertex " + vertex + " has no in edge " + i);
+    return inEdges[vertex][i];
+  }
+
+  /**
+   * Calls action on the id of each edge out of the vertex with the given id - or, if this
+   * graph is undirected, each edge it is an endpoint of
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id
+   */
+  public void forEachOutEdge(int vertex, IntConsumer action) throws IllegalArgumentException {
+    checkVertex(vertex);
+    int[] out = outEdges[vertex];
+    for (int i = 0; i < outSizes[vertex]; i++) {
+      action.accept(out[i]);
+    }
+    if (!isDirected()) {
+      int[] in = inEdges[vertex];
+      for (int i = 0; i < inSizes[vertex]; i++) {
+        if (sources[in[i]] != vertex) action.accept(in[i]);
+      }
+    }
+  }
+
+  /**
+   * Calls action on the id of the vertex at the other end of each edge given by
+   * {@link #forEachOutEdge(int, IntConsumer)}
+   *
+   * @throws IllegalArgumentException - if there is no vertex with that id
+   */
+  public void forEachNeighbor(int vertex, IntConsumer action) throws IllegalArgumentException {
+    checkVertex(vertex);
+    int[] out = outEdges[vertex];
+    for (int i = 0; i < outSizes[vertex]; i++) {
+      action.accept(sinks[out[i]]);
+    }
+    if (!isDirected()) {
+      int[] in = inEdges[vertex];
+      for (int i = 0; i < inSizes[vertex]; i++) {
+        if (sources[in[i]] != vertex) action.accept(sources[in[i]]);
+      }
+    }
+  }
+
+  private void checkVertex(int id) throws IllegalArgumentException {
+    if (id < 0 || id >= vertexCount)
+      throw new IllegalArgumentException("No vertex with id " + id);
+  }
+
+  private void checkEdge(int id) throws IllegalArgumentException {
+    if (id < 0 || id >= edgeCount)
+      throw new IllegalArgumentException("No edge with id " + id);
+  }
+
+  /** Returns the id of v, throwing a NotInCollectionException with message if it isn't in this */
+  private int idOf(V v, String message) throws NotInCollectionException {
+    Integer id = vertexIds.get(v);
+    if (id == null) throw new NotInCollectionException(message, v);
+    return id;
+  }
+
+  /** Returns the id of e, throwing a NotInCollectionException with message if it isn't in this */
+  private int idOfEdge(E e, String message) throws NotInCollectionException {
+    Integer id = edgeIds.get(e);
+    if (id == null) throw new NotInCollectionException(message, e);
+    return id;
+  }
+
+  //endregion
+
+  //region Graph
+
+  /** Returns a copy of the set of vertices, which iterates in id order */
+  @Override
+  @SuppressWarnings("unchecked")
+  public Set<V> vertexSet() {
+    LinkedHashSet<V> set = new LinkedHashSet<>(vertexCount * 2);
+    for (int v = 0; v < vertexCount; v++) {
+      set.add((V) vertexValues[v]);
+    }
+    return set;
+  }
+
+  @Override
+  public boolean containsVertex(V v) {
+    return vertexIds.containsKey(v);
+  }
+
+  @Override
+  public int vertexSize() {
+    return vertexCount;
+  }
+
+  @Override
+  protected Vertex getVertex(V v) {
+    return vertexIds.containsKey(v) ? new Vertex(v) : null;
+  }
+
+  /** Returns a copy of the set of edges, which iterates in id order */
+  @Override
+  @SuppressWarnings("unchecked")
+  public Set<E> edgeSet() {
+    LinkedHashSet<E> set = new LinkedHashSet<>(edgeCount * 2);
+    for (int e = 0; e < edgeCount; e++) {
+      set.add((E) edgeValues[e]);
+    }
+    return set;
+  }
+
+  @Override
+  public boolean containsEdge(E e) {
+    return edgeIds.containsKey(e);
+  }
+
+  @Override
+  public int edgeSize() {
+    return edgeCount;
+  }
+
+  @Override
+  protected Edge getEdge(E e) {
+    Integer id = edgeIds.get(e);
+    if (id == null) return null;
+    return new Edge(new Vertex(vertex(sources[id])), e, new Vertex(vertex(sinks[id])));
+  }
+
+  @Override
+  public boolean addVertex(V v) {
+    if (vertexIds.containsKey(v))
+      return false;
+
+    if (vertexCount == vertexValues.length) {
+      int capacity = vertexCount * 2;
+      vertexValues = Arrays.copyOf(vertexValues, capacity);
+      outEdges = Arrays.copyOf(outEdges, capacity);
+      outSizes = Arrays.copyOf(outSizes, capacity);
+      inEdges = Arrays.copyOf(inEdges, capacity);
+      inSizes = Arrays.copyOf(inSizes, capacity);
+    }
+    int id = vertexCount++;
+    vertexValues[id] = v;
+    outEdges[id] = NO_EDGES;
+    inEdges[id] = NO_EDGES;
+    outSizes[id] = 0;
+    inSizes[id] = 0;
+    vertexIds.put(v, id);
+    if (hasListeners())
+      fire(l -> l.vertexAdded(v));
+    return true;
+  }
+
+  @Override
+  public boolean addEdge(V source, V sink, E e) throws NotInCollectionException {
+    Integer s = vertexIds.get(source);
+    Integer t = vertexIds.get(sink);
+    if (s == null || t == null)
+      throw new NotInCollectionException("Can't create edge " + e, source, sink);
+    if (edgeIds.containsKey(e))
+      return false;
+    if (connection(s, t) >= 0)
+      return false;
+
+    if (edgeCount == edgeValues.length) {
+      int capacity = edgeCount * 2;
+      edgeValues = Arrays.copyOf(edgeValues, capacity);
+      sources = Arrays.copyOf(sources, capacity);
+      sinks = Arrays.copyOf(sinks, capacity);
+      outPositions = Arrays.copyOf(outPositions, capacity);
+      inPositions = Arrays.copyOf(inPositions, capacity);
+    }
+    int id = edgeCount++;
+    edgeValues[id] = e;
+    sources[id] = s;
+    sinks[id] = t;
+    outPositions[id] = append(outEdges, outSizes, s, id);
+    inPositions[id] = append(inEdges, inSizes, t, id);
+    edgeIds.put(e, id);
+    if (connections != null)
+      connections.put(connectionKey(s, t), id);
+    if (hasListeners())
+      fire(l -> l.edgeAdded(source, sink, e));
+    return true;
+  }
+
+  /** Appends edge to the list of vertex in lists/sizes, growing it if needed. Returns its position */
+  private static int append(int[][] lists, int[] sizes, int vertex, int edge) {
+    int size = sizes[vertex];
+    if (size == lists[vertex].length) {
+      lists[vertex] = Arrays.copyOf(lists[vertex], Math.max(2, size * 2));
+    }
+    lists[vertex][size] = edge;
+    sizes[vertex] = size + 1;
+    return size;
+  }
+
+  @Override
+  public boolean removeVertex(V v) {
+    Integer boxed = vertexIds.get(v);
+    if (boxed == null)
+      return false;
+
+    int id = boxed;
+    while (outSizes[id] > 0) {
+      removeEdge(outEdges[id][outSizes[id] - 1]);
+    }
+    while (inSizes[id] > 0) {
+      removeEdge(inEdges[id][inSizes[id] - 1]);
+    }
+    vertexIds.remove(v);
+
+    //Give the last vertex this id. Its edges now have it as an endpoint
+    int last = --vertexCount;
+    if (id != last) {
+      if (connections != null)
+        unindexEdgesOf(last);
+      vertexValues[id] = vertexValues[last];
+      outEdges[id] = outEdges[last];
+      outSizes[id] = outSizes[last];
+      inEdges[id] = inEdges[last];
+      inSizes[id] = inSizes[last];
+      for (int i = 0; i < outSizes[id]; i++) {
+        sources[outEdges[id][i]] = id;
+      }
+      for (int i = 0; i < inSizes[id]; i++) {
+        sinks[inEdges[id][i]] = id;
+      }
+      if (connections != null)
+        indexEdgesOf(id);
+      @SuppressWarnings("unchecked")
+      V moved = (V) vertexValues[id];
+      vertexIds.put(moved, id);
+    }
+    vertexValues[last] = null;
+    outEdges[last] = null;
+    inEdges[last] = null;
+    if (hasListeners())
+      fire(l -> l.vertexRemoved(v));
+    return true;
+  }
+
+  @Override
+  public boolean removeEdge(E e) {
+    Integer boxed = edgeIds.get(e);
+    if (boxed == null)
+      return false;
+    removeEdge(boxed);
+    return true;
+  }
+
+  /** Removes the edge with the given id, giving the last edge its id */
+  private void removeEdge(int id) {
+    @SuppressWarnings("unchecked")
+    E e = (E) edgeValues[id];
+    V source = hasListeners() ? vertex(sources[id]) : null;
+    V sink = hasListeners() ? vertex(sinks[id]) : null;
+    edgeIds.remove(e);
+    if (connections != null)
+      connections.remove(connectionKey(sources[id], sinks[id]));
+    removeFromList(outEdges, outSizes, outPositions, sources[id], outPositions[id]);
+    removeFromList(inEdges, inSizes, inPositions, sinks[id], inPositions[id]);
+
+    int last = --edgeCount;
+    if (id != last) {
+      edgeValues[id] = edgeValues[last];
+      sources[id] = sources[last];
+      sinks[id] = sinks[last];
+      outPositions[id] = outPositions[last];
+      inPositions[id] = inPositions[last];
+      outEdges[sources[id]][outPositions[id]] = id;
+      inEdges[sinks[id]][inPositions[id]] = id;
+      if (connections != null)
+        connections.put(connectionKey(sources[id], sinks[id]), id);
+      @SuppressWarnings("unchecked")
+      E moved = (E) edgeValues[id];
+      edgeIds.put(moved, id);
+    }
+    edgeValues[last] = null;
+    if (hasListeners())
+      fire(l -> l.edgeRemoved(source, sink, e));
+  }
+
+  /**
+   * Removes the edge at position of vertex's list in lists, moving the list's last edge
+   * into its place and updating that edge's position in positions
+   */
+  private static void removeFromList(int[][] lists, int[] sizes, int[] positions, int vertex, int position) {
+    int[] list = lists[vertex];
+    int last = --sizes[vertex];
+    if (position != last) {
+      list[position] = list[last];
+      positions[list[position]] = position;
+    }
+  }
+
+  @Override
+  public void clear() {
+    vertexIds.clear();
+    edgeIds.clear();
+    clearArrays();
+    if (connections != null)
+      connections.clear();
+    if (hasListeners())
+      fire(GraphListener::graphCleared);
+  }
+
+  @Override
+  public E getConnection(V source, V sink) throws NotInCollectionException {
+    Integer s = vertexIds.get(source);
+    Integer t = vertexIds.get(sink);
+    if (s == null || t == null)
+      throw new NotInCollectionException("Can't check for connection", source, sink);
+    int id = connection(s, t);
+    return id < 0 ? null : edge(id);
+  }
+
+  /**
+   * Returns the id of an edge from s to t (or t to s if this is undirected), or -1 if there
+   * is none. Scans whichever of the two vertices' lists is shorter
+   */
+  private int connection(int s, int t) {
+    if (connections != null) {
+      Integer id = connections.get(connectionKey(s, t));
+      if (id == null && !isDirected())
+        id = connections.get(connectionKey(t, s));
+      return id == null ? -1 : id;
+    }
+    int id = outSizes[s] <= inSizes[t] ? find(outEdges[s], outSizes[s], sinks, t) : find(inEdges[t], inSizes[t], sources, s);
+    if (id >= 0 || isDirected()) return id;
+    return inSizes[s] <= outSizes[t] ? find(inEdges[s], inSizes[s], sources, t) : find(outEdges[t], outSizes[t], sinks, s);
+  }
+
+  /**
+   * Turns the connection index on or off, as in {@link Graph#setConnectionIndex(boolean)}.
+   * The index is keyed by vertex ids, so while it is on, removing a vertex also re-keys
+   * the edges of the vertex that takes its id.
+   */
+  @Override
+  public void setConnectionIndex(boolean on) {
+    if (!on) {
+      connections = null;
+    } else if (connections == null) {
+      connections = new LongObjectMap<>(edgeCount);
+      for (int e = 0; e < edgeCount; e++) {
+        connections.put(connectionKey(sources[e], sinks[e]), e);
+      }
+    }
+  }
+
+  @Override
+  public boolean hasConnectionIndex() {
+    return connections != null;
+  }
+
+  private static long connectionKey(int source, int sink) {
+    return ((long) source << 32) | sink;
+  }
+
+  /** Removes the edges of the vertex with the given id from connections */
+  private void unindexEdgesOf(int vertex) {
+    for (int i = 0; i < outSizes[vertex]; i++) {
+      int e = outEdges[vertex][i];
+      connections.remove(connectionKey(sources[e], sinks[e]));
+    }
+    for (int i = 0; i < inSizes[vertex]; i++) {
+      int e = inEdges[vertex][i];
+      connections.remove(connectionKey(sources[e], sinks[e]));
+    }
+  }
+
+  /** Adds the edges of the vertex with the given id to connections */
+  private void indexEdgesOf(int vertex) {
+    for (int i = 0; i < outSizes[vertex]; i++) {
+      int e = outEdges[vertex][i];
+      connections.put(connectionKey(sources[e], sinks[e]), e);
+    }
+    for (int i = 0; i < inSizes[vertex]; i++) {
+      int e = inEdges[vertex][i];
+      connections.put(connectionKey(sources[e], sinks[e]), e);
+    }
+  }
+
+  /** Returns the first of the size edges in list whose endpoint in ends is v, or -1 */
+  private static int find(int[] list, int size, int[] ends, int v) {
+    for (int i = 0; i < size; i++) {
+      if (ends[list[i]] == v) return list[i];
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean isConnected(V source, V sink) throws NotInCollectionException {
+    return getConnection(source, sink) != null;
+  }
+
+  @Override
+  public V getOther(E e, V oneEnd) throws NotInCollectionException {
+    int id = idOfEdge(e, "Can't find other endpoint of edge");
+    V source = vertex(sources[id]);
+    V sink = vertex(sinks[id]);
+    if (source.equals(oneEnd)) return sink;
+    if (sink.equals(oneEnd)) return source;
+    return null;
+  }
+
+  @Override
+  public Set<E> edgeSetOf(V v) throws NotInCollectionException {
+    int id = idOf(v, "Can't get source and sink set");
+    HashSet<E> set = new HashSet<>();
+    addEdges(set, outEdges[id], outSizes[id]);
+    addEdges(set, inEdges[id], inSizes[id]);
+    return set;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addEdges(Set<E> set, int[] list, int size) {
+    for (int i = 0; i < size; i++) {
+      set.add((E) edgeValues[list[i]]);
+    }
+  }
+
+  @Override
+  public int degreeOf(V v) throws NotInCollectionException {
+    int id = idOf(v, "Can't get degree");
+    return outSizes[id] + inSizes[id];
+  }
+
+  @Override
+  public Set<E> edgeSetOfSource(V source) throws NotInCollectionException {
+    int id = idOf(source, "Can't get source set");
+    if (!isDirected()) return edgeSetOf(source);
+    HashSet<E> set = new HashSet<>();
+    addEdges(set, outEdges[id], outSizes[id]);
+    return set;
+  }
+
+  @Override
+  public int outDegreeOf(V source) throws NotInCollectionException {
+    int id = idOf(source, "Can't get degree");
+    return isDirected() ? outSizes[id] : outSizes[id] + inSizes[id];
+  }
+
+  @Override
+  public Set<E> edgeSetOfSink(V sink) throws NotInCollectionException {
+    int id = idOf(sink, "Can't get sink set");
+    if (!isDirected()) return edgeSetOf(sink);
+    HashSet<E> set = new HashSet<>();
+    addEdges(set, inEdges[id], inSizes[id]);
+    return set;
+  }
+
+  @Override
+  public int inDegreeOf(V sink) throws NotInCollectionException {
+    int id = idOf(sink, "Can't get degree");
+    return isDirected() ? inSizes[id] : outSizes[id] + inSizes[id];
+  }
+
+  @Override
+  public V sourceOf(E e) throws NotInCollectionException {
+    return vertex(sources[idOfEdge(e, "Can't get source of")]);
+  }
+
+  @Override
+  public V sinkOf(E e) throws NotInCollectionException {
+    return vertex(sinks[idOfEdge(e, "Can't get source of")]);
+  }
+
+  @Override
+  public Tuple2<V, V> verticesOf(E e) throws NotInCollectionException {
+    int id = idOfEdge(e, "Can't get verticies of");
+    return Tuple.of(vertex(sources[id]), vertex(sinks[id]));
+  }
+
+  @Override
+  public boolean isSelfEdge(E e) throws NotInCollectionException {
+    int id = idOfEdge(e, "Can't determine if is self edge");
+    return sources[id] == sinks[id];
+  }
+
+  @Override
+  public boolean isEndpointOf(E e, V endpoint) throws NotInCollectionException {
+    int id = idOfEdge(e, "Can't determine if isEndpoint");
+    return endpoint.equals(vertex(sources[id])) || endpoint.equals(vertex(sinks[id]));
+  }
+
+  @Override
+  public V getSharedEndpoint(E e1, E e2) throws NotInCollectionException {
+    Integer id1 = edgeIds.get(e1);
+    Integer id2 = edgeIds.get(e2);
+    if (id1 == null || id2 == null)
+      throw new NotInCollectionException("Can't getSharedEndpoint", e1, e2);
+    int s1 = sources[id1];
+    int t1 = sinks[id1];
+    if (s1 == sources[id2] || s1 == sinks[id2]) return vertex(s1);
+    if (t1 == sources[id2] || t1 == sinks[id2]) return vertex(t1);
+    return null;
+  }
+
+  @Override
+  public Set<V> neighborsOf(V v) throws NotInCollectionException {
+    int id = idOf(v, "Can't get neighbor set");
+    HashSet<V> neighbors = new HashSet<>();
+    forEachNeighbor(id, w -> neighbors.add(vertex(w)));
+    return neighbors;
+  }
+
+  @Override
+  public void forEachOutEdge(V source, Consumer<? super E> action) throws NotInCollectionException {
+    forEachOutEdge(idOf(source, "Can't iterate over out edges"), e -> action.accept(edge(e)));
+  }
+
+  @Override
+  public void forEachNeighbor(V v, Consumer<? super V> action) throws NotInCollectionException {
+    forEachNeighbor(idOf(v, "Can't iterate over neighbors"), w -> action.accept(vertex(w)));
+  }
+
+  //endregion
+}
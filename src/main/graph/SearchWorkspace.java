@@ -0,0 +1,128 @@
+package graph;
+
+import java.util.Arrays;
+
+import common.dataStructures.IndexedHeap;
+
+/**
+ * The per vertex state of the shortest path searches in {@link Algorithm}, kept between
+ * searches of the same {@link GraphSnapshot} so that a search costs time proportional to
+ * the vertices it reaches rather than to the size of the snapshot.
+ * <br><br>
+ * Nothing is cleared between searches. Instead each search has a generation number, and
+ * the state of a vertex is only meaningful if it was stamped with the current generation -
+ * any other vertex is unreached. A workspace holds up to two searches (forward and
+ * backward), the second created the first time it is asked for.
+ * <br><br>
+ * A workspace is used by one search at a time - see {@link GraphSnapshot#takeWorkspace()}.
+ *
+ * @author Mshnik
+ */
+final class SearchWorkspace {
+
+  /** The state of a single search over the vertex indices [0, n) */
+  static final class Search {
+    private final long[] dist;
+    private final int[] parents;
+    private final int[] parentEdges;
+
+    /** Generation in which each vertex was reached / closed. 0 is never a generation */
+    private final int[] reached;
+    private final int[] closed;
+
+    /** Cached heuristic of each vertex, valid if stamped. Created on first use */
+    private long[] estimates;
+    private int[] estimated;
+
+    final IndexedHeap frontier;
+
+    private int generation;
+
+    private Search(int n) {
+      dist = new long[n];
+      parents = new int[n];
+      parentEdges = new int[n];
+      reached = new int[n];
+      closed = new int[n];
+      frontier = new IndexedHeap(n);
+    }
+
+    /** Starts a new search - every vertex becomes unreached and open, and the frontier empty */
+    void reset() {
+      frontier.clear();
+      if (++generation == 0) {
+        //Wrapped around - stamps from 2^32 searches ago would look current
+        Arrays.fill(reached, 0);
+        Arrays.fill(closed, 0);
+        if (estimated != null) Arrays.fill(estimated, 0);
+        generation = 1;
+      }
+    }
+
+    /** Returns the distance to v found so far, or ShortestPathTree.UNREACHABLE */
+    long dist(int v) {
+      return reached[v] == generation ? dist[v] : ShortestPathTree.UNREACHABLE;
+    }
+
+    /** Returns the index of v's parent on the path found so far, or -1 */
+    int parent(int v) {
+      return reached[v] == generation ? parents[v] : -1;
+    }
+
+    /** Returns the id of the edge from v's parent to v, or -1 */
+    int parentEdge(int v) {
+      return reached[v] == generation ? parentEdges[v] : -1;
+    }
+
+    /** Records a path of length d to v, whose last edge is parentEdge from parent */
+    void reach(int v, long d, int parent, int parentEdge) {
+      reached[v] = generation;
+      dist[v] = d;
+      parents[v] = parent;
+      parentEdges[v] = parentEdge;
+    }
+
+    boolean isClosed(int v) {
+      return closed[v] == generation;
+    }
+
+    void close(int v) {
+      closed[v] = generation;
+    }
+
+    void reopen(int v) {
+      closed[v] = 0;
+    }
+
+    /** Returns the cached heuristic of v, or -1 if it hasn't been cached this search */
+    long estimate(int v) {
+      if (estimated == null) {
+        estimates = new long[dist.length];
+        estimated = new int[dist.length];
+      }
+      return estimated[v] == generation ? estimates[v] : -1;
+    }
+
+    /** Caches h as the heuristic of v for this search */
+    void setEstimate(int v, long h) {
+      estimated[v] = generation;
+      estimates[v] = h;
+    }
+  }
+
+  private final int n;
+  private final Search[] searches = new Search[2];
+
+  SearchWorkspace(int n) {
+    this.n = n;
+  }
+
+  /** Returns search i (0 or 1) of this workspace, reset for a new search */
+  Search search(int i) {
+    if (searches[i] == null) {
+      searches[i] = new Search(n);
+    }
+    searches[i].reset();
+    return searches[i];
+  }
+}
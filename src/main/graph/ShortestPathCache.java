@@ -0,0 +1,379 @@
+package graph;
+
+import java.util.*;
+
+import common.dataStructures.NotInCollectionException;
+
+/**
+ * A cache of shortest paths in a Graph that stays correct as the graph changes.
+ * <br><br>
+ * Queries are by (start, goal), but results are kept per start: the first query from a
+ * start runs Dijkstra's algorithm from it once (see
+ * {@link Algorithm#shortestPathTree(Graph, Object)}), and every later query from that start
+ * to any goal is answered from the resulting tree until a change to the graph affects it.
+ * <br><br>
+ * The cache listens to its graph (see {@link GraphListener}) and drops exactly the trees a
+ * change can alter:
+ * <ul>
+ *   <li>Removing an edge, or increasing its weight, only matters to trees that use it.</li>
+ *   <li>Adding an edge from u to v of weight w, or decreasing an edge's weight to w, only
+ *   matters to trees in which dist(u) + w {@literal <} dist(v).</li>
+ *   <li>Removing a vertex drops the tree rooted at it. Its edges are removed first.</li>
+ *   <li>Adding a vertex matters to no tree - it has no edges yet.</li>
+ * </ul>
+ * Weight changes must be reported through {@link Graph#edgeChanged(Object)}, as the graph
+ * can't see them.
+ * <br><br>
+ * In incremental mode, trees affected by an edge insertion or weight decrease are repaired
+ * in place instead of being dropped, in the style of Ramalingam and Reps: only the vertices
+ * whose distance shrinks are visited, by a Dijkstra search seeded with the edge's far end.
+ * Removals and weight increases still drop the trees they affect.
+ * <br><br>
+ * Like Algorithm's shortest path methods, this requires every edge weight to be positive.
+ * This is not thread safe - changes to the graph and queries must not run concurrently.
+ *
+ * @param <V> - the vertex type
+ * @param <E> - the edge type
+ * @author Mshnik
+ */
+public class ShortestPathCache<V, E extends Weighted> implements GraphListener<V, E> {
+
+  /** One vertex of a cached tree */
+  private class Node {
+    private long distance;
+    private V parent; //null for the root
+    private E parentEdge; //null for the root
+
+    private Node(long distance, V parent, E parentEdge) {
+      this.distance = distance;
+      this.parent = parent;
+      this.parentEdge = parentEdge;
+    }
+  }
+
+  private final Graph<V, E> graph;
+  private final boolean incremental;
+
+  /** Start -> (reachable vertex -> its node in the tree of shortest paths from start) */
+  private final HashMap<V, HashMap<V, Node>> trees;
+
+  private long hits;
+  private long misses;
+  private long invalidations;
+  private long repairs;
+
+  /**
+   * Constructs a new, empty cache of shortest paths in g, and starts listening to g.
+   *
+   * @param incremental - true to repair cached trees after edge insertions and weight
+   *                    decreases, false to drop them.
+   */
+  public ShortestPathCache(Graph<V, E> g, boolean incremental) {
+    if (g == null) throw new IllegalArgumentException("Can't cache paths of null graph");
+    graph = g;
+    this.incremental = incremental;
+    trees = new HashMap<>();
+    g.addListener(this);
+  }
+
+  /**
+   * Constructs a new, empty cache of shortest paths in g that drops affected trees on
+   * every change, and starts listening to g. Calls {@code ShortestPathCache(g, false)}.
+   */
+  public ShortestPathCache(Graph<V, E> g) {
+    this(g, false);
+  }
+
+  /** Returns the graph this caches paths in */
+  public Graph<V, E> getGraph() {
+    return graph;
+  }
+
+  /** Returns true iff this repairs trees instead of dropping them when possible */
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Stops listening to the graph and empties this cache. It can't be used afterwards -
+   * call this once it's no longer needed, so the graph doesn't keep it alive.
+   */
+  public void detach() {
+    graph.removeListener(this);
+    trees.clear();
+  }
+
+  //region Queries
+
+  /**
+   * Returns the shortest path in the graph from start to goal, where return[0] is start and
+   * return[last] is goal. Returns null if there is no such path.
+   *
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public List<V> shortestPath(V start, V goal) throws NotInCollectionException, RuntimeException {
+    HashMap<V, Node> tree = tree(start, goal);
+    if (!tree.containsKey(goal)) return null;
+    LinkedList<V> path = new LinkedList<>();
+    for (V v = goal; v != null; v = tree.get(v).parent) {
+      path.push(v);
+    }
+    return path;
+  }
+
+  /**
+   * Returns the edges of the shortest path in the graph from start to goal, in order from
+   * start. Returns null if there is no such path, and the empty list if start is goal.
+   *
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public List<E> edgePath(V start, V goal) throws NotInCollectionException, RuntimeException {
+    HashMap<V, Node> tree = tree(start, goal);
+    if (!tree.containsKey(goal)) return null;
+    LinkedList<E> path = new LinkedList<>();
+    for (Node n = tree.get(goal); n.parent != null; n = tree.get(n.parent)) {
+      path.push(n.parentEdge);
+    }
+    return path;
+  }
+
+  /**
+   * Returns the length of the shortest path in the graph from start to goal, or -1 if
+   * there is no such path.
+   *
+   * @throws NotInCollectionException if start or goal aren't contained in the graph
+   * @throws  RuntimeException if any edges have non-positive weights.
+   */
+  public long distance(V start, V goal) throws NotInCollectionException, RuntimeException {
+    Node n = tree(start, goal).get(goal);
+    return n == null ? -1 : n.distance;
+  }
+
+  /**
+   * Returns the cached tree from start, computing it on a miss. Checks that both start
+   * and goal are in the graph.
+   */
+  private HashMap<V, Node> tree(V start, V goal) throws NotInCollectionException, RuntimeException {
+    if (!graph.containsVertex(start) || !graph.containsVertex(goal))
+      throw new NotInCollectionException("Can't find shortest path", start, goal);
+    HashMap<V, Node> tree = trees.get(start);
+    if (tree != null) {
+      hits++;
+      return tree;
+    }
+    misses++;
+
+    ShortestPathTree<V, E> t = Algorithm.shortestPathTree(graph, start);
+    GraphSnapshot<V, E> g = t.getGraph();
+    tree = new HashMap<>();
+    for (int v = 0; v < g.vertexCount(); v++) {
+      if (t.distances[v] == ShortestPathTree.UNREACHABLE) continue;
+      int p = t.parents[v];
+      tree.put(g.vertex(v), new Node(t.distances[v], p < 0 ? null : g.vertex(p), p < 0 ? null : g.edge(t.parentEdges[v])));
+    }
+    trees.put(start, tree);
+    return tree;
+  }
+
+  //endregion
+
+  //region Metrics
+
+  /** Returns the number of queries answered from a cached tree */
+  public long hits() {
+    return hits;
+  }
+
+  /** Returns the number of queries that had to run a new search */
+  public long misses() {
+    return misses;
+  }
+
+  /** Returns the number of cached trees dropped because of a change to the graph */
+  public long invalidations() {
+    return invalidations;
+  }
+
+  /** Returns the number of times a cached tree was repaired in place after a change */
+  public long repairs() {
+    return repairs;
+  }
+
+  /** Returns the number of starts this currently has a tree for */
+  public int size() {
+    return trees.size();
+  }
+
+  /** Empties this cache, without counting invalidations. Metrics are unchanged */
+  public void clear() {
+    trees.clear();
+  }
+
+  /** Sets all metrics back to 0 */
+  public void resetMetrics() {
+    hits = 0;
+    misses = 0;
+    invalidations = 0;
+    repairs = 0;
+  }
+
+  //endregion
+
+  //region GraphListener
+
+  @Override
+  public void vertexRemoved(V v) {
+    if (trees.remove(v) != null)
+      invalidations++;
+  }
+
+  @Override
+  public void edgeAdded(V source, V sink, E e) {
+    shortcut(source, sink, e);
+  }
+
+  @Override
+  public void edgeRemoved(V source, V sink, E e) {
+    //Removing an edge can't shorten any path, so only trees that use it are affected
+    Iterator<HashMap<V, Node>> trees = this.trees.values().iterator();
+    while (trees.hasNext()) {
+      if (uses(trees.next(), source, sink, e)) {
+        trees.remove();
+        invalidations++;
+      }
+    }
+  }
+
+  @Override
+  public void edgeChanged(V source, V sink, E e) {
+    //Trees that use e are out of date if its weight went up, as some other path may now be
+    //shorter. Otherwise (and for all other trees) the change is a shortcut or nothing
+    long w = e.getWeight();
+    Iterator<HashMap<V, Node>> trees = this.trees.values().iterator();
+    while (trees.hasNext()) {
+      HashMap<V, Node> tree = trees.next();
+      if (usesLongerThan(tree, source, sink, e, w)
+          || !graph.isDirected() && usesLongerThan(tree, sink, source, e, w)) {
+        trees.remove();
+        invalidations++;
+      }
+    }
+    shortcut(source, sink, e);
+  }
+
+  @Override
+  public void graphCleared() {
+    invalidations += trees.size();
+    trees.clear();
+  }
+
+  /**
+   * Returns true iff e, from source to sink, is an edge of tree. If this is undirected
+   * the tree may use it in either direction, so both ends are checked
+   */
+  private boolean uses(HashMap<V, Node> tree, V source, V sink, E e) {
+    return usesTo(tree, sink, e) || usesTo(tree, source, e);
+  }
+
+  /** Returns true iff e is the last edge on v's path in tree */
+  private boolean usesTo(HashMap<V, Node> tree, V v, E e) {
+    Node n = tree.get(v);
+    return n != null && n.parentEdge != null && n.parentEdge.equals(e);
+  }
+
+  /** Returns true iff tree uses e to get from u to v, and e now has more weight than that step */
+  private boolean usesLongerThan(HashMap<V, Node> tree, V u, V v, E e, long w) {
+    if (!usesTo(tree, v, e) || !u.equals(tree.get(v).parent)) return false;
+    return tree.get(u).distance + w > tree.get(v).distance;
+  }
+
+  /**
+   * Handles e, from source to sink, being added or getting cheaper: each tree that it gives
+   * a shorter path to source or sink is repaired in incremental mode, and dropped otherwise.
+   */
+  private void shortcut(V source, V sink, E e) {
+    long w = e.getWeight();
+    Iterator<HashMap<V, Node>> trees = this.trees.values().iterator();
+    while (trees.hasNext()) {
+      HashMap<V, Node> tree = trees.next();
+      boolean forward = improves(tree, source, sink, w);
+      boolean backward = !graph.isDirected() && improves(tree, sink, source, w);
+      if (!forward && !backward) continue;
+
+      if (!incremental || w <= 0) {
+        //With a non-positive weight, let the next search throw as Algorithm would
+        trees.remove();
+        invalidations++;
+      } else {
+        repair(tree, forward ? source : sink, forward ? sink : source, e);
+        repairs++;
+      }
+    }
+  }
+
+  /** Returns true iff an edge from u to v of weight w would make v closer in tree */
+  private boolean improves(HashMap<V, Node> tree, V u, V v, long w) {
+    Node nu = tree.get(u);
+    if (nu == null) return false;
+    Node nv = tree.get(v);
+    return nv == null || nu.distance + w < nv.distance;
+  }
+
+  /**
+   * Repairs tree after e, from u to v, became a shorter way to reach v. Runs Dijkstra's
+   * algorithm from v, relaxing only edges that shorten a path, so it visits exactly the
+   * vertices whose distance drops (and their neighbors).
+   */
+  private void repair(HashMap<V, Node> tree, V u, V v, E e) {
+    long d = tree.get(u).distance + e.getWeight();
+    set(tree, v, d, u, e);
+
+    PriorityQueue<Relaxed<V>> frontier = new PriorityQueue<>();
+    frontier.add(new Relaxed<>(v, d));
+    while (!frontier.isEmpty()) {
+      Relaxed<V> r = frontier.poll();
+      if (r.distance > tree.get(r.vertex).distance) continue; //Stale entry
+      graph.forEachOutEdge(r.vertex, edge -> {
+        V w = graph.getOther(edge, r.vertex);
+        long weight = edge.getWeight();
+        Node n = tree.get(w);
+        if (n == null || r.distance + weight < n.distance) {
+          set(tree, w, r.distance + weight, r.vertex, edge);
+          frontier.add(new Relaxed<>(w, r.distance + weight));
+        }
+      });
+    }
+  }
+
+  /** Gives v the given distance and parent in tree */
+  private void set(HashMap<V, Node> tree, V v, long distance, V parent, E parentEdge) {
+    Node n = tree.get(v);
+    if (n == null) {
+      tree.put(v, new Node(distance, parent, parentEdge));
+    } else {
+      n.distance = distance;
+      n.parent = parent;
+      n.parentEdge = parentEdge;
+    }
+  }
+
+  /** A vertex given a shorter distance during a repair, ordered by that distance */
+  private static class Relaxed<V> implements Comparable<Relaxed<V>> {
+    private final V vertex;
+    private final long distance;
+
+    private Relaxed(V vertex, long distance) {
+      this.vertex = vertex;
+      this.distance = distance;
+    }
+
+    @Override
+    public int compareTo(Relaxed<V> o) {
+      return Long.compare(distance, o.distance);
+    }
+  }
+
+  //endregion
+}
@@ -0,0 +1,129 @@
+package graph;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import common.dataStructures.NotInCollectionException;
+
+/**
+ * The result of a single source shortest path search on a GraphSnapshot: the length of
+ * the shortest path from a root vertex to every vertex, and the last edge on one such
+ * path, so that paths can be read back without searching again.
+ * See {@link graph.Algorithm#shortestPathTree(GraphSnapshot, Object)}.
+ *
+ * @param <V> - the vertex type
+ * @param <E> - the edge type
+ * @author Mshnik
+ */
+public class ShortestPathTree<V, E> {
+
+  /** The distance of vertices that can't be reached from the root */
+  static final long UNREACHABLE = Long.MAX_VALUE;
+
+  private final GraphSnapshot<V, E> graph;
+  private final int root;
+
+  //By vertex index
+  final long[] distances;
+  final int[] parents; //-1 for the root and unreachable vertices
+  final int[] parentEdges; //-1 for the root and unreachable vertices
+
+  ShortestPathTree(GraphSnapshot<V, E> graph, int root, long[] distances, int[] parents, int[] parentEdges) {
+    this.graph = graph;
+    this.root = root;
+    this.distances = distances;
+    this.parents = parents;
+    this.parentEdges = parentEdges;
+  }
+
+  /**
+   * Returns the graph snapshot this tree spans
+   */
+  public GraphSnapshot<V, E> getGraph() {
+    return graph;
+  }
+
+  /**
+   * Returns the root of this tree - the start of every path in it
+   */
+  public V getRoot() {
+    return graph.vertex(root);
+  }
+
+  /** Returns the index of v, throwing a NotInCollectionException if it isn't in the graph */
+  private int index(V v) throws NotInCollectionException {
+    int i = graph.indexOf(v);
+    if (i < 0) throw new NotInCollectionException("Vertex isn't in shortest path tree", v);
+    return i;
+  }
+
+  /**
+   * Returns true iff there is a path from the root to v
+   *
+   * @throws NotInCollectionException - if v isn't in the graph
+   */
+  public boolean isReachable(V v) throws NotInCollectionException {
+    return distances[index(v)] != UNREACHABLE;
+  }
+
+  /**
+   * Returns the length of the shortest path from the root to v, or -1 if there is none
+   *
+   * @throws NotInCollectionException - if v isn't in the graph
+   */
+  public long distanceTo(V v) throws NotInCollectionException {
+    return distanceTo(index(v));
+  }
+
+  /**
+   * Returns the length of the shortest path from the root to the vertex with the given
+   * index, or -1 if there is none
+   */
+  public long distanceTo(int index) {
+    long d = distances[index];
+    return d == UNREACHABLE ? -1 : d;
+  }
+
+  /**
+   * Returns the vertex before v on its shortest path from the root. Returns null if v is
+   * the root or unreachable.
+   *
+   * @throws NotInCollectionException - if v isn't in the graph
+   */
+  public V parentOf(V v) throws NotInCollectionException {
+    int p = parents[index(v)];
+    return p < 0 ? null : graph.vertex(p);
+  }
+
+  /**
+   * Returns a shortest path from the root to v, where return[0] is the root and
+   * return[last] is v. Returns null if v isn't reachable.
+   *
+   * @throws NotInCollectionException - if v isn't in the graph
+   */
+  public List<V> pathTo(V v) throws NotInCollectionException {
+    int i = index(v);
+    if (distances[i] == UNREACHABLE) return null;
+    LinkedList<V> path = new LinkedList<>();
+    for (; i >= 0; i = parents[i]) {
+      path.push(graph.vertex(i));
+    }
+    return path;
+  }
+
+  /**
+   * Returns the edges of a shortest path from the root to v, in order from the root.
+   * Returns null if v isn't reachable, and the empty list if v is the root.
+   *
+   * @throws NotInCollectionException - if v isn't in the graph
+   */
+  public List<E> edgePathTo(V v) throws NotInCollectionException {
+    int i = index(v);
+    if (distances[i] == UNREACHABLE) return null;
+    LinkedList<E> path = new LinkedList<>();
+    for (; parents[i] >= 0; i = parents[i]) {
+      path.push(graph.edge(parentEdges[i]));
+    }
+    return path;
+  }
+}
@@ -1,7 +1,6 @@
 package graph;
 
-import java.util.HashMap;
-
+import common.dataStructures.IntObjectMap;
 import common.dataStructures.NotInCollectionException;
 
 /** SimpleGraph is a simple extension of the graph class.
@@ -15,21 +14,21 @@ import common.dataStructures.NotInCollectionException;
  */
 public class SimpleGraph extends Graph<SimpleVertex, SimpleEdge> {
 
-  private HashMap<Integer, SimpleVertex> idToVertex;
-  private HashMap<Integer, SimpleEdge> idToEdge;
+  private IntObjectMap<SimpleVertex> idToVertex;
+  private IntObjectMap<SimpleEdge> idToEdge;
 
 	/** Constructs a new (empty) directed SimpleGraph */
 	public SimpleGraph(){
 		super();
-		idToVertex = new HashMap<>();
-		idToEdge = new HashMap<>();
+		idToVertex = new IntObjectMap<>();
+		idToEdge = new IntObjectMap<>();
 	}
 
 	/** Constructs a new (empty) SimpleGraph with the given directed-ness */
 	public SimpleGraph(boolean directed){
 		super(directed);
-		idToVertex = new HashMap<>();
-		idToEdge = new HashMap<>();
+		idToVertex = new IntObjectMap<>();
+		idToEdge = new IntObjectMap<>();
 	}
 
 	/** Constructs a new SimpleGraph that is a copy of the given graph
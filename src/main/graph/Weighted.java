@@ -2,7 +2,9 @@ package graph;
 
 /**
  * Designates an element that has a numbered weight associated with it
- * This weight shouldn't change after instantiation.
+ * This weight shouldn't change after instantiation. If it does change while the element is
+ * an edge in a Graph, call {@link Graph#edgeChanged(Object)} so the graph's listeners
+ * (such as a {@link ShortestPathCache}) know.
  *
  * @author MPatashnik
  */
@@ -0,0 +1,706 @@
+package graph.matching;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import common.dataStructures.IndexedHeap;
+
+/**
+ * A bipartite graph for assignment problems, over dense int ids: left vertices (agents)
+ * in [0, leftCount()) and right vertices (items) in [0, rightCount()). Each right vertex
+ * has a capacity - the number of left vertices it can be matched to at once - so items
+ * with many copies are a single vertex rather than one vertex per copy. Each edge has an
+ * int value, used by the weighted solvers.
+ * <br><br>
+ * Edges are kept in compressed sparse row form by left vertex, built the first time a
+ * matching is computed after edges change. Solvers return a matching as an int array
+ * indexed by left vertex, holding the right vertex it is matched to, or -1 if it is
+ * unmatched.
+ *
+ * @author Mshnik
+ */
+public class BipartiteGraph {
+
+  private static final int DEFAULT_EDGE_CAPACITY = 16;
+
+  /** The factor epsilon is divided by between auction phases */
+  private static final int EPSILON_SCALING = 5;
+
+  /** Auction rounds with fewer bidders than this bid sequentially */
+  private static final int PARALLEL_BIDDERS = 1024;
+
+  private final int leftCount;
+  private final int[] capacities; //By right vertex
+
+  //By edge id
+  private int[] lefts;
+  private int[] rights;
+  private int[] values;
+  private int m;
+
+  //Edges of left u are at slots offsets[u] .. offsets[u+1]-1. Null until built
+  private int[] offsets;
+  private int[] adjacentRights;
+  private int[] adjacentValues;
+
+  //The matching being built by a solver
+  private int[] match; //By left - its right, or -1
+  private int[] matchValue; //By left - the value of its matched edge
+  private int[] load; //By right - the number of lefts matched to it
+  //Lefts matched to each right, as doubly linked lists
+  private int[] matchedHead;
+  private int[] matchedNext;
+  private int[] matchedPrev;
+
+  /**
+   * Constructs a BipartiteGraph with the given number of vertices on each side, in which
+   * every right vertex has capacity 1
+   *
+   * @throws IllegalArgumentException - if either count is negative
+   */
+  public BipartiteGraph(int leftCount, int rightCount) throws IllegalArgumentException {
+    if (leftCount < 0 || rightCount < 0)
+      throw new IllegalArgumentException("Vertex counts must be non-negative, got "
+          + leftCount + " and " + rightCount);
+    this.leftCount = leftCount;
+    capacities = new int[rightCount];
+    Arrays.fill(capacities, 1);
+    lefts = new int[DEFAULT_EDGE_CAPACITY];
+    rights = new int[DEFAULT_EDGE_CAPACITY];
+    values = new int[DEFAULT_EDGE_CAPACITY];
+    m = 0;
+  }
+
+  /**
+   * Returns the number of left vertices
+   */
+  public int leftCount() {
+    return leftCount;
+  }
+
+  /**
+   * Returns the number of right vertices
+   */
+  public int rightCount() {
+    return capacities.length;
+  }
+
+  /**
+   * Returns the number of edges
+   */
+  public int edgeCount() {
+    return m;
+  }
+
+  /**
+   * Returns the capacity of the given right vertex
+   */
+  public int capacity(int right) {
+    return capacities[right];
+  }
+
+  /**
+   * Sets the capacity of the given right vertex - the number of left vertices it can be
+   * matched to at once.
+   *
+   * @throws IllegalArgumentException - if capacity &lt; 0
+   */
+  public void setCapacity(int right, int capacity) throws IllegalArgumentException {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity must be non-negative, got " + capacity);
+    capacities[right] = capacity;
+  }
+
+  /**
+   * Adds an edge between left vertex left and right vertex right with the given value,
+   * and returns its id. There should be at most one edge between any pair of vertices.
+   *
+   * @throws IllegalArgumentException - if either vertex is out of range
+   */
+  public int addEdge(int left, int right, int value) throws IllegalArgumentException {
+    if (left < 0 || left >= leftCount || right < 0 || right >= capacities.length)
+      throw new IllegalArgumentException("Can't add edge " + left + "-" + right + " to bipartite graph with "
+          + leftCount + " and " + capacities.length + " vertices");
+    if (m == lefts.length) {
+      int length = Math.max(DEFAULT_EDGE_CAPACITY, m * 2);
+      lefts = Arrays.copyOf(lefts, length);
+      rights = Arrays.copyOf(rights, length);
+      values = Arrays.copyOf(values, length);
+    }
+    lefts[m] = left;
+    rights[m] = right;
+    values[m] = value;
+    offsets = null;
+    return m++;
+  }
+
+  /** Builds the adjacency lists if needed, and resets the matching to empty */
+  private void prepare() {
+    if (offsets == null) {
+      offsets = new int[leftCount + 1];
+      for (int e = 0; e < m; e++) {
+        offsets[lefts[e] + 1]++;
+      }
+      for (int u = 0; u < leftCount; u++) {
+        offsets[u + 1] += offsets[u];
+      }
+      adjacentRights = new int[m];
+      adjacentValues = new int[m];
+      int[] next = Arrays.copyOf(offsets, leftCount);
+      for (int e = 0; e < m; e++) {
+        int slot = next[lefts[e]]++;
+        adjacentRights[slot] = rights[e];
+        adjacentValues[slot] = values[e];
+      }
+    }
+    int n = capacities.length;
+    match = new int[leftCount];
+    matchValue = new int[leftCount];
+    matchedNext = new int[leftCount];
+    matchedPrev = new int[leftCount];
+    load = new int[n];
+    matchedHead = new int[n];
+    Arrays.fill(match, -1);
+    Arrays.fill(matchedHead, -1);
+  }
+
+  /** Matches left u to right r with the given edge value, unmatching it from its current right */
+  private void assign(int u, int r, int value) {
+    int old = match[u];
+    if (old >= 0) {
+      int next = matchedNext[u];
+      int prev = matchedPrev[u];
+      if (prev >= 0) matchedNext[prev] = next;
+      else matchedHead[old] = next;
+      if (next >= 0) matchedPrev[next] = prev;
+      load[old]--;
+    }
+    match[u] = r;
+    matchValue[u] = value;
+    int head = matchedHead[r];
+    matchedNext[u] = head;
+    matchedPrev[u] = -1;
+    if (head >= 0) matchedPrev[head] = u;
+    matchedHead[r] = u;
+    load[r]++;
+  }
+
+  /**
+   * Returns a maximum cardinality matching, computed by the Hopcroft-Karp algorithm in
+   * O(E sqrt(V)) time. Edge values are ignored.
+   * <br><br>
+   * Each phase layers the left vertices by a breadth first search from every unmatched
+   * left vertex, alternating between unused edges and matched ones, until a right vertex
+   * with spare capacity is found. It then augments along a maximal set of shortest
+   * alternating paths by depth first search, each of which matches one more left vertex.
+   * A full right vertex leads to every left vertex matched to it, so capacities are
+   * handled without copying vertices.
+   */
+  public int[] maxMatching() {
+    prepare();
+    int n = capacities.length;
+    final int inf = Integer.MAX_VALUE;
+    int[] dist = new int[leftCount];
+    int[] queue = new int[leftCount];
+    int[] current = new int[leftCount];
+    //Lefts first reached through each right in the current layering, all in layer childLayer[r],
+    //are children[childCursor[r] .. childEnd[r]-1], less those the cursor has passed as dead
+    int[] children = new int[leftCount];
+    int[] childEnd = new int[n];
+    int[] childCursor = new int[n];
+    int[] childLayer = new int[n];
+    boolean[] expanded = new boolean[n];
+    int[] path = new int[leftCount];
+    int[] via = new int[leftCount]; //via[i] is the right path[i] was reached through
+
+    while (true) {
+      //Layer the lefts from the unmatched ones
+      Arrays.fill(dist, inf);
+      Arrays.fill(expanded, false);
+      int head = 0;
+      int tail = 0;
+      for (int u = 0; u < leftCount; u++) {
+        if (match[u] < 0 && offsets[u] < offsets[u + 1]) {
+          dist[u] = 0;
+          queue[tail++] = u;
+        }
+      }
+      int limit = inf; //The layer of the first right with spare capacity
+      int childCount = 0;
+      while (head < tail) {
+        int u = queue[head++];
+        if (dist[u] + 1 >= limit) break;
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+          int r = adjacentRights[i];
+          if (r == match[u] || expanded[r] || capacities[r] == 0) continue;
+          if (load[r] < capacities[r]) {
+            limit = dist[u] + 1;
+          } else {
+            expanded[r] = true;
+            childCursor[r] = childCount;
+            for (int w = matchedHead[r]; w >= 0; w = matchedNext[w]) {
+              if (dist[w] == inf) {
+                dist[w] = dist[u] + 1;
+                queue[tail++] = w;
+                children[childCount++] = w;
+              }
+            }
+            childEnd[r] = childCount;
+            childLayer[r] = dist[u] + 1;
+          }
+        }
+      }
+      if (limit == inf) return match.clone();
+
+      //Augment along vertex-disjoint shortest alternating paths
+      System.arraycopy(offsets, 0, current, 0, leftCount);
+      for (int u0 = 0; u0 < leftCount; u0++) {
+        if (match[u0] >= 0 || dist[u0] != 0) continue;
+        int depth = 0;
+        path[0] = u0;
+        while (depth >= 0) {
+          int u = path[depth];
+          int next = -1;
+          int free = -1;
+          for (; current[u] < offsets[u + 1]; current[u]++) {
+            int r = adjacentRights[current[u]];
+            if (r == match[u] || capacities[r] == 0) continue;
+            if (load[r] < capacities[r]) {
+              if (dist[u] + 1 == limit) {
+                free = r;
+                break;
+              }
+            } else if (expanded[r] && childLayer[r] == dist[u] + 1 && childLayer[r] < limit) {
+              while (childCursor[r] < childEnd[r]) {
+                int w = children[childCursor[r]];
+                if (match[w] == r && dist[w] == childLayer[r]) {
+                  next = w;
+                  break;
+                }
+                childCursor[r]++;
+              }
+              if (next >= 0) {
+                via[depth + 1] = r;
+                break;
+              }
+            }
+          }
+          if (free >= 0) {
+            //path[i] takes the right path[i+1] was reached through, and the last takes free.
+            //The current edge of each is the edge it takes
+            for (int i = depth; i >= 0; i--) {
+              int w = path[i];
+              assign(w, i == depth ? free : via[i + 1], adjacentValues[current[w]]);
+            }
+            break;
+          } else if (next >= 0) {
+            path[++depth] = next;
+          } else {
+            dist[u] = inf; //Dead for the rest of the phase
+            depth--;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a maximum cardinality matching that has the maximum total edge value among all
+   * maximum cardinality matchings, computed by the Hungarian algorithm in O(V E log V) time.
+   * <br><br>
+   * This is the sparse, primal-dual form of the Hungarian algorithm. Dual potentials on the
+   * vertices keep every reduced edge cost (negated value, adjusted by the potentials of its
+   * ends) non-negative. Each phase runs Dijkstra's algorithm from every unmatched left vertex
+   * at once, and moves the potentials by the distances found, so that every alternating
+   * path of greatest value gain is made of edges of reduced cost zero. It then augments along
+   * a maximal set of those paths by depth first search, as Hopcroft-Karp does, so there are
+   * usually far fewer phases than matched vertices. The first potentials come from each right
+   * vertex's most valuable edge, so values of any sign are allowed.
+   */
+  public int[] maxValueMaxMatching() {
+    prepare();
+    int n = capacities.length;
+    int sink = leftCount + n; //Vertex ids: lefts, then rights, then a sink for spare capacity
+    long[] potential = new long[sink + 1];
+    long[] dist = new long[sink + 1];
+    boolean[] settled = new boolean[sink + 1];
+    IndexedHeap heap = new IndexedHeap(sink + 1);
+
+    //Costs are negated values. A right's potential is its cheapest incoming edge cost
+    long minRight = Long.MAX_VALUE;
+    for (int r = 0; r < n; r++) {
+      potential[leftCount + r] = Long.MAX_VALUE;
+    }
+    for (int i = 0; i < m; i++) {
+      int r = leftCount + rights[i];
+      potential[r] = Math.min(potential[r], -(long) values[i]);
+    }
+    for (int r = 0; r < n; r++) {
+      if (potential[leftCount + r] == Long.MAX_VALUE) potential[leftCount + r] = 0;
+      else if (capacities[r] > 0) minRight = Math.min(minRight, potential[leftCount + r]);
+    }
+    potential[sink] = minRight == Long.MAX_VALUE ? 0 : minRight;
+
+    //Depth first search state. Marks are only valid if equal to the current phase
+    int phase = 0;
+    int[] visited = new int[leftCount];
+    int[] deadRight = new int[n];
+    int[] cursorPhase = new int[n];
+    int[] cursor = new int[n]; //The next left to try in the list of lefts matched to each right
+    int[] current = new int[leftCount];
+    int[] path = new int[leftCount];
+    int[] via = new int[leftCount];
+
+    while (true) {
+      //Reduced distances from the unmatched lefts, until the sink is settled
+      Arrays.fill(dist, Long.MAX_VALUE);
+      Arrays.fill(settled, false);
+      heap.clear();
+      for (int u = 0; u < leftCount; u++) {
+        if (match[u] < 0 && offsets[u] < offsets[u + 1]) {
+          dist[u] = 0;
+          heap.add(u, 0);
+        }
+      }
+      while (!heap.isEmpty()) {
+        int v = heap.poll();
+        settled[v] = true;
+        if (v == sink) break;
+        long dv = dist[v];
+        if (v < leftCount) {
+          for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+            int r = adjacentRights[i];
+            int w = leftCount + r;
+            if (r == match[v] || capacities[r] == 0 || settled[w]) continue;
+            long d = dv - adjacentValues[i] + potential[v] - potential[w];
+            if (d < dist[w]) {
+              dist[w] = d;
+              heap.addOrDecrease(w, d);
+            }
+          }
+        } else {
+          int r = v - leftCount;
+          if (load[r] < capacities[r]) {
+            long d = dv + potential[v] - potential[sink];
+            if (d < dist[sink]) {
+              dist[sink] = d;
+              heap.addOrDecrease(sink, d);
+            }
+          }
+          for (int w = matchedHead[r]; w >= 0; w = matchedNext[w]) {
+            if (settled[w]) continue;
+            long d = dv + matchValue[w] + potential[v] - potential[w];
+            if (d < dist[w]) {
+              dist[w] = d;
+              heap.addOrDecrease(w, d);
+            }
+          }
+        }
+      }
+      if (!settled[sink]) return match.clone();
+
+      //Vertices not settled are at least as far as the sink, which keeps reduced costs non-negative
+      long ds = dist[sink];
+      for (int v = 0; v <= sink; v++) {
+        potential[v] += Math.min(dist[v], ds);
+      }
+
+      //Augment along alternating paths of edges with reduced cost 0, visiting each left once
+      phase++;
+      System.arraycopy(offsets, 0, current, 0, leftCount);
+      for (int u0 = 0; u0 < leftCount; u0++) {
+        if (match[u0] >= 0 || offsets[u0] == offsets[u0 + 1] || visited[u0] == phase) continue;
+        visited[u0] = phase;
+        int depth = 0;
+        path[0] = u0;
+        while (depth >= 0) {
+          int u = path[depth];
+          int next = -1;
+          int free = -1;
+          for (; current[u] < offsets[u + 1]; current[u]++) {
+            int i = current[u];
+            int r = adjacentRights[i];
+            int w = leftCount + r;
+            if (r == match[u] || capacities[r] == 0 || deadRight[r] == phase
+                || potential[u] - adjacentValues[i] != potential[w]) continue;
+            if (load[r] < capacities[r] && potential[w] == potential[sink]) {
+              free = r;
+              break;
+            }
+            if (cursorPhase[r] != phase) {
+              cursorPhase[r] = phase;
+              cursor[r] = matchedHead[r];
+            }
+            while (cursor[r] >= 0) {
+              int x = cursor[r];
+              cursor[r] = matchedNext[x];
+              if (visited[x] != phase && matchValue[x] + potential[w] == potential[x]) {
+                next = x;
+                break;
+              }
+            }
+            if (next >= 0) {
+              via[depth + 1] = r;
+              break;
+            }
+            deadRight[r] = phase;
+          }
+          if (free >= 0) {
+            for (int i = depth; i >= 0; i--) {
+              int w = path[i];
+              assign(w, i == depth ? free : via[i + 1], adjacentValues[current[w]]);
+            }
+            break;
+          } else if (next >= 0) {
+            visited[next] = phase;
+            path[++depth] = next;
+          } else {
+            depth--;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a maximum cardinality matching that has the maximum total edge value among all
+   * maximum cardinality matchings - the same problem as {@link #maxValueMaxMatching()} -
+   * computed by Bertsekas' auction algorithm with epsilon scaling. Each round, every
+   * unassigned bidder computes its bid in parallel on pool, and then the bids are placed in
+   * turn. Once few bidders are left, the rest of the phase is bid sequentially.
+   * <br><br>
+   * The problem is first made a symmetric assignment problem, for which the auction is exact:
+   * each left vertex may also take an outside option (being unmatched), each copy of a right
+   * vertex is an object with its own price, and each copy also gets a filler bidder who
+   * values it and the outside option at 0. Values are shifted so that every edge beats the
+   * outside option by more than any difference in total value, so cardinality comes first,
+   * and multiplied by the number of bidders plus one, so that the final epsilon of 1 leaves
+   * an optimal assignment.
+   *
+   * @throws ArithmeticException - if the range of edge values is too large for the scaled
+   *                             values to fit in a long
+   */
+  public int[] maxValueMaxMatchingAuction(ForkJoinPool pool) throws ArithmeticException {
+    prepare();
+    return new Auction().run(pool);
+  }
+
+  /**
+   * The state of one run of the auction algorithm. Bidders are the lefts, then one filler per
+   * copy of each right. Objects are the copies of the rights, then one copy of the outside
+   * option per left, stored by right: the copies of right r are a binary min heap by price in
+   * the slots slotStart[r] .. slotStart[r+1]-1, so the cheapest copy is always at slotStart[r].
+   */
+  private class Auction {
+    private final int n = capacities.length;
+    private final int outside = n; //The right index of the outside option
+
+    private final int bidders;
+    private final int[] fillerRight; //By bidder - leftCount, the right the filler is for
+
+    private final int[] slotStart;
+    private final long[] slotPrice;
+    private final int[] slotHolder;
+
+    private final long[] scaledValues; //By adjacency slot
+    private final long maxValue;
+
+    private final int[] assignedTo; //By bidder - the right it holds a copy of, or -1
+    private final int[] bidRight;
+    private final long[] bidPrice;
+
+    private long epsilon;
+
+    private Auction() throws ArithmeticException {
+      slotStart = new int[n + 2];
+      for (int r = 0; r < n; r++) {
+        slotStart[r + 1] = slotStart[r] + capacities[r];
+      }
+      int copies = slotStart[n];
+      slotStart[n + 1] = copies + leftCount;
+      slotPrice = new long[copies + leftCount];
+      slotHolder = new int[copies + leftCount];
+
+      bidders = leftCount + copies;
+      fillerRight = new int[copies];
+      for (int r = 0; r < n; r++) {
+        for (int c = slotStart[r]; c < slotStart[r + 1]; c++) {
+          fillerRight[c] = r;
+        }
+      }
+
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (int i = 0; i < m; i++) {
+        min = Math.min(min, adjacentValues[i]);
+        max = Math.max(max, adjacentValues[i]);
+      }
+      long range = m == 0 ? 0 : (long) max - min;
+      long shift = Math.addExact(Math.multiplyExact(range, leftCount), 1);
+      long scale = bidders + 1L;
+      scaledValues = new long[m];
+      long top = 0;
+      for (int i = 0; i < m; i++) {
+        scaledValues[i] = Math.multiplyExact(adjacentValues[i] - min + shift, scale);
+        top = Math.max(top, scaledValues[i]);
+      }
+      maxValue = top;
+
+      assignedTo = new int[bidders];
+      bidRight = new int[bidders];
+      bidPrice = new long[bidders];
+    }
+
+    private int[] run(ForkJoinPool pool) {
+      if (leftCount == 0) return new int[0];
+      epsilon = Math.max(1, maxValue / EPSILON_SCALING);
+      int[] unassigned = new int[bidders];
+      int[] next = new int[bidders];
+      while (true) {
+        //Each phase starts over with every bidder unassigned, but keeps the prices. The copies
+        //of a right are interchangeable, so they are evened out to the highest price among them -
+        //otherwise bidders would raise the cheaper ones epsilon at a time to catch up
+        for (int r = 0; r <= n; r++) {
+          long top = Long.MIN_VALUE;
+          for (int c = slotStart[r]; c < slotStart[r + 1]; c++) {
+            top = Math.max(top, slotPrice[c]);
+          }
+          Arrays.fill(slotPrice, slotStart[r], slotStart[r + 1], top);
+        }
+        Arrays.fill(slotHolder, -1);
+        Arrays.fill(assignedTo, -1);
+        for (int i = 0; i < bidders; i++) {
+          unassigned[i] = i;
+        }
+        int count = bidders;
+        while (count >= PARALLEL_BIDDERS) {
+          final int[] round = unassigned;
+          final int size = count;
+          pool.submit(() -> IntStream.range(0, size).parallel().forEach(k -> bid(round[k]))).join();
+
+          //Each bid takes the cheapest copy of its right if it still beats that copy's price.
+          //Prices only rise, so a bid that does is still within epsilon of its bidder's best
+          int nextCount = 0;
+          for (int k = 0; k < count; k++) {
+            int i = round[k];
+            int r = bidRight[i];
+            int slot = slotStart[r];
+            if (bidPrice[i] <= slotPrice[slot]) {
+              next[nextCount++] = i;
+              continue;
+            }
+            int displaced = slotHolder[slot];
+            if (displaced >= 0) {
+              assignedTo[displaced] = -1;
+              next[nextCount++] = displaced;
+            }
+            slotHolder[slot] = i;
+            slotPrice[slot] = bidPrice[i];
+            assignedTo[i] = r;
+            siftDown(r);
+          }
+          unassigned = next;
+          next = round;
+          count = nextCount;
+        }
+
+        //Few enough bidders are left that rounds would be mostly overhead. Instead each bid is
+        //accepted as soon as it is made, and the bidder it displaces joins the queue
+        int head = 0;
+        while (count > 0) {
+          int i = unassigned[head];
+          head = (head + 1) % bidders;
+          count--;
+          bid(i);
+          int r = bidRight[i];
+          int slot = slotStart[r];
+          int displaced = slotHolder[slot];
+          if (displaced >= 0) {
+            assignedTo[displaced] = -1;
+            unassigned[(head + count) % bidders] = displaced;
+            count++;
+          }
+          slotHolder[slot] = i;
+          slotPrice[slot] = bidPrice[i];
+          assignedTo[i] = r;
+          siftDown(r);
+        }
+        if (epsilon == 1) break;
+        epsilon = Math.max(1, epsilon / EPSILON_SCALING);
+      }
+
+      int[] result = new int[leftCount];
+      for (int u = 0; u < leftCount; u++) {
+        result[u] = assignedTo[u] == outside ? -1 : assignedTo[u];
+      }
+      return result;
+    }
+
+    /**
+     * Sets the bid of bidder i: for the right whose cheapest copy gives it the most value
+     * net of price, the price at which that copy would be only epsilon better than its next
+     * best option (which may be another copy of the same right)
+     */
+    private void bid(int i) {
+      long best = Long.MIN_VALUE;
+      long second = Long.MIN_VALUE;
+      int bestRight = -1;
+      boolean isLeft = i < leftCount;
+      int options = isLeft ? offsets[i + 1] - offsets[i] + 1 : 2;
+      for (int k = 0; k < options; k++) {
+        int r;
+        long value;
+        if (k == options - 1) {
+          r = outside;
+          value = 0;
+        } else if (isLeft) {
+          int slot = offsets[i] + k;
+          r = adjacentRights[slot];
+          value = scaledValues[slot];
+          if (capacities[r] == 0) continue;
+        } else {
+          r = fillerRight[i - leftCount];
+          value = 0;
+        }
+        int start = slotStart[r];
+        long net = value - slotPrice[start];
+        if (net > best) {
+          second = best;
+          int size = slotStart[r + 1] - start;
+          if (size > 1) {
+            long price = size > 2 ? Math.min(slotPrice[start + 1], slotPrice[start + 2]) : slotPrice[start + 1];
+            second = Math.max(second, value - price);
+          }
+          best = net;
+          bestRight = r;
+        } else if (net > second) {
+          second = net;
+        }
+      }
+      long price = slotPrice[slotStart[bestRight]];
+      bidRight[i] = bestRight;
+      bidPrice[i] = second == Long.MIN_VALUE ? price + epsilon : price + (best - second) + epsilon;
+    }
+
+    /** Moves the copy at the root of right r's heap down to its place by price */
+    private void siftDown(int r) {
+      int start = slotStart[r];
+      int size = slotStart[r + 1] - start;
+      long price = slotPrice[start];
+      int holder = slotHolder[start];
+      int j = 0;
+      while (true) {
+        int c = 2 * j + 1;
+        if (c >= size) break;
+        if (c + 1 < size && slotPrice[start + c + 1] < slotPrice[start + c]) c++;
+        if (slotPrice[start + c] >= price) break;
+        slotPrice[start + j] = slotPrice[start + c];
+        slotHolder[start + j] = slotHolder[start + c];
+        j = c;
+      }
+      slotPrice[start + j] = price;
+      slotHolder[start + j] = holder;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package grid;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import common.Util;
 import common.dataStructures.ConsList;
@@ -36,6 +37,20 @@ public class Grid<T extends Tile> implements Collection<T>, Cloneable {
    */
   private int size;
 
+  /**
+   * The number of elements stored under each index of the outermost dimension.
+   * Lets spliterators over a range of the outermost dimension report exact sizes.
+   */
+  private final int[] sliceSizes;
+
+  /**
+   * Prefix sums of sliceSizes - slicePrefix[i] is the number of elements under the
+   * indices before i - so a spliterator splits in O(1). Null when sliceSizes has changed
+   * since it was last built. It is rebuilt into a new array, never in place, so the
+   * spliterators sharing an old one keep seeing the grid as it was when they were created.
+   */
+  private int[] slicePrefix;
+
   /**
    * Initializes an empty grid
    *
@@ -54,6 +69,7 @@ public class Grid<T extends Tile> implements Collection<T>, Cloneable {
     dimension = bounds.length;
     this.bounds = Arrays.copyOf(bounds, bounds.length);
     vals = recCreateArrays(0);
+    sliceSizes = new int[dimension > 0 ? bounds[0] : 0];
     size = 0;
     modCount = 0;
   }
@@ -280,8 +296,11 @@ public class Grid<T extends Tile> implements Collection<T>, Cloneable {
     if (get(t.getLocation()) == t) return false;
 
     modCount++;
-    if (!containsAt(t.getLocation()))
+    if (!containsAt(t.getLocation())) {
       size++;
+      sliceSizes[t.getLocation()[0]]++;
+      slicePrefix = null;
+    }
     recSetTile(vals, 0, t.getLocation(), t);
     return true;
   }
@@ -312,6 +331,8 @@ public class Grid<T extends Tile> implements Collection<T>, Cloneable {
     if (t == t2) {
       recSetTile(vals, 0, t.getLocation(), null);
       size--;
+      sliceSizes[t.getLocation()[0]]--;
+      slicePrefix = null;
       modCount++;
       return true;
     }
@@ -460,6 +481,24 @@ public class Grid<T extends Tile> implements Collection<T>, Cloneable {
     return new GridIterator();
   }
 
+  /**
+   * Returns a Spliterator over the tiles in this grid, in the same order as iterator().
+   * Splits in O(1) by halving the range of the outermost dimension, so parallel streams
+   * over a grid hand each thread whole slices of it. The first call after the grid changes
+   * takes time linear in the outermost bound, to total up the tiles in each slice.
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    if (slicePrefix == null) {
+      int[] prefix = new int[sliceSizes.length + 1];
+      for (int i = 0; i < sliceSizes.length; i++) {
+        prefix[i + 1] = prefix[i] + sliceSizes[i];
+      }
+      slicePrefix = prefix;
+    }
+    return new GridSpliterator(0, sliceSizes.length, size, modCount, slicePrefix);
+  }
+
   /**
    * Returns a copy of this Grid - contains the same elements.
    */
@@ -504,6 +543,108 @@ public class Grid<T extends Tile> implements Collection<T>, Cloneable {
     }
   }
 
+  /**
+   * A Spliterator over the tiles in a range of the outermost dimension of a grid.
+   * Traverses each slice of the grid with a recursive walk of its nested arrays.
+   * Throws a ConcurrentModificationException if the grid is modified while traversing.
+   */
+  class GridSpliterator implements Spliterator<T> {
+
+    /** The next index of the outermost dimension to traverse (inclusive) */
+    private int index;
+
+    /** The end of the range of the outermost dimension to traverse (exclusive) */
+    private final int fence;
+
+    /** The number of tiles left to traverse */
+    private int remaining;
+
+    /** The expected mod count, for checking for concurrent modification */
+    private final int expectedModCount;
+
+    /** The grid's slicePrefix when this was created, valid as long as modCount is unchanged */
+    private final int[] prefix;
+
+    /** Tiles of the current slice not yet returned by tryAdvance */
+    private final ArrayList<T> buffer;
+    private int bufferIndex;
+
+    GridSpliterator(int index, int fence, int remaining, int expectedModCount, int[] prefix) {
+      this.index = index;
+      this.fence = fence;
+      this.remaining = remaining;
+      this.expectedModCount = expectedModCount;
+      this.prefix = prefix;
+      buffer = new ArrayList<>();
+      bufferIndex = 0;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      while (bufferIndex == buffer.size()) {
+        if (index == fence) return false;
+        buffer.clear();
+        bufferIndex = 0;
+        walk(vals[index], 1, buffer::add);
+        index++;
+      }
+      remaining--;
+      action.accept(buffer.get(bufferIndex++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      while (bufferIndex < buffer.size()) {
+        action.accept(buffer.get(bufferIndex++));
+      }
+      for (; index < fence; index++) {
+        walk(vals[index], 1, action);
+      }
+      remaining = 0;
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Passes each tile in o, which is the contents of the grid at the given depth, to action in order
+     */
+    @SuppressWarnings("unchecked")
+    private void walk(Object o, int depth, Consumer<? super T> action) {
+      if (depth == dimension) {
+        if (o != null) action.accept((T) o);
+        return;
+      }
+      for (Object child : (Object[]) o) {
+        walk(child, depth + 1, action);
+      }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      //Don't split off part of a partially traversed slice
+      if (bufferIndex < buffer.size()) return null;
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) return null;
+      int prefixSize = prefix[mid] - prefix[index];
+      GridSpliterator split = new GridSpliterator(index, mid, prefixSize, expectedModCount, prefix);
+      index = mid;
+      remaining -= prefixSize;
+      return split;
+    }
+
+    @Override
+    public long estimateSize() {
+      return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+    }
+  }
+
   /**
    * A class for iterating over a grid.
    * Doesn't through concurrent modification exceptions, but has unspecified
@@ -2,6 +2,7 @@ package common.dataStructures;
 
 import static common.JUnitUtil.*;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
@@ -339,4 +340,29 @@ public class BiMapTest {
 
     assertEquals(b, b2);
   }
+
+  @Test
+  public void testForEach() {
+    BiMap<String, Integer> b = new BiMap<String, Integer>();
+    b.put("A", 1);
+    b.put("B", 2);
+    b.put("C", 3);
+
+    HashSet<String> pairs = new HashSet<>();
+    b.forEach((k, v) -> pairs.add(k + v));
+    assertEquals(new HashSet<>(Arrays.asList("A1", "B2", "C3")), pairs);
+    HashSet<String> flipped = new HashSet<>();
+    b.forEachFlipped((v, k) -> flipped.add(v + k));
+    assertEquals(new HashSet<>(Arrays.asList("1A", "2B", "3C")), flipped);
+
+    HashSet<String> keys = new HashSet<>();
+    b.keySet().forEach(keys::add);
+    assertEquals(b.keySet(), keys);
+    HashSet<Integer> values = new HashSet<>();
+    b.values().forEach(values::add);
+    assertEquals(b.values(), values);
+
+    b.entrySet().forEach(e -> shouldFail(e::setValue, UnsupportedOperationException.class, 5));
+    b.entrySetFlipped().forEach(e -> assertEquals(b.get(e.getValue()), e.getKey()));
+  }
 }
@@ -0,0 +1,242 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrentLinkedHashMapTest {
+
+  private static final int THREADS = 16;
+
+  @Test
+  public void testBasicMap() {
+    ConcurrentLinkedHashMap<String, Integer> m = new ConcurrentLinkedHashMap<>();
+    assertTrue(m.isEmpty());
+    assertEquals(null, m.getFirst());
+
+    for (int i = 0; i < 40; i++) {
+      assertEquals(null, m.put("K" + i, i));
+    }
+    assertEquals(40, m.size());
+    assertEquals(new Integer(3), m.get("K3"));
+    assertEquals(null, m.get("X"));
+    assertEquals("K0", m.getFirst().getKey());
+
+    //Updating keeps the original position
+    assertEquals(new Integer(0), m.put("K0", 100));
+    assertEquals(new Integer(100), m.putIfAbsent("K0", 5));
+    assertEquals(null, m.putIfAbsent("K40", 40));
+    List<String> keys = new ArrayList<>(m.keySet());
+    assertEquals("K0", keys.get(0));
+    assertEquals("K40", keys.get(40));
+    for (int i = 0; i < 41; i++) {
+      assertEquals("K" + i, keys.get(i));
+    }
+
+    assertEquals(new Integer(5), m.remove("K5"));
+    assertFalse(m.remove("K6", 7));
+    assertTrue(m.remove("K6", 6));
+    assertFalse(m.replace("K7", 8, 9));
+    assertTrue(m.replace("K7", 7, 70));
+    assertEquals(new Integer(70), m.replace("K7", 71));
+    assertEquals(null, m.replace("K5", 1));
+    assertEquals(39, m.size());
+    assertFalse(m.containsKey("K5"));
+
+    //Re-added keys go to the end
+    m.put("K5", 5);
+    assertEquals("K5", new ArrayList<>(m.keySet()).get(m.size() - 1));
+
+    java.util.LinkedHashMap<String, Integer> expected = new java.util.LinkedHashMap<>();
+    for (Entry<String, Integer> e : m.entrySet()) {
+      expected.put(e.getKey(), e.getValue());
+    }
+    assertEquals(expected, m);
+    assertEquals(expected.toString(), m.toString());
+
+    //Iterator remove and write-through entries
+    Iterator<Entry<String, Integer>> iter = m.entrySet().iterator();
+    Entry<String, Integer> first = iter.next();
+    first.setValue(-1);
+    assertEquals(new Integer(-1), m.get("K0"));
+    iter.remove();
+    assertFalse(m.containsKey("K0"));
+    shouldFail(iter::remove, IllegalStateException.class);
+
+    m.clear();
+    assertTrue(m.isEmpty());
+    assertFalse(m.entrySet().iterator().hasNext());
+    m.put("A", 1);
+    assertEquals("{A=1}", m.toString());
+
+    shouldFail(() -> m.put(null, 1), IllegalArgumentException.class);
+    shouldFail(() -> m.put("B", null), IllegalArgumentException.class);
+    shouldFail((Integer n) -> new ConcurrentLinkedHashMap<String, Integer>(n), IllegalArgumentException.class, 0);
+  }
+
+  @Test
+  public void testWeaklyConsistentIteration() {
+    ConcurrentLinkedHashMap<Integer, Integer> m = new ConcurrentLinkedHashMap<>(4);
+    for (int i = 0; i < 100; i++) {
+      m.put(i, i);
+    }
+    //Modify while iterating - never throws, sees each key at most once, in order
+    List<Integer> seen = new ArrayList<>();
+    for (Integer k : m.keySet()) {
+      seen.add(k);
+      m.remove(k + 1);
+      if (k < 1000) m.put(1000 + k, k);
+    }
+    for (int i = 1; i < seen.size(); i++) {
+      assertTrue(seen.get(i - 1) < seen.get(i));
+    }
+    assertEquals(Arrays.asList(0, 2, 4, 6), seen.subList(0, 4));
+    assertTrue(seen.contains(1000));
+  }
+
+  @Test
+  public void testCompute() {
+    ConcurrentLinkedHashMap<String, Integer> m = new ConcurrentLinkedHashMap<>();
+    m.put("a", 1);
+    assertEquals(new Integer(1), m.computeIfAbsent("a", k -> 5));
+    assertEquals(new Integer(2), m.computeIfAbsent("b", k -> 2));
+    assertEquals(null, m.computeIfAbsent("c", k -> null));
+    assertFalse(m.containsKey("c"));
+    assertEquals(null, m.computeIfPresent("c", (k, v) -> 7));
+    assertEquals(new Integer(10), m.computeIfPresent("a", (k, v) -> v * 10));
+    assertEquals(new Integer(3), m.compute("c", (k, v) -> v == null ? 3 : v + 1));
+    assertEquals(new Integer(4), m.compute("c", (k, v) -> v == null ? 3 : v + 1));
+    assertEquals(new Integer(6), m.merge("b", 4, Integer::sum));
+    assertEquals(new Integer(9), m.merge("d", 9, Integer::sum));
+    assertEquals(Arrays.asList("a", "b", "c", "d"), new ArrayList<>(m.keySet()));
+
+    //Null results remove, and re-adding goes to the end
+    assertEquals(null, m.compute("a", (k, v) -> null));
+    assertEquals(null, m.merge("b", 1, (v, w) -> null));
+    assertEquals(new Integer(1), m.merge("a", 1, Integer::sum));
+    assertEquals(Arrays.asList("c", "d", "a"), new ArrayList<>(m.keySet()));
+    shouldFail((String k) -> m.merge(k, null, Integer::sum), IllegalArgumentException.class, "a");
+    shouldFail((String k) -> m.compute(k, (x, v) -> 1), IllegalArgumentException.class, null);
+  }
+
+  @Test
+  public void testConcurrentMerge() throws InterruptedException {
+    ConcurrentLinkedHashMap<Integer, Integer> m = new ConcurrentLinkedHashMap<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 20000; i++) {
+          m.merge(i % 100, 1, Integer::sum);
+          m.compute(-1, (k, v) -> v == null ? 1 : v + 1);
+        }
+      }));
+    }
+    for (Thread t : threads) t.start();
+    for (Thread t : threads) t.join();
+
+    //No increment is lost
+    for (int k = 0; k < 100; k++) {
+      assertEquals(new Integer(THREADS * 200), m.get(k));
+    }
+    assertEquals(new Integer(THREADS * 20000), m.get(-1));
+  }
+
+  @Test
+  public void testConcurrentWriters() throws InterruptedException {
+    ConcurrentLinkedHashMap<Integer, Integer> m = new ConcurrentLinkedHashMap<>();
+    AtomicBoolean failed = new AtomicBoolean(false);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      int id = t;
+      threads.add(new Thread(() -> {
+        try {
+          //Each thread owns keys congruent to its id, and inserts them in increasing order
+          for (int i = id; i < 20000; i += THREADS) {
+            m.put(i, i);
+            if (i % 3 == 0) m.remove(i);
+            if (!m.containsKey(i) && i % 3 != 0) failed.set(true);
+          }
+          //Concurrent iteration never throws
+          for (Integer k : m.keySet()) {
+            if (k == null) failed.set(true);
+          }
+        } catch (RuntimeException e) {
+          failed.set(true);
+        }
+      }));
+    }
+    for (Thread t : threads) t.start();
+    for (Thread t : threads) t.join();
+
+    assertFalse(failed.get());
+    int expectedSize = 0;
+    for (int i = 0; i < 20000; i++) {
+      if (i % 3 != 0) {
+        expectedSize++;
+        assertEquals(new Integer(i), m.get(i));
+      }
+    }
+    assertEquals(expectedSize, m.size());
+
+    //Each thread's keys appear in the order that thread inserted them
+    int[] last = new int[THREADS];
+    Arrays.fill(last, -1);
+    int count = 0;
+    for (Integer k : m.keySet()) {
+      assertTrue(k > last[k % THREADS]);
+      last[k % THREADS] = k;
+      count++;
+    }
+    assertEquals(expectedSize, count);
+  }
+
+  @Test
+  public void testThroughput() throws InterruptedException {
+    Map<Integer, Integer> synced = Collections.synchronizedMap(new LinkedHashMap<>());
+    Map<Integer, Integer> concurrent = new ConcurrentLinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      synced.put(i, i);
+      concurrent.put(i, i);
+    }
+    //Warm up, then time a read-heavy mix on both
+    runMix(synced);
+    runMix(concurrent);
+
+    long syncTime = runMix(synced);
+    System.out.println("Synchronized LinkedHashMap " + THREADS + " threads " + syncTime + "ms");
+    long concurrentTime = runMix(concurrent);
+    System.out.println("ConcurrentLinkedHashMap " + THREADS + " threads " + concurrentTime + "ms");
+    assertEquals(1000, synced.size());
+    assertEquals(1000, concurrent.size());
+  }
+
+  /** Runs a 90% get / 10% put mix on m from THREADS threads, returning the elapsed millis */
+  private static long runMix(Map<Integer, Integer> m) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      int seed = t;
+      threads.add(new Thread(() -> {
+        int x = seed;
+        for (int i = 0; i < 50000; i++) {
+          x = x * 1103515245 + 12345;
+          int k = (x >>> 8) % 1000;
+          if (i % 10 == 0) m.put(k, i);
+          else m.get(k);
+        }
+      }));
+    }
+    long startTime = System.currentTimeMillis();
+    for (Thread t : threads) t.start();
+    for (Thread t : threads) t.join();
+    return System.currentTimeMillis() - startTime;
+  }
+}
@@ -3,6 +3,7 @@ package common.dataStructures;
 import static org.junit.Assert.*;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -253,6 +254,33 @@ public class ConsTest {
     assertEquals(null, new ConsList<Integer>().cons(1).spliterator().trySplit());
   }
 
+  @Test
+  public void testBalancedParallelSplitting() {
+    for (int i = 99999; i >= 0; i--) {
+      lst = lst.cons(i);
+    }
+
+    Spliterator<Integer> spliterator = lst.spliterator();
+    int expected = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE;
+    assertEquals(expected, spliterator.characteristics());
+
+    //Both halves of every split are sized, and the split-off half keeps splitting evenly
+    Spliterator<Integer> front = spliterator.trySplit();
+    assertEquals(50000, front.estimateSize());
+    assertEquals(50000, spliterator.estimateSize());
+    assertTrue(front.hasCharacteristics(expected));
+    Spliterator<Integer> frontFront = front.trySplit();
+    assertEquals(25000, frontFront.estimateSize());
+    assertEquals(25000, front.estimateSize());
+
+    List<Integer> evens = lst.stream().filter((x) -> x % 2 == 0).collect(Collectors.toList());
+    assertEquals(50000, evens.size());
+    for (int i = 0; i < evens.size(); i++) {
+      assertEquals(new Integer(2 * i), evens.get(i));
+    }
+    assertEquals(99999L * 100000 / 2, lst.stream().mapToLong((x) -> x).sum());
+  }
+
   @Test
   public void testReverse() {
     lst = lst.cons(5).cons(4).cons(3).cons(2).cons(1).cons(0);
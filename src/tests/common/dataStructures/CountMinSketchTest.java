@@ -0,0 +1,54 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import org.junit.Test;
+
+public class CountMinSketchTest {
+
+  @Test
+  public void testEstimates() {
+    CountMinSketch<String> s = new CountMinSketch<>(100);
+    assertEquals(0, s.estimate("A"));
+    for (int i = 0; i < 5; i++) {
+      s.increment("A");
+    }
+    s.increment("B");
+    assertEquals(5, s.estimate("A"));
+    assertEquals(1, s.estimate("B"));
+    assertEquals(0, s.estimate("C"));
+
+    //Counters saturate
+    for (int i = 0; i < 100; i++) {
+      s.increment("A");
+    }
+    assertEquals(CountMinSketch.MAX_COUNT, s.estimate("A"));
+
+    s.clear();
+    assertEquals(0, s.estimate("A"));
+    shouldFail((Integer n) -> new CountMinSketch<String>(n), IllegalArgumentException.class, 0);
+  }
+
+  @Test
+  public void testNeverUndercountsAndAges() {
+    CountMinSketch<Integer> s = new CountMinSketch<>(64);
+    //Fewer increments than the sample size, so nothing has been halved yet
+    for (int i = 0; i < 200; i++) {
+      for (int k = 0; k <= i % 3; k++) {
+        s.increment(i);
+      }
+    }
+    for (int i = 0; i < 200; i++) {
+      assertTrue(s.estimate(i) >= i % 3 + 1);
+    }
+
+    //Once the sample size is reached, counts are halved
+    CountMinSketch<Integer> s2 = new CountMinSketch<>(1);
+    for (int i = 0; i < 9; i++) {
+      s2.increment(7);
+    }
+    assertEquals(9, s2.estimate(7));
+    s2.increment(7);
+    assertEquals(5, s2.estimate(7));
+  }
+}
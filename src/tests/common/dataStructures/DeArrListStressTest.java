@@ -94,4 +94,43 @@ public class DeArrListStressTest {
     assertTrue(arr2Time < arr1Time * TOLERANCE);
   }
 
+  @Test
+  public void testPowerOfTwoIndexing() {
+    DeArrList<Integer> arr1 = new DeArrList<Integer>(BIG_VAL);
+    DeArrList<Integer> arr2 = new DeArrList<Integer>(BIG_VAL, true);
+    for (int i = 0; i < BIG_VAL; i++) {
+      arr1.push(i);
+      arr2.push(i);
+    }
+
+    //Warm up both paths before timing
+    long sum1 = sumByIndex(arr1);
+    long sum2 = sumByIndex(arr2);
+    assertEquals(sum1, sum2);
+
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < 50; i++) {
+      sum1 += sumByIndex(arr1);
+    }
+    long arr1Time = System.currentTimeMillis() - startTime;
+    System.out.println("Modulo Indexing Get " + arr1Time + "ms");
+
+    startTime = System.currentTimeMillis();
+    for (int i = 0; i < 50; i++) {
+      sum2 += sumByIndex(arr2);
+    }
+    long arr2Time = System.currentTimeMillis() - startTime;
+    System.out.println("Power Of Two Indexing Get " + arr2Time + "ms");
+
+    assertEquals(sum1, sum2);
+    assertTrue(arr2Time <= arr1Time * TOLERANCE + 5);
+  }
+
+  private static long sumByIndex(DeArrList<Integer> lst) {
+    long sum = 0;
+    for (int i = 0; i < lst.size(); i++) {
+      sum += lst.get(i);
+    }
+    return sum;
+  }
 }
@@ -5,7 +5,13 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import common.JUnitUtil;
 import functional.impl.Function1;
@@ -328,6 +334,266 @@ public class DeArrListTest {
     assertTrue(a.contains("Hello"));
   }
 
+  @Test
+  public void testPowerOfTwo() {
+    DeArrList<Integer> a = new DeArrList<>(5, true);
+    assertTrue(a.isPowerOfTwo());
+    assertFalse(new DeArrList<Integer>().isPowerOfTwo());
+    assertEquals(8, a.getArrLength());
+
+    //Mix of appends, prepends, inserts and removes, checked against an ArrayList
+    List<Integer> expected = new ArrayList<>();
+    Random r = new Random(3);
+    for (int i = 0; i < 2000; i++) {
+      int op = r.nextInt(5);
+      if (op == 0 || expected.isEmpty()) {
+        a.add(i);
+        expected.add(i);
+      } else if (op == 1) {
+        a.push(i);
+        expected.add(0, i);
+      } else if (op == 2) {
+        int index = r.nextInt(expected.size() + 1);
+        a.add(index, i);
+        expected.add(index, i);
+      } else {
+        int index = r.nextInt(expected.size());
+        assertEquals(expected.remove(index), a.remove(index));
+      }
+      assertEquals(0, a.getArrLength() & (a.getArrLength() - 1));
+    }
+    assertEquals(expected, a);
+
+    for (int i = 0; i < a.getArrLength(); i += 3) {
+      a.rotateTo(i);
+      assertEquals(expected, a);
+    }
+
+    assertTrue(a.ensureCapacity(a.getArrLength() + 1));
+    assertEquals(0, a.getArrLength() & (a.getArrLength() - 1));
+    assertEquals(expected, a);
+
+    DeArrList<Integer> c = a.clone();
+    assertTrue(c.isPowerOfTwo());
+    assertEquals(expected, c);
+  }
+
+  @Test
+  public void testShrinkOnDrain() {
+    for (boolean powerOfTwo : new boolean[]{false, true}) {
+      DeArrList<Integer> a = new DeArrList<>(DeArrList.DEFAULT_SIZE, powerOfTwo);
+      assertFalse(a.isShrinkOnDrain());
+      for (int i = 0; i < 10000; i++) {
+        a.add(i);
+      }
+      int big = a.getArrLength();
+      while (a.size() > 10) {
+        a.removeFirst();
+      }
+      //No shrink policy - array stays large
+      assertEquals(big, a.getArrLength());
+
+      a.setShrinkOnDrain(true);
+      assertTrue(a.isShrinkOnDrain());
+      a.removeFirst();
+      assertTrue(a.getArrLength() < big);
+      for (int i = 0; i < 10000; i++) {
+        a.add(i);
+      }
+      while (a.size() > 1) {
+        a.removeFirst();
+      }
+      assertEquals(DeArrList.DEFAULT_SIZE, a.getArrLength());
+      assertEquals("(9999)", a.toString());
+
+      //Hysteresis - oscillating around a resize boundary doesn't reallocate each time
+      for (int i = 0; i < DeArrList.DEFAULT_SIZE - 1; i++) {
+        a.add(i);
+      }
+      a.add(-1);
+      int grown = a.getArrLength();
+      for (int i = 0; i < 10; i++) {
+        a.removeLast();
+        assertEquals(grown, a.getArrLength());
+        a.add(-1);
+        assertEquals(grown, a.getArrLength());
+      }
+    }
+    shouldFail((Consumer2Ex<Boolean, Integer>) new DeArrList<Integer>()::setShrinkOnDrain,
+        IllegalArgumentException.class, true, 0);
+  }
+
+  @Test
+  public void testTrimToSize() {
+    DeArrList<Integer> a = new DeArrList<>();
+    for (int i = 0; i < 100; i++) {
+      a.push(i);
+    }
+    a.trimToSize();
+    assertEquals(100, a.getArrLength());
+    assertEquals(100, a.size());
+    assertEquals(new Integer(99), a.getFirst());
+    a.add(-1);
+    assertEquals(new Integer(-1), a.getLast());
+
+    DeArrList<Integer> b = new DeArrList<>(4, true);
+    for (int i = 0; i < 100; i++) {
+      b.add(i);
+    }
+    while (b.size() > 20) {
+      b.removeFirst();
+    }
+    b.trimToSize();
+    assertEquals(32, b.getArrLength());
+    assertEquals(new Integer(80), b.getFirst());
+    assertEquals(new Integer(99), b.getLast());
+
+    DeArrList<Integer> c = new DeArrList<>();
+    c.trimToSize();
+    assertEquals(1, c.getArrLength());
+    c.add(1);
+    c.add(2);
+    assertEquals("(1,2)", c.toString());
+  }
+
+  @Test
+  public void testBulkAdd() {
+    for (boolean powerOfTwo : new boolean[]{false, true}) {
+      DeArrList<Integer> a = new DeArrList<>(4, powerOfTwo);
+      List<Integer> expected = new ArrayList<>();
+      assertFalse(a.addAll(new ArrayList<Integer>()));
+      assertFalse(a.addAllFirst(new ArrayList<Integer>()));
+
+      Random r = new Random(11);
+      for (int i = 0; i < 200; i++) {
+        List<Integer> batch = new ArrayList<>();
+        for (int k = r.nextInt(20); k > 0; k--) {
+          batch.add(r.nextInt(1000));
+        }
+        int op = r.nextInt(3);
+        if (op == 0) {
+          a.addAll(batch);
+          expected.addAll(batch);
+        } else if (op == 1) {
+          a.addAllFirst(batch);
+          expected.addAll(0, batch);
+        } else {
+          int index = r.nextInt(expected.size() + 1);
+          a.addAll(index, batch);
+          expected.addAll(index, batch);
+        }
+        assertEquals(expected, a);
+        if (i % 10 == 0) {
+          a.rotateTo(r.nextInt(a.getArrLength()));
+        }
+      }
+      assertEquals(expected, new DeArrList<>(expected));
+      shouldFail((Consumer2Ex<Integer, List<Integer>>) a::addAll, ArrayIndexOutOfBoundsException.class,
+          a.size() + 1, expected);
+    }
+  }
+
+  @Test
+  public void testRemoveRange() {
+    Random r = new Random(5);
+    for (int trial = 0; trial < 200; trial++) {
+      DeArrList<Integer> a = new DeArrList<>(8, trial % 2 == 0);
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < 30; i++) {
+        a.add(i);
+        expected.add(i);
+      }
+      a.rotateTo(r.nextInt(a.getArrLength()));
+      int from = r.nextInt(31);
+      int to = from + r.nextInt(31 - from);
+      a.removeRange(from, to);
+      expected.subList(from, to).clear();
+      assertEquals(expected, a);
+
+      //Later adds must still land correctly after the shift
+      a.add(-1);
+      a.push(-2);
+      expected.add(-1);
+      expected.add(0, -2);
+      assertEquals(expected, a);
+    }
+
+    DeArrList<Integer> a = new DeArrList<>();
+    a.addAll(Arrays.asList(0, 1, 2, 3, 4, 5));
+    a.subList(1, 3).clear();
+    assertEquals("(0,3,4,5)", a.toString());
+    shouldFail((Consumer2Ex<Integer, Integer>) a::removeRange, ArrayIndexOutOfBoundsException.class, 2, 1);
+    shouldFail((Consumer2Ex<Integer, Integer>) a::removeRange, ArrayIndexOutOfBoundsException.class, 0, 5);
+  }
+
+  @Test
+  public void testDrainToAndToArray() {
+    DeArrList<Integer> a = new DeArrList<>(8);
+    for (int i = 0; i < 8; i++) {
+      a.add(i);
+    }
+    a.rotateTo(5);
+    assertEquals("[0, 1, 2, 3, 4, 5, 6, 7]", Arrays.toString(a.toArray()));
+    Integer[] small = a.toArray(new Integer[2]);
+    assertEquals(8, small.length);
+    assertEquals(new Integer(7), small[7]);
+    Integer[] big = a.toArray(new Integer[10]);
+    assertEquals(null, big[8]);
+    assertEquals(new Integer(5), big[5]);
+
+    DeArrList<Integer> b = new DeArrList<>();
+    b.add(-1);
+    assertEquals(3, a.drainTo(b, 3));
+    assertEquals("(3,4,5,6,7)", a.toString());
+    assertEquals("(-1,0,1,2)", b.toString());
+    assertEquals(0, a.drainTo(b, 0));
+    assertEquals(5, a.drainTo(b));
+    assertTrue(a.isEmpty());
+    assertEquals("(-1,0,1,2,3,4,5,6,7)", b.toString());
+
+    shouldFail((Consumer2Ex<DeArrList<Integer>, Integer>) b::drainTo, IllegalArgumentException.class, b, 1);
+    shouldFail((Consumer2Ex<DeArrList<Integer>, Integer>) b::drainTo, IllegalArgumentException.class, a, -1);
+
+    b.clear();
+    assertTrue(b.isEmpty());
+    assertEquals("()", b.toString());
+    assertEquals(0, b.toArray().length);
+    b.add(1);
+    b.push(0);
+    assertEquals("(0,1)", b.toString());
+  }
+
+  @Test
+  public void testSpliterator() {
+    DeArrList<Integer> a = new DeArrList<>(1024, true);
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      a.add(i);
+      expected.add(i);
+    }
+    //Wrap the elements around the end of the array
+    a.rotateTo(700);
+
+    Spliterator<Integer> s = a.spliterator();
+    assertEquals(1000L, s.getExactSizeIfKnown());
+    assertTrue(s.hasCharacteristics(Spliterator.SUBSIZED | Spliterator.ORDERED));
+    Spliterator<Integer> prefix = s.trySplit();
+    assertEquals(500L, prefix.estimateSize());
+    assertEquals(500L, s.estimateSize());
+    List<Integer> traversed = new ArrayList<>();
+    assertTrue(prefix.tryAdvance(traversed::add));
+    prefix.forEachRemaining(traversed::add);
+    s.forEachRemaining(traversed::add);
+    assertEquals(expected, traversed);
+
+    assertEquals(expected, a.parallelStream().collect(Collectors.toList()));
+    assertEquals(999 * 1000 / 2, a.parallelStream().mapToInt(Integer::intValue).sum());
+
+    Spliterator<Integer> s2 = a.spliterator();
+    a.add(5);
+    shouldFail(() -> s2.tryAdvance(x -> {}), ConcurrentModificationException.class);
+  }
+
 	@Test
 	public void testRemove(){
 		DeArrList<String> a = new DeArrList<>();
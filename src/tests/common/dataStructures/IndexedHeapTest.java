@@ -0,0 +1,83 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IndexedHeapTest {
+
+  @Test
+  public void testBasics() {
+    IndexedHeap h = new IndexedHeap(10);
+    assertTrue(h.isEmpty());
+    assertEquals(10, h.capacity());
+    shouldFail(h::poll, NoSuchElementException.class);
+    shouldFail(h::peek, NoSuchElementException.class);
+
+    h.add(3, 30);
+    h.add(5, 10);
+    h.add(7, 20);
+    assertEquals(3, h.size());
+    assertTrue(h.contains(7));
+    assertFalse(h.contains(4));
+    assertEquals(5, h.peek());
+    assertEquals(10L, h.peekPriority());
+    assertEquals(30L, h.priorityOf(3));
+    shouldFail(h::priorityOf, NotInCollectionException.class, 4);
+    shouldFail(h::add, IllegalArgumentException.class, 3, 1L);
+
+    h.decreaseKey(3, 5);
+    assertEquals(3, h.peek());
+    shouldFail(h::decreaseKey, IllegalArgumentException.class, 3, 6L);
+    shouldFail(h::decreaseKey, NotInCollectionException.class, 4, 6L);
+    assertFalse(h.addOrDecrease(7, 25));
+    assertTrue(h.addOrDecrease(7, 1));
+    assertTrue(h.addOrDecrease(4, 2));
+
+    assertEquals(7, h.poll());
+    assertEquals(4, h.poll());
+    assertEquals(3, h.poll());
+    assertFalse(h.contains(3));
+    h.clear();
+    assertTrue(h.isEmpty());
+    assertFalse(h.contains(5));
+    h.add(5, 0);
+    assertEquals(5, h.poll());
+
+    shouldFail((Integer n) -> new IndexedHeap(n), IllegalArgumentException.class, -1);
+    shouldFail((Integer n) -> new IndexedHeap(4, n), IllegalArgumentException.class, 1);
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(13);
+    for (int arity = 2; arity <= 5; arity++) {
+      int n = 500;
+      IndexedHeap h = new IndexedHeap(n, arity);
+      long[] expected = new long[n];
+      boolean[] present = new boolean[n];
+      for (int op = 0; op < 20000; op++) {
+        int i = r.nextInt(n);
+        if (r.nextInt(3) > 0) {
+          long p = r.nextInt(100000);
+          boolean changed = h.addOrDecrease(i, p);
+          assertEquals(!present[i] || p < expected[i], changed);
+          if (changed) expected[i] = p;
+          present[i] = true;
+        } else if (!h.isEmpty()) {
+          long min = Long.MAX_VALUE;
+          for (int j = 0; j < n; j++) {
+            if (present[j]) min = Math.min(min, expected[j]);
+          }
+          assertEquals(min, h.peekPriority());
+          int polled = h.poll();
+          assertEquals(min, expected[polled]);
+          present[polled] = false;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntObjectMapTest {
+
+  @Test
+  public void testBasics() {
+    IntObjectMap<String> m = new IntObjectMap<>();
+    assertTrue(m.isEmpty());
+    assertEquals(null, m.get(5));
+    assertEquals(null, m.put(5, "five"));
+    assertEquals("five", m.put(5, "FIVE"));
+    assertEquals(null, m.put(0, "zero"));
+    assertEquals(null, m.put(-3, "minus three"));
+    assertEquals(3, m.size());
+    assertTrue(m.containsKey(0));
+    assertTrue(m.containsKey(-3));
+    assertFalse(m.containsKey(4));
+    assertEquals("FIVE", m.get(5));
+    assertEquals("zero", m.get(0));
+    assertEquals("none", m.getOrDefault(4, "none"));
+
+    assertEquals("zero", m.remove(0));
+    assertEquals(null, m.remove(0));
+    assertFalse(m.containsKey(0));
+    assertEquals(2, m.size());
+
+    assertEquals("x7", m.computeIfAbsent(7, i -> "x" + i));
+    assertEquals("x7", m.computeIfAbsent(7, i -> "y" + i));
+    assertEquals(null, m.computeIfAbsent(8, i -> null));
+    assertFalse(m.containsKey(8));
+
+    HashMap<Integer, String> seen = new HashMap<>();
+    m.forEach(seen::put);
+    assertEquals(3, seen.size());
+    assertEquals("minus three", seen.get(-3));
+
+    m.clear();
+    assertTrue(m.isEmpty());
+    assertEquals(null, m.get(5));
+    shouldFail((Integer n) -> new IntObjectMap<String>(n), IllegalArgumentException.class, -1);
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    Random r = new Random(7);
+    IntObjectMap<Integer> m = new IntObjectMap<>(4);
+    HashMap<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 200000; i++) {
+      //A small key range forces long probe runs and many backward shifts
+      int k = r.nextInt(512) - 64;
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(k), m.remove(k));
+      } else {
+        assertEquals(expected.put(k, i), m.put(k, i));
+      }
+      if (i % 1000 == 0) {
+        assertEquals(expected.size(), m.size());
+        for (int j = -64; j < 448; j++) {
+          assertEquals(expected.get(j), m.get(j));
+        }
+      }
+    }
+    assertEquals(expected.size(), m.keys().length);
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    Random r = new Random(11);
+    for (int trial = 0; trial < 500; trial++) {
+      IntObjectMap<Integer> m = new IntObjectMap<>(r.nextInt(20));
+      HashSet<Integer> keys = new HashSet<>();
+      int n = r.nextInt(60);
+      for (int i = 0; i < n; i++) {
+        int k = r.nextInt(100);
+        m.put(k, k);
+        keys.add(k);
+      }
+
+      //Every key is returned exactly once even as removals shift keys around
+      HashSet<Integer> seen = new HashSet<>();
+      HashSet<Integer> kept = new HashSet<>();
+      PrimitiveIterator.OfInt it = m.keyIterator();
+      while (it.hasNext()) {
+        int k = it.nextInt();
+        assertTrue(seen.add(k));
+        if (r.nextBoolean()) {
+          it.remove();
+        } else {
+          kept.add(k);
+        }
+      }
+      assertEquals(keys, seen);
+      assertEquals(kept.size(), m.size());
+      for (int k : keys) {
+        assertEquals(kept.contains(k), m.containsKey(k));
+      }
+    }
+
+    PrimitiveIterator.OfInt it = new IntObjectMap<String>().keyIterator();
+    assertFalse(it.hasNext());
+    shouldFail(it::remove, IllegalStateException.class);
+  }
+}
@@ -0,0 +1,63 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntSetTest {
+
+  @Test
+  public void testBasics() {
+    IntSet s = new IntSet(3, 0, -2, 3);
+    assertEquals(3, s.size());
+    assertTrue(s.contains(0));
+    assertTrue(s.contains(-2));
+    assertFalse(s.contains(2));
+    assertFalse(s.add(3));
+    assertTrue(s.add(2));
+    assertTrue(s.remove(0));
+    assertFalse(s.remove(0));
+    assertFalse(s.remove(17));
+
+    int[] arr = s.toArray();
+    Arrays.sort(arr);
+    assertEquals(new int[]{-2, 2, 3}, arr);
+    int[] sum = {0};
+    s.forEach(i -> sum[0] += i);
+    assertEquals(3, sum[0]);
+
+    s.clear();
+    assertTrue(s.isEmpty());
+    assertFalse(s.contains(3));
+  }
+
+  @Test
+  public void testAgainstHashSet() {
+    Random r = new Random(5);
+    IntSet s = new IntSet();
+    HashSet<Integer> expected = new HashSet<>();
+    for (int i = 0; i < 100000; i++) {
+      int k = r.nextInt(1000);
+      if (r.nextBoolean()) {
+        assertEquals(expected.add(k), s.add(k));
+      } else {
+        assertEquals(expected.remove(k), s.remove(k));
+      }
+    }
+    assertEquals(expected.size(), s.size());
+
+    //Removing everything through the iterator empties the set
+    PrimitiveIterator.OfInt it = s.iterator();
+    while (it.hasNext()) {
+      assertTrue(expected.remove(it.nextInt()));
+      it.remove();
+    }
+    assertTrue(expected.isEmpty());
+    assertTrue(s.isEmpty());
+  }
+}
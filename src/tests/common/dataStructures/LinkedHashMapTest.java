@@ -3,13 +3,20 @@ package common.dataStructures;
 import static common.JUnitUtil.shouldFail;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
 import common.types.Tuple2;
+import functional.impl.Function1;
 
 public class LinkedHashMapTest {
 
@@ -101,6 +108,35 @@ public class LinkedHashMapTest {
     assertEquals(m.size(), 0);
   }
 
+  @Test
+  public void testForEach() {
+    LinkedHashMap<String, Integer> m = new LinkedHashMap<String, Integer>();
+    for (int i = 65; i < 90; i++) {
+      m.put((char) i + "", i);
+    }
+
+    int[] n = {65};
+    m.forEach((k, v) -> {
+      assertEquals((char) n[0] + "", k);
+      assertEquals(n[0], v.intValue());
+      n[0]++;
+    });
+    assertEquals(90, n[0]);
+
+    StringBuilder keys = new StringBuilder();
+    m.keySet().forEach(keys::append);
+    assertEquals("ABCDEFGHIJKLMNOPQRSTUVWXY", keys.toString());
+    int[] sum = {0};
+    m.values().forEach(v -> sum[0] += v);
+    assertEquals((65 + 89) * 25 / 2, sum[0]);
+    List<String> entryKeys = new ArrayList<>();
+    m.entrySet().forEach(e -> entryKeys.add(e.getKey()));
+    assertEquals(25, entryKeys.size());
+    assertEquals("A", entryKeys.get(0));
+
+    shouldFail(() -> m.forEach((k, v) -> m.remove(k)), ConcurrentModificationException.class);
+  }
+
   @Test
   public void testPutAt() {
     LinkedHashMap<String, Integer> m = new LinkedHashMap<String, Integer>();
@@ -208,4 +244,195 @@ public class LinkedHashMapTest {
 
   }
 
+  @Test
+  public void testLruCache() {
+    List<String> evicted = new ArrayList<>();
+    LinkedHashMap<String, Integer> m = new LinkedHashMap<String, Integer>()
+        .withMaxSize(3)
+        .withEvictionListener((k, v, cause) -> evicted.add(k + "=" + v + ":" + cause));
+
+    m.put("A", 1);
+    m.put("B", 2);
+    m.put("C", 3);
+    assertEquals("{C=3, B=2, A=1}", m.toString());
+
+    //Access promotes to the front, so B is now least recently used
+    assertEquals(new Integer(1), m.get("A"));
+    assertEquals("{A=1, C=3, B=2}", m.toString());
+
+    m.put("D", 4);
+    assertEquals("{D=4, A=1, C=3}", m.toString());
+    assertEquals(Arrays.asList("B=2:SIZE"), evicted);
+
+    //Updating an existing key promotes it without eviction
+    assertEquals(new Integer(3), m.put("C", 30));
+    assertEquals("{C=30, D=4, A=1}", m.toString());
+    assertEquals(1, evicted.size());
+
+    assertEquals(null, m.get("B"));
+    assertEquals(1, m.hitCount());
+    assertEquals(1, m.missCount());
+    assertEquals(0.5, m.hitRate(), 1e-9);
+    assertEquals(1, m.evictionCount());
+
+    m.resetStats();
+    assertTrue(Double.isNaN(m.hitRate()));
+
+    shouldFail((Integer size) -> m.withMaxSize(size), IllegalArgumentException.class, 0);
+    m.withMaxSize(1);
+    assertEquals("{C=30}", m.toString());
+    assertEquals(3, evicted.size());
+  }
+
+  @Test
+  public void testTimeToLive() {
+    long[] time = {0};
+    List<String> evicted = new ArrayList<>();
+    LinkedHashMap<String, Integer> m = new LinkedHashMap<String, Integer>()
+        .withTicker(() -> time[0])
+        .withTimeToLive(10, TimeUnit.NANOSECONDS)
+        .withEvictionListener((k, v, cause) -> evicted.add(k + ":" + cause));
+
+    m.put("A", 1);
+    m.put("B", 2, 100, TimeUnit.NANOSECONDS);
+    m.put("C", 3, 0, TimeUnit.NANOSECONDS);
+    time[0] = 9;
+    assertEquals(new Integer(1), m.get("A"));
+    assertTrue(m.containsKey("A"));
+
+    time[0] = 10;
+    assertFalse(m.containsKey("A"));
+    assertEquals(3, m.size());
+    assertEquals(null, m.get("A"));
+    assertEquals(2, m.size());
+    assertEquals(Arrays.asList("A:EXPIRED"), evicted);
+
+    time[0] = 1000;
+    m.cleanUp();
+    assertEquals("{C=3}", m.toString());
+    assertEquals(Arrays.asList("A:EXPIRED", "B:EXPIRED"), evicted);
+
+    //Re-putting an expired key replaces it as a new entry
+    m.put("D", 4);
+    time[0] = 2000;
+    assertEquals(null, m.put("D", 5));
+    assertEquals(new Integer(5), m.get("D"));
+
+    shouldFail(() -> m.put("E", 1, -1, TimeUnit.SECONDS), IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testExpiredEntriesDontCountTowardsMaxSize() {
+    long[] time = {0};
+    List<String> evicted = new ArrayList<>();
+    LinkedHashMap<String, Integer> m = new LinkedHashMap<String, Integer>()
+        .withMaxSize(3)
+        .withTicker(() -> time[0])
+        .withEvictionListener((k, v, cause) -> evicted.add(k + ":" + cause));
+
+    m.put("A", 1);
+    m.put("B", 2, 10, TimeUnit.NANOSECONDS);
+    m.put("C", 3, 20, TimeUnit.NANOSECONDS);
+    m.put("B", 4, 30, TimeUnit.NANOSECONDS);
+    time[0] = 25;
+    //C has expired, so D fits without evicting A, the least recently used live entry
+    m.put("D", 5);
+    assertEquals(Arrays.asList("C:EXPIRED"), evicted);
+    assertEquals("{D=5, B=4, A=1}", m.toString());
+
+    time[0] = 30;
+    m.cleanUp();
+    assertEquals(Arrays.asList("C:EXPIRED", "B:EXPIRED"), evicted);
+    m.remove("A");
+    m.put("A", 6, 5, TimeUnit.NANOSECONDS);
+    m.remove("A");
+    time[0] = 100;
+    m.put("E", 7);
+    assertEquals("{E=7, D=5}", m.toString());
+    assertEquals(2L, m.evictionCount());
+  }
+
+  @Test
+  public void testTinyLfuCountsWrites() {
+    LinkedHashMap<Integer, Integer> m = new LinkedHashMap<Integer, Integer>().withMaxSize(100)
+        .withTinyLfuAdmission();
+    for (int i = 0; i < 100; i++) {
+      m.put(i, i);
+    }
+    //A key that is only ever written, but often, beats one that was written once
+    for (int i = 0; i < 5; i++) {
+      m.put(1000, i);
+    }
+    m.put(1001, 0);
+    assertTrue(m.containsKey(1000));
+    assertEquals(100, m.size());
+  }
+
+  @Test
+  public void testGetOrLoad() {
+    long[] time = {0};
+    LinkedHashMap<Integer, Integer> m = new LinkedHashMap<Integer, Integer>()
+        .withMaxSize(10)
+        .withTicker(() -> time[0]);
+
+    int[] loads = {0};
+    Function1<Integer, Integer> square = (x) -> {
+      loads[0]++;
+      time[0] += 5;
+      return x * x;
+    };
+    for (int i = 0; i < 3; i++) {
+      for (int k = 0; k < 5; k++) {
+        assertEquals(new Integer(k * k), m.getOrLoad(k, square));
+      }
+    }
+    assertEquals(5, loads[0]);
+    assertEquals(5, m.loadCount());
+    assertEquals(25, m.totalLoadTime());
+    assertEquals(5.0, m.averageLoadTime(), 1e-9);
+    assertEquals(10, m.hitCount());
+    assertEquals(5, m.missCount());
+  }
+
+  @Test
+  public void testTinyLfuAdmission() {
+    LinkedHashMap<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>().withMaxSize(100);
+    LinkedHashMap<Integer, Integer> lfu = new LinkedHashMap<Integer, Integer>().withMaxSize(100)
+        .withTinyLfuAdmission();
+
+    //A hot set of 50 keys, interleaved with a scan of keys that are each used once
+    Random r = new Random(1);
+    int scan = 1000;
+    for (int i = 0; i < 20000; i++) {
+      for (LinkedHashMap<Integer, Integer> m : Arrays.asList(lru, lfu)) {
+        if (i % 2 == 0) {
+          m.getOrLoad(r.nextInt(50), (x) -> x);
+        } else {
+          m.getOrLoad(scan, (x) -> x);
+        }
+      }
+      if (i % 2 == 1) scan++;
+      assertTrue(lfu.size() <= 100);
+    }
+    assertEquals(100, lfu.size());
+    assertTrue("TinyLFU hit rate " + lfu.hitRate() + " should beat LRU " + lru.hitRate(),
+        lfu.hitRate() > lru.hitRate());
+    assertTrue(lfu.hitRate() > 0.45);
+
+    //Every entry can still be found, and iteration covers exactly the live entries
+    int count = 0;
+    for (Entry<Integer, Integer> e : lfu) {
+      assertTrue(lfu.containsKey(e.getKey()));
+      count++;
+    }
+    assertEquals(100, count);
+
+    lfu.clear();
+    assertTrue(lfu.isEmpty());
+    lfu.put(1, 1);
+    assertEquals(new Integer(1), lfu.get(Integer.valueOf(1)));
+
+    shouldFail(() -> new LinkedHashMap<Integer, Integer>().withTinyLfuAdmission(), IllegalStateException.class);
+    shouldFail(() -> lfu.putFirst(2, 2), UnsupportedOperationException.class);
+  }
 }
@@ -0,0 +1,61 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntMapTest {
+
+  @Test
+  public void testBasics() {
+    LongIntMap m = new LongIntMap();
+    assertEquals(0, m.get(1L << 40));
+    assertEquals(0, m.put(1L << 40, 3));
+    assertEquals(3, m.put(1L << 40, 4));
+    assertEquals(4, m.get(1L << 40));
+    assertEquals(-1, m.getOrDefault(1L << 41, -1));
+    assertFalse(m.containsKey(1L << 41));
+
+    assertEquals(2, m.addTo(0, 2));
+    assertEquals(5, m.addTo(0, 3));
+    assertEquals(1, m.addTo(-7L, 1));
+    assertEquals(3, m.size());
+
+    long[] keys = m.keys();
+    assertEquals(3, keys.length);
+    long[] sum = {0, 0};
+    m.forEach((k, v) -> {
+      sum[0] += k;
+      sum[1] += v;
+    });
+    assertEquals((1L << 40) - 7, sum[0]);
+    assertEquals(10L, sum[1]);
+
+    assertEquals(5, m.remove(0));
+    assertEquals(0, m.remove(0));
+    assertEquals(2, m.size());
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    Random r = new Random(3);
+    LongIntMap m = new LongIntMap();
+    HashMap<Long, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      //Keys that differ only in their high bits must still spread over the table
+      long k = ((long) r.nextInt(300)) << 32;
+      if (r.nextInt(3) == 0) {
+        Integer old = expected.remove(k);
+        assertEquals(old == null ? 0 : old, m.remove(k));
+      } else {
+        expected.merge(k, 1, Integer::sum);
+        m.addTo(k, 1);
+      }
+    }
+    assertEquals(expected.size(), m.size());
+    expected.forEach((k, v) -> assertEquals(v.intValue(), m.get(k)));
+  }
+}
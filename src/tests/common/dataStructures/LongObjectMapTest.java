@@ -0,0 +1,168 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongObjectMapTest {
+
+  /** Mirrors LongObjectMap's hash, to build probe runs on purpose */
+  private static int home(long key, int length) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    int x = (int) (h ^ (h >>> 32));
+    return (x ^ (x >>> 16)) & (length - 1);
+  }
+
+  /** Returns the first count positive keys whose home slot in a table of the given length is slot */
+  private static List<Long> keysAt(int slot, int length, int count) {
+    List<Long> keys = new ArrayList<>();
+    for (long k = 1; keys.size() < count; k++) {
+      if (home(k, length) == slot) keys.add(k);
+    }
+    return keys;
+  }
+
+  @Test
+  public void testBasics() {
+    LongObjectMap<String> m = new LongObjectMap<>();
+    assertTrue(m.isEmpty());
+    assertEquals(null, m.get(1L << 40));
+    assertEquals(null, m.put(1L << 40, "big"));
+    assertEquals("big", m.put(1L << 40, "BIG"));
+    assertEquals(null, m.put(0, "zero"));
+    assertEquals(null, m.put(-3, "minus three"));
+    assertEquals(3, m.size());
+    assertTrue(m.containsKey(0));
+    assertTrue(m.containsKey(-3));
+    assertFalse(m.containsKey(1L << 41));
+    assertEquals("BIG", m.get(1L << 40));
+    assertEquals("none", m.getOrDefault(4, "none"));
+
+    assertEquals("zero", m.remove(0));
+    assertEquals(null, m.remove(0));
+    assertFalse(m.containsKey(0));
+    assertEquals(2, m.size());
+
+    assertEquals("x7", m.computeIfAbsent(7, k -> "x" + k));
+    assertEquals("x7", m.computeIfAbsent(7, k -> "y" + k));
+    assertEquals(null, m.computeIfAbsent(8, k -> null));
+    assertFalse(m.containsKey(8));
+
+    m.clear();
+    assertTrue(m.isEmpty());
+    assertEquals(null, m.get(7));
+    shouldFail((Integer n) -> new LongObjectMap<String>(n), IllegalArgumentException.class, -1);
+  }
+
+  @Test
+  public void testCollisions() {
+    //Expected size 8 gives a table of 16 that grows past 9 mappings
+    LongObjectMap<Long> m = new LongObjectMap<>(8);
+    List<Long> run = keysAt(3, 16, 4);
+    List<Long> wrapping = keysAt(15, 16, 3);
+    for (long k : run) {
+      m.put(k, k);
+    }
+    for (long k : wrapping) {
+      m.put(k, k);
+    }
+
+    //Removing from the middle of a run must shift the rest back, or they'd become unreachable
+    assertEquals(run.get(1), m.remove(run.get(1)));
+    assertEquals(null, m.get(run.get(1)));
+    assertEquals(run.get(2), m.get(run.get(2)));
+    assertEquals(run.get(3), m.get(run.get(3)));
+    assertEquals(run.get(0), m.remove(run.get(0)));
+    assertEquals(run.get(3), m.get(run.get(3)));
+
+    //Likewise for a run that wraps around the end of the table
+    assertEquals(wrapping.get(0), m.remove(wrapping.get(0)));
+    assertEquals(wrapping.get(1), m.get(wrapping.get(1)));
+    assertEquals(wrapping.get(2), m.get(wrapping.get(2)));
+    assertEquals(4, m.size());
+
+    //Growing the table keeps every mapping
+    for (long k = 100; k < 120; k++) {
+      m.put(k << 32, k);
+    }
+    assertEquals(24, m.size());
+    for (long k = 100; k < 120; k++) {
+      assertEquals(Long.valueOf(k), m.get(k << 32));
+    }
+    assertEquals(run.get(2), m.get(run.get(2)));
+    assertEquals(wrapping.get(2), m.get(wrapping.get(2)));
+
+    HashMap<Long, Long> seen = new HashMap<>();
+    m.forEach(seen::put);
+    assertEquals(24, seen.size());
+    for (long k : m.keys()) {
+      assertEquals(m.get(k), seen.get(k));
+    }
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    Random r = new Random(13);
+    LongObjectMap<Integer> m = new LongObjectMap<>(4);
+    HashMap<Long, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 200000; i++) {
+      //A small key range forces long probe runs and many backward shifts
+      long k = ((long) r.nextInt(512) - 64) << (r.nextBoolean() ? 0 : 36);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(k), m.remove(k));
+      } else {
+        assertEquals(expected.put(k, i), m.put(k, i));
+      }
+      if (i % 1000 == 0) {
+        assertEquals(expected.size(), m.size());
+        expected.forEach((key, v) -> assertEquals(v, m.get(key)));
+      }
+    }
+    assertEquals(expected.size(), m.keys().length);
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    Random r = new Random(17);
+    for (int trial = 0; trial < 500; trial++) {
+      LongObjectMap<Long> m = new LongObjectMap<>(r.nextInt(20));
+      HashSet<Long> keys = new HashSet<>();
+      int n = r.nextInt(60);
+      for (int i = 0; i < n; i++) {
+        long k = r.nextInt(100);
+        m.put(k, k);
+        keys.add(k);
+      }
+
+      //Every key is returned exactly once even as removals shift keys around
+      HashSet<Long> seen = new HashSet<>();
+      HashSet<Long> kept = new HashSet<>();
+      PrimitiveIterator.OfLong it = m.keyIterator();
+      while (it.hasNext()) {
+        long k = it.nextLong();
+        assertTrue(seen.add(k));
+        if (r.nextBoolean()) {
+          it.remove();
+        } else {
+          kept.add(k);
+        }
+      }
+      assertEquals(keys, seen);
+      assertEquals(kept.size(), m.size());
+      for (long k : keys) {
+        assertEquals(kept.contains(k), m.containsKey(k));
+      }
+    }
+
+    PrimitiveIterator.OfLong it = new LongObjectMap<String>().keyIterator();
+    assertFalse(it.hasNext());
+    shouldFail(it::remove, IllegalStateException.class);
+  }
+}
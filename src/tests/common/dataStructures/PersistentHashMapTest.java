@@ -0,0 +1,125 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentHashMapTest {
+
+  /** A key whose hash is controllable, to force hash collisions */
+  private static class CollidingKey {
+    private final int id;
+    private final int hash;
+
+    private CollidingKey(int id, int hash) {
+      this.id = id;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return "K" + id;
+    }
+  }
+
+  @Test
+  public void testConstruction() {
+    PersistentHashMap<String, Integer> m = PersistentHashMap.empty();
+    assertEquals(0, m.size());
+    assertTrue(m.isEmpty());
+    assertEquals("{}", m.toString());
+
+    PersistentHashMap<String, Integer> m2 = m.put("a", 1);
+    assertEquals(1, m2.size());
+    assertEquals(1, m2.get("a"));
+    assertTrue(m2.containsKey("a"));
+    assertFalse(m2.containsKey("b"));
+    assertEquals(null, m2.get("b"));
+    assertEquals(5, m2.getOrDefault("b", 5));
+
+    PersistentHashMap<String, Integer> m3 = m2.put("a", 2).put("b", null);
+    assertEquals(2, m3.size());
+    assertEquals(2, m3.get("a"));
+    assertTrue(m3.containsKey("b"));
+    assertEquals(null, m3.get("b"));
+
+    //Older versions are unaltered
+    assertEquals(0, m.size());
+    assertEquals(1, m2.get("a"));
+
+    assertTrue(m2 == m2.put("a", 1));
+    assertTrue(m2 == m2.remove("b"));
+    assertEquals(m, m2.remove("a"));
+
+    shouldFail(m::put, IllegalArgumentException.class, null, 1);
+  }
+
+  @Test
+  public void testCollisions() {
+    PersistentHashMap<CollidingKey, Integer> m = PersistentHashMap.empty();
+    for (int i = 0; i < 100; i++) {
+      m = m.put(new CollidingKey(i, i % 3), i);
+    }
+    assertEquals(100, m.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, m.get(new CollidingKey(i, i % 3)));
+    }
+    for (int i = 0; i < 100; i += 2) {
+      m = m.remove(new CollidingKey(i, i % 3));
+    }
+    assertEquals(50, m.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i % 2 == 0 ? null : i, m.get(new CollidingKey(i, i % 3)));
+    }
+  }
+
+  @Test
+  public void testRandomOperationsAgainstMap() {
+    Random r = new Random(26);
+    Map<Integer, Integer> expected = new HashMap<>();
+    PersistentHashMap<Integer, Integer> m = PersistentHashMap.empty();
+    PersistentHashMap<Integer, Integer> snapshot = null;
+    Map<Integer, Integer> snapshotExpected = null;
+    for (int i = 0; i < 50000; i++) {
+      int k = r.nextInt(5000) * (r.nextBoolean() ? 1 : -65537);
+      if (r.nextInt(3) == 0) {
+        expected.remove(k);
+        m = m.remove(k);
+      } else {
+        expected.put(k, i);
+        m = m.put(k, i);
+      }
+      assertEquals(expected.size(), m.size());
+      if (i == 25000) {
+        snapshot = m;
+        snapshotExpected = new HashMap<>(expected);
+      }
+    }
+    assertEquals(expected, m.toMap());
+    assertEquals(snapshotExpected, snapshot.toMap());
+    assertEquals(PersistentHashMap.from(expected), m);
+    assertEquals(PersistentHashMap.from(expected).hashCode(), m.hashCode());
+    assertEquals(expected.hashCode(), m.hashCode());
+
+    int count = 0;
+    for (Map.Entry<Integer, Integer> e : m) {
+      assertEquals(expected.get(e.getKey()), e.getValue());
+      count++;
+    }
+    assertEquals(expected.size(), count);
+  }
+}
@@ -0,0 +1,117 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class PersistentVectorTest {
+
+  @Test
+  public void testConstruction() {
+    PersistentVector<Integer> v = PersistentVector.empty();
+    assertEquals(0, v.size());
+    assertTrue(v.isEmpty());
+    assertEquals("()", v.toString());
+
+    PersistentVector<Integer> v2 = v.append(1);
+    assertEquals(1, v2.size());
+    assertEquals(1, v2.get(0));
+    assertEquals("(1)", v2.toString());
+
+    PersistentVector<Integer> v3 = v2.append(2);
+    assertEquals("(1,2)", v3.toString());
+
+    //Older versions are unaltered
+    assertEquals(0, v.size());
+    assertEquals("(1)", v2.toString());
+
+    assertEquals(PersistentVector.of(1, 2), v3);
+    assertEquals(PersistentVector.of(1, 2).hashCode(), v3.hashCode());
+    assertFalse(v2.equals(v3));
+
+    shouldFail(v3::get, IllegalArgumentException.class, -1);
+    shouldFail(v3::get, IllegalArgumentException.class, 2);
+    shouldFail(PersistentVector.empty()::pop, IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testAppendGetAcrossLevels() {
+    //Large enough to need three levels of tree beneath the tail
+    int n = 32 * 32 * 32 + 100;
+    PersistentVector<Integer> v = PersistentVector.empty();
+    for (int i = 0; i < n; i++) {
+      v = v.append(i);
+      assertEquals(i + 1, v.size());
+    }
+    for (int i = 0; i < n; i++) {
+      assertEquals(i, v.get(i));
+    }
+    int i = 0;
+    for (int x : v) {
+      assertEquals(i, x);
+      i++;
+    }
+    assertEquals(n, i);
+    assertEquals(n, v.toArray().length);
+    assertEquals(n - 1, v.toArray()[n - 1]);
+  }
+
+  @Test
+  public void testSetAndPopShareStructure() {
+    int n = 5000;
+    PersistentVector<Integer> v = PersistentVector.empty();
+    for (int i = 0; i < n; i++) {
+      v = v.append(i);
+    }
+
+    PersistentVector<Integer> v2 = v.set(10, -10).set(n - 1, -1);
+    assertEquals(-10, v2.get(10));
+    assertEquals(-1, v2.get(n - 1));
+    assertEquals(10, v.get(10));
+    assertEquals(n - 1, v.get(n - 1));
+
+    PersistentVector<Integer> popped = v;
+    for (int i = n - 1; i >= 0; i--) {
+      assertEquals(i, popped.last());
+      popped = popped.pop();
+      assertEquals(i, popped.size());
+      if (i > 0) {
+        assertEquals(i - 1, popped.get(i - 1));
+      }
+    }
+    assertTrue(popped.isEmpty());
+    assertEquals(n, v.size());
+  }
+
+  @Test
+  public void testRandomOperationsAgainstList() {
+    Random r = new Random(26);
+    List<Integer> expected = new ArrayList<>();
+    PersistentVector<Integer> v = PersistentVector.empty();
+    for (int i = 0; i < 20000; i++) {
+      int op = r.nextInt(10);
+      if (op < 6 || expected.isEmpty()) {
+        expected.add(i);
+        v = v.append(i);
+      } else if (op < 8) {
+        int index = r.nextInt(expected.size());
+        expected.set(index, -i);
+        v = v.set(index, -i);
+      } else {
+        expected.remove(expected.size() - 1);
+        v = v.pop();
+      }
+      assertEquals(expected.size(), v.size());
+    }
+    assertEquals(expected, v.toList());
+    assertEquals(expected, v.stream().collect(Collectors.toList()));
+    assertEquals(expected.indexOf(expected.get(7)), v.indexOf(expected.get(7)));
+    assertTrue(v.contains(expected.get(expected.size() - 1)));
+    assertEquals(PersistentVector.from(expected), v);
+  }
+}
@@ -0,0 +1,101 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PileMapTest {
+
+  @Test
+  public void testConstruction() {
+    PileMap p = new PileMap(5);
+    assertEquals(5, p.size());
+    assertEquals("[0, 0, 0, 0, 0]", p.toString());
+    assertEquals(0L, p.total());
+
+    PileMap p2 = new PileMap(new int[]{3, 1, 4, 1, 5});
+    assertEquals("[3, 1, 4, 1, 5]", p2.toString());
+    assertEquals(14L, p2.total());
+    assertEquals(1, p2.min(0, 4));
+    assertEquals(5, p2.max(0, 4));
+    assertEquals(4, p2.max(0, 3));
+
+    shouldFail((Integer size) -> new PileMap(size), IllegalArgumentException.class, 0);
+    shouldFail(p::get, ArrayIndexOutOfBoundsException.class, 5);
+    shouldFail(p::sum, ArrayIndexOutOfBoundsException.class, 3, 2);
+    shouldFail(p::min, ArrayIndexOutOfBoundsException.class, -1, 2);
+  }
+
+  @Test
+  public void testRangeAdd() {
+    PileMap p = new PileMap(10);
+    p.add(2, 5, 3);
+    assertEquals("[0, 0, 3, 3, 3, 3, 0, 0, 0, 0]", p.toString());
+    p.add(4, 9, -1);
+    assertEquals("[0, 0, 3, 3, 2, 2, -1, -1, -1, -1]", p.toString());
+    p.add(0, 7);
+    assertEquals(7, p.get(0));
+    assertEquals(3, p.get(3));
+    assertEquals(-1, p.get(9));
+    assertEquals(17L, p.sum(0, 5));
+    assertEquals(-1, p.min(0, 9));
+    assertEquals(7, p.max(0, 9));
+    assertEquals(0, p.min(1, 5));
+    p.set(9, 10);
+    assertEquals(10, p.max(0, 9));
+    assertEquals(10, p.get(9));
+  }
+
+  @Test
+  public void testRandomAgainstArray() {
+    Random r = new Random(28);
+    int n = 137;
+    PileMap p = new PileMap(n);
+    LongPileMap lp = new LongPileMap(n);
+    DoublePileMap dp = new DoublePileMap(n);
+    long[] expected = new long[n];
+    for (int i = 0; i < 5000; i++) {
+      int a = r.nextInt(n);
+      int b = r.nextInt(n);
+      int start = Math.min(a, b);
+      int stop = Math.max(a, b);
+      if (r.nextBoolean()) {
+        int delta = r.nextInt(2001) - 1000;
+        p.add(start, stop, delta);
+        lp.add(start, stop, delta * 1000000000L);
+        dp.add(start, stop, delta / 4.0);
+        for (int j = start; j <= stop; j++) {
+          expected[j] += delta;
+        }
+      } else {
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int j = start; j <= stop; j++) {
+          sum += expected[j];
+          min = Math.min(min, expected[j]);
+          max = Math.max(max, expected[j]);
+        }
+        assertEquals(sum, p.sum(start, stop));
+        assertEquals((int) min, p.min(start, stop));
+        assertEquals((int) max, p.max(start, stop));
+        assertEquals((int) expected[start], p.get(start));
+
+        assertEquals(sum * 1000000000L, lp.sum(start, stop));
+        assertEquals(min * 1000000000L, lp.min(start, stop));
+        assertEquals(max * 1000000000L, lp.max(start, stop));
+
+        assertEquals(sum / 4.0, dp.sum(start, stop));
+        assertEquals(min / 4.0, dp.min(start, stop));
+        assertEquals(max / 4.0, dp.max(start, stop));
+        assertEquals(expected[stop] / 4.0, dp.get(stop));
+      }
+    }
+    long[] arr = lp.toArray();
+    for (int j = 0; j < n; j++) {
+      assertEquals(expected[j] * 1000000000L, arr[j]);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PrimitiveStatsIteratorTest {
+
+  private static final double EPSILON = 1e-6;
+
+  private static void assertClose(double expected, double actual) {
+    assertTrue(expected + " != " + actual, Math.abs(expected - actual) <= EPSILON * Math.max(1, Math.abs(expected)));
+  }
+
+  @Test
+  public void testUnboundedIntStats() {
+    int[] data = {4, 8, 15, 16, 23, 42};
+    IntStatsIterator s = new IntStatsIterator(Arrays.stream(data).iterator());
+    shouldFail(s::min, NoSuchElementException.class);
+    assertTrue(Double.isNaN(s.mean()));
+
+    long sum = 0;
+    for (int i = 0; i < data.length; i++) {
+      assertTrue(s.hasNext());
+      assertEquals(data[i], s.nextInt());
+      sum += data[i];
+      assertEquals((long) (i + 1), s.count());
+      assertEquals(sum, s.sum());
+      assertClose((double) sum / (i + 1), s.mean());
+      assertEquals(4, s.min());
+      assertEquals(data[i], s.max());
+    }
+    assertFalse(s.hasNext());
+    //Population variance of the data set
+    assertClose(910.0 / 6, s.variance());
+  }
+
+  @Test
+  public void testWindowedIntStats() {
+    Random r = new Random(29);
+    int[] data = new int[10000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = r.nextInt(2001) - 1000;
+    }
+    int window = 37;
+    IntStatsIterator s = new IntStatsIterator(Arrays.stream(data).iterator(), window);
+    for (int i = 0; i < data.length; i++) {
+      s.nextInt();
+      int from = Math.max(0, i - window + 1);
+      int[] w = Arrays.copyOfRange(data, from, i + 1);
+      assertEquals((long) w.length, s.count());
+      assertEquals(Arrays.stream(w).asLongStream().sum(), s.sum());
+      assertEquals(Arrays.stream(w).min().getAsInt(), s.min());
+      assertEquals(Arrays.stream(w).max().getAsInt(), s.max());
+      double mean = Arrays.stream(w).average().getAsDouble();
+      assertClose(mean, s.mean());
+      assertClose(Arrays.stream(w).mapToDouble((x) -> (x - mean) * (x - mean)).sum() / w.length, s.variance());
+    }
+  }
+
+  @Test
+  public void testWindowedDoubleStatsAndResize() {
+    Random r = new Random(30);
+    double[] data = new double[2000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = r.nextGaussian() * 100;
+    }
+    DoubleStatsIterator s = new DoubleStatsIterator(Arrays.stream(data).iterator(), 50);
+    int window = 50;
+    for (int i = 0; i < data.length; i++) {
+      if (i == 1000) {
+        window = 10;
+        s.setWindowSize(window);
+      } else if (i == 1500) {
+        window = 100;
+        s.setWindowSize(window);
+      }
+      s.nextDouble();
+      int from = Math.max(i < 1500 ? 0 : 1500 - 10, i - window + 1);
+      double[] w = Arrays.copyOfRange(data, from, i + 1);
+      assertEquals((long) w.length, s.count());
+      assertClose(Arrays.stream(w).sum(), s.sum());
+      assertEquals(Arrays.stream(w).min().getAsDouble(), s.min());
+      assertEquals(Arrays.stream(w).max().getAsDouble(), s.max());
+      double mean = Arrays.stream(w).average().getAsDouble();
+      assertClose(mean, s.mean());
+      assertClose(Math.sqrt(Arrays.stream(w).map((x) -> (x - mean) * (x - mean)).sum() / w.length),
+          s.standardDeviation());
+    }
+    assertEquals(100, s.getWindowSize());
+    shouldFail(s::setWindowSize, IllegalArgumentException.class, 0);
+
+    s.setWindowSize(DoubleStatsIterator.UNBOUNDED);
+    assertEquals(100L, s.count());
+    double max = s.max();
+    s = new DoubleStatsIterator(Arrays.stream(new double[]{max + 1}).iterator());
+    s.nextDouble();
+    assertEquals(max + 1, s.max());
+  }
+
+  @Test
+  public void testCountPastIntRange() {
+    int[] ints = {1000000, 1000000, 1000000, 1000000, 1000000, 1000000, 1000000, 1000000, 1000000, 1000000};
+    IntStatsIterator s = new IntStatsIterator(Arrays.stream(ints).iterator());
+    long zeros = Integer.MAX_VALUE - 5L;
+    s.addZeros(zeros);
+    while (s.hasNext()) {
+      s.nextInt();
+    }
+    assertEquals(zeros + 10, s.count());
+    assertEquals(10000000L, s.sum());
+    assertClose(1e7 / (zeros + 10), s.mean());
+    double mean = 1e7 / (zeros + 10);
+    assertClose((zeros * mean * mean + 10 * (1e6 - mean) * (1e6 - mean)) / (zeros + 10), s.variance());
+    assertEquals(0, s.min());
+    assertEquals(1000000, s.max());
+
+    double[] doubles = {1e6, 1e6, 1e6, 1e6, 1e6, 1e6, 1e6, 1e6, 1e6, 1e6};
+    DoubleStatsIterator d = new DoubleStatsIterator(Arrays.stream(doubles).iterator());
+    d.addZeros(zeros);
+    while (d.hasNext()) {
+      d.nextDouble();
+    }
+    assertEquals(zeros + 10, d.count());
+    assertClose(1e7, d.sum());
+    assertClose(mean, d.mean());
+    assertClose((zeros * mean * mean + 10 * (1e6 - mean) * (1e6 - mean)) / (zeros + 10), d.variance());
+    shouldFail((Long n) -> new DoubleStatsIterator(Arrays.stream(doubles).iterator(), 5).addZeros(n),
+        IllegalStateException.class, 1L);
+  }
+
+  @Test
+  public void testWindowedDoubleSumDoesNotDrift() {
+    //1 + 1e20 rounds to 1e20, so subtracting the 1e20 back out loses the small elements
+    double[] data = {1e20, 1, 1, 1, 1, 1, 1};
+    DoubleStatsIterator s = new DoubleStatsIterator(Arrays.stream(data).iterator(), 3);
+    while (s.hasNext()) {
+      s.nextDouble();
+    }
+    assertEquals(3.0, s.sum());
+    assertEquals(1.0, s.mean());
+    assertEquals(0.0, s.variance());
+  }
+}
@@ -0,0 +1,115 @@
+package common.dataStructures;
+
+import static common.JUnitUtil.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+  /** Asserts that actual is within relative error a of expected */
+  private static void assertWithin(double a, double expected, double actual) {
+    assertTrue("Expected " + expected + " but got " + actual,
+        Math.abs(actual - expected) <= a * Math.abs(expected) + 1e-12);
+  }
+
+  /** Returns the exact q quantile of sorted, using the same rank as QuantileSketch */
+  private static double exactQuantile(double[] sorted, double q) {
+    return sorted[(int) (q * (sorted.length - 1))];
+  }
+
+  @Test
+  public void testConstruction() {
+    QuantileSketch s = new QuantileSketch();
+    assertTrue(s.isEmpty());
+    assertEquals(0L, s.count());
+    assertTrue(Double.isNaN(s.quantile(0.5)));
+    assertEquals(QuantileSketch.DEFAULT_RELATIVE_ACCURACY, s.getRelativeAccuracy());
+
+    shouldFail((Double a) -> new QuantileSketch(a), IllegalArgumentException.class, 0.0);
+    shouldFail((Double a) -> new QuantileSketch(a), IllegalArgumentException.class, 1.0);
+    shouldFail((Integer b) -> new QuantileSketch(0.01, b), IllegalArgumentException.class, 0);
+    shouldFail(s::quantile, IllegalArgumentException.class, 1.5);
+    shouldFail(s::add, IllegalArgumentException.class, Double.NaN);
+  }
+
+  @Test
+  public void testRelativeAccuracy() {
+    Random r = new Random(42);
+    for (double a : new double[]{0.01, 0.05}) {
+      QuantileSketch s = new QuantileSketch(a);
+      double[] vals = new double[10000];
+      for (int i = 0; i < vals.length; i++) {
+        //Spread over several orders of magnitude, with both signs and some zeros
+        vals[i] = i % 50 == 0 ? 0 : (r.nextBoolean() ? 1 : -1) * Math.exp(r.nextGaussian() * 5);
+        s.add(vals[i]);
+      }
+      assertEquals(10000L, s.count());
+      Arrays.sort(vals);
+      for (double q : new double[]{0, 0.01, 0.25, 0.5, 0.75, 0.95, 0.99, 1}) {
+        assertWithin(a, exactQuantile(vals, q), s.quantile(q));
+      }
+    }
+  }
+
+  @Test
+  public void testRemove() {
+    QuantileSketch s = new QuantileSketch();
+    QuantileSketch expected = new QuantileSketch();
+    Random r = new Random(7);
+    DeArrList<Double> window = new DeArrList<>();
+    for (int i = 0; i < 5000; i++) {
+      double d = r.nextDouble() * 1000;
+      s.add(d);
+      window.add(d);
+      if (window.size() > 100) s.remove(window.removeFirst());
+    }
+    for (double d : window) {
+      expected.add(d);
+    }
+    assertEquals(100L, s.count());
+    double[] qs = {0, 0.1, 0.5, 0.9, 1};
+    assertEquals(Arrays.toString(expected.quantiles(qs)), Arrays.toString(s.quantiles(qs)));
+  }
+
+  @Test
+  public void testMerge() {
+    QuantileSketch a = new QuantileSketch();
+    QuantileSketch b = new QuantileSketch();
+    QuantileSketch all = new QuantileSketch();
+    for (int i = 1; i <= 1000; i++) {
+      (i % 3 == 0 ? a : b).add(i);
+      all.add(i);
+    }
+    QuantileSketch c = a.copy();
+    c.merge(b);
+    assertEquals(1000L, c.count());
+    assertEquals(333L, a.count());
+    double[] qs = {0, 0.5, 0.99, 1};
+    assertEquals(Arrays.toString(all.quantiles(qs)), Arrays.toString(c.quantiles(qs)));
+
+    shouldFail(c::merge, IllegalArgumentException.class, new QuantileSketch(0.05));
+  }
+
+  @Test
+  public void testBoundedBuckets() {
+    //With few buckets, the lowest values collapse but the high quantiles stay accurate
+    QuantileSketch s = new QuantileSketch(0.01, 100);
+    double[] vals = new double[2000];
+    for (int i = 0; i < vals.length; i++) {
+      vals[i] = Math.pow(10, i / 200.0);
+      s.add(vals[i]);
+    }
+    assertWithin(0.01, exactQuantile(vals, 0.99), s.quantile(0.99));
+    assertWithin(0.01, exactQuantile(vals, 1), s.quantile(1));
+    assertTrue(s.quantile(0) > vals[0]);
+
+    //Removal is still exact after collapsing
+    for (double d : vals) {
+      s.remove(d);
+    }
+    assertTrue(s.isEmpty());
+  }
+}
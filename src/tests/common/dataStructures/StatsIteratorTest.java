@@ -3,6 +3,7 @@ package common.dataStructures;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -63,4 +64,47 @@ public class StatsIteratorTest {
     }
     assertFalse(s.hasNext());
   }
+
+  @Test
+  public void testQuantileStat() {
+    List<Double> lst = new ArrayList<>();
+    for (int i = 1; i <= 1000; i++) {
+      lst.add((double) i);
+    }
+    StatsIterator<Double> s = new StatsIterator<>(lst.iterator()).withQuantileStat(0.5, 0.99);
+    while (s.hasNext()) {
+      s.next();
+    }
+    double[] quantiles = s.getQuantiles();
+    assertTrue(Math.abs(quantiles[0] - 500) <= 5);
+    assertTrue(Math.abs(quantiles[1] - 990) <= 9.9);
+    assertEquals(1000L, ((QuantileSketch) s.getStat(StatsIterator.QUANTILE_KEY)).count());
+
+    //getStat hands out a copy, so changing it doesn't change the iterator's sketch
+    QuantileSketch copy = (QuantileSketch) s.getStat(StatsIterator.QUANTILE_KEY);
+    for (int i = 0; i < 1000; i++) {
+      copy.add(1e6);
+    }
+    assertEquals(quantiles, s.getQuantiles());
+
+    shouldFail(() -> new StatsIterator<>(lst.iterator()).withQuantileStat(1.5), IllegalArgumentException.class);
+    shouldFail(() -> new StatsIterator<>(lst.iterator()).getQuantiles(), RuntimeException.class);
+  }
+
+  @Test
+  public void testQuantileStatWithWindow() {
+    List<Double> lst = new ArrayList<>();
+    for (int i = 1; i <= 1000; i++) {
+      lst.add((double) i);
+    }
+    StatsIterator<Double> s = new StatsIterator<>(lst.iterator(), 10)
+        .withQuantileStat(new double[]{0, 1}, 0.001);
+    for (int i = 1; i <= 1000; i++) {
+      s.next();
+      double[] quantiles = s.getQuantiles();
+      double min = Math.max(1, i - 9);
+      assertTrue(Math.abs(quantiles[0] - min) <= 0.001 * min + 1e-9);
+      assertTrue(Math.abs(quantiles[1] - i) <= 0.001 * i + 1e-9);
+    }
+  }
 }
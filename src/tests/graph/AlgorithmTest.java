@@ -5,6 +5,7 @@ import functional.impl.Function2;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static common.JUnitUtil.*;
 import static common.JUnitUtil.assertFalse;
@@ -52,6 +53,140 @@ public class AlgorithmTest {
     assertFalse(Algorithm.isDAG(g));
   }
 
+  @Test
+  public void testTopologicalSort() {
+    Graph<String, Integer> g = new Graph<>();
+    assertEquals(new ArrayList<String>(), Algorithm.topologicalSort(g));
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addVertex("D");
+    g.addEdge("C", "A", 1);
+    g.addEdge("A", "B", 2);
+    g.addEdge("C", "B", 3);
+    g.addEdge("D", "B", 4);
+    checkTopologicalOrder(g, Algorithm.topologicalSort(g));
+
+    g.addEdge("B", "C", 5);
+    assertEquals(null, Algorithm.topologicalSort(g));
+    assertFalse(Algorithm.isDAG(g.snapshot()));
+
+    Graph<String, Integer> gU = new Graph<>(false);
+    shouldFail((Graph<String, Integer> x) -> Algorithm.topologicalSort(x), IllegalArgumentException.class, gU);
+    assertFalse(Algorithm.isDAG(gU.snapshot()));
+  }
+
+  private static <V, E> void checkTopologicalOrder(Graph<V, E> g, List<V> order) {
+    assertEquals(g.vertexSize(), order.size());
+    assertEquals(g.vertexSet(), new HashSet<>(order));
+    for (E e : g.edgeSet()) {
+      assertTrue(order.indexOf(g.sourceOf(e)) < order.indexOf(g.sinkOf(e)));
+    }
+  }
+
+  @Test
+  public void testStronglyConnectedComponents() {
+    Graph<String, Integer> g = new Graph<>();
+    assertEquals(0, Algorithm.stronglyConnectedComponents(g).size());
+    for (String v : new String[]{"A", "B", "C", "D", "E", "F"}) {
+      g.addVertex(v);
+    }
+    //A-B-C is a cycle, D-E is a cycle, F is alone. A's cycle reaches D's, which reaches F
+    g.addEdge("A", "B", 1);
+    g.addEdge("B", "C", 2);
+    g.addEdge("C", "A", 3);
+    g.addEdge("C", "D", 4);
+    g.addEdge("D", "E", 5);
+    g.addEdge("E", "D", 6);
+    g.addEdge("E", "F", 7);
+    g.addEdge("F", "F", 8);
+
+    List<Set<String>> components = Algorithm.stronglyConnectedComponents(g);
+    assertEquals(3, components.size());
+    assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), components.get(0));
+    assertEquals(new HashSet<>(Arrays.asList("D", "E")), components.get(1));
+    assertEquals(new HashSet<>(Arrays.asList("F")), components.get(2));
+
+    //Joining F back to A makes everything one component
+    g.addEdge("F", "A", 9);
+    assertEquals(1, Algorithm.stronglyConnectedComponents(g).size());
+
+    //Undirected components are connected components
+    Graph<String, Integer> gU = new Graph<>(false);
+    gU.addVertex("A");
+    gU.addVertex("B");
+    gU.addVertex("C");
+    gU.addEdge("A", "B", 1);
+    components = Algorithm.stronglyConnectedComponents(gU);
+    assertEquals(2, components.size());
+    assertTrue(components.contains(new HashSet<>(Arrays.asList("A", "B"))));
+  }
+
+  @Test
+  public void testRandomStronglyConnectedComponents() {
+    Random r = new Random(47);
+    for (int trial = 0; trial < 100; trial++) {
+      int n = 1 + r.nextInt(20);
+      Graph<Integer, Integer> g = new Graph<>();
+      for (int v = 0; v < n; v++) {
+        g.addVertex(v);
+      }
+      int m = r.nextInt(2 * n);
+      for (int e = 0; e < m; e++) {
+        g.addEdge(r.nextInt(n), r.nextInt(n), e);
+      }
+      GraphSnapshot<Integer, Integer> s = g.snapshot();
+      int[] component = Algorithm.stronglyConnectedComponents(s);
+      //Two vertices share a component exactly when each reaches the other
+      boolean[][] reaches = new boolean[n][n];
+      for (int v = 0; v < n; v++) {
+        int[] dist = Algorithm.breadthFirstDistances(s, v);
+        for (int w = 0; w < n; w++) {
+          reaches[v][w] = dist[w] >= 0;
+        }
+      }
+      for (int v = 0; v < n; v++) {
+        for (int w = 0; w < n; w++) {
+          assertEquals(reaches[v][w] && reaches[w][v], component[v] == component[w]);
+          if (reaches[v][w]) assertTrue(component[v] <= component[w]);
+        }
+      }
+
+      //A DAG exactly when every component is a single vertex without a self edge
+      boolean acyclic = Algorithm.findCycle(s) == null;
+      assertEquals(acyclic, Algorithm.isDAG(g));
+      assertEquals(acyclic, Algorithm.topologicalSort(s) != null);
+      if (!acyclic) testIsValidCycle(g, Algorithm.getCycle(g));
+    }
+  }
+
+  @Test
+  public void testLargeDependencyGraph() {
+    //Deep enough to overflow the stack of a recursive search
+    int n = 1000000;
+    Graph<Integer, Integer> g = new Graph<>();
+    for (int v = 0; v < n; v++) {
+      g.addVertex(v);
+    }
+    for (int v = 0; v < n - 1; v++) {
+      g.addEdge(v, v + 1, v);
+    }
+    GraphSnapshot<Integer, Integer> s = g.snapshot();
+    assertTrue(Algorithm.isDAG(s));
+    assertEquals(null, Algorithm.findCycle(s));
+    int[] order = Algorithm.topologicalSort(s);
+    for (int i = 0; i < n; i++) {
+      assertEquals(i, s.vertex(order[i]).intValue());
+    }
+    assertEquals((long) n, Arrays.stream(Algorithm.stronglyConnectedComponents(s)).distinct().count());
+
+    g.addEdge(n - 1, 0, n);
+    s = g.snapshot();
+    assertFalse(Algorithm.isDAG(s));
+    assertEquals(n, Algorithm.findCycle(s).length);
+    assertEquals(1L, Arrays.stream(Algorithm.stronglyConnectedComponents(s)).distinct().count());
+  }
+
   @Test
   public void testIsBipartite() {
     Graph<String, Integer> g = new Graph<String, Integer>();
@@ -86,6 +221,120 @@ public class AlgorithmTest {
     assertFalse(Algorithm.isBipartite(g));
   }
 
+  @Test
+  public void testBreadthFirstDistances() {
+    Graph<String, Integer> g = new Graph<String, Integer>();
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addVertex("D");
+    g.addEdge("A", "B", 1);
+    g.addEdge("B", "C", 2);
+    g.addEdge("A", "C", 3);
+    g.addEdge("D", "A", 4);
+
+    GraphSnapshot<String, Integer> s = g.snapshot();
+    int[] dist = Algorithm.breadthFirstDistances(s, s.indexOf("A"));
+    assertEquals(0, dist[s.indexOf("A")]);
+    assertEquals(1, dist[s.indexOf("B")]);
+    assertEquals(1, dist[s.indexOf("C")]);
+    assertEquals(-1, dist[s.indexOf("D")]);
+
+    dist = Algorithm.breadthFirstDistances(s, s.indexOf("D"));
+    assertEquals(2, dist[s.indexOf("C")]);
+    assertTrue(Algorithm.isBipartite(s) == Algorithm.isBipartite(g));
+    assertFalse(Algorithm.isBipartite(s));
+  }
+
+  @Test
+  public void testParallelBreadthFirstDistances() {
+    Random r = new Random(48);
+    for (int trial = 0; trial < 60; trial++) {
+      //Sparse graphs stay top-down, dense ones switch to bottom-up for their middle levels
+      int n = 1 + r.nextInt(300);
+      int m = r.nextInt(trial % 3 == 0 ? n * 40 : n * 2);
+      GraphSnapshot<Integer, Integer> s = randomGraph(r, n, m, trial % 2 == 0).snapshot();
+      int source = r.nextInt(n);
+      assertEquals(Algorithm.breadthFirstDistances(s, source), Algorithm.breadthFirstDistancesParallel(s, source));
+      assertEquals(Algorithm.breadthFirstDistances(s, source),
+          Algorithm.breadthFirstDistancesParallel(s, source, new ForkJoinPool(3)));
+    }
+
+    GraphSnapshot<Integer, Integer> s = randomGraph(r, 3, 2, true).snapshot();
+    shouldFail((Integer x) -> Algorithm.breadthFirstDistancesParallel(s, x), IllegalArgumentException.class, 3);
+    shouldFail((Integer x) -> Algorithm.breadthFirstDistancesParallel(s, x), IllegalArgumentException.class, -1);
+  }
+
+  @Test
+  public void testConnectedComponents() {
+    Graph<String, Integer> g = new Graph<>();
+    assertEquals(new int[0], Algorithm.connectedComponents(g.snapshot()));
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addVertex("D");
+    //Directions are ignored
+    g.addEdge("B", "A", 1);
+    g.addEdge("C", "C", 2);
+    GraphSnapshot<String, Integer> s = g.snapshot();
+    int[] label = Algorithm.connectedComponents(s);
+    assertEquals(label[s.indexOf("A")], label[s.indexOf("B")]);
+    assertEquals(Math.min(s.indexOf("A"), s.indexOf("B")), label[s.indexOf("A")]);
+    assertEquals(s.indexOf("C"), label[s.indexOf("C")]);
+    assertEquals(s.indexOf("D"), label[s.indexOf("D")]);
+
+    Random r = new Random(49);
+    for (int trial = 0; trial < 60; trial++) {
+      int n = 1 + r.nextInt(300);
+      Graph<Integer, Integer> random = randomGraph(r, n, r.nextInt(n * 2), trial % 2 == 0);
+      GraphSnapshot<Integer, Integer> rs = random.snapshot();
+      label = Algorithm.connectedComponents(rs, new ForkJoinPool(3));
+      //Same as the components found by searching from each vertex with directions ignored
+      Graph<Integer, Integer> undirected = new Graph<>(false);
+      for (int v = 0; v < n; v++) {
+        undirected.addVertex(v);
+      }
+      for (int e : random.edgeSet()) {
+        undirected.addEdge(random.sourceOf(e), random.sinkOf(e), e);
+      }
+      GraphSnapshot<Integer, Integer> u = undirected.snapshot();
+      for (int v = 0; v < n; v++) {
+        int[] dist = Algorithm.breadthFirstDistances(u, u.indexOf(rs.vertex(v)));
+        int smallest = n;
+        for (int w = 0; w < n; w++) {
+          if (dist[u.indexOf(rs.vertex(w))] >= 0) smallest = Math.min(smallest, w);
+        }
+        assertEquals(smallest, label[v]);
+      }
+    }
+  }
+
+  @Test
+  public void testLargeParallelTraversal() {
+    Random r = new Random(50);
+    int n = 200000;
+    GraphSnapshot<Integer, Integer> s = randomGraph(r, n, 2000000, true).snapshot();
+    int[] expected = Algorithm.breadthFirstDistances(s, 0);
+    assertEquals(expected, Algorithm.breadthFirstDistancesParallel(s, 0));
+    int[] label = Algorithm.connectedComponents(s);
+    //Everything reached from 0 is in 0's component
+    for (int v = 0; v < n; v++) {
+      if (expected[v] >= 0) assertEquals(label[0], label[v]);
+    }
+  }
+
+  /** Returns a graph with vertices 0 .. n-1 and m random edges, named 0 .. m-1 */
+  private static Graph<Integer, Integer> randomGraph(Random r, int n, int m, boolean directed) {
+    Graph<Integer, Integer> g = new Graph<>(directed);
+    for (int v = 0; v < n; v++) {
+      g.addVertex(v);
+    }
+    for (int e = 0; e < m; e++) {
+      g.addEdge(r.nextInt(n), r.nextInt(n), e);
+    }
+    return g;
+  }
+
   @Test
   public void testMinimumSpanningTree() {
     Graph<Character, SuperEdge> g = new Graph<>(false);
@@ -118,6 +367,225 @@ public class AlgorithmTest {
     assertEquals(edgeSet, Algorithm.minimumSpanningTree(g));
   }
 
+  @Test
+  public void testMinimumSpanningTreeEngines() {
+    Random r = new Random(51);
+    ForkJoinPool pool = new ForkJoinPool(3);
+    for (int trial = 0; trial < 100; trial++) {
+      int n = 1 + r.nextInt(40);
+      GraphSnapshot<Integer, SuperEdge> s = randomWeightedGraph(r, n, r.nextInt(3 * n), false).snapshot();
+      int[] kruskal = Algorithm.minimumSpanningTree(s);
+      long weight = checkSpanningForest(s, kruskal);
+      assertEquals(weight, checkSpanningForest(s, Algorithm.minimumSpanningTreeBoruvka(s)));
+      assertEquals(weight, checkSpanningForest(s, Algorithm.minimumSpanningTreeBoruvka(s, pool)));
+      assertEquals(weight, checkSpanningForest(s, Algorithm.minimumSpanningTreePrim(s)));
+      assertEquals(weight, bruteForceBranching(s, -1)[1]);
+    }
+
+    GraphSnapshot<Integer, SuperEdge> directed = randomWeightedGraph(r, 3, 3, true).snapshot();
+    shouldFail((GraphSnapshot<Integer, SuperEdge> x) -> Algorithm.minimumSpanningTreeBoruvka(x),
+        IllegalArgumentException.class, directed);
+    shouldFail((GraphSnapshot<Integer, SuperEdge> x) -> Algorithm.minimumSpanningTreePrim(x),
+        IllegalArgumentException.class, directed);
+  }
+
+  @Test
+  public void testLargeMinimumSpanningTree() {
+    Random r = new Random(52);
+    GraphSnapshot<Integer, SuperEdge> s = randomWeightedGraph(r, 100000, 500000, false).snapshot();
+    long weight = checkSpanningForest(s, Algorithm.minimumSpanningTree(s));
+    assertEquals(weight, checkSpanningForest(s, Algorithm.minimumSpanningTreeBoruvka(s)));
+    assertEquals(weight, checkSpanningForest(s, Algorithm.minimumSpanningTreePrim(s)));
+  }
+
+  @Test
+  public void testMinimumArborescence() {
+    Graph<Character, SuperEdge> g = new Graph<>();
+    g.addVertex('A');
+    g.addVertex('B');
+    g.addVertex('C');
+    g.addVertex('D');
+    //B and C are cheapest to reach from each other, but one of them has to be entered from A
+    SuperEdge ab = new SuperEdge("ab").setWeight(10);
+    SuperEdge ac = new SuperEdge("ac").setWeight(12);
+    SuperEdge bc = new SuperEdge("bc").setWeight(1);
+    SuperEdge cb = new SuperEdge("cb").setWeight(1);
+    SuperEdge cd = new SuperEdge("cd").setWeight(5);
+    SuperEdge db = new SuperEdge("db").setWeight(-1);
+    g.addEdge('A', 'B', ab);
+    g.addEdge('A', 'C', ac);
+    g.addEdge('B', 'C', bc);
+    g.addEdge('C', 'B', cb);
+    g.addEdge('C', 'D', cd);
+    g.addEdge('D', 'B', db);
+    assertEquals(new HashSet<>(Arrays.asList(ab, bc, cd)), Algorithm.minimumArborescence(g, 'A'));
+    assertEquals(new HashSet<>(Arrays.asList(ab, bc, cd)), Algorithm.minimumSpanningTree(g));
+    //Nothing reaches A from B
+    assertEquals(null, Algorithm.minimumArborescence(g, 'B'));
+    shouldFail((Character x) -> Algorithm.minimumArborescence(g, x), NotInCollectionException.class, 'E');
+
+    //Without A, the cheapest root is D
+    g.removeVertex('A');
+    assertEquals(new HashSet<>(Arrays.asList(db, bc)), Algorithm.minimumSpanningTree(g));
+    assertEquals(new HashSet<>(Arrays.asList(cd, db)), Algorithm.minimumArborescence(g, 'C'));
+
+    Graph<Character, SuperEdge> gU = new Graph<>(false);
+    gU.addVertex('A');
+    shouldFail((Character x) -> Algorithm.minimumArborescence(gU, x), IllegalArgumentException.class, 'A');
+  }
+
+  @Test
+  public void testRandomMinimumArborescence() {
+    Random r = new Random(53);
+    for (int trial = 0; trial < 300; trial++) {
+      int n = 1 + r.nextInt(6);
+      GraphSnapshot<Integer, SuperEdge> s = randomWeightedGraph(r, n, r.nextInt(3 * n), true).snapshot();
+      int root = r.nextInt(n);
+      long[] expected = bruteForceBranching(s, root);
+      int[] tree = Algorithm.minimumArborescence(s, root);
+      if (expected == null) {
+        assertEquals(null, tree);
+      } else {
+        assertEquals(expected[1], checkBranching(s, tree, 1));
+      }
+
+      //Fewest roots first, then least weight
+      expected = bruteForceBranching(s, -1);
+      assertEquals(expected[1], checkBranching(s, Algorithm.minimumSpanningTree(s), (int) expected[0]));
+    }
+  }
+
+  /**
+   * Checks that tree is a spanning forest of undirected s - it has no cycles, and joins every
+   * pair of vertices s joins - returning its total weight
+   */
+  private static long checkSpanningForest(GraphSnapshot<Integer, SuperEdge> s, int[] tree) {
+    int[] component = Algorithm.connectedComponents(s);
+    long components = Arrays.stream(component).distinct().count();
+    assertEquals(s.vertexCount() - components, (long) tree.length);
+    Graph<Integer, Integer> forest = new Graph<>(false);
+    for (int v = 0; v < s.vertexCount(); v++) {
+      forest.addVertex(v);
+    }
+    long weight = 0;
+    for (int e : tree) {
+      forest.addEdge(s.edgeSource(e), s.edgeSink(e), e);
+      weight += s.weight(e);
+    }
+    assertEquals(component, Algorithm.connectedComponents(forest.snapshot()));
+    return weight;
+  }
+
+  /**
+   * Checks that tree is a branching of directed s with the given number of roots - one edge
+   * into every vertex but the roots, and no cycles - returning its total weight
+   */
+  private static long checkBranching(GraphSnapshot<Integer, SuperEdge> s, int[] tree, int roots) {
+    assertEquals(s.vertexCount() - roots, tree.length);
+    Graph<Integer, Integer> branching = new Graph<>();
+    for (int v = 0; v < s.vertexCount(); v++) {
+      branching.addVertex(v);
+    }
+    long weight = 0;
+    for (int e : tree) {
+      branching.addEdge(s.edgeSource(e), s.edgeSink(e), e);
+      assertTrue(branching.inDegreeOf(s.edgeSink(e)) == 1);
+      weight += s.weight(e);
+    }
+    assertTrue(Algorithm.isDAG(branching));
+    return weight;
+  }
+
+  /**
+   * Returns {roots, weight} of the best branching of s, found by trying every choice of edge
+   * into each vertex. With root -1, any vertices may be roots and the fewest roots is best,
+   * then the least weight. Otherwise only root may be a root. Returns null if no choice works
+   */
+  private static long[] bruteForceBranching(GraphSnapshot<Integer, SuperEdge> s, int root) {
+    int n = s.vertexCount();
+    if (!s.isDirected()) {
+      //The best is a minimum spanning forest, with a root per component
+      long components = Arrays.stream(Algorithm.connectedComponents(s)).distinct().count();
+      return new long[]{components, bruteForceForest(s)};
+    }
+    int[] choice = new int[n];
+    long[] best = null;
+    int[] options = new int[n];
+    for (int v = 0; v < n; v++) {
+      options[v] = s.inDegree(v) + 1; //Last option is no edge
+    }
+    while (true) {
+      int roots = 0;
+      long weight = 0;
+      boolean valid = true;
+      int[] parent = new int[n];
+      for (int v = 0; v < n && valid; v++) {
+        if (choice[v] == options[v] - 1) {
+          parent[v] = -1;
+          roots++;
+          valid = root < 0 || v == root;
+        } else {
+          int slot = s.inStart(v) + choice[v];
+          parent[v] = s.source(slot);
+          weight += s.inWeight(slot);
+          valid = parent[v] != v && v != root;
+        }
+      }
+      //No cycles: walking up from every vertex reaches a root within n steps
+      for (int v = 0; v < n && valid; v++) {
+        int u = v;
+        for (int step = 0; step <= n && u >= 0; step++) {
+          u = parent[u];
+        }
+        valid = u < 0;
+      }
+      if (valid && (best == null || roots < best[0] || (roots == best[0] && weight < best[1]))) {
+        best = new long[]{roots, weight};
+      }
+      int v = 0;
+      while (v < n && ++choice[v] == options[v]) {
+        choice[v++] = 0;
+      }
+      if (v == n) return best;
+    }
+  }
+
+  /** Returns the weight of a minimum spanning forest of undirected s, by Prim's on a matrix */
+  private static long bruteForceForest(GraphSnapshot<Integer, SuperEdge> s) {
+    int n = s.vertexCount();
+    long[][] lightest = new long[n][n];
+    for (long[] row : lightest) {
+      Arrays.fill(row, Long.MAX_VALUE);
+    }
+    for (int e = 0; e < s.edgeCount(); e++) {
+      int a = s.edgeSource(e);
+      int b = s.edgeSink(e);
+      if (a == b) continue;
+      lightest[a][b] = lightest[b][a] = Math.min(lightest[a][b], s.weight(e));
+    }
+    boolean[] inTree = new boolean[n];
+    long[] cost = new long[n];
+    long total = 0;
+    for (int root = 0; root < n; root++) {
+      if (inTree[root]) continue;
+      Arrays.fill(cost, Long.MAX_VALUE);
+      cost[root] = 0;
+      while (true) {
+        int v = -1;
+        for (int w = 0; w < n; w++) {
+          if (!inTree[w] && cost[w] != Long.MAX_VALUE && (v < 0 || cost[w] < cost[v])) v = w;
+        }
+        if (v < 0) break;
+        inTree[v] = true;
+        total += cost[v];
+        for (int w = 0; w < n; w++) {
+          if (!inTree[w]) cost[w] = Math.min(cost[w], lightest[v][w]);
+        }
+      }
+    }
+    return total;
+  }
+
   @Test
   public void testDijkstra() {
     Graph<Character, SuperEdge> g = new Graph<>();
@@ -179,6 +647,184 @@ public class AlgorithmTest {
     assertEquals(path, Algorithm.shortestPath(g, 'C', 'A', heuristic));
   }
 
+  /** Returns a random graph on the vertices 0..n-1 with about m edges of weights in [1,10] */
+  private static Graph<Integer, SuperEdge> randomWeightedGraph(Random r, int n, int m, boolean directed) {
+    Graph<Integer, SuperEdge> g = new Graph<>(directed);
+    for (int i = 0; i < n; i++) {
+      g.addVertex(i);
+    }
+    for (int i = 0; i < m; i++) {
+      int a = r.nextInt(n);
+      int b = r.nextInt(n);
+      g.addEdge(a, b, new SuperEdge(a + "-" + b + "-" + i).setWeight(1 + r.nextInt(10)));
+    }
+    return g;
+  }
+
+  /** Returns the shortest distances from start by Bellman-Ford, Integer.MAX_VALUE for unreachable */
+  private static Map<Integer, Integer> bellmanFord(Graph<Integer, SuperEdge> g, int start) {
+    Map<Integer, Integer> dist = new HashMap<>();
+    for (Integer v : g.vertexSet()) {
+      dist.put(v, Integer.MAX_VALUE);
+    }
+    dist.put(start, 0);
+    for (int i = 0; i < g.vertexSize(); i++) {
+      for (SuperEdge e : g.edgeSet()) {
+        int a = g.sourceOf(e);
+        int b = g.sinkOf(e);
+        if (dist.get(a) != Integer.MAX_VALUE && dist.get(a) + e.getWeight() < dist.get(b))
+          dist.put(b, dist.get(a) + e.getWeight());
+        if (!g.isDirected() && dist.get(b) != Integer.MAX_VALUE && dist.get(b) + e.getWeight() < dist.get(a))
+          dist.put(a, dist.get(b) + e.getWeight());
+      }
+    }
+    return dist;
+  }
+
+  @Test
+  public void testShortestPathTree() {
+    Random r = new Random(17);
+    for (int trial = 0; trial < 20; trial++) {
+      Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 30, 60, trial % 2 == 0);
+      GraphSnapshot<Integer, SuperEdge> s = g.snapshot();
+      ShortestPathTree<Integer, SuperEdge> tree = Algorithm.shortestPathTree(s, 0);
+      assertEquals(Integer.valueOf(0), tree.getRoot());
+      Map<Integer, Integer> expected = bellmanFord(g, 0);
+      for (int v = 0; v < 30; v++) {
+        int d = expected.get(v);
+        if (d == Integer.MAX_VALUE) {
+          assertFalse(tree.isReachable(v));
+          assertEquals(-1L, tree.distanceTo(v));
+          assertEquals(null, tree.pathTo(v));
+          assertEquals(null, Algorithm.shortestPath(s, 0, v));
+        } else {
+          assertEquals((long) d, tree.distanceTo(v));
+          List<Integer> path = tree.pathTo(v);
+          assertEquals(d, Algorithm.sumPathWeight(g, path));
+          assertEquals(path.size() - 1, tree.edgePathTo(v).size());
+          assertEquals(d, Algorithm.sumPathWeight(g, Algorithm.shortestPath(s, 0, v)));
+          //An admissible heuristic doesn't change the length of the path found
+          assertEquals(d, Algorithm.sumPathWeight(g, Algorithm.shortestPath(s, 0, v, (a, b) -> a.equals(b) ? 0 : 1)));
+        }
+      }
+      assertEquals(null, tree.parentOf(0));
+    }
+    Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 5, 5, true);
+    shouldFail((Integer v) -> Algorithm.shortestPathTree(g, v), NotInCollectionException.class, 7);
+  }
+
+  @Test
+  public void testShortestPathDistances() {
+    Random r = new Random(19);
+    Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 40, 80, true);
+    GraphSnapshot<Integer, SuperEdge> s = g.snapshot();
+    List<Integer> sources = Arrays.asList(0, 5, 9);
+    List<Integer> targets = Arrays.asList(3, 5, 30, 3);
+    long[][] dist = Algorithm.shortestPathDistances(s, sources, targets);
+    for (int i = 0; i < sources.size(); i++) {
+      Map<Integer, Integer> expected = bellmanFord(g, sources.get(i));
+      for (int j = 0; j < targets.size(); j++) {
+        int d = expected.get(targets.get(j));
+        assertEquals(d == Integer.MAX_VALUE ? -1L : (long) d, dist[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void testBidirectionalShortestPath() {
+    Random r = new Random(23);
+    for (int trial = 0; trial < 20; trial++) {
+      Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 40, 90, trial % 2 == 0);
+      GraphSnapshot<Integer, SuperEdge> s = g.snapshot();
+      for (int goal = 0; goal < 40; goal++) {
+        List<Integer> expected = Algorithm.shortestPath(s, 0, goal);
+        List<Integer> path = Algorithm.bidirectionalShortestPath(s, 0, goal);
+        List<Integer> guided = Algorithm.bidirectionalShortestPath(s, 0, goal, (a, b) -> a.equals(b) ? 0 : 1);
+        if (expected == null) {
+          assertEquals(null, path);
+          assertEquals(null, guided);
+        } else {
+          int d = Algorithm.sumPathWeight(g, expected);
+          assertEquals(d, Algorithm.sumPathWeight(g, path));
+          assertEquals(d, Algorithm.sumPathWeight(g, guided));
+          assertEquals(Integer.valueOf(0), path.get(0));
+          assertEquals(Integer.valueOf(goal), path.get(path.size() - 1));
+        }
+      }
+    }
+
+    Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 5, 5, true);
+    assertEquals(Arrays.asList(3), Algorithm.bidirectionalShortestPath(g, 3, 3));
+    shouldFail((Integer v) -> Algorithm.bidirectionalShortestPath(g, 0, v), NotInCollectionException.class, 7);
+  }
+
+  @Test
+  public void testShortestPathWorkspaceReuse() {
+    Random r = new Random(39);
+    Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 60, 150, true);
+    GraphSnapshot<Integer, SuperEdge> s = g.snapshot();
+    Map<Integer, Integer> expected = bellmanFord(g, 0);
+
+    //A search abandoned part way through leaves nothing behind for the next one
+    int[] calls = {0};
+    shouldFail((Integer v) -> Algorithm.shortestPath(s, 0, v, (a, b) -> {
+      if (++calls[0] == 10) throw new IllegalStateException();
+      return 0;
+    }), IllegalStateException.class, 59);
+
+    //Searches of one snapshot from many threads at once each get their own state
+    List<Integer> goals = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      goals.add(r.nextInt(60));
+    }
+    goals.parallelStream().forEach(v -> {
+      int d = expected.get(v);
+      List<Integer> path = Algorithm.shortestPath(s, 0, v);
+      List<Integer> other = Algorithm.bidirectionalShortestPath(s, 0, v, (a, b) -> 0);
+      if (d == Integer.MAX_VALUE) {
+        assertEquals(null, path);
+        assertEquals(null, other);
+      } else {
+        assertEquals(d, Algorithm.sumPathWeight(g, path));
+        assertEquals(d, Algorithm.sumPathWeight(g, other));
+      }
+    });
+    long[][] dist = Algorithm.shortestPathDistances(s, Arrays.asList(0, 0), goals);
+    for (int j = 0; j < goals.size(); j++) {
+      int d = expected.get(goals.get(j));
+      assertEquals(d == Integer.MAX_VALUE ? -1L : (long) d, dist[1][j]);
+    }
+  }
+
+  @Test
+  public void testShortestPathTreeParallel() {
+    Random r = new Random(29);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    for (int trial = 0; trial < 10; trial++) {
+      Graph<Integer, SuperEdge> g = randomWeightedGraph(r, 200, 600, trial % 2 == 0);
+      GraphSnapshot<Integer, SuperEdge> s = g.snapshot();
+      ShortestPathTree<Integer, SuperEdge> expected = Algorithm.shortestPathTree(s, 0);
+      for (int delta : new int[]{1, 3, 10, 100}) {
+        ShortestPathTree<Integer, SuperEdge> tree = Algorithm.shortestPathTreeParallel(s, 0, delta, pool);
+        for (int v = 0; v < 200; v++) {
+          assertEquals(expected.distanceTo(v), tree.distanceTo(v));
+          if (tree.isReachable(v)) {
+            assertEquals((int) tree.distanceTo(v), Algorithm.sumPathWeight(g, tree.pathTo(v)));
+          }
+        }
+      }
+      ShortestPathTree<Integer, SuperEdge> tree = Algorithm.shortestPathTreeParallel(s, 0);
+      for (int v = 0; v < 200; v++) {
+        assertEquals(expected.distanceTo(v), tree.distanceTo(v));
+      }
+    }
+    pool.shutdown();
+
+    GraphSnapshot<Integer, SuperEdge> s = randomWeightedGraph(r, 5, 5, true).snapshot();
+    shouldFail((Integer d) -> Algorithm.shortestPathTreeParallel(s, 0, d, ForkJoinPool.commonPool()),
+        IllegalArgumentException.class, 0);
+  }
+
   @Test
   public void testMaxflow() {
     Graph<String, SuperEdge> g = new Graph<>();
@@ -278,6 +924,43 @@ public class AlgorithmTest {
 
   }
 
+  @Test
+  public void testMaxflowEngines() {
+    Random r = new Random(41);
+    for (int trial = 0; trial < 30; trial++) {
+      Graph<Integer, SuperEdge> g = new Graph<>();
+      for (int i = 0; i < 20; i++) {
+        g.addVertex(i);
+      }
+      for (int i = 0; i < 60; i++) {
+        int a = r.nextInt(20);
+        int b = r.nextInt(20);
+        if (g.getConnection(a, b) == null)
+          g.addEdge(a, b, new SuperEdge(a + "-" + b).setCapacity(r.nextInt(20)));
+      }
+      Algorithm.Flow<SuperEdge> pushRelabel = Algorithm.maxFlow(g, 0, 19);
+      Algorithm.Flow<SuperEdge> dinic = Algorithm.maxFlowDinic(g, 0, 19);
+      assertEquals(pushRelabel._1, dinic._1);
+      for (Algorithm.Flow<SuperEdge> f : Arrays.asList(pushRelabel, dinic)) {
+        assertEquals(g.edgeSize(), f._2.size());
+        int out = 0;
+        for (SuperEdge e : g.edgeSetOfSource(0)) {
+          out += f._2.get(e);
+        }
+        for (SuperEdge e : g.edgeSetOfSink(0)) {
+          out -= f._2.get(e);
+        }
+        assertEquals(f._1.intValue(), out);
+      }
+    }
+
+    Graph<String, SuperEdge> g = new Graph<>();
+    g.addVertex("A");
+    g.addVertex("B");
+    shouldFail((String v) -> Algorithm.maxFlow(g, "A", v), NotInCollectionException.class, "C");
+    shouldFail((String v) -> Algorithm.maxFlowDinic(g, v, v), IllegalArgumentException.class, "A");
+  }
+
   @Test
   public void testMinCostMaxFlow() {
     //First test that it still calculates max flow, if all weights are 0
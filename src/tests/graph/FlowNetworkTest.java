@@ -0,0 +1,271 @@
+package graph;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static common.JUnitUtil.*;
+
+/**
+ * @author Mshnik
+ */
+public class FlowNetworkTest {
+
+  @Test
+  public void testConstruction() {
+    FlowNetwork f = new FlowNetwork(3);
+    assertEquals(3, f.vertexCount());
+    assertEquals(0, f.edgeCount());
+    assertEquals(0, f.addEdge(0, 1, 5));
+    assertEquals(1, f.addEdge(1, 2, 3));
+    assertEquals(2, f.edgeCount());
+    assertEquals(1, f.source(1));
+    assertEquals(2, f.sink(1));
+    assertEquals(3, f.capacity(1));
+    assertEquals(0, f.flow(0));
+
+    shouldFail((Integer x) -> new FlowNetwork(x), IllegalArgumentException.class, -1);
+    shouldFail((Integer x) -> f.addEdge(x, 0, 1), IllegalArgumentException.class, 3);
+    shouldFail((Integer x) -> f.addEdge(0, x, 1), IllegalArgumentException.class, -1);
+    shouldFail((Integer x) -> f.addEdge(0, 1, x), IllegalArgumentException.class, -1);
+    shouldFail((Integer x) -> f.maxFlow(x, x), IllegalArgumentException.class, 0);
+    shouldFail((Integer x) -> f.maxFlowDinic(0, x), IllegalArgumentException.class, 3);
+
+    Graph<String, Integer> unflowable = new Graph<>();
+    unflowable.addVertex("A");
+    unflowable.addVertex("B");
+    unflowable.addEdge("A", "B", 1);
+    shouldFail((GraphSnapshot<String, Integer> s) -> new FlowNetwork(s), IllegalArgumentException.class,
+        unflowable.snapshot());
+    Graph<String, SuperEdge> undirected = new Graph<>(false);
+    undirected.addVertex("A");
+    shouldFail((GraphSnapshot<String, SuperEdge> s) -> new FlowNetwork(s), IllegalArgumentException.class,
+        undirected.snapshot());
+  }
+
+  @Test
+  public void testSmallNetwork() {
+    //Classic CLRS network, max flow 23
+    int[][] edges = {{0, 1, 16}, {0, 2, 13}, {2, 1, 4}, {1, 3, 12}, {3, 2, 9},
+        {2, 4, 14}, {4, 3, 7}, {3, 5, 20}, {4, 5, 4}, {5, 5, 100}, {1, 1, 3}};
+    FlowNetwork f = new FlowNetwork(6);
+    for (int[] e : edges) {
+      f.addEdge(e[0], e[1], e[2]);
+    }
+    assertEquals(23L, f.maxFlow(0, 5));
+    checkFlow(f, 0, 5, 23);
+    assertEquals(0, f.flow(9));
+    assertEquals(23L, f.maxFlowDinic(0, 5));
+    checkFlow(f, 0, 5, 23);
+
+    //Running again starts over from zero flow
+    assertEquals(23L, f.maxFlow(0, 5));
+    checkFlow(f, 0, 5, 23);
+
+    //Reverse direction has nothing to carry flow into 0
+    assertEquals(0L, f.maxFlow(5, 0));
+    checkFlow(f, 5, 0, 0);
+
+    //Adding an edge after a flow rebuilds the network
+    f.addEdge(0, 5, 10);
+    assertEquals(0, f.flow(11));
+    assertEquals(33L, f.maxFlowDinic(0, 5));
+    checkFlow(f, 0, 5, 33);
+  }
+
+  @Test
+  public void testRandomNetworks() {
+    Random r = new Random(41);
+    for (int trial = 0; trial < 200; trial++) {
+      int n = 2 + r.nextInt(25);
+      int m = r.nextInt(n * 4);
+      int maxCap = trial % 3 == 0 ? 1 : 1 + r.nextInt(50);
+      FlowNetwork f = new FlowNetwork(n);
+      for (int i = 0; i < m; i++) {
+        f.addEdge(r.nextInt(n), r.nextInt(n), r.nextInt(maxCap + 1));
+      }
+      int s = r.nextInt(n);
+      int t = (s + 1 + r.nextInt(n - 1)) % n;
+      long expected = edmondsKarp(f, s, t);
+      assertEquals(expected, f.maxFlow(s, t));
+      checkFlow(f, s, t, expected);
+      assertEquals(expected, f.maxFlowDinic(s, t));
+      checkFlow(f, s, t, expected);
+    }
+  }
+
+  @Test
+  public void testLargeBipartiteNetwork() {
+    Random r = new Random(5);
+    int side = 20000;
+    int s = 2 * side;
+    int t = s + 1;
+    FlowNetwork f = new FlowNetwork(2 * side + 2);
+    for (int i = 0; i < side; i++) {
+      f.addEdge(s, i, 1);
+      f.addEdge(side + i, t, 1);
+      for (int j = 0; j < 4; j++) {
+        f.addEdge(i, side + r.nextInt(side), 1);
+      }
+    }
+    long value = f.maxFlow(s, t);
+    checkFlow(f, s, t, value);
+    assertEquals(value, f.maxFlowDinic(s, t));
+    checkFlow(f, s, t, value);
+    assertTrue(value > side * 9L / 10);
+  }
+
+  @Test
+  public void testMinCostMaxFlow() {
+    //Two routes from 0 to 3: 0-1-3 costs 2 per unit, 0-2-3 costs 5 per unit
+    FlowNetwork f = new FlowNetwork(4);
+    f.addEdge(0, 1, 4, 1);
+    f.addEdge(1, 3, 3, 1);
+    f.addEdge(0, 2, 5, 2);
+    f.addEdge(2, 3, 5, 3);
+    f.addEdge(1, 2, 2, 0);
+    assertEquals(2, f.cost(2));
+    assertEquals(8L, f.minCostMaxFlow(0, 3));
+    checkFlow(f, 0, 3, 8);
+    //3 along 0-1-3, 1 along 0-1-2-3, 4 along 0-2-3
+    assertEquals(3 * 2 + 4 + 4 * 5L, f.flowCost());
+
+    //Negative costs are fine without negative cycles
+    FlowNetwork g = new FlowNetwork(3);
+    g.addEdge(0, 1, 1, -5);
+    g.addEdge(0, 2, 1, 0);
+    g.addEdge(1, 2, 1, 0);
+    g.addEdge(2, 2, 1, -100);
+    assertEquals(2L, g.minCostMaxFlow(0, 2));
+    assertEquals(-5L, g.flowCost());
+
+    g.addEdge(2, 1, 1, -1);
+    shouldFail((Integer x) -> g.minCostMaxFlow(0, x), IllegalArgumentException.class, 2);
+  }
+
+  @Test
+  public void testRandomMinCostMaxFlow() {
+    Random r = new Random(42);
+    for (int trial = 0; trial < 200; trial++) {
+      int n = 2 + r.nextInt(15);
+      int m = r.nextInt(n * 4);
+      FlowNetwork f = new FlowNetwork(n);
+      for (int i = 0; i < m; i++) {
+        int a = r.nextInt(n);
+        int b = r.nextInt(n);
+        //Edges against the vertex order are expensive enough that no cycle is negative
+        int cost = a < b ? r.nextInt(21) - 10 : 10 * n + r.nextInt(10);
+        f.addEdge(a, b, r.nextInt(10), cost);
+      }
+      int s = r.nextInt(n);
+      int t = (s + 1 + r.nextInt(n - 1)) % n;
+      long[] expected = bellmanFordMinCostFlow(f, s, t);
+      assertEquals(expected[0], f.minCostMaxFlow(s, t));
+      checkFlow(f, s, t, expected[0]);
+      assertEquals(expected[1], f.flowCost());
+    }
+  }
+
+  /** Checks that the flow on f is a valid s-t flow with the given value */
+  private static void checkFlow(FlowNetwork f, int s, int t, long value) {
+    long[] net = new long[f.vertexCount()];
+    for (int e = 0; e < f.edgeCount(); e++) {
+      int flow = f.flow(e);
+      assertTrue(flow >= 0 && flow <= f.capacity(e));
+      net[f.source(e)] -= flow;
+      net[f.sink(e)] += flow;
+    }
+    for (int v = 0; v < net.length; v++) {
+      if (v == s) assertEquals(-value, net[v]);
+      else if (v == t) assertEquals(value, net[v]);
+      else assertEquals(0L, net[v]);
+    }
+  }
+
+  /** Reference max flow by shortest augmenting paths on an adjacency matrix */
+  private static long edmondsKarp(FlowNetwork f, int s, int t) {
+    int n = f.vertexCount();
+    long[][] residual = new long[n][n];
+    for (int e = 0; e < f.edgeCount(); e++) {
+      if (f.source(e) != f.sink(e)) residual[f.source(e)][f.sink(e)] += f.capacity(e);
+    }
+    long total = 0;
+    int[] parent = new int[n];
+    while (true) {
+      Arrays.fill(parent, -1);
+      parent[s] = s;
+      ArrayDeque<Integer> queue = new ArrayDeque<>();
+      queue.add(s);
+      while (!queue.isEmpty() && parent[t] < 0) {
+        int v = queue.poll();
+        for (int w = 0; w < n; w++) {
+          if (parent[w] < 0 && residual[v][w] > 0) {
+            parent[w] = v;
+            queue.add(w);
+          }
+        }
+      }
+      if (parent[t] < 0) return total;
+      long delta = Long.MAX_VALUE;
+      for (int v = t; v != s; v = parent[v]) {
+        delta = Math.min(delta, residual[parent[v]][v]);
+      }
+      for (int v = t; v != s; v = parent[v]) {
+        residual[parent[v]][v] -= delta;
+        residual[v][parent[v]] += delta;
+      }
+      total += delta;
+    }
+  }
+
+  /**
+   * Reference min cost max flow by successive shortest paths found with Bellman-Ford
+   * on adjacency lists of arcs. Returns {flow, cost}
+   */
+  private static long[] bellmanFordMinCostFlow(FlowNetwork f, int s, int t) {
+    int n = f.vertexCount();
+    int arcs = 2 * f.edgeCount();
+    int[] tail = new int[arcs];
+    int[] head = new int[arcs];
+    long[] residual = new long[arcs];
+    long[] cost = new long[arcs];
+    for (int e = 0; e < f.edgeCount(); e++) {
+      tail[2 * e] = f.source(e);
+      head[2 * e] = f.sink(e);
+      residual[2 * e] = f.source(e) == f.sink(e) ? 0 : f.capacity(e);
+      cost[2 * e] = f.cost(e);
+      tail[2 * e + 1] = f.sink(e);
+      head[2 * e + 1] = f.source(e);
+      cost[2 * e + 1] = -f.cost(e);
+    }
+    long flow = 0;
+    long total = 0;
+    long[] dist = new long[n];
+    int[] parent = new int[n];
+    while (true) {
+      Arrays.fill(dist, Long.MAX_VALUE);
+      dist[s] = 0;
+      for (int i = 0; i < n; i++) {
+        for (int a = 0; a < arcs; a++) {
+          if (residual[a] > 0 && dist[tail[a]] != Long.MAX_VALUE && dist[tail[a]] + cost[a] < dist[head[a]]) {
+            dist[head[a]] = dist[tail[a]] + cost[a];
+            parent[head[a]] = a;
+          }
+        }
+      }
+      if (dist[t] == Long.MAX_VALUE) return new long[]{flow, total};
+      long delta = Long.MAX_VALUE;
+      for (int v = t; v != s; v = tail[parent[v]]) {
+        delta = Math.min(delta, residual[parent[v]]);
+      }
+      for (int v = t; v != s; v = tail[parent[v]]) {
+        residual[parent[v]] -= delta;
+        residual[parent[v] ^ 1] += delta;
+      }
+      flow += delta;
+      total += delta * dist[t];
+    }
+  }
+}
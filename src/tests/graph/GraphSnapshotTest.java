@@ -0,0 +1,102 @@
+package graph;
+
+import static common.JUnitUtil.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class GraphSnapshotTest {
+
+  /** Returns the set of "source-sink" strings of the out arcs of v in s */
+  private static <E> Set<String> outArcs(GraphSnapshot<String, E> s, String v) {
+    Set<String> arcs = new HashSet<>();
+    int i = s.indexOf(v);
+    for (int slot = s.outStart(i); slot < s.outEnd(i); slot++) {
+      arcs.add(v + "-" + s.vertex(s.target(slot)));
+    }
+    return arcs;
+  }
+
+  @Test
+  public void testDirected() {
+    Graph<String, SuperEdge> g = new Graph<>();
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addEdge("A", "B", new SuperEdge("ab").setWeight(3).setCapacity(7));
+    g.addEdge("A", "C", new SuperEdge("ac").setWeight(4));
+    g.addEdge("C", "C", new SuperEdge("cc").setWeight(5));
+
+    GraphSnapshot<String, SuperEdge> s = g.snapshot();
+    assertTrue(s.isDirected());
+    assertTrue(s.isWeighted());
+    assertTrue(s.isFlowable());
+    assertEquals(3, s.vertexCount());
+    assertEquals(3, s.edgeCount());
+    assertEquals(-1, s.indexOf("D"));
+    for (int i = 0; i < s.vertexCount(); i++) {
+      assertEquals(i, s.indexOf(s.vertex(i)));
+    }
+
+    Set<String> expected = new HashSet<>();
+    expected.add("A-B");
+    expected.add("A-C");
+    assertEquals(expected, outArcs(s, "A"));
+    assertTrue(outArcs(s, "B").isEmpty());
+    assertEquals(2, s.outDegree(s.indexOf("A")));
+    assertEquals(2, s.inDegree(s.indexOf("C")));
+    assertEquals(0, s.inDegree(s.indexOf("A")));
+
+    //Weights and capacities travel with their edges
+    int a = s.indexOf("A");
+    for (int slot = s.outStart(a); slot < s.outEnd(a); slot++) {
+      SuperEdge e = s.edge(s.outEdge(slot));
+      assertEquals(e.getWeight(), s.outWeight(slot));
+      assertEquals(e.getCapacity(), s.capacity(s.outEdge(slot)));
+      assertEquals(a, s.edgeSource(s.outEdge(slot)));
+    }
+    int b = s.indexOf("B");
+    assertEquals(1, s.inDegree(b));
+    assertEquals(a, s.source(s.inStart(b)));
+    assertEquals(3, s.inWeight(s.inStart(b)));
+
+    //Later changes to the graph aren't reflected
+    g.addEdge("B", "A", new SuperEdge("ba"));
+    assertEquals(3, s.edgeCount());
+    assertEquals(4, g.snapshot().edgeCount());
+  }
+
+  @Test
+  public void testUndirectedAndUnweighted() {
+    Graph<String, Integer> g = new Graph<>(false);
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addEdge("A", "B", 1);
+    g.addEdge("A", "C", 2);
+    g.addEdge("C", "C", 3);
+
+    GraphSnapshot<String, Integer> s = g.snapshot();
+    assertFalse(s.isDirected());
+    assertFalse(s.isWeighted());
+    assertFalse(s.isFlowable());
+    shouldFail(s::weight, UnsupportedOperationException.class, 0);
+    shouldFail(s::capacity, UnsupportedOperationException.class, 0);
+
+    //Every edge is an arc both ways, self edges once
+    Set<String> expected = new HashSet<>();
+    expected.add("C-A");
+    expected.add("C-C");
+    assertEquals(expected, outArcs(s, "C"));
+    expected.clear();
+    expected.add("B-A");
+    assertEquals(expected, outArcs(s, "B"));
+    assertEquals(2, s.inDegree(s.indexOf("A")));
+
+    int[] count = {0};
+    s.forEachNeighbor(s.indexOf("A"), i -> count[0]++);
+    assertEquals(2, count[0]);
+  }
+}
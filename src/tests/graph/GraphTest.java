@@ -7,6 +7,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 
 import common.Copyable;
 import common.dataStructures.NotInCollectionException;
@@ -471,4 +472,89 @@ public class GraphTest {
 
     assertEquals(g.vertexSet(), unmodifiableG.vertexSet());
   }
+
+  @Test
+  public void testRemoveVertexWithEdges() {
+    g.addEdge("B", "A", 4);
+    assertTrue(g.removeVertex("A"));
+    assertEquals(2, g.vertexSize());
+    assertEquals(1, g.edgeSize());
+    assertTrue(g.edgeSet().contains(3));
+    assertEquals(0, g.degreeOf("B"));
+
+    assertTrue(gU.removeVertex("C"));
+    assertEquals(1, gU.edgeSize());
+    assertEquals(1, gU.degreeOf("A"));
+  }
+
+  @Test
+  public void testConnectionIndex() {
+    assertFalse(g.hasConnectionIndex());
+    g.setConnectionIndex(true);
+    assertTrue(g.hasConnectionIndex());
+    assertTrue(g.unmodifiableGraph().hasConnectionIndex());
+    shouldFail((Boolean b) -> g.unmodifiableGraph().setConnectionIndex(b), UnsupportedOperationException.class, false);
+
+    assertEquals(1, g.getConnection("A", "B"));
+    assertEquals(null, g.getConnection("B", "A"));
+    assertEquals(3, g.getConnection("C", "C"));
+    assertFalse(g.addEdge("A", "B", 4));
+    assertTrue(g.addEdge("B", "A", 4));
+    assertEquals(4, g.getConnection("B", "A"));
+    g.removeEdge(1);
+    assertEquals(null, g.getConnection("A", "B"));
+    g.removeVertex("C");
+    g.addVertex("C");
+    assertEquals(null, g.getConnection("C", "C"));
+    assertTrue(g.clone().hasConnectionIndex());
+    g.clear();
+    g.addVertex("A");
+    g.addVertex("B");
+    assertEquals(null, g.getConnection("B", "A"));
+
+    gU.setConnectionIndex(true);
+    assertEquals(1, gU.getConnection("B", "A"));
+    assertEquals(2, gU.getConnection("C", "A"));
+    assertFalse(gU.addEdge("B", "A", 4));
+    gU.setConnectionIndex(false);
+    assertFalse(gU.hasConnectionIndex());
+    assertEquals(2, gU.getConnection("C", "A"));
+  }
+
+  @Test
+  public void testRandomConnectionIndex() {
+    Random r = new Random(49);
+    for (boolean directed : new boolean[]{true, false}) {
+      Graph<Integer, Integer> g = new Graph<>(directed);
+      Graph<Integer, Integer> ref = new Graph<>(directed);
+      g.setConnectionIndex(true);
+      int nextEdge = 0;
+      for (int step = 0; step < 3000; step++) {
+        int op = r.nextInt(10);
+        int v = r.nextInt(25);
+        if (op < 2) {
+          assertEquals(ref.addVertex(v), g.addVertex(v));
+        } else if (op < 7) {
+          int w = r.nextInt(25);
+          if (ref.containsVertex(v) && ref.containsVertex(w)) {
+            assertEquals(ref.addEdge(v, w, nextEdge), g.addEdge(v, w, nextEdge));
+            nextEdge++;
+          }
+        } else if (op < 9) {
+          if (nextEdge > 0) {
+            int e = r.nextInt(nextEdge);
+            assertEquals(ref.removeEdge(e), g.removeEdge(e));
+          }
+        } else {
+          assertEquals(ref.removeVertex(v), g.removeVertex(v));
+        }
+      }
+      assertEquals(ref, g);
+      for (Integer v : ref.vertexSet()) {
+        for (Integer w : ref.vertexSet()) {
+          assertEquals(ref.getConnection(v, w), g.getConnection(v, w));
+        }
+      }
+    }
+  }
 }
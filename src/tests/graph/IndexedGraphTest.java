@@ -0,0 +1,247 @@
+package graph;
+
+import static common.JUnitUtil.*;
+
+import java.util.*;
+
+import common.dataStructures.NotInCollectionException;
+import common.types.Tuple;
+import org.junit.Test;
+
+/**
+ * @author Mshnik
+ */
+public class IndexedGraphTest {
+
+  private static IndexedGraph<String, Integer> abc(boolean directed) {
+    IndexedGraph<String, Integer> g = new IndexedGraph<>(directed);
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addEdge("A", "B", 1);
+    g.addEdge("A", "C", 2);
+    g.addEdge("C", "C", 3);
+    return g;
+  }
+
+  @Test
+  public void testBasics() {
+    IndexedGraph<String, Integer> g = abc(true);
+    assertEquals(3, g.vertexSize());
+    assertEquals(3, g.edgeSize());
+    assertFalse(g.addVertex("A"));
+    assertFalse(g.addEdge("B", "C", 1));
+    assertFalse(g.addEdge("A", "B", 4));
+    assertTrue(g.addEdge("B", "A", 4));
+    shouldFail((String s) -> g.addEdge(s, "A", 5), NotInCollectionException.class, "D");
+
+    assertEquals(1, g.getConnection("A", "B"));
+    assertEquals(4, g.getConnection("B", "A"));
+    assertEquals(null, g.getConnection("B", "C"));
+    assertEquals(3, g.getConnection("C", "C"));
+    assertEquals("B", g.getOther(1, "A"));
+    assertEquals(null, g.getOther(1, "C"));
+    assertEquals(Tuple.of("A", "C"), g.verticesOf(2));
+    assertTrue(g.isSelfEdge(3));
+    assertFalse(g.isSelfEdge(2));
+    assertTrue(g.isEndpointOf(2, "C"));
+    assertEquals("A", g.getSharedEndpoint(1, 2));
+    assertEquals(null, g.getSharedEndpoint(1, 3));
+
+    assertEquals(new HashSet<>(Arrays.asList(1, 2, 4)), g.edgeSetOf("A"));
+    assertEquals(new HashSet<>(Arrays.asList(1, 2)), g.edgeSetOfSource("A"));
+    assertEquals(new HashSet<>(Arrays.asList(4)), g.edgeSetOfSink("A"));
+    assertEquals(3, g.degreeOf("A"));
+    assertEquals(3, g.degreeOf("C")); //Self edges count twice, as in Graph
+    assertEquals(2, g.outDegreeOf("A"));
+    assertEquals(1, g.inDegreeOf("A"));
+    assertEquals(new HashSet<>(Arrays.asList("B", "C")), g.neighborsOf("A"));
+    assertEquals(new HashSet<>(Arrays.asList("C")), g.neighborsOf("C"));
+    shouldFail((String s) -> g.degreeOf(s), NotInCollectionException.class, "D");
+    shouldFail((Integer e) -> g.sourceOf(e), NotInCollectionException.class, 7);
+
+    //Same graph as a plain Graph
+    Graph<String, Integer> plain = new Graph<>(g);
+    assertEquals(plain, g);
+    assertEquals(g, plain);
+    assertEquals(plain.hashCode(), g.hashCode());
+    assertEquals(g, g.clone());
+    assertEquals(g.hashCode(), g.clone().hashCode());
+
+    g.clear();
+    assertEquals(0, g.vertexSize());
+    assertEquals(0, g.edgeSize());
+    assertTrue(g.addVertex("A"));
+    assertEquals(0, g.vertexId("A"));
+  }
+
+  @Test
+  public void testIds() {
+    IndexedGraph<String, Integer> g = abc(true);
+    assertEquals(0, g.vertexId("A"));
+    assertEquals(2, g.vertexId("C"));
+    assertEquals(-1, g.vertexId("D"));
+    assertEquals("B", g.vertex(1));
+    assertEquals(1, g.edgeId(2));
+    assertEquals(-1, g.edgeId(7));
+    assertEquals(3, g.edge(2));
+    assertEquals(0, g.sourceId(1));
+    assertEquals(2, g.sinkId(1));
+    assertEquals(2, g.outDegree(0));
+    assertEquals(2, g.inDegree(2));
+    assertEquals(0, g.outEdge(0, 0));
+    assertEquals(1, g.inEdge(2, 0));
+    shouldFail((Integer i) -> g.vertex(i), IllegalArgumentException.class, 3);
+    shouldFail((Integer i) -> g.edge(i), IllegalArgumentException.class, -1);
+    shouldFail((Integer i) -> g.outEdge(1, i), IllegalArgumentException.class, 0);
+
+    //Removing A gives its id to C, and its edges' ids to the self edge
+    assertTrue(g.removeVertex("A"));
+    assertFalse(g.removeVertex("A"));
+    assertEquals(2, g.vertexSize());
+    assertEquals(1, g.edgeSize());
+    assertEquals(0, g.vertexId("C"));
+    assertEquals(1, g.vertexId("B"));
+    assertEquals(0, g.edgeId(3));
+    assertEquals(0, g.sourceId(0));
+    assertEquals(0, g.sinkId(0));
+    assertEquals(3, g.getConnection("C", "C"));
+
+    //Snapshot indices are ids
+    GraphSnapshot<String, Integer> s = g.snapshot();
+    assertEquals(0, s.indexOf("C"));
+    assertEquals(1, s.indexOf("B"));
+  }
+
+  @Test
+  public void testUndirected() {
+    IndexedGraph<String, Integer> g = abc(false);
+    assertEquals(1, g.getConnection("B", "A"));
+    assertFalse(g.addEdge("B", "A", 4));
+    assertEquals(new HashSet<>(Arrays.asList(1)), g.edgeSetOfSource("B"));
+    assertEquals(new HashSet<>(Arrays.asList(2, 3)), g.edgeSetOfSink("C"));
+    assertEquals(3, g.outDegreeOf("C"));
+    assertEquals(new HashSet<>(Arrays.asList("A", "C")), g.neighborsOf("C"));
+
+    //The self edge is visited once
+    List<Integer> edges = new ArrayList<>();
+    g.forEachOutEdge("C", edges::add);
+    Collections.sort(edges);
+    assertEquals(Arrays.asList(2, 3), edges);
+    List<Integer> neighbors = new ArrayList<>();
+    g.forEachNeighbor(g.vertexId("C"), neighbors::add);
+    Collections.sort(neighbors);
+    assertEquals(Arrays.asList(0, 2), neighbors);
+
+    assertEquals(new Graph<>(g), g);
+    assertTrue(g.removeEdge(1));
+    assertEquals(null, g.getConnection("B", "A"));
+  }
+
+  @Test
+  public void testUnmodifiableAndAlgorithms() {
+    IndexedGraph<String, Integer> g = abc(true);
+    Graph<String, Integer> u = g.unmodifiableGraph();
+    assertEquals(g, u);
+    shouldFail((String s) -> u.addVertex(s), UnsupportedOperationException.class, "D");
+    g.addVertex("D");
+    assertTrue(u.containsVertex("D"));
+
+    assertFalse(Algorithm.isDAG(g));
+    g.removeEdge(3);
+    assertTrue(Algorithm.isDAG(g));
+
+    IndexedGraph<String, SuperEdge> w = new IndexedGraph<>();
+    w.addVertex("A");
+    w.addVertex("B");
+    w.addVertex("C");
+    w.addEdge("A", "B", new SuperEdge("AB").setWeight(1));
+    w.addEdge("B", "C", new SuperEdge("BC").setWeight(1));
+    w.addEdge("A", "C", new SuperEdge("AC").setWeight(5));
+    assertEquals(Arrays.asList("A", "B", "C"), Algorithm.shortestPath(w, "A", "C"));
+    assertEquals(null, Algorithm.shortestPath(w, "C", "A"));
+  }
+
+  @Test
+  public void testRandomAgainstGraph() {
+    Random r = new Random(48);
+    for (int mode = 0; mode < 4; mode++) {
+      boolean directed = mode % 2 == 0;
+      boolean indexed = mode >= 2;
+      for (int trial = 0; trial < 20; trial++) {
+        IndexedGraph<Integer, Integer> g = new IndexedGraph<>(directed);
+        Graph<Integer, Integer> ref = new Graph<>(directed);
+        g.setConnectionIndex(indexed);
+        int nextEdge = 0;
+        for (int step = 0; step < 400; step++) {
+          int op = r.nextInt(10);
+          int v = r.nextInt(30);
+          if (op < 3) {
+            assertEquals(ref.addVertex(v), g.addVertex(v));
+          } else if (op < 8) {
+            int w = r.nextInt(30);
+            if (ref.containsVertex(v) && ref.containsVertex(w)) {
+              assertEquals(ref.addEdge(v, w, nextEdge), g.addEdge(v, w, nextEdge));
+              nextEdge++;
+            }
+          } else if (op < 9) {
+            if (nextEdge > 0) {
+              int e = r.nextInt(nextEdge);
+              assertEquals(ref.removeEdge(e), g.removeEdge(e));
+            }
+          } else {
+            assertEquals(ref.removeVertex(v), g.removeVertex(v));
+          }
+        }
+        check(g, ref);
+        assertEquals(indexed, g.clone().hasConnectionIndex());
+        g.setConnectionIndex(!indexed);
+        check(g, ref);
+      }
+    }
+  }
+
+  /** Checks that g and ref contain the same graph, and that g's ids are dense and consistent */
+  private static void check(IndexedGraph<Integer, Integer> g, Graph<Integer, Integer> ref) {
+    assertEquals(ref.vertexSet(), g.vertexSet());
+    assertEquals(ref.edgeSet(), g.edgeSet());
+    assertEquals(ref.vertexSize(), g.vertexSize());
+    assertEquals(ref.edgeSize(), g.edgeSize());
+    for (int id = 0; id < g.vertexSize(); id++) {
+      assertEquals(id, g.vertexId(g.vertex(id)));
+    }
+    for (int id = 0; id < g.edgeSize(); id++) {
+      Integer e = g.edge(id);
+      assertEquals(id, g.edgeId(e));
+      assertEquals(ref.sourceOf(e), g.vertex(g.sourceId(id)));
+      assertEquals(ref.sinkOf(e), g.vertex(g.sinkId(id)));
+    }
+    for (Integer v : ref.vertexSet()) {
+      assertEquals(ref.edgeSetOf(v), g.edgeSetOf(v));
+      assertEquals(ref.edgeSetOfSource(v), g.edgeSetOfSource(v));
+      assertEquals(ref.edgeSetOfSink(v), g.edgeSetOfSink(v));
+      assertEquals(ref.neighborsOf(v), g.neighborsOf(v));
+      assertEquals(ref.degreeOf(v), g.degreeOf(v));
+      assertEquals(ref.outDegreeOf(v), g.outDegreeOf(v));
+      assertEquals(ref.inDegreeOf(v), g.inDegreeOf(v));
+
+      List<Integer> refEdges = new ArrayList<>();
+      ref.forEachOutEdge(v, refEdges::add);
+      List<Integer> edges = new ArrayList<>();
+      g.forEachOutEdge(g.vertexId(v), e -> edges.add(g.edge(e)));
+      Collections.sort(refEdges);
+      Collections.sort(edges);
+      assertEquals(refEdges, edges);
+      assertEquals(ref.edgeSetOfSource(v), new HashSet<>(edges));
+
+      List<Integer> neighbors = new ArrayList<>();
+      g.forEachNeighbor(v, neighbors::add);
+      assertEquals(refEdges.size(), neighbors.size());
+      assertEquals(ref.neighborsOf(v), new HashSet<>(neighbors));
+
+      for (Integer w : ref.vertexSet()) {
+        assertEquals(ref.getConnection(v, w), g.getConnection(v, w));
+      }
+    }
+  }
+}
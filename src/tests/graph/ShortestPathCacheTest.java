@@ -0,0 +1,254 @@
+package graph;
+
+import static common.JUnitUtil.*;
+
+import java.util.*;
+
+import common.dataStructures.NotInCollectionException;
+import org.junit.Test;
+
+/**
+ * @author Mshnik
+ */
+public class ShortestPathCacheTest {
+
+  /** A -> B -> C -> D, each of weight 1, and A -> D of weight 5 */
+  private static Graph<String, SuperEdge> line(boolean directed) {
+    Graph<String, SuperEdge> g = new Graph<>(directed);
+    for (String v : new String[]{"A", "B", "C", "D"}) {
+      g.addVertex(v);
+    }
+    g.addEdge("A", "B", new SuperEdge("AB").setWeight(1));
+    g.addEdge("B", "C", new SuperEdge("BC").setWeight(1));
+    g.addEdge("C", "D", new SuperEdge("CD").setWeight(1));
+    g.addEdge("A", "D", new SuperEdge("AD").setWeight(5));
+    return g;
+  }
+
+  @Test
+  public void testQueriesAndMetrics() {
+    Graph<String, SuperEdge> g = line(true);
+    ShortestPathCache<String, SuperEdge> c = new ShortestPathCache<>(g);
+    assertFalse(c.isIncremental());
+    assertEquals(Arrays.asList("A", "B", "C", "D"), c.shortestPath("A", "D"));
+    assertEquals(3L, c.distance("A", "D"));
+    assertEquals(Arrays.asList("BC", "CD"), names(c.edgePath("B", "D")));
+    assertEquals(new ArrayList<String>(), names(c.edgePath("B", "B")));
+    assertEquals(null, c.shortestPath("D", "A"));
+    assertEquals(-1L, c.distance("D", "A"));
+    assertEquals(null, c.edgePath("D", "A"));
+    assertEquals(3L, c.misses());
+    assertEquals(4L, c.hits());
+    assertEquals(3, c.size());
+    shouldFail((String s) -> c.shortestPath("A", s), NotInCollectionException.class, "E");
+
+    //Removing an edge no tree uses drops nothing
+    g.removeEdge(g.getConnection("A", "D"));
+    assertEquals(0L, c.invalidations());
+    assertEquals(3L, c.distance("A", "D"));
+    assertEquals(5L, c.hits());
+
+    //Removing one drops exactly the trees that use it
+    g.removeEdge(g.getConnection("B", "C"));
+    assertEquals(2L, c.invalidations());
+    assertEquals(1, c.size());
+    assertEquals(-1L, c.distance("A", "D"));
+    assertEquals(4L, c.misses());
+
+    //A new edge only matters where it shortens something - here, D now reaches C
+    c.distance("C", "C");
+    g.addEdge("D", "C", new SuperEdge("DC").setWeight(1));
+    assertEquals(3L, c.invalidations());
+    assertEquals(2, c.size());
+    g.addEdge("B", "D", new SuperEdge("BD").setWeight(2));
+    assertEquals(4L, c.invalidations());
+    assertEquals(Arrays.asList("A", "B", "D", "C"), c.shortestPath("A", "C"));
+
+    //Removing a vertex drops its own tree and every tree through it
+    c.distance("B", "A");
+    c.distance("C", "D");
+    c.distance("D", "C");
+    assertEquals(4, c.size());
+    g.removeVertex("C");
+    assertEquals(8L, c.invalidations());
+    assertEquals(0, c.size());
+    assertEquals(Arrays.asList("A", "B", "D"), c.shortestPath("A", "D"));
+    g.clear();
+    assertEquals(9L, c.invalidations());
+    assertEquals(0, c.size());
+
+    c.resetMetrics();
+    assertEquals(0L, c.hits() + c.misses() + c.invalidations() + c.repairs());
+    c.detach();
+    g.addVertex("A");
+    assertEquals(0L, c.distance("A", "A"));
+    g.addVertex("B");
+    g.addEdge("A", "B", new SuperEdge("AB").setWeight(1));
+    assertEquals(0L, c.invalidations());
+  }
+
+  @Test
+  public void testWeightChanges() {
+    Graph<String, SuperEdge> g = line(false);
+    ShortestPathCache<String, SuperEdge> c = new ShortestPathCache<>(g, true);
+    assertEquals(3L, c.distance("D", "A"));
+
+    //Increasing a tree edge's weight drops the tree
+    SuperEdge bc = g.getConnection("B", "C");
+    bc.setWeight(3);
+    g.edgeChanged(bc);
+    assertEquals(1L, c.invalidations());
+    assertEquals(5L, c.distance("D", "A"));
+    assertEquals(Arrays.asList("D", "A"), c.shortestPath("D", "A"));
+
+    //Decreasing a weight is repaired in place
+    bc.setWeight(1);
+    g.edgeChanged(bc);
+    assertEquals(1L, c.invalidations());
+    assertEquals(1L, c.repairs());
+    assertEquals(3L, c.distance("D", "A"));
+    assertEquals(Arrays.asList("D", "C", "B", "A"), c.shortestPath("D", "A"));
+    assertEquals(2L, c.misses());
+
+    //Changes that shorten nothing do nothing
+    SuperEdge ad = g.getConnection("A", "D");
+    ad.setWeight(4);
+    g.edgeChanged(ad);
+    assertEquals(1L, c.invalidations());
+    assertEquals(1L, c.repairs());
+
+    //A non-positive weight can't be repaired around
+    ad.setWeight(0);
+    g.edgeChanged(ad);
+    assertEquals(2L, c.invalidations());
+    shouldFail((String s) -> c.distance(s, "A"), RuntimeException.class, "D");
+    shouldFail((SuperEdge e) -> g.edgeChanged(e), NotInCollectionException.class, new SuperEdge("XY"));
+  }
+
+  @Test
+  public void testListeners() {
+    for (Graph<String, SuperEdge> g : Arrays.asList(new Graph<String, SuperEdge>(), new IndexedGraph<String, SuperEdge>())) {
+      List<String> events = new ArrayList<>();
+      GraphListener<Object, Object> listener = new GraphListener<Object, Object>() {
+        @Override
+        public void vertexAdded(Object v) {
+          events.add("+" + v);
+        }
+
+        @Override
+        public void vertexRemoved(Object v) {
+          events.add("-" + v);
+        }
+
+        @Override
+        public void edgeAdded(Object source, Object sink, Object e) {
+          events.add("+" + source + e + sink);
+        }
+
+        @Override
+        public void edgeRemoved(Object source, Object sink, Object e) {
+          events.add("-" + source + e + sink);
+        }
+
+        @Override
+        public void edgeChanged(Object source, Object sink, Object e) {
+          events.add("~" + e);
+        }
+
+        @Override
+        public void graphCleared() {
+          events.add("clear");
+        }
+      };
+      g.unmodifiableGraph().addListener(listener);
+      g.addVertex("A");
+      g.addVertex("B");
+      g.addVertex("B");
+      SuperEdge e = new SuperEdge("e");
+      g.addEdge("A", "B", e);
+      g.addEdge("B", "A", e);
+      g.edgeChanged(e);
+      g.removeVertex("A");
+      g.clear();
+      assertTrue(g.removeListener(listener));
+      assertFalse(g.removeListener(listener));
+      g.addVertex("C");
+      assertEquals(Arrays.asList("+A", "+B", "+AeB", "~e", "-AeB", "-A", "clear"), events);
+    }
+  }
+
+  @Test
+  public void testRandomAgainstDijkstra() {
+    Random r = new Random(50);
+    for (int mode = 0; mode < 8; mode++) {
+      boolean directed = (mode & 1) == 0;
+      boolean incremental = (mode & 2) == 0;
+      Graph<Integer, SuperEdge> g = (mode & 4) == 0 ? new Graph<>(directed) : new IndexedGraph<>(directed);
+      int n = 40;
+      for (int v = 0; v < n; v++) {
+        g.addVertex(v);
+      }
+      ShortestPathCache<Integer, SuperEdge> c = new ShortestPathCache<>(g, incremental);
+      List<SuperEdge> edges = new ArrayList<>();
+      int nextEdge = 0;
+      for (int step = 0; step < 600; step++) {
+        int op = r.nextInt(10);
+        if (op < 4) {
+          SuperEdge e = new SuperEdge("e" + nextEdge++).setWeight(1 + r.nextInt(10));
+          int u = r.nextInt(n);
+          int v = r.nextInt(n);
+          if (g.containsVertex(u) && g.containsVertex(v) && g.addEdge(u, v, e))
+            edges.add(e);
+        } else if (op < 6 && !edges.isEmpty()) {
+          g.removeEdge(edges.remove(r.nextInt(edges.size())));
+        } else if (op < 8 && !edges.isEmpty()) {
+          SuperEdge e = edges.get(r.nextInt(edges.size()));
+          e.setWeight(Math.max(1, e.getWeight() + r.nextInt(7) - 4));
+          g.edgeChanged(e);
+        } else if (op < 9) {
+          int v = r.nextInt(n);
+          if (g.containsVertex(v)) {
+            edges.removeAll(g.edgeSetOf(v));
+            g.removeVertex(v);
+          } else {
+            g.addVertex(v);
+          }
+        }
+
+        //Query a few hot starts, checking against a fresh search
+        for (int q = 0; q < 3; q++) {
+          int s = r.nextInt(4);
+          int t = r.nextInt(n);
+          if (!g.containsVertex(s) || !g.containsVertex(t)) continue;
+          long expected = Algorithm.shortestPathTree(g, s).distanceTo((Integer) t);
+          assertEquals(expected, c.distance(s, t));
+          List<SuperEdge> path = c.edgePath(s, t);
+          if (expected < 0) {
+            assertEquals(null, path);
+          } else {
+            long length = 0;
+            Integer at = s;
+            for (SuperEdge e : path) {
+              at = g.getOther(e, at);
+              assertTrue(at != null);
+              length += e.getWeight();
+            }
+            assertEquals(t, at);
+            assertEquals(expected, length);
+          }
+        }
+      }
+      assertTrue(c.hits() > c.misses());
+      if (incremental) assertTrue(c.repairs() > 0);
+      else assertEquals(0L, c.repairs());
+    }
+  }
+
+  private static List<String> names(List<SuperEdge> edges) {
+    List<String> names = new ArrayList<>();
+    for (SuperEdge e : edges) {
+      names.add(e.name);
+    }
+    return names;
+  }
+}
@@ -0,0 +1,94 @@
+package graph.matching;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static common.JUnitUtil.*;
+
+/**
+ * Compares the parallel auction against the sequential Hungarian algorithm on
+ * random assignment problems of increasing size.
+ *
+ * @author Mshnik
+ */
+public class AuctionStressTest {
+
+  private static final int[] SIZES = {1000, 4000, 16000};
+
+  @Test
+  public void testSparseAssignment() {
+    //Every agent can be matched to the item with its own index, and has a few other options
+    Random r = new Random(45);
+    for (int n : SIZES) {
+      BipartiteGraph g = new BipartiteGraph(n, n);
+      HashMap<Long, Integer> values = new HashMap<>();
+      for (int u = 0; u < n; u++) {
+        addEdge(g, values, u, u, r.nextInt(100));
+        for (int j = 0; j < 9; j++) {
+          addEdge(g, values, u, r.nextInt(n), r.nextInt(100));
+        }
+      }
+      compare("Assignment", g, values);
+    }
+  }
+
+  @Test
+  public void testUnbalancedAssignment() {
+    //Many agents are left unmatched, so cardinality has to win over value
+    Random r = new Random(46);
+    for (int n : SIZES) {
+      BipartiteGraph g = new BipartiteGraph(n, n / 2);
+      HashMap<Long, Integer> values = new HashMap<>();
+      for (int u = 0; u < n; u++) {
+        for (int j = 0; j < 5; j++) {
+          addEdge(g, values, u, r.nextInt(n / 2), r.nextInt(100));
+        }
+      }
+      compare("Unbalanced", g, values);
+    }
+  }
+
+  /** Adds the edge to g unless it is already there, recording its value */
+  private static void addEdge(BipartiteGraph g, HashMap<Long, Integer> values, int left, int right, int value) {
+    if (values.putIfAbsent(key(left, right), value) == null) g.addEdge(left, right, value);
+  }
+
+  private static long key(int left, int right) {
+    return ((long) left << 32) | right;
+  }
+
+  /** Solves g both ways, printing the times, and checks both have the same size and value */
+  private static void compare(String name, BipartiteGraph g, HashMap<Long, Integer> values) {
+    long startTime = System.currentTimeMillis();
+    int[] hungarian = g.maxValueMaxMatching();
+    long hungarianTime = System.currentTimeMillis() - startTime;
+    System.out.println(name + " " + g.leftCount() + " Hungarian " + hungarianTime + "ms");
+
+    startTime = System.currentTimeMillis();
+    int[] auction = g.maxValueMaxMatchingAuction(ForkJoinPool.commonPool());
+    long auctionTime = System.currentTimeMillis() - startTime;
+    System.out.println(name + " " + g.leftCount() + " Auction " + auctionTime + "ms");
+
+    assertEquals(size(hungarian), size(auction));
+    assertEquals(value(values, hungarian), value(values, auction));
+  }
+
+  private static long size(int[] match) {
+    long c = 0;
+    for (int v : match) {
+      if (v >= 0) c++;
+    }
+    return c;
+  }
+
+  private static long value(HashMap<Long, Integer> values, int[] match) {
+    long total = 0;
+    for (int u = 0; u < match.length; u++) {
+      if (match[u] >= 0) total += values.get(key(u, match[u]));
+    }
+    return total;
+  }
+}
@@ -0,0 +1,180 @@
+package graph.matching;
+
+import graph.FlowNetwork;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static common.JUnitUtil.*;
+
+/**
+ * @author Mshnik
+ */
+public class BipartiteGraphTest {
+
+  @Test
+  public void testConstruction() {
+    BipartiteGraph g = new BipartiteGraph(2, 3);
+    assertEquals(2, g.leftCount());
+    assertEquals(3, g.rightCount());
+    assertEquals(1, g.capacity(2));
+    g.setCapacity(2, 4);
+    assertEquals(4, g.capacity(2));
+    assertEquals(0, g.addEdge(0, 2, 5));
+    assertEquals(1, g.edgeCount());
+
+    shouldFail((Integer x) -> new BipartiteGraph(x, 1), IllegalArgumentException.class, -1);
+    shouldFail((Integer x) -> g.addEdge(x, 0, 0), IllegalArgumentException.class, 2);
+    shouldFail((Integer x) -> g.addEdge(0, x, 0), IllegalArgumentException.class, 3);
+    shouldFail((Integer x) -> g.setCapacity(0, x), IllegalArgumentException.class, -1);
+  }
+
+  @Test
+  public void testMaxMatching() {
+    //0 and 1 both want 0, but 1 can also take 1. 2 wants nothing
+    BipartiteGraph g = new BipartiteGraph(3, 2);
+    g.addEdge(0, 0, 0);
+    g.addEdge(1, 0, 0);
+    g.addEdge(1, 1, 0);
+    assertEquals(new int[]{0, 1, -1}, g.maxMatching());
+
+    //With two copies of 0, 1 can have either
+    g.setCapacity(0, 2);
+    int[] match = g.maxMatching();
+    assertEquals(0, match[0]);
+    assertTrue(match[1] >= 0);
+
+    //Without any copies, only 1 can be matched
+    g.setCapacity(0, 0);
+    assertEquals(new int[]{-1, 1, -1}, g.maxMatching());
+  }
+
+  @Test
+  public void testMaxValueMaxMatching() {
+    //Cardinality comes first: 0 would rather have 0, but then 1 is unmatched
+    BipartiteGraph g = new BipartiteGraph(2, 2);
+    g.addEdge(0, 0, 10);
+    g.addEdge(0, 1, 1);
+    g.addEdge(1, 0, 1);
+    assertEquals(new int[]{1, 0}, g.maxValueMaxMatching());
+    assertEquals(new int[]{1, 0}, g.maxValueMaxMatchingAuction(ForkJoinPool.commonPool()));
+
+    //Given two copies of 0, both take it
+    g.setCapacity(0, 2);
+    assertEquals(new int[]{0, 0}, g.maxValueMaxMatching());
+    assertEquals(new int[]{0, 0}, g.maxValueMaxMatchingAuction(ForkJoinPool.commonPool()));
+
+    //Negative values are fine
+    BipartiteGraph g2 = new BipartiteGraph(2, 2);
+    g2.addEdge(0, 0, -1);
+    g2.addEdge(0, 1, -5);
+    g2.addEdge(1, 0, -2);
+    g2.addEdge(1, 1, -3);
+    assertEquals(new int[]{0, 1}, g2.maxValueMaxMatching());
+    assertEquals(new int[]{0, 1}, g2.maxValueMaxMatchingAuction(ForkJoinPool.commonPool()));
+
+    //Nothing to match
+    assertEquals(new int[]{-1}, new BipartiteGraph(1, 0).maxValueMaxMatchingAuction(ForkJoinPool.commonPool()));
+    assertEquals(new int[0], new BipartiteGraph(0, 1).maxValueMaxMatchingAuction(ForkJoinPool.commonPool()));
+
+    //Values so spread out that scaling them overflows
+    BipartiteGraph g3 = new BipartiteGraph(100000, 1);
+    g3.addEdge(0, 0, Integer.MIN_VALUE);
+    g3.addEdge(1, 0, Integer.MAX_VALUE);
+    shouldFail((ForkJoinPool p) -> g3.maxValueMaxMatchingAuction(p), ArithmeticException.class,
+        ForkJoinPool.commonPool());
+  }
+
+  @Test
+  public void testRandomAgainstFlows() {
+    Random r = new Random(43);
+    for (int trial = 0; trial < 200; trial++) {
+      int left = 1 + r.nextInt(12);
+      int right = 1 + r.nextInt(12);
+      BipartiteGraph g = new BipartiteGraph(left, right);
+      //Source, lefts, rights, sink
+      int s = left + right;
+      int t = s + 1;
+      FlowNetwork f = new FlowNetwork(left + right + 2);
+      int[][] value = new int[left][right];
+      boolean[][] edge = new boolean[left][right];
+      for (int v = 0; v < right; v++) {
+        int c = r.nextInt(3);
+        g.setCapacity(v, c);
+        f.addEdge(left + v, t, c);
+      }
+      for (int u = 0; u < left; u++) {
+        f.addEdge(s, u, 1);
+        for (int v = 0; v < right; v++) {
+          if (r.nextInt(3) == 0) {
+            edge[u][v] = true;
+            value[u][v] = r.nextInt(41) - 20;
+            g.addEdge(u, v, value[u][v]);
+            f.addEdge(u, left + v, 1, -value[u][v]);
+          }
+        }
+      }
+      long size = f.maxFlow(s, t);
+      int[] match = g.maxMatching();
+      checkMatching(g, match, edge);
+      assertEquals(size, count(match));
+
+      assertEquals(size, f.minCostMaxFlow(s, t));
+      match = g.maxValueMaxMatching();
+      checkMatching(g, match, edge);
+      assertEquals(size, count(match));
+      long total = 0;
+      for (int u = 0; u < left; u++) {
+        if (match[u] >= 0) total += value[u][match[u]];
+      }
+      assertEquals(-f.flowCost(), total);
+
+      match = g.maxValueMaxMatchingAuction(ForkJoinPool.commonPool());
+      checkMatching(g, match, edge);
+      assertEquals(size, count(match));
+      total = 0;
+      for (int u = 0; u < left; u++) {
+        if (match[u] >= 0) total += value[u][match[u]];
+      }
+      assertEquals(-f.flowCost(), total);
+    }
+  }
+
+  @Test
+  public void testLargeMatching() {
+    Random r = new Random(44);
+    int n = 10000;
+    BipartiteGraph g = new BipartiteGraph(n, n);
+    for (int u = 0; u < n; u++) {
+      for (int j = 0; j < 5; j++) {
+        g.addEdge(u, r.nextInt(n), r.nextInt(100));
+      }
+    }
+    long size = count(g.maxMatching());
+    assertTrue(size > n * 9L / 10);
+    assertEquals(size, count(g.maxValueMaxMatching()));
+  }
+
+  /** Checks that match uses only edges of g, and respects capacities */
+  private static void checkMatching(BipartiteGraph g, int[] match, boolean[][] edge) {
+    int[] load = new int[g.rightCount()];
+    for (int u = 0; u < match.length; u++) {
+      if (match[u] >= 0) {
+        assertTrue(edge[u][match[u]]);
+        load[match[u]]++;
+      }
+    }
+    for (int v = 0; v < load.length; v++) {
+      assertTrue(load[v] <= g.capacity(v));
+    }
+  }
+
+  private static long count(int[] match) {
+    long c = 0;
+    for (int v : match) {
+      if (v >= 0) c++;
+    }
+    return c;
+  }
+}
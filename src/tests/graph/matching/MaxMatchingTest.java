@@ -1,5 +1,6 @@
 package graph.matching;
 
+import common.Copyable;
 import graph.Algorithm;
 import org.junit.Test;
 
@@ -134,5 +135,48 @@ public class MaxMatchingTest  {
     assertEquals("A", m5.getMatchedB(alice));
     assertEquals("B", m5.getMatchedB(bob));
     assertEquals("C", m5.getMatchedB(charlie));
+
+    //The auction solves the same problem
+    Matching<TestAgent, String> m6 = Algorithm.maxValueMaxMatchingAuction(agents, items, null);
+    assertEquals(3, m6.size());
+    assertEquals("A", m6.getMatchedB(alice));
+    assertEquals("B", m6.getMatchedB(bob));
+    assertEquals("C", m6.getMatchedB(charlie));
+    Matching<TestAgent, String> m7 = Algorithm.maxValueMaxMatchingAuction(agents2, items, null);
+    assertEquals(2, m7.size());
+    assertEquals("B", m7.getMatchedB(bob2));
+  }
+
+  @Test
+  public void testItemCounts() {
+    TestAgent alice = new TestAgent("alice").withPref("A", 1).withPref("B", 5);
+    TestAgent bob = new TestAgent("bob").withPref("B", 5);
+    TestAgent charlie = new TestAgent("charlie").withPref("B", 1).withPref("C", 2);
+    Collection<TestAgent> agents = Arrays.asList(alice, bob, charlie);
+    Map<String, Integer> counts = new HashMap<>();
+    counts.put("A", 1);
+    counts.put("B", 2);
+    counts.put("C", 0);
+
+    Matching<TestAgent, Copyable<String>> m = Algorithm.maxMatching(agents, counts);
+    assertEquals(3, m.size());
+    assertEquals(3, m.getB().size());
+    assertEquals("B", m.getMatchedB(bob).get());
+    assertEquals("B", m.getMatchedB(charlie).get());
+    assertEquals("A", m.getMatchedB(alice).get());
+    assertTrue(m.getMatchedB(bob) != m.getMatchedB(charlie));
+
+    //Cardinality comes before value, so alice still takes A
+    Matching<TestAgent, Copyable<String>> m2 = Algorithm.maxValueMaxMatching(agents, counts, null);
+    assertEquals(3, m2.size());
+    assertEquals("A", m2.getMatchedB(alice).get());
+
+    //With a C to take, charlie leaves B to alice
+    counts.put("C", 1);
+    Matching<TestAgent, Copyable<String>> m3 = Algorithm.maxValueMaxMatching(agents, counts, null);
+    assertEquals(3, m3.size());
+    assertEquals("B", m3.getMatchedB(alice).get());
+    assertEquals("B", m3.getMatchedB(bob).get());
+    assertEquals("C", m3.getMatchedB(charlie).get());
   }
 }
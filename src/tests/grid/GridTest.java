@@ -3,6 +3,7 @@ package grid;
 import static common.JUnitUtil.*;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import functional.impl.ex.Consumer1Ex;
 import functional.impl.ex.SupplierEx;
@@ -242,4 +243,58 @@ public class GridTest {
     }
 
   }
+
+  @Test
+  public void testSpliterator() {
+    Grid<IntTile> g = new Grid<>(20, 7, 3);
+    Random r = new Random(9);
+    List<IntTile> expected = new ArrayList<>();
+    int v = 0;
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 7; j++) {
+        for (int k = 0; k < 3; k++) {
+          if (r.nextInt(3) == 0) {
+            IntTile t = new IntTile(v++, i, j, k);
+            g.add(t);
+            expected.add(t);
+          }
+        }
+      }
+    }
+
+    Spliterator<IntTile> s = g.spliterator();
+    assertEquals((long) g.size(), s.estimateSize());
+    assertTrue(s.hasCharacteristics(Spliterator.SUBSIZED));
+    Spliterator<IntTile> prefix = s.trySplit();
+    assertEquals((long) g.size(), prefix.estimateSize() + s.estimateSize());
+    assertEquals(expected.stream().filter(t -> t.getLocation()[0] < 10).count(), prefix.estimateSize());
+
+    List<IntTile> traversed = new ArrayList<>();
+    assertTrue(prefix.tryAdvance(traversed::add));
+    assertEquals(prefix.estimateSize() + 1, (long) g.size() - s.estimateSize());
+    prefix.forEachRemaining(traversed::add);
+    s.forEachRemaining(traversed::add);
+    assertEquals(expected, traversed);
+
+    assertEquals(expected, g.parallelStream().collect(Collectors.toList()));
+    assertEquals(expected.size(), (int) g.parallelStream().filter(t -> t.val >= 0).count());
+    assertEquals(0L, new Grid<IntTile>().stream().count());
+
+    Spliterator<IntTile> s2 = g.spliterator();
+    g.remove(expected.get(0));
+    shouldFail(() -> s2.tryAdvance(t -> {}), ConcurrentModificationException.class);
+
+    //Splits after a change see the new slice sizes
+    expected.remove(0);
+    IntTile added = new IntTile(v, 19, 6, 2);
+    g.remove(added.getLocation());
+    g.add(added);
+    expected.removeIf(t -> Arrays.equals(t.getLocation(), added.getLocation()));
+    expected.add(added);
+    Spliterator<IntTile> s3 = g.spliterator();
+    Spliterator<IntTile> quarter = s3.trySplit().trySplit();
+    assertEquals(expected.stream().filter(t -> t.getLocation()[0] < 5).count(), quarter.estimateSize());
+    assertEquals(expected.stream().filter(t -> t.getLocation()[0] >= 10).count(), s3.estimateSize());
+    assertEquals(expected, g.parallelStream().collect(Collectors.toList()));
+  }
 }